@@ -0,0 +1,55 @@
+package com.example.noisecancellation.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every FFT benchmark and writes the results as JSON,
+ * so they can be diffed between releases.
+ *
+ * The benchmarks live outside of src/ because they depend
+ * on JMH (jmh-core and jmh-generator-annprocess), which the
+ * app must not ship with. To run them, compile this source
+ * root together with the pure-Java packages under src/
+ * (com.example.noisecancellation.fft and edu.emory.mathcs)
+ * with the JMH annotation processor enabled, then:
+ * <pre>
+ *     java -cp &lt;classpath&gt; com.example.noisecancellation.bench.BenchmarkRunner [results.json]
+ * </pre>
+ * Plain JMH command line options work too, e.g.
+ * <code>org.openjdk.jmh.Main -rf json -rff results.json</code>.
+ * To measure FloatFFT_1D with its SIMD kernels, build the
+ * simd/ source root as well and add
+ * <code>--add-modules jdk.incubator.vector</code> to the
+ * forked JVMs' arguments.
+ */
+public final class BenchmarkRunner
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *---------------------------------------*/
+    private static final String DEFAULT_RESULT_FILE = "fft-benchmarks.json";
+
+    private BenchmarkRunner()
+    {
+
+    }   /* BenchmarkRunner() */
+
+    public static void main( String [] args ) throws RunnerException
+    {
+        String  file = ( args.length > 0 ) ? args[ 0 ] : DEFAULT_RESULT_FILE;
+        Options opt  = new OptionsBuilder()
+                           .include( FFT_WrapperBenchmark.class.getSimpleName() )
+                           .include( JTransformsBenchmark.class.getSimpleName() )
+                           .resultFormat( ResultFormatType.JSON )
+                           .result( file )
+                           .build();
+
+        new Runner( opt ).run();
+
+    }   /* main() */
+
+};  /* BenchmarkRunner */
@@ -0,0 +1,48 @@
+package com.example.noisecancellation.bench;
+
+/**
+ * Transform sizes shared by the FFT benchmarks.
+ *
+ * JMH needs @Param values to be compile-time constants,
+ * so the lists are kept here as strings and referenced
+ * from each benchmark's @Param annotation.
+ *
+ * <ul>
+ *   <li>Powers of two take JTransforms' split-radix path.</li>
+ *   <li>Everything else takes the mixed-radix path, unless
+ *       what is left after dividing out factors of 2, 3, 4
+ *       and 5 is 211 or more, in which case it goes through
+ *       Bluestein's algorithm.</li>
+ * </ul>
+ *
+ * The device sizes are what Mic.getSuggestedBufferSize()
+ * returns on typical handsets (in bytes), and the matching
+ * sample counts, at 8, 44.1 and 48 kHz:
+ * <pre>
+ *     8000 Hz  :  1024 bytes -&gt;  512 samples (power of two)
+ *     44100 Hz :  3528 bytes -&gt; 1764 samples (mixed radix, 7^2)
+ *     48000 Hz :  3840 bytes -&gt; 1920 samples (mixed radix)
+ * </pre>
+ */
+final class BenchmarkSizes
+{
+    static final String POW2_1  = "256";
+    static final String POW2_2  = "512";
+    static final String POW2_3  = "1024";
+    static final String POW2_4  = "16384";
+    static final String MIXED_1 = "480";
+    static final String MIXED_2 = "1764";
+    static final String MIXED_3 = "1920";
+    static final String MIXED_4 = "3528";
+    static final String MIXED_5 = "3840";
+    static final String MIXED_6 = "6000";
+    static final String BLUE_1  = "422";
+    static final String BLUE_2  = "1021";
+    static final String BLUE_3  = "4099";
+
+    private BenchmarkSizes()
+    {
+
+    }   /* BenchmarkSizes() */
+
+};  /* BenchmarkSizes */
@@ -0,0 +1,171 @@
+package com.example.noisecancellation.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.noisecancellation.fft.FFT_Wrapper;
+
+/**
+ * JMH benchmarks for the FFT_Wrapper entry points, in
+ * both single and double precision.
+ *
+ * Each benchmark returns its result so JMH can consume
+ * it, and works on inputs prepared in setUp(), so only
+ * the wrapper call itself (including whatever it
+ * allocates) is measured.
+ *
+ * The *Into benchmarks write into preallocated output
+ * arrays, and the packed (r*) ones use the half-spectrum
+ * real path, so each can be compared against the
+ * allocating full-spectrum call above it.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+public class FFT_WrapperBenchmark
+{
+    @Param( { BenchmarkSizes.POW2_1,  BenchmarkSizes.POW2_2,  BenchmarkSizes.POW2_3,  BenchmarkSizes.POW2_4,
+              BenchmarkSizes.MIXED_1, BenchmarkSizes.MIXED_2, BenchmarkSizes.MIXED_3, BenchmarkSizes.MIXED_4,
+              BenchmarkSizes.MIXED_5, BenchmarkSizes.MIXED_6,
+              BenchmarkSizes.BLUE_1,  BenchmarkSizes.BLUE_2,  BenchmarkSizes.BLUE_3 } )
+    public int size;
+
+    private FFT_Wrapper fft;
+    private double []   d_x;
+    private double []   d_y;
+    private double []   d_spectrum;
+    private double []   d_out;
+    private float  []   f_x;
+    private float  []   f_y;
+    private float  []   f_spectrum;
+    private float  []   f_out;
+
+    @Setup
+    public void setUp()
+    {
+        int    i;
+        Random r = new Random( 42 );
+
+        fft   = new FFT_Wrapper( size );
+        d_x   = new double[ size ];
+        d_y   = new double[ size ];
+        f_x   = new float[ size ];
+        f_y   = new float[ size ];
+        d_out = new double[ size << 2 ];
+        f_out = new float[ size << 2 ];
+
+        for( i = 0; i < size; ++i )
+        {
+            d_x[ i ] = r.nextDouble() - 0.5;
+            d_y[ i ] = r.nextDouble() - 0.5;
+            f_x[ i ] = (float)d_x[ i ];
+            f_y[ i ] = (float)d_y[ i ];
+        }
+
+        d_spectrum = fft.fft( d_x );
+        f_spectrum = fft.fft( f_x );
+
+    }   /* setUp() */
+
+    /*-----------------------------------------
+     * Double precision
+     *---------------------------------------*/
+    @Benchmark
+    public double [] fftDouble()        { return( fft.fft( d_x ) );            }
+
+    @Benchmark
+    public double [] ifftDouble()       { return( fft.ifft( d_spectrum ) );    }
+
+    @Benchmark
+    public double [] cconvolveDouble()  { return( fft.cconvolve( d_x, d_y ) ); }
+
+    @Benchmark
+    public double [] convolveDouble()   { return( fft.convolve( d_x, d_y ) );  }
+
+    @Benchmark
+    public double [] fftIntoDouble()
+    {
+        fft.fftInto( d_x, 0, size, d_out, 0 );
+        return( d_out );
+    }
+
+    @Benchmark
+    public double [] rfftIntoDouble()
+    {
+        fft.rfftInto( d_x, 0, size, d_out, 0 );
+        return( d_out );
+    }
+
+    @Benchmark
+    public double [] cconvolveIntoDouble()
+    {
+        fft.cconvolveInto( d_x, 0, d_y, 0, size, d_out, 0 );
+        return( d_out );
+    }
+
+    @Benchmark
+    public double [] rcconvolveIntoDouble()
+    {
+        fft.rcconvolveInto( d_x, 0, d_y, 0, size, d_out, 0 );
+        return( d_out );
+    }
+
+    /*-----------------------------------------
+     * Single precision
+     *---------------------------------------*/
+    @Benchmark
+    public float [] fftFloat()          { return( fft.fft( f_x ) );            }
+
+    @Benchmark
+    public float [] ifftFloat()         { return( fft.ifft( f_spectrum ) );    }
+
+    @Benchmark
+    public float [] cconvolveFloat()    { return( fft.cconvolve( f_x, f_y ) ); }
+
+    @Benchmark
+    public float [] convolveFloat()     { return( fft.convolve( f_x, f_y ) );  }
+
+    @Benchmark
+    public float [] fftIntoFloat()
+    {
+        fft.fftInto( f_x, 0, size, f_out, 0 );
+        return( f_out );
+    }
+
+    @Benchmark
+    public float [] rfftIntoFloat()
+    {
+        fft.rfftInto( f_x, 0, size, f_out, 0 );
+        return( f_out );
+    }
+
+    @Benchmark
+    public float [] cconvolveIntoFloat()
+    {
+        fft.cconvolveInto( f_x, 0, f_y, 0, size, f_out, 0 );
+        return( f_out );
+    }
+
+    @Benchmark
+    public float [] rcconvolveIntoFloat()
+    {
+        fft.rcconvolveInto( f_x, 0, f_y, 0, size, f_out, 0 );
+        return( f_out );
+    }
+
+};  /* FFT_WrapperBenchmark */
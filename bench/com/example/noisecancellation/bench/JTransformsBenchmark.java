@@ -0,0 +1,126 @@
+package com.example.noisecancellation.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+
+/**
+ * JMH benchmarks for the JTransforms 1D plans used by
+ * FFT_Wrapper, called directly.
+ *
+ * The transforms work in place, so every benchmark first
+ * copies its input into a preallocated work array. The
+ * copy is a small, fixed part of each measurement and
+ * keeps every iteration transforming the same data.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+public class JTransformsBenchmark
+{
+    @Param( { BenchmarkSizes.POW2_1,  BenchmarkSizes.POW2_2,  BenchmarkSizes.POW2_3,  BenchmarkSizes.POW2_4,
+              BenchmarkSizes.MIXED_1, BenchmarkSizes.MIXED_2, BenchmarkSizes.MIXED_3, BenchmarkSizes.MIXED_4,
+              BenchmarkSizes.MIXED_5, BenchmarkSizes.MIXED_6,
+              BenchmarkSizes.BLUE_1,  BenchmarkSizes.BLUE_2,  BenchmarkSizes.BLUE_3 } )
+    public int size;
+
+    private DoubleFFT_1D d_plan;
+    private FloatFFT_1D  f_plan;
+    private double []    d_in;
+    private double []    d_work;
+    private float  []    f_in;
+    private float  []    f_work;
+
+    @Setup
+    public void setUp()
+    {
+        int    i;
+        Random r = new Random( 42 );
+
+        d_plan = new DoubleFFT_1D( size );
+        f_plan = new FloatFFT_1D( size );
+        d_in   = new double[ size << 1 ];
+        d_work = new double[ size << 1 ];
+        f_in   = new float[ size << 1 ];
+        f_work = new float[ size << 1 ];
+
+        for( i = 0; i < ( size << 1 ); ++i )
+        {
+            d_in[ i ] = r.nextDouble() - 0.5;
+            f_in[ i ] = (float)d_in[ i ];
+        }
+
+    }   /* setUp() */
+
+    /*-----------------------------------------
+     * Double precision
+     *---------------------------------------*/
+    @Benchmark
+    public double [] realForwardDouble()
+    {
+        System.arraycopy( d_in, 0, d_work, 0, size );
+        d_plan.realForward( d_work );
+        return( d_work );
+    }
+
+    @Benchmark
+    public double [] realForwardFullDouble()
+    {
+        System.arraycopy( d_in, 0, d_work, 0, size );
+        d_plan.realForwardFull( d_work );
+        return( d_work );
+    }
+
+    @Benchmark
+    public double [] complexForwardDouble()
+    {
+        System.arraycopy( d_in, 0, d_work, 0, size << 1 );
+        d_plan.complexForward( d_work );
+        return( d_work );
+    }
+
+    /*-----------------------------------------
+     * Single precision
+     *---------------------------------------*/
+    @Benchmark
+    public float [] realForwardFloat()
+    {
+        System.arraycopy( f_in, 0, f_work, 0, size );
+        f_plan.realForward( f_work );
+        return( f_work );
+    }
+
+    @Benchmark
+    public float [] realForwardFullFloat()
+    {
+        System.arraycopy( f_in, 0, f_work, 0, size );
+        f_plan.realForwardFull( f_work );
+        return( f_work );
+    }
+
+    @Benchmark
+    public float [] complexForwardFloat()
+    {
+        System.arraycopy( f_in, 0, f_work, 0, size << 1 );
+        f_plan.complexForward( f_work );
+        return( f_work );
+    }
+
+};  /* JTransformsBenchmark */
@@ -0,0 +1,374 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is JTransforms.
+ *
+ * The Initial Developer of the Original Code is
+ * Piotr Wendykier, Emory University.
+ * Portions created by the Initial Developer are Copyright (C) 2007-2009
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package edu.emory.mathcs.jtransforms.fft;
+
+import java.util.function.IntPredicate;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * FloatKernels using the Vector API, at the widest vector the platform
+ * prefers: the Bluestein products and the radix-4 butterflies of cftf1st,
+ * cftb1st, cftmdl1 and cftmdl2. The results are bit for bit the same as the
+ * plain kernels: every lane does the same single precision multiplies and
+ * adds, in the same order, and subtracting is done as adding the negation,
+ * which IEEE 754 defines to be the same.<br>
+ * <br>
+ * The butterflies are written out in each loop rather than shared: C2 won't
+ * inline a method that big taking vectors, and then boxes every vector it
+ * passes. Each block of positions is done together with its mirror image,
+ * which uses the same twiddles in reverse.<br>
+ * <br>
+ * This source root is kept apart from src/ because Android has no Vector
+ * API. On a JVM that does (JDK 16 or later), compile it against the classes
+ * built from src/:
+ * 
+ * <pre>
+ *     javac --add-modules jdk.incubator.vector -cp &lt;src classes&gt; -d &lt;out&gt; \
+ *           simd/edu/emory/mathcs/jtransforms/fft/VectorFloatKernels.java
+ * </pre>
+ * 
+ * and run with <code>&lt;out&gt;</code> on the class path and
+ * <code>--add-modules jdk.incubator.vector</code>. FloatKernels finds it at
+ * class load; without the module, or on a platform with vectors narrower
+ * than four floats, it falls back to the plain kernels.
+ */
+final class VectorFloatKernels extends FloatKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Floats per vector, which is also the span of butterfly positions one
+     * vector covers.
+     */
+    private static final int STEP = SPECIES.length();
+
+    /**
+     * (re, im) to (im, re).
+     */
+    private static final VectorShuffle<Float> SWAP = VectorShuffle.fromOp(SPECIES, i -> i ^ 1);
+
+    /**
+     * (re, im) to (re, re).
+     */
+    private static final VectorShuffle<Float> REAL = VectorShuffle.fromOp(SPECIES, i -> i & ~1);
+
+    /**
+     * (re, im) to (im, im).
+     */
+    private static final VectorShuffle<Float> IMAG = VectorShuffle.fromOp(SPECIES, i -> i | 1);
+
+    /**
+     * As REAL, with the complex numbers in reverse order.
+     */
+    private static final VectorShuffle<Float> REVERSED_REAL = VectorShuffle.fromOp(SPECIES, i -> STEP - 2 - (i & ~1));
+
+    /**
+     * As IMAG, with the complex numbers in reverse order.
+     */
+    private static final VectorShuffle<Float> REVERSED_IMAG = VectorShuffle.fromOp(SPECIES, i -> STEP - 1 - (i & ~1));
+
+    private static final FloatVector MINUS_PLUS = alternate(-1, 1);
+
+    private static final FloatVector PLUS_MINUS = alternate(1, -1);
+
+    /*
+     * cftmdl1 and cftmdl2 keep a quartet (w1r, w1i, w3r, w3i) per position,
+     * so two vectors of the table hold the quartets for one vector of
+     * positions. These gather the (w1r, w1i) or (w3r, w3i) of each position
+     * into one vector: the wrapped indexes pick from both table vectors, and
+     * the mask takes the upper half from the second.
+     */
+    private static final VectorShuffle<Float> QUARTET_1 = VectorShuffle.fromOp(SPECIES, i -> (4 * (i >> 1) + (i & 1)) % STEP);
+
+    private static final VectorShuffle<Float> QUARTET_3 = VectorShuffle.fromOp(SPECIES, i -> (4 * (i >> 1) + 2 + (i & 1)) % STEP);
+
+    private static final VectorMask<Float> UPPER = mask(i -> i >= STEP / 2);
+
+    /*
+     * cftf1st and cftb1st keep a quartet per pair of positions; the first
+     * position's twiddles are interpolated and the second's are the table
+     * entry. These gather them the same way from a vector of interpolated
+     * quartets and one of table quartets, taking every other complex number
+     * from the second.
+     */
+    private static final VectorShuffle<Float> PAIR_1 = VectorShuffle.fromOp(SPECIES, i -> 4 * (i >> 2) + (i & 1));
+
+    private static final VectorShuffle<Float> PAIR_3 = VectorShuffle.fromOp(SPECIES, i -> 4 * (i >> 2) + 2 + (i & 1));
+
+    private static final VectorMask<Float> ODD = mask(i -> ((i >> 1) & 1) == 1);
+
+    /**
+     * (w0, w1, w2, w3, ...) to (w2, w2, w3, w3, ...), the interpolation
+     * factors of cftf1st.
+     */
+    private static final VectorShuffle<Float> CSC = VectorShuffle.fromOp(SPECIES, i -> 2 + ((i >> 1) & 1));
+
+    VectorFloatKernels() {
+        if (SPECIES.length() < 4) {
+            throw new UnsupportedOperationException("Vectors of " + SPECIES.length() + " floats are too narrow");
+        }
+    }
+
+    /**
+     * With x = (xr, xi) and y = (yr, yi), x * (yr, yr) is (xr*yr, xi*yr) and
+     * swap(x) * (yi, yi) is (xi*yi, xr*yi); adding the second with
+     * alternating signs gives the product, or with y conjugated. The
+     * butterflies multiply by their twiddles the same way.
+     */
+    @Override
+    void cmul(float[] x, int offx, float[] y, int offy, float[] out, int offo, int n, boolean conj) {
+        int len = 2 * n;
+        int bound = SPECIES.loopBound(len);
+        FloatVector sign = conj ? PLUS_MINUS : MINUS_PLUS;
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector xv = FloatVector.fromArray(SPECIES, x, offx + i);
+            FloatVector yv = FloatVector.fromArray(SPECIES, y, offy + i);
+            FloatVector cross = xv.rearrange(SWAP).mul(yv.rearrange(IMAG)).mul(sign);
+            xv.mul(yv.rearrange(REAL)).add(cross).intoArray(out, offo + i);
+        }
+        if (i < len) {
+            super.cmul(x, offx + i, y, offy + i, out, offo + i, (len - i) / 2, conj);
+        }
+    }
+
+    /**
+     * A vector of positions j at a time (h = 0), then their mirror images
+     * (h = 1), which use the same twiddles in reverse with re and im
+     * swapped.
+     */
+    @Override
+    void cftmdl1Loop(float[] a, int offa, int m, float[] w, int startw, int from, int to) {
+        int j = from;
+        for (; j + STEP <= to; j += STEP) {
+            FloatVector w0 = FloatVector.fromArray(SPECIES, w, startw + 2 * j);
+            FloatVector w1 = FloatVector.fromArray(SPECIES, w, startw + 2 * j + STEP);
+            FloatVector wk1 = w0.rearrange(QUARTET_1).blend(w1.rearrange(QUARTET_1), UPPER);
+            FloatVector wk3 = w0.rearrange(QUARTET_3).blend(w1.rearrange(QUARTET_3), UPPER);
+            for (int h = 0; h < 2; h++) {
+                int i = (h == 0) ? offa + j : offa + m - j - STEP + 2;
+                FloatVector t1r = wk1.rearrange((h == 0) ? REAL : REVERSED_IMAG);
+                FloatVector t1i = wk1.rearrange((h == 0) ? IMAG : REVERSED_REAL);
+                FloatVector t3r = wk3.rearrange((h == 0) ? REAL : REVERSED_IMAG);
+                FloatVector t3i = wk3.rearrange((h == 0) ? IMAG : REVERSED_REAL);
+                FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+                FloatVector vb = FloatVector.fromArray(SPECIES, a, i + m);
+                FloatVector vc = FloatVector.fromArray(SPECIES, a, i + 2 * m);
+                FloatVector vd = FloatVector.fromArray(SPECIES, a, i + 3 * m);
+                FloatVector x0 = va.add(vc);
+                FloatVector x1 = va.sub(vc);
+                FloatVector x2 = vb.add(vd);
+                FloatVector x3 = vb.sub(vd).rearrange(SWAP);
+                x0.add(x2).intoArray(a, i);
+                x0.sub(x2).intoArray(a, i + m);
+                x0 = x1.add(x3.mul(MINUS_PLUS));
+                x2 = x1.add(x3.mul(PLUS_MINUS));
+                x0.mul(t1r).add(x0.rearrange(SWAP).mul(t1i).mul(MINUS_PLUS)).intoArray(a, i + 2 * m);
+                x2.mul(t3r).add(x2.rearrange(SWAP).mul(t3i).mul(PLUS_MINUS)).intoArray(a, i + 3 * m);
+            }
+        }
+        if (j < to) {
+            super.cftmdl1Loop(a, offa, m, w, startw, j, to);
+        }
+    }
+
+    /**
+     * As cftmdl1Loop(). Every position p uses the quartet at 2p as is and
+     * the one at 2m - 2p with re and im swapped, so a block and its mirror
+     * image share the same two pairs of table vectors, the other way round.
+     */
+    @Override
+    void cftmdl2Loop(float[] a, int offa, int m, float[] w, int startw, int from, int to) {
+        int j = from;
+        for (; j + STEP <= to; j += STEP) {
+            int iw = startw + 2 * j;
+            int id = startw + 2 * m - 2 * j - 2 * STEP + 4;
+            FloatVector w0 = FloatVector.fromArray(SPECIES, w, iw);
+            FloatVector w1 = FloatVector.fromArray(SPECIES, w, iw + STEP);
+            FloatVector wk1 = w0.rearrange(QUARTET_1).blend(w1.rearrange(QUARTET_1), UPPER);
+            FloatVector wk3 = w0.rearrange(QUARTET_3).blend(w1.rearrange(QUARTET_3), UPPER);
+            w0 = FloatVector.fromArray(SPECIES, w, id);
+            w1 = FloatVector.fromArray(SPECIES, w, id + STEP);
+            FloatVector wd1 = w0.rearrange(QUARTET_1).blend(w1.rearrange(QUARTET_1), UPPER);
+            FloatVector wd3 = w0.rearrange(QUARTET_3).blend(w1.rearrange(QUARTET_3), UPPER);
+            for (int h = 0; h < 2; h++) {
+                int i = (h == 0) ? offa + j : offa + m - j - STEP + 2;
+                FloatVector t1r = ((h == 0) ? wk1 : wd1).rearrange(REAL);
+                FloatVector t1i = ((h == 0) ? wk1 : wd1).rearrange(IMAG);
+                FloatVector t3r = ((h == 0) ? wk3 : wd3).rearrange(REAL);
+                FloatVector t3i = ((h == 0) ? wk3 : wd3).rearrange(IMAG);
+                FloatVector d1r = ((h == 0) ? wd1 : wk1).rearrange(REVERSED_IMAG);
+                FloatVector d1i = ((h == 0) ? wd1 : wk1).rearrange(REVERSED_REAL);
+                FloatVector d3r = ((h == 0) ? wd3 : wk3).rearrange(REVERSED_IMAG);
+                FloatVector d3i = ((h == 0) ? wd3 : wk3).rearrange(REVERSED_REAL);
+                FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+                FloatVector vb = FloatVector.fromArray(SPECIES, a, i + m);
+                FloatVector vc = FloatVector.fromArray(SPECIES, a, i + 2 * m).rearrange(SWAP);
+                FloatVector vd = FloatVector.fromArray(SPECIES, a, i + 3 * m).rearrange(SWAP);
+                FloatVector x0 = va.add(vc.mul(MINUS_PLUS));
+                FloatVector x2 = vb.add(vd.mul(MINUS_PLUS));
+                FloatVector y0 = x0.mul(t1r).add(x0.rearrange(SWAP).mul(t1i).mul(MINUS_PLUS));
+                FloatVector y2 = x2.mul(d1r).add(x2.rearrange(SWAP).mul(d1i).mul(MINUS_PLUS));
+                y0.add(y2).intoArray(a, i);
+                y0.sub(y2).intoArray(a, i + m);
+                x0 = va.add(vc.mul(PLUS_MINUS));
+                x2 = vb.add(vd.mul(PLUS_MINUS));
+                y0 = x0.mul(t3r).add(x0.rearrange(SWAP).mul(t3i).mul(PLUS_MINUS));
+                y2 = x2.mul(d3r).add(x2.rearrange(SWAP).mul(d3i).mul(PLUS_MINUS));
+                y0.add(y2).intoArray(a, i + 2 * m);
+                y0.sub(y2).intoArray(a, i + 3 * m);
+            }
+        }
+        if (j < to) {
+            super.cftmdl2Loop(a, offa, m, w, startw, j, to);
+        }
+    }
+
+    /**
+     * As cftmdl1Loop(), with the twiddles of every other position
+     * interpolated from the table entries either side of it. The first pair
+     * of positions, whose interpolation starts from 1 rather than a table
+     * entry, is left to the plain loop.
+     */
+    @Override
+    void cftf1stLoop(float[] a, int offa, int m, float[] w, int startw, int from, int to) {
+        int j = from;
+        if (j == 2) {
+            super.cftf1stLoop(a, offa, m, w, startw, 2, Math.min(6, to));
+            j = 6;
+        }
+        FloatVector csc = FloatVector.fromArray(SPECIES, w, startw).rearrange(CSC);
+        for (; j + STEP <= to; j += STEP) {
+            FloatVector cur = FloatVector.fromArray(SPECIES, w, startw + j + 2);
+            FloatVector mid = csc.mul(FloatVector.fromArray(SPECIES, w, startw + j - 2).add(cur));
+            FloatVector wk1 = mid.rearrange(PAIR_1).blend(cur.rearrange(PAIR_1), ODD);
+            FloatVector wk3 = mid.rearrange(PAIR_3).blend(cur.rearrange(PAIR_3), ODD);
+            for (int h = 0; h < 2; h++) {
+                int i = (h == 0) ? offa + j : offa + m - j - STEP + 2;
+                FloatVector t1r = wk1.rearrange((h == 0) ? REAL : REVERSED_IMAG);
+                FloatVector t1i = wk1.rearrange((h == 0) ? IMAG : REVERSED_REAL);
+                FloatVector t3r = wk3.rearrange((h == 0) ? REAL : REVERSED_IMAG);
+                FloatVector t3i = wk3.rearrange((h == 0) ? IMAG : REVERSED_REAL);
+                FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+                FloatVector vb = FloatVector.fromArray(SPECIES, a, i + m);
+                FloatVector vc = FloatVector.fromArray(SPECIES, a, i + 2 * m);
+                FloatVector vd = FloatVector.fromArray(SPECIES, a, i + 3 * m);
+                FloatVector x0 = va.add(vc);
+                FloatVector x1 = va.sub(vc);
+                FloatVector x2 = vb.add(vd);
+                FloatVector x3 = vb.sub(vd).rearrange(SWAP);
+                x0.add(x2).intoArray(a, i);
+                x0.sub(x2).intoArray(a, i + m);
+                x0 = x1.add(x3.mul(MINUS_PLUS));
+                x2 = x1.add(x3.mul(PLUS_MINUS));
+                x0.mul(t1r).add(x0.rearrange(SWAP).mul(t1i).mul(MINUS_PLUS)).intoArray(a, i + 2 * m);
+                x2.mul(t3r).add(x2.rearrange(SWAP).mul(t3i).mul(PLUS_MINUS)).intoArray(a, i + 3 * m);
+            }
+        }
+        if (j < to) {
+            super.cftf1stLoop(a, offa, m, w, startw, j, to);
+        }
+    }
+
+    /**
+     * As cftf1stLoop(), with the inverse butterfly, which conjugates the
+     * first and third legs.
+     */
+    @Override
+    void cftb1stLoop(float[] a, int offa, int m, float[] w, int startw, int from, int to) {
+        int j = from;
+        if (j == 2) {
+            super.cftb1stLoop(a, offa, m, w, startw, 2, Math.min(6, to));
+            j = 6;
+        }
+        FloatVector csc = FloatVector.fromArray(SPECIES, w, startw).rearrange(CSC);
+        for (; j + STEP <= to; j += STEP) {
+            FloatVector cur = FloatVector.fromArray(SPECIES, w, startw + j + 2);
+            FloatVector mid = csc.mul(FloatVector.fromArray(SPECIES, w, startw + j - 2).add(cur));
+            FloatVector wk1 = mid.rearrange(PAIR_1).blend(cur.rearrange(PAIR_1), ODD);
+            FloatVector wk3 = mid.rearrange(PAIR_3).blend(cur.rearrange(PAIR_3), ODD);
+            for (int h = 0; h < 2; h++) {
+                int i = (h == 0) ? offa + j : offa + m - j - STEP + 2;
+                FloatVector t1r = wk1.rearrange((h == 0) ? REAL : REVERSED_IMAG);
+                FloatVector t1i = wk1.rearrange((h == 0) ? IMAG : REVERSED_REAL);
+                FloatVector t3r = wk3.rearrange((h == 0) ? REAL : REVERSED_IMAG);
+                FloatVector t3i = wk3.rearrange((h == 0) ? IMAG : REVERSED_REAL);
+                FloatVector va = FloatVector.fromArray(SPECIES, a, i).mul(PLUS_MINUS);
+                FloatVector vb = FloatVector.fromArray(SPECIES, a, i + m);
+                FloatVector vc = FloatVector.fromArray(SPECIES, a, i + 2 * m).mul(PLUS_MINUS);
+                FloatVector vd = FloatVector.fromArray(SPECIES, a, i + 3 * m);
+                FloatVector x0 = va.add(vc);
+                FloatVector x1 = va.sub(vc);
+                FloatVector x2 = vb.add(vd).mul(PLUS_MINUS);
+                FloatVector x3 = vb.sub(vd).rearrange(SWAP);
+                x0.add(x2).intoArray(a, i);
+                x0.sub(x2).intoArray(a, i + m);
+                x0 = x1.add(x3);
+                x2 = x1.sub(x3);
+                x0.mul(t1r).add(x0.rearrange(SWAP).mul(t1i).mul(MINUS_PLUS)).intoArray(a, i + 2 * m);
+                x2.mul(t3r).add(x2.rearrange(SWAP).mul(t3i).mul(PLUS_MINUS)).intoArray(a, i + 3 * m);
+            }
+        }
+        if (j < to) {
+            super.cftb1stLoop(a, offa, m, w, startw, j, to);
+        }
+    }
+
+    @Override
+    String getName() {
+        return "vector" + SPECIES.length();
+    }
+
+    private static FloatVector alternate(float even, float odd) {
+        float[] v = new float[SPECIES.length()];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = ((i & 1) == 0) ? even : odd;
+        }
+        return FloatVector.fromArray(SPECIES, v, 0);
+    }
+
+    private static VectorMask<Float> mask(IntPredicate lane) {
+        boolean[] v = new boolean[SPECIES.length()];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = lane.test(i);
+        }
+        return VectorMask.fromArray(SPECIES, v, 0);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.noisecancellation.Device;
+
+/**
+ * Anything the audio processing thread can play
+ * 16 bit little endian PCM to.
+ *
+ * Implementations must not depend on the Android
+ * framework unless they wrap a platform device, so
+ * that the processing loop can run off-device.
+ */
+public interface AudioSink
+{
+    /**
+     * Returns the suggested buffer size.
+     *
+     * @return
+     *  Returns the suggested buffer size in bytes.
+     */
+    public int getSuggestedBufferSize();
+
+    /**
+     * Returns the number of bytes the sink accepted during
+     * the last call to write().
+     *
+     * @return
+     *  Returns the number of bytes accepted, which is less
+     *  than the number requested after a partial write.
+     */
+    public int getBytesLastWritten();
+
+    /**
+     * Opens the sink.
+     *
+     * @return
+     *  Returns true if the sink was successfully
+     *  opened, and false if it wasn't.
+     */
+    public boolean open();
+
+    /**
+     * Starts audio playback.
+     *
+     * @return
+     *  Returns true if the sink started playing,
+     *  and false if it didn't.
+     */
+    public boolean start();
+
+    /**
+     * Stops audio playback.
+     *
+     * @return
+     *  Returns true if the sink was stopped, and
+     *  false if it wasn't.
+     */
+    public boolean stop();
+
+    /**
+     * Closes the sink.
+     *
+     * @return
+     *  Returns true if the sink was closed, and
+     *  false if it wasn't.
+     */
+    public boolean close();
+
+    /**
+     * Writes a buffer to the sink.
+     *
+     * @param buf
+     *  A buffer containing audio data
+     *
+     * @return
+     *  Returns true if the buffer was written,
+     *  and false if it wasn't.
+     */
+    public boolean write( byte [] buf );
+
+    /**
+     * Writes the first len bytes of a buffer to the sink.
+     *
+     * @param buf
+     *  A buffer containing audio data
+     *
+     * @param len
+     *  The number of bytes of buf to write
+     *
+     * @return
+     *  Returns true if the buffer was written,
+     *  and false if it wasn't.
+     */
+    public boolean write( byte [] buf, int len );
+
+    /**
+     * Plays len bytes in place of a block that didn't
+     * arrive in time. Sinks that can't do better play
+     * silence.
+     *
+     * @param len
+     *  The number of bytes to play.
+     *
+     * @return
+     *  Returns true if the bytes were written,
+     *  and false if they weren't.
+     */
+    public boolean conceal( int len );
+
+};  /* AudioSink */
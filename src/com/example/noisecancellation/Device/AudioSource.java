@@ -0,0 +1,116 @@
+package com.example.noisecancellation.Device;
+
+/**
+ * Anything the audio processing thread can record
+ * 16 bit little endian PCM from.
+ *
+ * Implementations must not depend on the Android
+ * framework unless they wrap a platform device, so
+ * that the processing loop can run off-device.
+ */
+public interface AudioSource
+{
+    /*-----------------------------------------
+     * Error codes
+     *---------------------------------------*/
+    public static final byte ERROR_NO_DEVICE = -1;
+
+    /**
+     * Returns the suggested buffer size.
+     *
+     * @return
+     *  Returns the suggested buffer size in bytes.
+     */
+    public int getSuggestedBufferSize();
+
+    /**
+     * Returns the state of the source.
+     *
+     * @return
+     *  Returns true if the source is currently recording,
+     *  and false otherwise.
+     */
+    public boolean isRecording();
+
+    /**
+     * Returns the number of bytes read during the last call
+     * to getRecordData().
+     *
+     * @return
+     *  Returns the number of bytes stored in the buffer
+     *  during the last call to getRecordData().
+     */
+    public int getBytesLastRead();
+
+    /**
+     * Opens the source.
+     *
+     * @return
+     *  Returns true if the source was successfully
+     *  opened, and false if it wasn't.
+     */
+    public boolean open();
+
+    /**
+     * Starts recording audio data.
+     *
+     * @return
+     *  Returns true if the source started recording,
+     *  and false if it didn't.
+     */
+    public boolean start();
+
+    /**
+     * Stops recording audio data.
+     *
+     * @return
+     *  Returns true if the source was stopped, and
+     *  false if it wasn't.
+     */
+    public boolean stop();
+
+    /**
+     * Closes the source.
+     *
+     * @return
+     *  Returns true if the source was closed, and
+     *  false if it wasn't.
+     */
+    public boolean close();
+
+    /**
+     * Grabs audio data from the source.
+     *
+     * @param buf
+     *        When this function returns, the buffer
+     *        will be filled with the audio data that
+     *        was read.
+     *
+     * @return
+     *  Returns the number of bytes read. This will always
+     *  be less than or equal to the size of the supplied
+     *  buffer. If there was an error, ERROR_NO_DEVICE is
+     *  returned.
+     */
+    public int getRecordData( byte [] buf );
+
+    /**
+     * Grabs at most len bytes of audio data from the source.
+     *
+     * @param buf
+     *        When this function returns, the first bytes
+     *        of the buffer will be filled with the audio
+     *        data that was read.
+     *
+     * @param len
+     *        The number of bytes to read, which must not
+     *        be more than the size of the buffer.
+     *
+     * @return
+     *  Returns the number of bytes read. This will always
+     *  be less than or equal to len. If there was an
+     *  error, ERROR_NO_DEVICE is returned.
+     */
+    public int getRecordData( byte [] buf, int len );
+
+};  /* AudioSource */
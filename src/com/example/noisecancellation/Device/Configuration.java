@@ -15,16 +15,24 @@ public class Configuration
     private static final int DEFAULT_CHANNEL_OUT_CONFIG = AudioFormat.CHANNEL_OUT_MONO;
     private static final int DEFAULT_AUDIO_FORMAT       = AudioFormat.ENCODING_PCM_16BIT;
 
+    /*-----------------------------------------
+     * The stages a block goes through between
+     * the microphone and the speaker, in the
+     * form read by graph.GraphSpec
+     *---------------------------------------*/
+    public static final String DEFAULT_PROCESSING_GRAPH = "decode,fxlms,encode";
+
     public static final byte INPUT_DEVICE_CONFIGURATION  = 0;
     public static final byte OUTPUT_DEVICE_CONFIGURATION = 1;
     
     /*-----------------------------------------
      * Class Attributes
      *---------------------------------------*/
-    private int audio_source;
-    private int sampling_rate;
-    private int channel_config;
-    private int audio_format;
+    private int    audio_source;
+    private int    sampling_rate;
+    private int    channel_config;
+    private int    audio_format;
+    private String processing_graph;
 
     /**
      * Default Constructor for an audio
@@ -88,27 +96,60 @@ public class Configuration
                          int ch_config,
                          int aud_format )
     {
-        audio_source   = aud_src;
-        sampling_rate  = s_rate;
-        channel_config = ch_config;
-        audio_format   = aud_format;
+        audio_source     = aud_src;
+        sampling_rate    = s_rate;
+        channel_config   = ch_config;
+        audio_format     = aud_format;
+        processing_graph = DEFAULT_PROCESSING_GRAPH;
 
     }   /* setAll() */
 
     /*-----------------------------------------
      * Class accessors
      *---------------------------------------*/
-    public int getAudioSource()   { return( audio_source );   }
-    public int getSamplingRate()  { return( sampling_rate );  }
-    public int getChannelConfig() { return( channel_config ); }
-    public int getAudioFormat()   { return( audio_format );   }
+    public int    getAudioSource()     { return( audio_source );     }
+    public int    getSamplingRate()    { return( sampling_rate );    }
+    public int    getChannelConfig()   { return( channel_config );   }
+    public int    getAudioFormat()     { return( audio_format );     }
+    public String getProcessingGraph() { return( processing_graph ); }
+
+    /**
+     * Returns the number of interleaved channels. The
+     * channel configurations are masks with one bit per
+     * channel position, so this is the number of bits
+     * set.
+     *
+     * @return
+     *  The number of channels.
+     */
+    public int getChannelCount()
+    {
+        return( Math.max( 1, Integer.bitCount( channel_config ) ) );
+
+    }   /* getChannelCount() */
+
+    /**
+     * Returns a string naming this configuration, for
+     * keeping settings that depend on it (such as the
+     * block size the audio pipeline settled on).
+     *
+     * @return
+     *  The source, sampling rate, channel configuration
+     *  and format, separated by dots.
+     */
+    public String getKey()
+    {
+        return( audio_source + "." + sampling_rate + "." + channel_config + "." + audio_format );
+
+    }   /* getKey() */
 
     /*-----------------------------------------
      * Class modifiers
      *---------------------------------------*/
-    public void setAudioSource( int new_src )      { audio_source   = new_src;    }
-    public void setSamplingRate( int new_rate )    { sampling_rate  = new_rate;   }
-    public void setChannelConfig( int new_config ) { channel_config = new_config; }
-    public void setAudioFormat( int new_format )   { audio_format   = new_format; }
+    public void setAudioSource( int new_src )          { audio_source     = new_src;    }
+    public void setSamplingRate( int new_rate )        { sampling_rate    = new_rate;   }
+    public void setChannelConfig( int new_config )     { channel_config   = new_config; }
+    public void setAudioFormat( int new_format )       { audio_format     = new_format; }
+    public void setProcessingGraph( String new_graph ) { processing_graph = new_graph;  }
 
 };  /* Configuration */
@@ -0,0 +1,129 @@
+package com.example.noisecancellation.Device.Headless;
+
+import java.util.Arrays;
+
+import com.example.noisecancellation.Device.AudioSink;
+
+/**
+ * An audio sink that captures everything written to
+ * it into a preallocated in-memory array. Once the
+ * array is full, further data is counted but dropped.
+ */
+public class ArraySink implements AudioSink
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *---------------------------------------*/
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final byte [] data;
+    private boolean       is_open;
+    private int           length;
+    private long          bytes_written;
+    private int           last_written;
+
+    /**
+     * Constructor for an array sink.
+     *
+     * @param capacity
+     *  Number of bytes the sink keeps.
+     */
+    public ArraySink( final int capacity )
+    {
+        data          = new byte[ capacity ];
+        is_open       = false;
+        length        = 0;
+        bytes_written = 0;
+        last_written  = 0;
+
+    }   /* ArraySink() */
+
+    /**
+     * Returns the array holding the captured data. Only
+     * the first getLength() bytes are valid.
+     *
+     * @return
+     *  The capture array (not a copy).
+     */
+    public byte [] getData()
+    {
+        return( data );
+
+    }   /* getData() */
+
+    public int     getLength()              { return( length );              }
+    public long    getBytesWritten()        { return( bytes_written );       }
+    public int     getBytesLastWritten()    { return( last_written );        }
+    public int     getSuggestedBufferSize() { return( DEFAULT_BUFFER_SIZE ); }
+    public boolean start()                  { return( is_open );             }
+    public boolean stop()                   { return( is_open );             }
+
+    public boolean open()
+    {
+        is_open       = true;
+        length        = 0;
+        bytes_written = 0;
+        return( true );
+
+    }   /* open() */
+
+    public boolean close()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_open = false;
+        return( true );
+
+    }   /* close() */
+
+    public boolean write( byte [] buf )
+    {
+        return( write( buf, buf.length ) );
+
+    }   /* write() */
+
+    public boolean write( byte [] buf, int len )
+    {
+        int keep;
+
+        last_written = 0;
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        keep = Math.min( len, data.length - length );
+        System.arraycopy( buf, 0, data, length, keep );
+        length        += keep;
+        bytes_written += len;
+        last_written   = len;
+        return( true );
+
+    }   /* write() */
+
+    public boolean conceal( int len )
+    {
+        int keep;
+
+        last_written = 0;
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        keep = Math.min( len, data.length - length );
+        Arrays.fill( data, length, length + keep, (byte)0 );
+        length        += keep;
+        bytes_written += len;
+        last_written   = len;
+        return( true );
+
+    }   /* conceal() */
+
+};  /* ArraySink */
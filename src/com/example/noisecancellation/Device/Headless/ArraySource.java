@@ -0,0 +1,155 @@
+package com.example.noisecancellation.Device.Headless;
+
+import com.example.noisecancellation.Device.AudioSource;
+
+/**
+ * An audio source that hands out 16 bit PCM from an
+ * in-memory array. Nothing is copied or allocated on
+ * open, so the same array can be replayed cheaply.
+ */
+public class ArraySource implements AudioSource
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *---------------------------------------*/
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final byte [] data;
+    private final boolean loop;
+    private final int     buffer_size;
+    private boolean       is_open;
+    private boolean       is_recording;
+    private int           position;
+    private int           bytes_read;
+
+    /**
+     * Constructor for an array source.
+     *
+     * @param pcm
+     *  16 bit little endian PCM to hand out.
+     *
+     * @param loop_data
+     *  If true, reading starts over at the beginning
+     *  of the array once the end is reached.
+     */
+    public ArraySource( final byte [] pcm, final boolean loop_data )
+    {
+        this( pcm, loop_data, DEFAULT_BUFFER_SIZE );
+
+    }   /* ArraySource() */
+
+    /**
+     * Constructor for an array source.
+     *
+     * @param pcm
+     *  16 bit little endian PCM to hand out.
+     *
+     * @param loop_data
+     *  If true, reading starts over at the beginning
+     *  of the array once the end is reached.
+     *
+     * @param suggested_size
+     *  Buffer size returned by getSuggestedBufferSize().
+     */
+    public ArraySource( final byte [] pcm, final boolean loop_data, final int suggested_size )
+    {
+        data         = pcm;
+        loop         = loop_data;
+        buffer_size  = suggested_size;
+        is_open      = false;
+        is_recording = false;
+        position     = 0;
+        bytes_read   = 0;
+
+    }   /* ArraySource() */
+
+    public int     getSuggestedBufferSize() { return( buffer_size );  }
+    public boolean isRecording()            { return( is_recording ); }
+    public int     getBytesLastRead()       { return( bytes_read );   }
+
+    public boolean open()
+    {
+        is_open  = true;
+        position = 0;
+        return( true );
+
+    }   /* open() */
+
+    public boolean start()
+    {
+        if( !is_open || is_recording )
+        {
+            return( false );
+        }
+
+        is_recording = true;
+        return( true );
+
+    }   /* start() */
+
+    public boolean stop()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_recording = false;
+        return( true );
+
+    }   /* stop() */
+
+    public boolean close()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_open      = false;
+        is_recording = false;
+        return( true );
+
+    }   /* close() */
+
+    public int getRecordData( byte [] buf )
+    {
+        return( getRecordData( buf, buf.length ) );
+
+    }   /* getRecordData() */
+
+    public int getRecordData( byte [] buf, int count )
+    {
+        int len;
+
+        if( !is_open )
+        {
+            return( ERROR_NO_DEVICE );
+        }
+
+        bytes_read = 0;
+        while( bytes_read < count )
+        {
+            if( position >= data.length )
+            {
+                if( !loop || ( 0 == data.length ) )
+                {
+                    break;
+                }
+                position = 0;
+            }
+
+            len = Math.min( count - bytes_read, data.length - position );
+            System.arraycopy( data, position, buf, bytes_read, len );
+            position   += len;
+            bytes_read += len;
+        }
+
+        return( bytes_read );
+
+    }   /* getRecordData() */
+
+};  /* ArraySource */
@@ -0,0 +1,211 @@
+package com.example.noisecancellation.Device.Headless;
+
+import java.util.Arrays;
+
+import com.example.noisecancellation.Device.AudioSink;
+import com.example.noisecancellation.Device.AudioSource;
+
+/**
+ * A sink and source in one: everything written to it is
+ * read back out after a fixed delay, like a speaker
+ * placed right next to a microphone. When nothing has
+ * been written, reads return silence, the way a real
+ * microphone keeps producing samples in real time.
+ *
+ * The delay is made of silence queued when the device is
+ * opened. Writes that don't fit in the ring are dropped
+ * and counted. Both sides are synchronized, so one
+ * thread can write while another reads.
+ */
+public class LoopbackDevice implements AudioSource, AudioSink
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      SPARE_BUFFERS - buffers of room in the
+     *                      ring beyond the delay
+     *---------------------------------------*/
+    private static final int SPARE_BUFFERS = 8;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final byte [] ring;
+    private final int     delay_bytes;
+    private final int     buffer_size;
+    private boolean       is_open;
+    private boolean       is_recording;
+    private int           head;
+    private int           fill;
+    private int           bytes_read;
+    private int           bytes_written;
+    private long          bytes_dropped;
+
+    /**
+     * Constructor for a loopback device.
+     *
+     * @param delay_samples
+     *  Number of samples between a write and the same
+     *  samples being read back.
+     *
+     * @param suggested_size
+     *  Buffer size in bytes returned by
+     *  getSuggestedBufferSize().
+     */
+    public LoopbackDevice( final int delay_samples, final int suggested_size )
+    {
+        delay_bytes   = delay_samples << 1;
+        buffer_size   = suggested_size;
+        ring          = new byte[ delay_bytes + SPARE_BUFFERS * suggested_size ];
+        is_open       = false;
+        is_recording  = false;
+        head          = 0;
+        fill          = 0;
+        bytes_read    = 0;
+        bytes_written = 0;
+        bytes_dropped = 0;
+
+    }   /* LoopbackDevice() */
+
+    public synchronized int     getSuggestedBufferSize() { return( buffer_size );   }
+    public synchronized boolean isRecording()            { return( is_recording );  }
+    public synchronized int     getBytesLastRead()       { return( bytes_read );    }
+    public synchronized int     getBytesLastWritten()    { return( bytes_written ); }
+    public synchronized long    getBytesDropped()        { return( bytes_dropped ); }
+
+    public synchronized boolean open()
+    {
+        Arrays.fill( ring, (byte)0 );
+        is_open       = true;
+        head          = 0;
+        fill          = delay_bytes;
+        bytes_dropped = 0;
+        return( true );
+
+    }   /* open() */
+
+    public synchronized boolean start()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_recording = true;
+        return( true );
+
+    }   /* start() */
+
+    public synchronized boolean stop()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_recording = false;
+        return( true );
+
+    }   /* stop() */
+
+    public synchronized boolean close()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_open      = false;
+        is_recording = false;
+        return( true );
+
+    }   /* close() */
+
+    public int getRecordData( byte [] buf )
+    {
+        return( getRecordData( buf, buf.length ) );
+
+    }   /* getRecordData() */
+
+    public synchronized int getRecordData( byte [] buf, int count )
+    {
+        int i;
+        int avail;
+
+        if( !is_open )
+        {
+            return( ERROR_NO_DEVICE );
+        }
+
+        avail = Math.min( count, fill );
+        for( i = 0; i < avail; ++i )
+        {
+            buf[ i ] = ring[ head ];
+            head     = ( head + 1 ) % ring.length;
+        }
+        fill -= avail;
+        Arrays.fill( buf, avail, count, (byte)0 );
+
+        bytes_read = count;
+        return( bytes_read );
+
+    }   /* getRecordData() */
+
+    public boolean write( byte [] buf )
+    {
+        return( write( buf, buf.length ) );
+
+    }   /* write() */
+
+    public synchronized boolean write( byte [] buf, int len )
+    {
+        int i;
+        int keep;
+        int tail;
+
+        bytes_written = 0;
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        keep = Math.min( len, ring.length - fill );
+        tail = ( head + fill ) % ring.length;
+        for( i = 0; i < keep; ++i )
+        {
+            ring[ tail ] = buf[ i ];
+            tail         = ( tail + 1 ) % ring.length;
+        }
+        fill          += keep;
+        bytes_written  = keep;
+        bytes_dropped += len - keep;
+        return( true );
+
+    }   /* write() */
+
+    public synchronized boolean conceal( int len )
+    {
+        int i;
+        int keep;
+        int tail;
+
+        bytes_written = 0;
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        keep = Math.min( len, ring.length - fill );
+        tail = ( head + fill ) % ring.length;
+        for( i = 0; i < keep; ++i )
+        {
+            ring[ tail ] = 0;
+            tail         = ( tail + 1 ) % ring.length;
+        }
+        fill          += keep;
+        bytes_written  = keep;
+        bytes_dropped += len - keep;
+        return( true );
+
+    }   /* conceal() */
+
+};  /* LoopbackDevice */
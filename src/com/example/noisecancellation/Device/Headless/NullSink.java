@@ -0,0 +1,90 @@
+package com.example.noisecancellation.Device.Headless;
+
+import com.example.noisecancellation.Device.AudioSink;
+
+/**
+ * An audio sink that throws everything away. Useful
+ * for measuring the cost of the processing loop on
+ * its own.
+ */
+public class NullSink implements AudioSink
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *---------------------------------------*/
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private boolean is_open;
+    private long    bytes_written;
+    private long    writes;
+    private int     last_written;
+
+    /**
+     * Default constructor for a null sink.
+     */
+    public NullSink()
+    {
+        is_open       = false;
+        bytes_written = 0;
+        writes        = 0;
+        last_written  = 0;
+
+    }   /* NullSink() */
+
+    public long    getBytesWritten()        { return( bytes_written );       }
+    public long    getWriteCount()          { return( writes );              }
+    public int     getBytesLastWritten()    { return( last_written );        }
+    public int     getSuggestedBufferSize() { return( DEFAULT_BUFFER_SIZE ); }
+    public boolean start()                  { return( is_open );             }
+    public boolean stop()                   { return( is_open );             }
+
+    public boolean open()
+    {
+        is_open = true;
+        return( true );
+
+    }   /* open() */
+
+    public boolean close()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_open = false;
+        return( true );
+
+    }   /* close() */
+
+    public boolean write( byte [] buf )
+    {
+        return( write( buf, buf.length ) );
+
+    }   /* write() */
+
+    public boolean write( byte [] buf, int len )
+    {
+        last_written = 0;
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        last_written   = len;
+        bytes_written += len;
+        writes        += 1;
+        return( true );
+
+    }   /* write() */
+
+    public boolean conceal( int len )
+    {
+        return( write( null, len ) );
+
+    }   /* conceal() */
+
+};  /* NullSink */
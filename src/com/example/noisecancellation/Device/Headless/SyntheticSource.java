@@ -0,0 +1,179 @@
+package com.example.noisecancellation.Device.Headless;
+
+import java.util.Random;
+
+import com.example.noisecancellation.Device.AudioSource;
+
+/**
+ * An audio source that generates a sine tone plus
+ * white noise. The generator is seeded, so runs are
+ * repeatable, and it never blocks, so the processing
+ * loop runs as fast as it can.
+ */
+public class SyntheticSource implements AudioSource
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *---------------------------------------*/
+    private static final int  DEFAULT_BUFFER_SIZE = 1024;
+    private static final long DEFAULT_SEED        = 0x5EED;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      phase_step  - phase advance per sample
+     *      tone_amp    - tone amplitude (0..1)
+     *      noise_amp   - noise amplitude (0..1)
+     *---------------------------------------*/
+    private final double phase_step;
+    private final double tone_amp;
+    private final double noise_amp;
+    private final int    buffer_size;
+    private final long   seed;
+    private final Random noise;
+    private double       phase;
+    private boolean      is_open;
+    private boolean      is_recording;
+    private int          bytes_read;
+
+    /**
+     * Constructor for a synthetic source.
+     *
+     * @param rate
+     *  Sampling rate in Hz.
+     * @param tone_hz
+     *  Frequency of the sine tone in Hz.
+     * @param tone_level
+     *  Amplitude of the tone, where 1.0 is full scale.
+     * @param noise_level
+     *  Amplitude of the white noise, where 1.0 is full scale.
+     */
+    public SyntheticSource( final int rate, final double tone_hz,
+                            final double tone_level, final double noise_level )
+    {
+        this( rate, tone_hz, tone_level, noise_level, DEFAULT_BUFFER_SIZE, DEFAULT_SEED );
+
+    }   /* SyntheticSource() */
+
+    /**
+     * Constructor for a synthetic source.
+     *
+     * @param rate
+     *  Sampling rate in Hz.
+     * @param tone_hz
+     *  Frequency of the sine tone in Hz.
+     * @param tone_level
+     *  Amplitude of the tone, where 1.0 is full scale.
+     * @param noise_level
+     *  Amplitude of the white noise, where 1.0 is full scale.
+     * @param suggested_size
+     *  Buffer size returned by getSuggestedBufferSize().
+     * @param noise_seed
+     *  Seed for the noise generator.
+     */
+    public SyntheticSource( final int rate, final double tone_hz,
+                            final double tone_level, final double noise_level,
+                            final int suggested_size, final long noise_seed )
+    {
+        phase_step   = 2.0 * Math.PI * tone_hz / rate;
+        tone_amp     = tone_level;
+        noise_amp    = noise_level;
+        buffer_size  = suggested_size;
+        seed         = noise_seed;
+        noise        = new Random( noise_seed );
+        phase        = 0.0;
+        is_open      = false;
+        is_recording = false;
+        bytes_read   = 0;
+
+    }   /* SyntheticSource() */
+
+    public int     getSuggestedBufferSize() { return( buffer_size );  }
+    public boolean isRecording()            { return( is_recording ); }
+    public int     getBytesLastRead()       { return( bytes_read );   }
+
+    public boolean open()
+    {
+        is_open = true;
+        phase   = 0.0;
+        noise.setSeed( seed );
+        return( true );
+
+    }   /* open() */
+
+    public boolean start()
+    {
+        if( !is_open || is_recording )
+        {
+            return( false );
+        }
+
+        is_recording = true;
+        return( true );
+
+    }   /* start() */
+
+    public boolean stop()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_recording = false;
+        return( true );
+
+    }   /* stop() */
+
+    public boolean close()
+    {
+        if( !is_open )
+        {
+            return( false );
+        }
+
+        is_open      = false;
+        is_recording = false;
+        return( true );
+
+    }   /* close() */
+
+    public int getRecordData( byte [] buf )
+    {
+        return( getRecordData( buf, buf.length ) );
+
+    }   /* getRecordData() */
+
+    public int getRecordData( byte [] buf, int count )
+    {
+        int    i;
+        int    v;
+        double x;
+
+        if( !is_open )
+        {
+            return( ERROR_NO_DEVICE );
+        }
+
+        for( i = 0; i < count - 1; i += 2 )
+        {
+            x = ( tone_amp * Math.sin( phase ) )
+              + ( noise_amp * ( 2.0 * noise.nextDouble() - 1.0 ) );
+            v = (int)( x * 32767.0 );
+            v = Math.max( Short.MIN_VALUE, Math.min( Short.MAX_VALUE, v ) );
+
+            buf[ i ]     = (byte)v;
+            buf[ i + 1 ] = (byte)( v >> 8 );
+
+            phase += phase_step;
+            if( phase >= 2.0 * Math.PI )
+            {
+                phase -= 2.0 * Math.PI;
+            }
+        }
+
+        bytes_read = count & ~1;
+        return( bytes_read );
+
+    }   /* getRecordData() */
+
+};  /* SyntheticSource */
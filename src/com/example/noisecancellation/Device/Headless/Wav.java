@@ -0,0 +1,173 @@
+package com.example.noisecancellation.Device.Headless;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * RIFF/WAVE header helpers for the file backends.
+ * Only uncompressed 16 bit PCM is supported, since
+ * that is the only format the pipeline speaks.
+ */
+final class Wav
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *---------------------------------------*/
+    static final int HEADER_SIZE     = 44;
+    static final int BITS_PER_SAMPLE = 16;
+
+    private static final int FORMAT_PCM = 1;
+
+    /*-----------------------------------------
+     * Header fields filled in by readHeader()
+     *---------------------------------------*/
+    int  sampling_rate;
+    int  channels;
+    long data_offset;
+    long data_length;
+
+    private Wav()
+    {
+
+    }   /* Wav() */
+
+    /**
+     * Parses the header of a WAVE file, leaving the file
+     * positioned at the start of the sample data.
+     *
+     * @param f
+     *  The file to parse.
+     *
+     * @return
+     *  The parsed header fields.
+     *
+     * @throws IOException
+     *  Throws an exception if the file isn't a 16 bit
+     *  PCM WAVE file.
+     */
+    static Wav readHeader( final RandomAccessFile f ) throws IOException
+    {
+        Wav  w       = new Wav();
+        int  id;
+        long size;
+        long next;
+        boolean have_fmt = false;
+
+        f.seek( 0 );
+        if( ( 0x52494646 != f.readInt() ) /* "RIFF" */ )
+        {
+            throw new IOException( "Not a RIFF file." );
+        }
+        f.readInt();
+        if( ( 0x57415645 != f.readInt() ) /* "WAVE" */ )
+        {
+            throw new IOException( "Not a WAVE file." );
+        }
+
+        /*-------------------------------------
+         * Walk the chunks until we find the
+         * sample data.
+         *-----------------------------------*/
+        while( f.getFilePointer() + 8 <= f.length() )
+        {
+            id   = f.readInt();
+            size = readIntLE( f ) & 0xFFFFFFFFL;
+            next = f.getFilePointer() + size + ( size & 1 );
+
+            if( 0x666D7420 == id ) /* "fmt " */
+            {
+                if( FORMAT_PCM != readShortLE( f ) )
+                {
+                    throw new IOException( "Only PCM WAVE files are supported." );
+                }
+                w.channels      = readShortLE( f );
+                w.sampling_rate = readIntLE( f );
+                f.readInt();
+                f.readShort();
+                if( BITS_PER_SAMPLE != readShortLE( f ) )
+                {
+                    throw new IOException( "Only 16 bit WAVE files are supported." );
+                }
+                have_fmt = true;
+            }
+            else if( 0x64617461 == id ) /* "data" */
+            {
+                if( !have_fmt )
+                {
+                    throw new IOException( "WAVE data chunk precedes format chunk." );
+                }
+                w.data_offset = f.getFilePointer();
+                w.data_length = Math.min( size, f.length() - w.data_offset );
+                return( w );
+            }
+
+            f.seek( next );
+        }
+
+        throw new IOException( "WAVE file has no data chunk." );
+
+    }   /* readHeader() */
+
+    /**
+     * Writes a 16 bit PCM WAVE header at the start of a
+     * file, leaving the file positioned just after it.
+     *
+     * @param f
+     *  The file to write to.
+     * @param rate
+     *  Sampling rate in Hz.
+     * @param channels
+     *  Number of interleaved channels.
+     * @param data_length
+     *  Length of the sample data in bytes.
+     *
+     * @throws IOException
+     *  Throws an exception if the header couldn't be written.
+     */
+    static void writeHeader( final RandomAccessFile f, final int rate,
+                             final int channels, final long data_length ) throws IOException
+    {
+        int block_align = channels * ( BITS_PER_SAMPLE >> 3 );
+
+        f.seek( 0 );
+        f.writeInt( 0x52494646 );                   /* "RIFF" */
+        writeIntLE( f, (int)( 36 + data_length ) );
+        f.writeInt( 0x57415645 );                   /* "WAVE" */
+        f.writeInt( 0x666D7420 );                   /* "fmt " */
+        writeIntLE( f, 16 );
+        writeShortLE( f, FORMAT_PCM );
+        writeShortLE( f, channels );
+        writeIntLE( f, rate );
+        writeIntLE( f, rate * block_align );
+        writeShortLE( f, block_align );
+        writeShortLE( f, BITS_PER_SAMPLE );
+        f.writeInt( 0x64617461 );                   /* "data" */
+        writeIntLE( f, (int)data_length );
+
+    }   /* writeHeader() */
+
+    /*-----------------------------------------
+     * RandomAccessFile is big endian, WAVE
+     * is little endian.
+     *---------------------------------------*/
+    private static int readIntLE( final RandomAccessFile f ) throws IOException
+    {
+        return( Integer.reverseBytes( f.readInt() ) );
+    }
+
+    private static int readShortLE( final RandomAccessFile f ) throws IOException
+    {
+        return( Short.reverseBytes( f.readShort() ) );
+    }
+
+    private static void writeIntLE( final RandomAccessFile f, final int v ) throws IOException
+    {
+        f.writeInt( Integer.reverseBytes( v ) );
+    }
+
+    private static void writeShortLE( final RandomAccessFile f, final int v ) throws IOException
+    {
+        f.writeShort( Short.reverseBytes( (short)v ) );
+    }
+
+};  /* Wav */
@@ -0,0 +1,167 @@
+package com.example.noisecancellation.Device.Headless;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.example.noisecancellation.Device.AudioSink;
+
+/**
+ * An audio sink that records everything written to
+ * it into a 16 bit PCM WAVE file. The header is
+ * patched with the final length on close().
+ */
+public class WavFileSink implements AudioSink
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *---------------------------------------*/
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final String     path;
+    private final int        sampling_rate;
+    private final int        channels;
+    private RandomAccessFile file;
+    private long             data_length;
+    private int              last_written;
+    private byte []          silence;
+
+    /**
+     * Constructor for a WAVE file sink.
+     *
+     * @param file_path
+     *  Path of the WAVE file to create.
+     * @param rate
+     *  Sampling rate recorded in the header, in Hz.
+     * @param channel_count
+     *  Number of interleaved channels.
+     */
+    public WavFileSink( final String file_path, final int rate, final int channel_count )
+    {
+        path          = file_path;
+        sampling_rate = rate;
+        channels      = channel_count;
+        file          = null;
+        data_length   = 0;
+        last_written  = 0;
+        silence       = new byte[ 0 ];
+
+    }   /* WavFileSink() */
+
+    /**
+     * Returns the number of sample bytes written so far.
+     *
+     * @return
+     *  The number of bytes written since open().
+     */
+    public long getBytesWritten()
+    {
+        return( data_length );
+
+    }   /* getBytesWritten() */
+
+    public int getBytesLastWritten() { return( last_written ); }
+
+    public int     getSuggestedBufferSize() { return( DEFAULT_BUFFER_SIZE ); }
+    public boolean start()                  { return( null != file );        }
+    public boolean stop()                   { return( null != file );        }
+
+    public boolean open()
+    {
+        if( null != file )
+        {
+            return( false );
+        }
+
+        try
+        {
+            file        = new RandomAccessFile( path, "rw" );
+            data_length = 0;
+            file.setLength( 0 );
+            Wav.writeHeader( file, sampling_rate, channels, 0 );
+        }
+        catch( IOException ioe )
+        {
+            close();
+            return( false );
+        }
+
+        return( true );
+
+    }   /* open() */
+
+    public boolean close()
+    {
+        boolean ok = true;
+
+        if( null == file )
+        {
+            return( false );
+        }
+
+        try
+        {
+            Wav.writeHeader( file, sampling_rate, channels, data_length );
+        }
+        catch( IOException ioe )
+        {
+            ok = false;
+        }
+
+        try
+        {
+            file.close();
+        }
+        catch( IOException ioe )
+        {
+            ok = false;
+        }
+
+        file = null;
+        return( ok );
+
+    }   /* close() */
+
+    public boolean write( byte [] buf )
+    {
+        return( write( buf, buf.length ) );
+
+    }   /* write() */
+
+    public boolean write( byte [] buf, int len )
+    {
+        last_written = 0;
+        if( null == file )
+        {
+            return( false );
+        }
+
+        try
+        {
+            file.write( buf, 0, len );
+        }
+        catch( IOException ioe )
+        {
+            return( false );
+        }
+
+        data_length  += len;
+        last_written  = len;
+        return( true );
+
+    }   /* write() */
+
+    public boolean conceal( int len )
+    {
+        if( silence.length < len )
+        {
+            silence = new byte[ len ];
+        }
+
+        return( write( silence, len ) );
+
+    }   /* conceal() */
+
+};  /* WavFileSink */
@@ -0,0 +1,238 @@
+package com.example.noisecancellation.Device.Headless;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.example.noisecancellation.Device.AudioSource;
+
+/**
+ * An audio source that plays back a 16 bit PCM WAVE
+ * file. Data is handed out as fast as it is asked for,
+ * so the processing loop runs as fast as it can.
+ */
+public class WavFileSource implements AudioSource
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *---------------------------------------*/
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final String     path;
+    private final boolean    loop;
+    private final int        buffer_size;
+    private RandomAccessFile file;
+    private Wav              header;
+    private long             position;
+    private boolean          is_recording;
+    private int              bytes_read;
+
+    /**
+     * Constructor for a WAVE file source.
+     *
+     * @param file_path
+     *  Path of the WAVE file to read.
+     *
+     * @param loop_file
+     *  If true, reading starts over at the beginning
+     *  of the sample data once the end is reached.
+     */
+    public WavFileSource( final String file_path, final boolean loop_file )
+    {
+        this( file_path, loop_file, DEFAULT_BUFFER_SIZE );
+
+    }   /* WavFileSource() */
+
+    /**
+     * Constructor for a WAVE file source.
+     *
+     * @param file_path
+     *  Path of the WAVE file to read.
+     *
+     * @param loop_file
+     *  If true, reading starts over at the beginning
+     *  of the sample data once the end is reached.
+     *
+     * @param suggested_size
+     *  Buffer size returned by getSuggestedBufferSize().
+     */
+    public WavFileSource( final String file_path, final boolean loop_file, final int suggested_size )
+    {
+        path         = file_path;
+        loop         = loop_file;
+        buffer_size  = suggested_size;
+        file         = null;
+        header       = null;
+        position     = 0;
+        is_recording = false;
+        bytes_read   = 0;
+
+    }   /* WavFileSource() */
+
+    /**
+     * Returns the sampling rate of the file. Only valid
+     * once the source has been opened.
+     *
+     * @return
+     *  The sampling rate in Hz, or 0 if not open.
+     */
+    public int getSamplingRate()
+    {
+        return( ( null == header ) ? 0 : header.sampling_rate );
+
+    }   /* getSamplingRate() */
+
+    /**
+     * Returns the number of channels in the file. Only
+     * valid once the source has been opened.
+     *
+     * @return
+     *  The number of channels, or 0 if not open.
+     */
+    public int getChannelCount()
+    {
+        return( ( null == header ) ? 0 : header.channels );
+
+    }   /* getChannelCount() */
+
+    public int     getSuggestedBufferSize() { return( buffer_size );  }
+    public boolean isRecording()            { return( is_recording ); }
+    public int     getBytesLastRead()       { return( bytes_read );   }
+
+    public boolean open()
+    {
+        if( null != file )
+        {
+            return( true );
+        }
+
+        try
+        {
+            file     = new RandomAccessFile( path, "r" );
+            header   = Wav.readHeader( file );
+            position = 0;
+        }
+        catch( IOException ioe )
+        {
+            close();
+            return( false );
+        }
+
+        return( true );
+
+    }   /* open() */
+
+    public boolean start()
+    {
+        if( ( null == file ) || is_recording )
+        {
+            return( false );
+        }
+
+        is_recording = true;
+        return( true );
+
+    }   /* start() */
+
+    public boolean stop()
+    {
+        if( null == file )
+        {
+            return( false );
+        }
+
+        is_recording = false;
+        return( true );
+
+    }   /* stop() */
+
+    public boolean close()
+    {
+        if( null == file )
+        {
+            return( false );
+        }
+
+        try
+        {
+            file.close();
+        }
+        catch( IOException ioe )
+        {
+            /* Nothing useful to do; the handle is gone either way */
+        }
+
+        file         = null;
+        header       = null;
+        is_recording = false;
+        return( true );
+
+    }   /* close() */
+
+    /**
+     * Reads the next block of samples from the file.
+     *
+     * @param buf
+     *  Filled with audio data.
+     *
+     * @return
+     *  Returns the number of bytes read, 0 once a non-looping
+     *  file is exhausted, or ERROR_NO_DEVICE if the file isn't
+     *  open or couldn't be read.
+     */
+    public int getRecordData( byte [] buf )
+    {
+        return( getRecordData( buf, buf.length ) );
+
+    }   /* getRecordData() */
+
+    public int getRecordData( byte [] buf, int count )
+    {
+        int  len;
+        int  got;
+        long remaining;
+
+        if( null == file )
+        {
+            return( ERROR_NO_DEVICE );
+        }
+
+        bytes_read = 0;
+        try
+        {
+            while( bytes_read < count )
+            {
+                remaining = header.data_length - position;
+                if( remaining <= 0 )
+                {
+                    if( !loop || ( 0 == header.data_length ) )
+                    {
+                        break;
+                    }
+                    position = 0;
+                    continue;
+                }
+
+                len = (int)Math.min( count - bytes_read, remaining );
+                file.seek( header.data_offset + position );
+                got = file.read( buf, bytes_read, len );
+                if( got <= 0 )
+                {
+                    break;
+                }
+                position   += got;
+                bytes_read += got;
+            }
+        }
+        catch( IOException ioe )
+        {
+            return( ERROR_NO_DEVICE );
+        }
+
+        return( bytes_read );
+
+    }   /* getRecordData() */
+
+};  /* WavFileSource */
@@ -0,0 +1,101 @@
+package com.example.noisecancellation.Device.Headless;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+public class WavFileTest extends TestCase {
+    private File wav;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        wav = File.createTempFile( "wavfiletest", ".wav" );
+        super.setUp();
+
+    }   /* setUp() */
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        wav.delete();
+        super.tearDown();
+
+    }   /* tearDown() */
+
+    /*-------------------------------------------
+     * TESTING WavFileSink -> WavFileSource
+     *
+     * TEST CASES:
+     *   1. Reading back what was written
+     *   2. Looping past the end of the file
+     *-----------------------------------------*/
+
+    /**
+     * Tests that samples written by the sink are read
+     * back unchanged by the source, along with the
+     * format in the header.
+     * <br /><br />
+     * Expected return value: the written samples
+     */
+    public void testRoundTrip()
+    {
+        int           i;
+        byte []       out  = new byte[ 64 ];
+        byte []       in   = new byte[ 64 ];
+        byte []       tail = new byte[ 32 ];
+        WavFileSink   sink = new WavFileSink( wav.getPath(), 8000, 1 );
+        WavFileSource src  = new WavFileSource( wav.getPath(), false );
+
+        for( i = 0; i < out.length; ++i )
+        {
+            out[ i ] = (byte)( i * 7 );
+        }
+
+        System.arraycopy( out, 40, tail, 0, 24 );
+
+        assertTrue( "Sink opened", sink.open() );
+        sink.write( out, 40 );
+        sink.write( tail, 24 );
+        assertTrue( "Sink closed", sink.close() );
+
+        assertTrue( "Source opened", src.open() );
+        assertEquals( "Sampling rate", 8000, src.getSamplingRate() );
+        assertEquals( "Channels", 1, src.getChannelCount() );
+        assertEquals( "Whole file read", 64, src.getRecordData( in ) );
+        assertEquals( "File is exhausted", 0, src.getRecordData( in ) );
+        src.close();
+
+        for( i = 0; i < out.length; ++i )
+        {
+            assertEquals( "Byte " + i + " survives", out[ i ], in[ i ] );
+        }
+
+    }   /* testRoundTrip() */
+
+    /**
+     * Tests that a looping source wraps around to the
+     * start of the sample data.
+     * <br /><br />
+     * Expected return value: a full buffer
+     */
+    public void testLoop()
+    {
+        byte []       out  = { 1, 2, 3, 4 };
+        byte []       in   = new byte[ 10 ];
+        WavFileSink   sink = new WavFileSink( wav.getPath(), 8000, 1 );
+        WavFileSource src  = new WavFileSource( wav.getPath(), true );
+
+        sink.open();
+        sink.write( out );
+        sink.close();
+
+        src.open();
+        assertEquals( "Buffer filled", 10, src.getRecordData( in ) );
+        assertEquals( "Wrapped around", 1, in[ 4 ] );
+        assertEquals( "Wrapped around twice", 2, in[ 9 ] );
+        src.close();
+
+    }   /* testLoop() */
+
+};  /* WavFileTest */
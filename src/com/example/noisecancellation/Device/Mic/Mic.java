@@ -3,9 +3,11 @@ package com.example.noisecancellation.Device.Mic;
 import android.media.AudioRecord;
 import android.util.Log;
 
+import com.example.noisecancellation.Device.AudioSource;
 import com.example.noisecancellation.Device.Configuration;
+import com.example.noisecancellation.trace.Trace;
 
-public class Mic
+public class Mic implements AudioSource
 {
     /*-----------------------------------------
      * Literal Constants
@@ -29,11 +31,25 @@ public class Mic
      * Default constructor for an FFT_Wrapper object.
      */
     public Mic()
+    {
+        this( new Configuration( Configuration.INPUT_DEVICE_CONFIGURATION ) );
+
+    }   /* Mic() */
+
+    /**
+     * Non-default constructor for a microphone that
+     * records with the supplied configuration, for
+     * example in stereo.
+     *
+     * @param config
+     *  The recording configuration.
+     */
+    public Mic( Configuration config )
     {
         bytes_read    = 0;
         is_recording  = false;
         recorder      = null;
-        configuration = new Configuration( Configuration.INPUT_DEVICE_CONFIGURATION );
+        configuration = config;
 
     }   /* Mic() */
 
@@ -243,15 +259,46 @@ public class Mic
      */
     public int getRecordData( byte [] buf )
     {
+        return( getRecordData( buf, buf.length ) );
+
+    }   /* getRecordData() */
+
+    /**
+     * This function grabs at most len bytes of audio
+     * data from the recording device.
+     *
+     * @param buf
+     *        When this function returns, the first len
+     *        bytes of the buffer will be filled with the
+     *        audio data that was read.
+     *
+     * @param len
+     *        Number of bytes to read.
+     *
+     * @return
+     *  Returns the number of bytes read. If there was an
+     *  error, ERROR_NO_DEVICE is returned.
+     */
+    public int getRecordData( byte [] buf, int len )
+    {
+        long start_ns;
+
         if( ( null == recorder ) || ( AudioRecord.STATE_UNINITIALIZED == recorder.getState() ) )
         {
             return( ERROR_NO_DEVICE );
         }
         
-        Log.i( "data", "reading recording data.............." );
-        bytes_read = recorder.read( buf, 0, buf.length );
-        Log.i( "data", "done recording data.............." );
-        
+        start_ns   = System.nanoTime();
+        bytes_read = recorder.read( buf, 0, len );
+        if( bytes_read < 0 )
+        {
+            Trace.emit( Trace.MIC_READ_ERROR, len, bytes_read, 0 );
+        }
+        else
+        {
+            Trace.emit( Trace.MIC_READ, len, bytes_read, System.nanoTime() - start_ns );
+        }
+
         return( bytes_read );
 
     }   /* getRecordData() */
@@ -3,30 +3,96 @@ package com.example.noisecancellation.Device.OutputDevice;
 import android.util.Log;
 import android.media.AudioManager;
 import android.media.AudioTrack;
+import com.example.noisecancellation.Device.AudioSink;
 import com.example.noisecancellation.Device.Configuration;
+import com.example.noisecancellation.dsp.Concealer;
+import com.example.noisecancellation.trace.Trace;
 
-public class OutputDevice
+/**
+ * Plays audio through an AudioTrack in streaming mode.
+ *
+ * Bytes the track doesn't accept are kept as a tail and
+ * written ahead of the next block, so a short write
+ * delays audio instead of dropping it. The tail holds at
+ * most two buffers of the suggested size, allocated in
+ * open(); anything beyond that is dropped and counted.
+ *
+ * Before each write the playback head is compared with
+ * the number of frames written. If the track has played
+ * everything it was given, it ran dry since the last
+ * write, which is counted as an underrun.
+ *
+ * Blocks that don't arrive in time can be replaced with
+ * conceal(), which plays a faded copy of the last block
+ * (see Concealer) rather than stopping abruptly.
+ */
+public class OutputDevice implements AudioSink
 {
     /*-------------------------------------------
      * Literal constants
+     *      DEFAULT_BUFFER_SIZE - smallest suggested
+     *                            buffer size
+     *      TAIL_BLOCKS         - blocks the unwritten
+     *                            tail can hold
      *-----------------------------------------*/
     private static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final int TAIL_BLOCKS         = 2;
     
     /*-------------------------------------------
      * Class variables
+     *      tail           - bytes the track didn't
+     *                       accept yet
+     *      tail_len       - number of bytes in tail
+     *      frames_written - frames handed to the
+     *                       track since it started
+     *      frame_bytes    - bytes in one frame
+     *      underruns      - times the track ran dry
+     *      bytes_dropped  - bytes the tail had no
+     *                       room for
+     *      concealer      - makes up missing blocks
      *-----------------------------------------*/
     private int           buffer_size;
+    private int           bytes_written;
     private AudioTrack    output_device;
     private Configuration configuration;
+    private byte []       tail;
+    private int           tail_len;
+    private long          frames_written;
+    private int           frame_bytes;
+    private long          underruns;
+    private long          bytes_dropped;
+    private Concealer     concealer;
        
     /**
      * Default constructor for an output device
      */
     public OutputDevice()
     {
-        buffer_size   = 0;
-        output_device = null;
-        configuration = new Configuration( Configuration.OUTPUT_DEVICE_CONFIGURATION );
+        this( new Configuration( Configuration.OUTPUT_DEVICE_CONFIGURATION ) );
+
+    }   /* OutputDevice() */
+
+    /**
+     * Non-default constructor for an output device that
+     * plays with the supplied configuration, for example
+     * in stereo.
+     *
+     * @param config
+     *  The playback configuration.
+     */
+    public OutputDevice( Configuration config )
+    {
+        buffer_size    = 0;
+        bytes_written  = 0;
+        output_device  = null;
+        configuration  = config;
+        tail           = new byte[ 0 ];
+        tail_len       = 0;
+        frames_written = 0;
+        frame_bytes    = 2;
+        underruns      = 0;
+        bytes_dropped  = 0;
+        concealer      = new Concealer( config.getChannelCount() );
         
     }   /* OutputDevice() */
       
@@ -47,6 +113,28 @@ public class OutputDevice
         }
         
         buffer_size = getSuggestedBufferSize();
+        frame_bytes = configuration.getChannelCount() << 1;
+
+        /*---------------------------------------
+         * Size the tail now, so a short write
+         * never allocates on the render thread
+         *-------------------------------------*/
+        if( tail.length < TAIL_BLOCKS * buffer_size )
+        {
+            tail = new byte[ TAIL_BLOCKS * buffer_size ];
+        }
+        tail_len = 0;
+
+        /*---------------------------------------
+         * The configuration may have changed
+         * channels since the concealer was made
+         *-------------------------------------*/
+        if( concealer.getChannels() != configuration.getChannelCount() )
+        {
+            concealer = new Concealer( concealer.getStrategy(),
+                                       concealer.getDecay(),
+                                       configuration.getChannelCount() );
+        }
         
         /*---------------------------------------
          * Right now, we're opening the output
@@ -91,6 +179,9 @@ public class OutputDevice
             return( false );
         }
 
+        tail_len       = 0;
+        frames_written = 0;
+        concealer.reset();
         output_device.play();
         return( true );
         
@@ -108,26 +199,72 @@ public class OutputDevice
      */
     public boolean write( byte [] buf )
     {
-        Log.i( "OutputDevice--write()", "Writing data..." );
-        int bytes_written = output_device.write( buf, 0, buf.length );
-        if( bytes_written != buf.length )
-        {
-            Log.i( "OutputDevice--write()", "Buffer wasn't entirely written to output device" );
-            if( AudioTrack.ERROR_BAD_VALUE == bytes_written )
-            {
-                Log.i( "OutputDevice--write()", "values don't have valid indices" );
-                return( false );
-            }
-            else if( AudioTrack.ERROR_INVALID_OPERATION == bytes_written )
-            {
-                Log.i( "OutputDevice--write()", "Device wasn't initialized properly" );
-                return( false );
-            }
-        }
-        
-        return( true );
-        
+        return( write( buf, buf.length ) );
+
+    }   /* write() */
+
+    /**
+     * Writes the first len bytes of a buffer to the
+     * output stream. Any tail left over from earlier
+     * writes is written first.
+     * 
+     * @param buf
+     *  A buffer containing audio data
+     *  
+     * @param len
+     *  The number of bytes of buf to write
+     *  
+     * @return
+     *  Returns true if the function was able to write the
+     *  buffer to the output device and false if it wasn't.
+     */
+    public boolean write( byte [] buf, int len )
+    {
+        return( writeBlock( concealer.onBlock( buf, len ), len ) );
+
     }   /* write() */
+
+    /**
+     * Writes a made up block in place of one that
+     * didn't arrive in time.
+     *
+     * @param len
+     *  The number of bytes to make up.
+     *
+     * @return
+     *  Returns true if the block was written to the
+     *  output device and false if it wasn't.
+     */
+    public boolean conceal( int len )
+    {
+        return( writeBlock( concealer.conceal( len ), len ) );
+
+    }   /* conceal() */
+
+    /**
+     * Changes how missing blocks are made up.
+     *
+     * @param strategy
+     *  The concealment strategy.
+     *
+     * @param decay
+     *  Gain of each repetition relative to the one
+     *  before, for Concealer.Strategy.REPEAT_DECAY.
+     */
+    public void setConcealment( Concealer.Strategy strategy, float decay )
+    {
+        concealer.setStrategy( strategy, decay );
+
+    }   /* setConcealment() */
+
+    /*-------------------------------------------
+     * Class accessors
+     *-----------------------------------------*/
+    public long getUnderrunCount()  { return( underruns );                     }
+    public long getConcealedCount() { return( concealer.getConcealedCount() ); }
+    public long getBytesDropped()   { return( bytes_dropped );                 }
+    public int  getPendingBytes()   { return( tail_len );                      }
+
       
     /**
      * Stops the output device from outputting stuff.
@@ -148,6 +285,8 @@ public class OutputDevice
         }
         
         output_device.stop();
+        tail_len       = 0;
+        frames_written = 0;
         return( true );
         
     }   /* stop() */
@@ -194,5 +333,131 @@ public class OutputDevice
         return( min_size );
 
     }   /* getSuggestedBufferSize() */
+
+    /*-------------------------------------------
+     * Helper functions
+     *-----------------------------------------*/
+
+    /**
+     * Writes the tail, then as much of the block as the
+     * track accepts, and keeps the rest as the new tail.
+     * If the tail couldn't be written out, the block is
+     * queued behind it instead.
+     */
+    private boolean writeBlock( byte [] buf, int len )
+    {
+        long start_ns = System.nanoTime();
+        int  n;
+
+        bytes_written = 0;
+        if( null == output_device )
+        {
+            return( false );
+        }
+
+        checkUnderrun();
+
+        if( tail_len > 0 )
+        {
+            n = output_device.write( tail, 0, tail_len );
+            if( isError( n ) )
+            {
+                Trace.emit( Trace.OUTPUT_WRITE_ERROR, tail_len, n, 0 );
+                return( false );
+            }
+            frames_written += n / frame_bytes;
+            tail_len       -= n;
+            System.arraycopy( tail, n, tail, 0, tail_len );
+        }
+
+        if( tail_len > 0 )
+        {
+            keepTail( buf, 0, len );
+            Trace.emit( Trace.OUTPUT_SHORT_WRITE, len, 0, tail_len );
+            return( true );
+        }
+
+        n = output_device.write( buf, 0, len );
+        if( isError( n ) )
+        {
+            Trace.emit( Trace.OUTPUT_WRITE_ERROR, len, n, 0 );
+            return( false );
+        }
+        frames_written += n / frame_bytes;
+        bytes_written   = n;
+
+        if( n != len )
+        {
+            keepTail( buf, n, len - n );
+            Trace.emit( Trace.OUTPUT_SHORT_WRITE, len, n, tail_len );
+        }
+
+        Trace.emit( Trace.OUTPUT_WRITE, len, bytes_written, System.nanoTime() - start_ns );
+        return( true );
+
+    }   /* writeBlock() */
+
+    /**
+     * Counts an underrun if the playback head has caught
+     * up with everything written to the track.
+     */
+    private void checkUnderrun()
+    {
+        long head;
+
+        if( 0 == frames_written )
+        {
+            return;
+        }
+
+        head = output_device.getPlaybackHeadPosition() & 0xFFFFFFFFL;
+        if( head >= frames_written )
+        {
+            ++underruns;
+        }
+
+    }   /* checkUnderrun() */
+
+    /**
+     * Appends bytes to the tail, which open() sized to
+     * hold TAIL_BLOCKS buffers. Bytes that don't fit are
+     * dropped.
+     */
+    private void keepTail( byte [] buf, int off, int count )
+    {
+        int keep;
+
+        keep = Math.min( count, tail.length - tail_len );
+        System.arraycopy( buf, off, tail, tail_len, keep );
+        tail_len      += keep;
+        bytes_dropped += count - keep;
+
+    }   /* keepTail() */
+
+    /**
+     * AudioTrack errors are negative: ERROR_BAD_VALUE
+     * means the indices were invalid, and
+     * ERROR_INVALID_OPERATION that the device wasn't
+     * initialized properly.
+     */
+    private static boolean isError( int n )
+    {
+        return( n < 0 );
+
+    }   /* isError() */
+
+    /**
+     * Returns the number of bytes the device accepted
+     * during the last call to write().
+     *
+     * @return
+     *  Returns the number of bytes written, or 0 if the
+     *  last write failed.
+     */
+    public int getBytesLastWritten()
+    {
+        return( bytes_written );
+
+    }   /* getBytesLastWritten() */
     
 };
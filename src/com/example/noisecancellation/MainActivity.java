@@ -1,5 +1,8 @@
 package com.example.noisecancellation;
 
+import java.io.File;
+import java.util.concurrent.Executors;
+
 import android.os.Bundle;
 import android.app.Activity;
 import android.util.Log;
@@ -7,7 +10,14 @@ import android.view.Menu;
 import android.view.View;
 import android.widget.ToggleButton;
 
+import com.example.noisecancellation.Device.Configuration;
+import com.example.noisecancellation.MainProcess.BlockSizeStore;
+import com.example.noisecancellation.MainProcess.BlockSizeTuner;
 import com.example.noisecancellation.MainProcess.MainProcess;
+import com.example.noisecancellation.fft.FFT_Calibrator;
+import com.example.noisecancellation.fft.FFT_PlanCache;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 public class MainActivity extends Activity
 {
@@ -20,11 +30,38 @@ public class MainActivity extends Activity
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         
+        /*---------------------------------------
+         * Split large FFTs over a fixed set of
+         * threads, rather than a pool that spawns
+         * and retires them next to the audio
+         * thread. The pool outlives the activity,
+         * so it's only made once.
+         *-------------------------------------*/
+        if( null == FFT_PlanCache.getShared().getExecutor() )
+        {
+            FFT_PlanCache.getShared().setExecutor( Executors.newFixedThreadPool( ConcurrencyUtils.getNumberOfThreads() ) );
+        }
+
         /*---------------------------------------
          * Create a new main process to handle
          * all of the audio processing
          *-------------------------------------*/
         work_process = new MainProcess();
+
+        /*---------------------------------------
+         * Let the block size adapt to this
+         * handset, starting from the size it
+         * settled on last time
+         *-------------------------------------*/
+        work_process.setTuner( new BlockSizeTuner( new BlockSizeStore( new File( getFilesDir(), "block_sizes.properties" ) ),
+                                                   new Configuration( Configuration.INPUT_DEVICE_CONFIGURATION ),
+                                                   work_process.getBlockSize() ) );
+
+        /*---------------------------------------
+         * Only split FFTs where it pays on this
+         * handset, measured on the first run
+         *-------------------------------------*/
+        work_process.setCalibrator( new FFT_Calibrator( new File( getFilesDir(), "fft_profile.properties" ) ) );
         t = new Thread( work_process, "work" );
         t.start();
         
@@ -0,0 +1,274 @@
+package com.example.noisecancellation.MainProcess;
+
+/**
+ * Lock-free single-producer/single-consumer ring of PCM blocks.
+ *
+ * All of the blocks are allocated up front, so neither side
+ * allocates anything while audio is running. The producer
+ * (capture thread) fills a block obtained from acquireWrite()
+ * and publishes it with commitWrite(). The consumer (render
+ * thread) obtains the oldest published block with acquireRead()
+ * and hands it back with releaseRead().
+ *
+ * The consumer doesn't start taking blocks until the ring holds
+ * at least the target fill level. If the ring runs dry after
+ * that, an underrun is counted and the consumer waits for the
+ * ring to refill to the target level again. If the producer
+ * finds the ring full, an overrun is counted and the new block
+ * is dropped.
+ *
+ * <b>NOTE:</b> Exactly one thread may call the producer methods
+ * and exactly one (other) thread may call the consumer methods.
+ */
+public final class BlockRingBuffer
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *      blocks       - preallocated PCM blocks
+     *      lengths      - number of valid bytes
+     *                     in each block
+     *      stamps       - capture timestamp of
+     *                     each block
+     *      mask         - index mask (capacity is
+     *                     a power of two)
+     *      target_fill  - number of blocks that
+     *                     must be queued before
+     *                     the consumer starts
+     *      write_index  - next block to publish
+     *                     (written by producer)
+     *      read_index   - next block to consume
+     *                     (written by consumer)
+     *      primed       - whether the consumer
+     *                     has reached the target
+     *                     fill level (consumer only)
+     *---------------------------------------*/
+    private final byte [][] blocks;
+    private final int  []   lengths;
+    private final long []   stamps;
+    private final int       mask;
+    private final int       target_fill;
+
+    private volatile long   write_index;
+    private volatile long   read_index;
+    private volatile long   underruns;
+    private volatile long   overruns;
+    private boolean         primed;
+
+    /**
+     * Constructor for a block ring buffer.
+     *
+     * @param block_count
+     *  The number of blocks the ring can hold. This
+     *  is rounded up to the next power of two.
+     *
+     * @param block_size
+     *  The size of each block in bytes.
+     *
+     * @param target
+     *  The number of blocks that have to be queued
+     *  before the consumer starts (or restarts after
+     *  an underrun) taking blocks out of the ring.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if any of the sizes are
+     *  not positive, or if the target fill level is
+     *  larger than the capacity of the ring.
+     */
+    public BlockRingBuffer( final int block_count, final int block_size, final int target )
+    {
+        int i;
+        int capacity = 1;
+
+        if( ( block_count < 1 ) || ( block_size < 1 ) || ( target < 1 ) )
+        {
+            throw new IllegalArgumentException( "Ring dimensions must be positive." );
+        }
+
+        while( capacity < block_count )
+        {
+            capacity <<= 1;
+        }
+
+        if( target > capacity )
+        {
+            throw new IllegalArgumentException( "Target fill level exceeds ring capacity." );
+        }
+
+        blocks      = new byte[ capacity ][];
+        lengths     = new int[ capacity ];
+        stamps      = new long[ capacity ];
+        mask        = capacity - 1;
+        target_fill = target;
+
+        for( i = 0; i < capacity; ++i )
+        {
+            blocks[ i ] = new byte[ block_size ];
+        }
+
+        write_index = 0;
+        read_index  = 0;
+        underruns   = 0;
+        overruns    = 0;
+        primed      = false;
+
+    }   /* BlockRingBuffer() */
+
+    /*-----------------------------------------
+     * Producer side
+     *---------------------------------------*/
+
+    /**
+     * Returns the next free block for the producer
+     * to fill.
+     *
+     * @return
+     *  Returns the block to fill, or null if the ring
+     *  is full. A full ring counts as an overrun.
+     */
+    public byte [] acquireWrite()
+    {
+        long w = write_index;
+
+        if( ( w - read_index ) > mask )
+        {
+            overruns = overruns + 1;
+            return( null );
+        }
+
+        return( blocks[ (int)w & mask ] );
+
+    }   /* acquireWrite() */
+
+    /**
+     * Publishes the block most recently returned by
+     * acquireWrite() to the consumer.
+     *
+     * @param length
+     *  The number of valid bytes in the block.
+     */
+    public void commitWrite( final int length )
+    {
+        commitWrite( length, 0L );
+
+    }   /* commitWrite() */
+
+    /**
+     * Publishes the block most recently returned by
+     * acquireWrite() to the consumer, along with the
+     * time it was captured.
+     *
+     * @param length
+     *  The number of valid bytes in the block.
+     *
+     * @param stamp
+     *  The System.nanoTime() the block was captured at,
+     *  which the consumer can read with getReadStamp().
+     */
+    public void commitWrite( final int length, final long stamp )
+    {
+        long w = write_index;
+
+        lengths[ (int)w & mask ] = length;
+        stamps[ (int)w & mask ]  = stamp;
+        write_index = w + 1;
+
+    }   /* commitWrite() */
+
+    /*-----------------------------------------
+     * Consumer side
+     *---------------------------------------*/
+
+    /**
+     * Returns the oldest published block.
+     *
+     * @return
+     *  Returns the oldest block, or null if there is
+     *  nothing to play yet. Running out of blocks after
+     *  the target fill level was reached counts as an
+     *  underrun.
+     */
+    public byte [] acquireRead()
+    {
+        long r     = read_index;
+        long avail = write_index - r;
+
+        if( !primed )
+        {
+            if( avail < target_fill )
+            {
+                return( null );
+            }
+            primed = true;
+        }
+
+        if( 0 == avail )
+        {
+            underruns = underruns + 1;
+            primed    = false;
+            return( null );
+        }
+
+        return( blocks[ (int)r & mask ] );
+
+    }   /* acquireRead() */
+
+    /**
+     * Returns the number of valid bytes in the block
+     * most recently returned by acquireRead().
+     *
+     * @return
+     *  The length, in bytes, of the current block.
+     */
+    public int getReadLength()
+    {
+        return( lengths[ (int)read_index & mask ] );
+
+    }   /* getReadLength() */
+
+    /**
+     * Returns the capture timestamp of the block most
+     * recently returned by acquireRead().
+     *
+     * @return
+     *  The stamp passed to commitWrite(), or 0 if there
+     *  wasn't one.
+     */
+    public long getReadStamp()
+    {
+        return( stamps[ (int)read_index & mask ] );
+
+    }   /* getReadStamp() */
+
+    /**
+     * Hands the block most recently returned by
+     * acquireRead() back to the producer.
+     */
+    public void releaseRead()
+    {
+        read_index = read_index + 1;
+
+    }   /* releaseRead() */
+
+    /**
+     * Discards every queued block, and waits for the
+     * ring to refill to the target level before the
+     * next block is handed out. Must only be called
+     * from the consumer thread.
+     */
+    public void drain()
+    {
+        read_index = write_index;
+        primed     = false;
+
+    }   /* drain() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int  getCapacity()      { return( mask + 1 );                          }
+    public int  getTargetFill()    { return( target_fill );                       }
+    public int  getFillLevel()     { return( (int)( write_index - read_index ) ); }
+    public long getUnderrunCount() { return( underruns );                         }
+    public long getOverrunCount()  { return( overruns );                          }
+
+};  /* BlockRingBuffer */
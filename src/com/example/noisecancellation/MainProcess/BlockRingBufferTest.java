@@ -0,0 +1,122 @@
+package com.example.noisecancellation.MainProcess;
+
+import junit.framework.TestCase;
+
+public class BlockRingBufferTest extends TestCase {
+    private BlockRingBuffer ring;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        ring = new BlockRingBuffer( 4, 8, 2 );
+        super.setUp();
+
+    }   /* setUp() */
+
+    /*-------------------------------------------
+     * TESTING BlockRingBuffer priming
+     *
+     * TEST CASES:
+     *   1. Reading before the target fill
+     *      level is reached
+     *   2. Reading after the target fill
+     *      level is reached
+     *-----------------------------------------*/
+
+    /**
+     * Tests that nothing is handed to the consumer
+     * until the target fill level is reached.
+     * <br /><br />
+     * Expected return value: null
+     */
+    public void testReadBeforeTarget()
+    {
+        ring.acquireWrite();
+        ring.commitWrite( 8 );
+
+        assertNull( "Ring isn't primed yet", ring.acquireRead() );
+        assertEquals( "Waiting isn't an underrun", 0, ring.getUnderrunCount() );
+
+    }   /* testReadBeforeTarget() */
+
+    /**
+     * Tests that blocks come out in the order they
+     * were written once the ring is primed.
+     * <br /><br />
+     * Expected return value: the written blocks
+     */
+    public void testReadAfterTarget()
+    {
+        byte [] first;
+        byte [] second;
+
+        first = ring.acquireWrite();
+        first[ 0 ] = 1;
+        ring.commitWrite( 8 );
+        second = ring.acquireWrite();
+        second[ 0 ] = 2;
+        ring.commitWrite( 6 );
+
+        assertSame( "First block comes out first", first, ring.acquireRead() );
+        assertEquals( "Length is carried along", 8, ring.getReadLength() );
+        ring.releaseRead();
+        assertSame( "Second block comes out second", second, ring.acquireRead() );
+        assertEquals( "Length is carried along", 6, ring.getReadLength() );
+        ring.releaseRead();
+
+    }   /* testReadAfterTarget() */
+
+    /*-------------------------------------------
+     * TESTING BlockRingBuffer counters
+     *
+     * TEST CASES:
+     *   1. Running dry after priming
+     *   2. Writing into a full ring
+     *-----------------------------------------*/
+
+    /**
+     * Tests that running dry after priming counts
+     * exactly one underrun and re-primes the ring.
+     * <br /><br />
+     * Expected return value: one underrun
+     */
+    public void testUnderrun()
+    {
+        ring.acquireWrite();
+        ring.commitWrite( 8 );
+        ring.acquireWrite();
+        ring.commitWrite( 8 );
+        ring.acquireRead();
+        ring.releaseRead();
+        ring.acquireRead();
+        ring.releaseRead();
+
+        assertNull( "Ring ran dry", ring.acquireRead() );
+        assertNull( "Ring waits to refill", ring.acquireRead() );
+        assertEquals( "One underrun", 1, ring.getUnderrunCount() );
+
+    }   /* testUnderrun() */
+
+    /**
+     * Tests that writing into a full ring is refused
+     * and counted as an overrun.
+     * <br /><br />
+     * Expected return value: one overrun
+     */
+    public void testOverrun()
+    {
+        int i;
+
+        for( i = 0; i < ring.getCapacity(); ++i )
+        {
+            assertNotNull( "Ring has room", ring.acquireWrite() );
+            ring.commitWrite( 8 );
+        }
+
+        assertNull( "Ring is full", ring.acquireWrite() );
+        assertEquals( "One overrun", 1, ring.getOverrunCount() );
+        assertEquals( "Ring is full", ring.getCapacity(), ring.getFillLevel() );
+
+    }   /* testOverrun() */
+
+};  /* BlockRingBufferTest */
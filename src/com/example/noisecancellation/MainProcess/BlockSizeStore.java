@@ -0,0 +1,167 @@
+package com.example.noisecancellation.MainProcess;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import android.util.Log;
+import com.example.noisecancellation.Device.Configuration;
+
+/**
+ * Remembers the block size the pipeline settled on for
+ * each device Configuration, in a properties file.
+ *
+ * The file is read once, when the store is created, and
+ * written back by save(). A missing or unreadable file
+ * just means nothing has been stored yet.
+ */
+public class BlockSizeStore
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *      file  - where the sizes are kept
+     *      sizes - block size in bytes, keyed by
+     *              Configuration.getKey()
+     *---------------------------------------*/
+    private final File       file;
+    private final Properties sizes;
+
+    /**
+     * Constructor for a block size store.
+     *
+     * @param f
+     *  The file the sizes are read from and saved to.
+     */
+    public BlockSizeStore( final File f )
+    {
+        FileInputStream in = null;
+
+        file  = f;
+        sizes = new Properties();
+
+        if( !file.exists() )
+        {
+            return;
+        }
+
+        try
+        {
+            in = new FileInputStream( file );
+            sizes.load( in );
+        }
+        catch( IOException ioe )
+        {
+            Log.i( "BlockSizeStore--BlockSizeStore()", "Unable to read " + file );
+            sizes.clear();
+        }
+        finally
+        {
+            close( in );
+        }
+
+    }   /* BlockSizeStore() */
+
+    /**
+     * Returns the block size stored for a configuration.
+     *
+     * @param config
+     *  The device configuration.
+     *
+     * @param default_size
+     *  Returned if nothing (or nothing valid) is stored.
+     *
+     * @return
+     *  The block size in bytes.
+     */
+    public synchronized int get( final Configuration config, final int default_size )
+    {
+        String value = sizes.getProperty( config.getKey() );
+
+        if( null == value )
+        {
+            return( default_size );
+        }
+
+        try
+        {
+            return( Integer.parseInt( value.trim() ) );
+        }
+        catch( NumberFormatException nfe )
+        {
+            return( default_size );
+        }
+
+    }   /* get() */
+
+    /**
+     * Stores the block size for a configuration. Nothing
+     * is written to the file until save() is called.
+     *
+     * @param config
+     *  The device configuration.
+     *
+     * @param size
+     *  The block size in bytes.
+     */
+    public synchronized void put( final Configuration config, final int size )
+    {
+        sizes.setProperty( config.getKey(), Integer.toString( size ) );
+
+    }   /* put() */
+
+    /**
+     * Writes every stored size to the file.
+     *
+     * @return
+     *  Returns true if the file was written, false
+     *  otherwise.
+     */
+    public synchronized boolean save()
+    {
+        FileOutputStream out = null;
+        boolean          ok  = false;
+
+        try
+        {
+            out = new FileOutputStream( file );
+            sizes.store( out, "Audio block sizes in bytes" );
+            ok = true;
+        }
+        catch( IOException ioe )
+        {
+            Log.i( "BlockSizeStore--save()", "Unable to write " + file );
+        }
+        finally
+        {
+            close( out );
+        }
+
+        return( ok );
+
+    }   /* save() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private static void close( final Closeable c )
+    {
+        if( null == c )
+        {
+            return;
+        }
+
+        try
+        {
+            c.close();
+        }
+        catch( IOException ioe )
+        {
+            /* Nothing more we can do */
+        }
+
+    }   /* close() */
+
+};  /* BlockSizeStore */
@@ -0,0 +1,348 @@
+package com.example.noisecancellation.MainProcess;
+
+import com.example.noisecancellation.Device.Configuration;
+import com.example.noisecancellation.metrics.PipelineMetrics;
+
+/**
+ * Picks the smallest block size a device can keep up
+ * with, while audio is running.
+ *
+ * Starting from the size the device suggests, the tuner
+ * watches a window of blocks at a time. If none of them
+ * glitched (an underrun in the jitter buffer, or a block
+ * that took longer to process than to play), processing
+ * stayed under LOAD_LIMIT of each block's duration and
+ * no write to the sink blocked for more than two blocks,
+ * the size is stepped down. The first glitch backs the
+ * size off by BACKOFF_STEPS, but never past the size the
+ * search started from, and the tuner stops shrinking;
+ * later glitches keep backing it off. Only glitches at
+ * the starting size itself grow the block past it, one
+ * step at a time.
+ *
+ * The first window of blocks is a warm-up: the JIT and
+ * priming the track cause glitches that say nothing
+ * about the block size, so they're ignored, and so are
+ * the load and write times measured meanwhile.
+ *
+ * Once the tuner has settled, save() stores the size for
+ * the device Configuration, and the next run starts
+ * there instead of searching again. A stored size above
+ * the suggested one isn't trusted, and the search starts
+ * over from the suggested size; reprobe() starts it over
+ * from the current size.
+ *
+ * onBlock() is called from the capture thread after
+ * every block and returns the size of the next one, so
+ * a new size always takes effect on a block boundary.
+ * save() and reprobe() may be called from any thread.
+ */
+public class BlockSizeTuner
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      DEFAULT_MIN_SIZE - smallest block, in bytes
+     *      DEFAULT_STEP     - bytes the size moves by
+     *      DEFAULT_WINDOW   - clean blocks needed
+     *                         before stepping down
+     *      LOAD_LIMIT       - most processing time, in
+     *                         1/1000 of a block, that
+     *                         still allows a step down
+     *      BACKOFF_STEPS    - steps up after a glitch
+     *---------------------------------------*/
+    public static final int  DEFAULT_MIN_SIZE = 256;
+    public static final int  DEFAULT_STEP     = 128;
+    public static final int  DEFAULT_WINDOW   = 50;
+    private static final int LOAD_LIMIT       = 500;
+    private static final int BACKOFF_STEPS    = 2;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      store         - where sizes are persisted
+     *      config        - the key they're stored by
+     *      min_size      - smallest size tried
+     *      max_size      - largest size backed off to
+     *      step          - bytes the size moves by
+     *      window        - blocks between steps down
+     *      size          - the current block size
+     *      start_size    - size the search started from
+     *      bad_size      - largest size that glitched,
+     *                      or 0 if none has
+     *      settled       - set once the tuner stops
+     *                      stepping down
+     *      dirty         - set when the size should
+     *                      be saved
+     *      probe         - set by reprobe(), until the
+     *                      next block starts the search
+     *      warmup        - blocks of warm-up left
+     *      blocks        - blocks in the current window
+     *      last_glitches - glitch count at the last block
+     *---------------------------------------*/
+    private final BlockSizeStore store;
+    private final Configuration  config;
+    private final int            min_size;
+    private final int            max_size;
+    private final int            step;
+    private final int            window;
+    private volatile int         size;
+    private int                  start_size;
+    private int                  bad_size;
+    private boolean              settled;
+    private volatile boolean     dirty;
+    private volatile boolean     probe;
+    private int                  warmup;
+    private int                  blocks;
+    private long                 last_glitches;
+
+    /**
+     * Constructor for a tuner with the default limits.
+     * It may shrink blocks down to DEFAULT_MIN_SIZE and
+     * back off up to twice the suggested size.
+     *
+     * @param s
+     *  Where the chosen size is persisted.
+     *
+     * @param c
+     *  The device configuration the size is kept for.
+     *
+     * @param suggested
+     *  The block size, in bytes, the device suggests.
+     */
+    public BlockSizeTuner( final BlockSizeStore s, final Configuration c, final int suggested )
+    {
+        this( s, c, suggested, Math.min( DEFAULT_MIN_SIZE, suggested ),
+              suggested << 1, DEFAULT_STEP, DEFAULT_WINDOW );
+
+    }   /* BlockSizeTuner() */
+
+    /**
+     * Constructor for a block size tuner.
+     *
+     * @param s
+     *  Where the chosen size is persisted.
+     *
+     * @param c
+     *  The device configuration the size is kept for.
+     *
+     * @param suggested
+     *  The block size, in bytes, to start searching
+     *  from if none has been stored.
+     *
+     * @param min
+     *  The smallest block size, in bytes.
+     *
+     * @param max
+     *  The largest block size, in bytes.
+     *
+     * @param step_bytes
+     *  Bytes the size moves by.
+     *
+     * @param window_blocks
+     *  Clean blocks needed before each step down.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the sizes are not even, if
+     *  min is not positive or larger than max, if the
+     *  suggested size is outside of them, or if the step
+     *  or window is not positive.
+     */
+    public BlockSizeTuner( final BlockSizeStore s, final Configuration c, final int suggested,
+                           final int min, final int max, final int step_bytes, final int window_blocks )
+    {
+        int stored;
+
+        if( ( min <= 0 ) || ( min > max ) || ( suggested < min ) || ( suggested > max ) )
+        {
+            throw new IllegalArgumentException( "Block sizes must satisfy 0 < min <= suggested <= max." );
+        }
+        if( ( 0 != ( ( min | max | suggested | step_bytes ) & 1 ) ) || ( step_bytes <= 0 ) )
+        {
+            throw new IllegalArgumentException( "Block sizes and step must be positive and even." );
+        }
+        if( window_blocks <= 0 )
+        {
+            throw new IllegalArgumentException( "Window must be at least one block." );
+        }
+
+        store         = s;
+        config        = c;
+        min_size      = min;
+        max_size      = max;
+        step          = step_bytes;
+        window        = window_blocks;
+        bad_size      = 0;
+        warmup        = window;
+        blocks        = 0;
+        last_glitches = 0;
+        dirty         = false;
+        probe         = false;
+
+        /*---------------------------------------
+         * A size saved by an earlier run is
+         * where we settled last time, so start
+         * there and don't search again, unless
+         * it's larger than the device's own
+         * suggestion
+         *-------------------------------------*/
+        stored = store.get( config, 0 );
+        if( ( stored >= min ) && ( stored <= suggested ) && ( 0 == ( stored & 1 ) ) )
+        {
+            size    = stored;
+            settled = true;
+        }
+        else
+        {
+            size    = suggested;
+            settled = false;
+        }
+        start_size = size;
+
+    }   /* BlockSizeTuner() */
+
+    /**
+     * Updates the tuner after a block has been captured,
+     * processed and queued.
+     *
+     * @param glitches
+     *  Total number of glitches so far: jitter buffer
+     *  underruns plus processing deadline misses.
+     *
+     * @param m
+     *  The pipeline metrics. The peaks of its load and
+     *  last write gauges are reset at each window.
+     *
+     * @param block_ns
+     *  How long the block takes to play.
+     *
+     * @return
+     *  The size, in bytes, of the next block.
+     */
+    public int onBlock( final long glitches, final PipelineMetrics m, final long block_ns )
+    {
+        long load;
+        long write_ns;
+        int  next;
+
+        if( probe )
+        {
+            probe      = false;
+            start_size = size;
+            bad_size   = 0;
+            settled    = false;
+            warmup     = window;
+            blocks     = 0;
+        }
+
+        if( warmup > 0 )
+        {
+            last_glitches = glitches;
+            --warmup;
+            return( size );
+        }
+
+        if( glitches != last_glitches )
+        {
+            last_glitches = glitches;
+            bad_size      = Math.max( bad_size, size );
+            if( size < start_size )
+            {
+                /*-------------------------------
+                 * Stepped down too far: back off
+                 * towards sizes that ran clean
+                 *-----------------------------*/
+                size    = Math.min( start_size, size + BACKOFF_STEPS * step );
+                settled = true;
+            }
+            else
+            {
+                size = Math.min( max_size, size + step );
+            }
+            if( settled )
+            {
+                dirty = true;
+            }
+            blocks = 0;
+            return( size );
+        }
+
+        /*---------------------------------------
+         * A window's peaks start from its first
+         * block, not from whatever came before
+         *-------------------------------------*/
+        if( 0 == blocks )
+        {
+            m.getLoad().resetPeak();
+            m.getLastWrite().resetPeak();
+        }
+
+        if( ++blocks < window )
+        {
+            return( size );
+        }
+
+        blocks   = 0;
+        load     = m.getLoad().resetPeak();
+        write_ns = m.getLastWrite().resetPeak();
+        if( settled )
+        {
+            return( size );
+        }
+
+        next = size - step;
+        if( ( load < LOAD_LIMIT ) && ( write_ns <= 2 * block_ns )
+         && ( next >= min_size ) && ( next > bad_size ) )
+        {
+            size = next;
+        }
+        else
+        {
+            settled = true;
+            dirty   = true;
+        }
+
+        return( size );
+
+    }   /* onBlock() */
+
+    /**
+     * Starts the search over from the current size, as
+     * if it had just been suggested: after a warm-up,
+     * the tuner tries smaller sizes again. Takes effect
+     * at the next block.
+     */
+    public void reprobe()
+    {
+        probe = true;
+
+    }   /* reprobe() */
+
+    /**
+     * Stores the current size for the configuration, if
+     * it has changed since it was last saved.
+     *
+     * @return
+     *  Returns false if the size couldn't be written,
+     *  true otherwise.
+     */
+    public synchronized boolean save()
+    {
+        if( !dirty )
+        {
+            return( true );
+        }
+
+        dirty = false;
+        store.put( config, size );
+        return( store.save() );
+
+    }   /* save() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int     getSize()    { return( size );     }
+    public int     getMaxSize() { return( max_size ); }
+    public int     getMinSize() { return( min_size ); }
+    public boolean isSettled()  { return( settled );  }
+
+};  /* BlockSizeTuner */
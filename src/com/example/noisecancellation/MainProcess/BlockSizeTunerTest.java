@@ -0,0 +1,218 @@
+package com.example.noisecancellation.MainProcess;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import com.example.noisecancellation.Device.Configuration;
+import com.example.noisecancellation.metrics.MetricsRegistry;
+import com.example.noisecancellation.metrics.PipelineMetrics;
+
+public class BlockSizeTunerTest extends TestCase {
+    private static final int  SUGGESTED = 2048;
+    private static final int  MIN       = 256;
+    private static final int  MAX       = 4096;
+    private static final int  STEP      = 128;
+    private static final int  WINDOW    = 4;
+    private static final long BLOCK_NS  = 10000000L;
+
+    private File            file;
+    private Configuration   config;
+    private PipelineMetrics metrics;
+    private long            glitches;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        file     = File.createTempFile( "block_sizes", ".properties" );
+        config   = new Configuration();
+        metrics  = new PipelineMetrics( new MetricsRegistry() );
+        glitches = 0;
+        file.delete();
+        super.setUp();
+
+    }   /* setUp() */
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        file.delete();
+        super.tearDown();
+
+    }   /* tearDown() */
+
+    /*-------------------------------------------
+     * TESTING BlockSizeTuner::onBlock()
+     *
+     * TEST CASES:
+     *   1. Stepping down while blocks are clean,
+     *      then saving and loading the size
+     *   2. Holding the size while processing is
+     *      heavily loaded
+     *   3. Ignoring glitches during the warm-up
+     *   4. Backing off no further than the size
+     *      the search started from
+     *   5. Searching a stored size again
+     *-----------------------------------------*/
+
+    /**
+     * Tests that with clean, lightly loaded blocks the
+     * size goes down a step every window, after the
+     * warm-up, until it reaches the minimum, and that
+     * the next tuner starts there without searching.
+     * <br /><br />
+     * Expected return value: the minimum size, stored
+     */
+    public void testStepsDown()
+    {
+        int            i;
+        BlockSizeTuner t = newTuner();
+
+        assertEquals( "Warm-up", SUGGESTED, blocks( t, WINDOW, 100 ) );
+        for( i = 1; SUGGESTED - i * STEP >= MIN; ++i )
+        {
+            assertEquals( "Step " + i, SUGGESTED - i * STEP, blocks( t, WINDOW, 100 ) );
+            assertFalse( "Still searching", t.isSettled() );
+        }
+
+        assertEquals( "At the minimum", MIN, blocks( t, WINDOW, 100 ) );
+        assertTrue( "Settled", t.isSettled() );
+        assertTrue( "Saved", t.save() );
+
+        t = newTuner();
+        assertEquals( "Loaded", MIN, t.getSize() );
+        assertTrue( "Loaded settled", t.isSettled() );
+
+    }   /* testStepsDown() */
+
+    /**
+     * Tests that a window with processing taking more
+     * than half of each block stops the search.
+     * <br /><br />
+     * Expected return value: the suggested size
+     */
+    public void testLoaded()
+    {
+        BlockSizeTuner t = newTuner();
+
+        blocks( t, WINDOW, 900 );
+        assertEquals( "Heavy window", SUGGESTED, blocks( t, WINDOW, 600 ) );
+        assertTrue( "Settled", t.isSettled() );
+        assertEquals( "Stays", SUGGESTED, blocks( t, 10 * WINDOW, 100 ) );
+
+    }   /* testLoaded() */
+
+    /**
+     * Tests that glitches and heavy load while the
+     * pipeline warms up don't move or settle the size,
+     * nor count against the first window.
+     * <br /><br />
+     * Expected return value: the search carries on
+     */
+    public void testWarmup()
+    {
+        int            i;
+        BlockSizeTuner t = newTuner();
+
+        for( i = 0; i < WINDOW; ++i )
+        {
+            ++glitches;
+            assertEquals( "Warm-up block " + i, SUGGESTED, blocks( t, 1, 2000 ) );
+        }
+        assertFalse( "Not settled by the warm-up", t.isSettled() );
+        assertEquals( "First step", SUGGESTED - STEP, blocks( t, WINDOW, 100 ) );
+
+        t.save();
+        assertEquals( "Nothing stored", 0, new BlockSizeStore( file ).get( config, 0 ) );
+
+    }   /* testWarmup() */
+
+    /**
+     * Tests that a glitch after stepping down backs off
+     * towards the sizes that ran clean, but not past the
+     * size the search started from, and that only
+     * glitches at that size grow the block, a step at a
+     * time.
+     * <br /><br />
+     * Expected return value: the suggested size, then
+     * one step above it
+     */
+    public void testBackoff()
+    {
+        BlockSizeTuner t = newTuner();
+
+        blocks( t, WINDOW, 100 );
+        assertEquals( "Stepped down", SUGGESTED - STEP, blocks( t, WINDOW, 100 ) );
+
+        ++glitches;
+        assertEquals( "Backed off", SUGGESTED, blocks( t, 1, 100 ) );
+        assertTrue( "Settled", t.isSettled() );
+        assertEquals( "Stays", SUGGESTED, blocks( t, 10 * WINDOW, 100 ) );
+
+        ++glitches;
+        assertEquals( "Glitch at the start", SUGGESTED + STEP, blocks( t, 1, 100 ) );
+
+    }   /* testBackoff() */
+
+    /**
+     * Tests that a stored size larger than the suggested
+     * one is searched again from the suggested size, and
+     * that reprobe() searches a stored size again.
+     * <br /><br />
+     * Expected return value: the search restarts
+     */
+    public void testReprobe()
+    {
+        BlockSizeStore s = new BlockSizeStore( file );
+        BlockSizeTuner t;
+
+        s.put( config, SUGGESTED + 4 * STEP );
+        s.save();
+        t = newTuner();
+        assertEquals( "Suggested", SUGGESTED, t.getSize() );
+        assertFalse( "Searching", t.isSettled() );
+
+        s.put( config, 1024 );
+        s.save();
+        t = newTuner();
+        assertEquals( "Stored", 1024, t.getSize() );
+        assertTrue( "Settled", t.isSettled() );
+        assertEquals( "Stays", 1024, blocks( t, 4 * WINDOW, 100 ) );
+
+        t.reprobe();
+        assertEquals( "Warm-up", 1024, blocks( t, WINDOW, 100 ) );
+        assertEquals( "Searching again", 1024 - STEP, blocks( t, WINDOW, 100 ) );
+
+    }   /* testReprobe() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private BlockSizeTuner newTuner()
+    {
+        return( new BlockSizeTuner( new BlockSizeStore( file ), config, SUGGESTED, MIN, MAX, STEP, WINDOW ) );
+
+    }   /* newTuner() */
+
+    /**
+     * Feeds the tuner count blocks that took load/1000
+     * of their duration to process, and returns the size
+     * it asked for after the last one.
+     */
+    private int blocks( final BlockSizeTuner t, final int count, final long load )
+    {
+        int i;
+        int size = t.getSize();
+
+        for( i = 0; i < count; ++i )
+        {
+            metrics.recordProcess( BLOCK_NS * load / 1000, BLOCK_NS );
+            metrics.recordWrite( size, size, true, BLOCK_NS / 10 );
+            size = t.onBlock( glitches, metrics, BLOCK_NS );
+        }
+
+        return( size );
+
+    }   /* blocks() */
+
+};  /* BlockSizeTunerTest */
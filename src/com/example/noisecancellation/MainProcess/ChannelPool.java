@@ -0,0 +1,257 @@
+package com.example.noisecancellation.MainProcess;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A small pool of threads that process the channels of
+ * one block in parallel.
+ *
+ * There is one worker per channel beyond the first; the
+ * thread calling runBlock() processes channel 0 itself
+ * and then waits for the workers, so every channel of a
+ * block is finished before runBlock() returns. Workers
+ * are handed a block by bumping a generation counter and
+ * unparking them, and the last one to finish unparks the
+ * caller, so a block costs no allocation and no locks.
+ *
+ * runBlock() must only ever be called from one thread at
+ * a time. Everything that thread wrote before calling it
+ * is visible to the workers, and everything the workers
+ * wrote is visible to it once it returns.
+ */
+public final class ChannelPool
+{
+    /**
+     * The work done for one channel of a block.
+     */
+    public interface ChannelTask
+    {
+        /**
+         * Processes one channel of the current block.
+         *
+         * @param channel
+         *  Index of the channel, from 0.
+         */
+        public void process( int channel );
+
+    };  /* ChannelTask */
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      task     - what each channel runs
+     *      workers  - one per channel but the first
+     *      pending  - workers still busy with the
+     *                 current block
+     *      caller   - thread waiting in runBlock()
+     *      failure  - first exception or error thrown
+     *                 by a worker during the current
+     *                 block
+     *      running  - cleared by shutdown()
+     *---------------------------------------*/
+    private final ChannelTask                task;
+    private final Worker []                  workers;
+    private final AtomicInteger              pending;
+    private volatile Thread                  caller;
+    private final AtomicReference<Throwable> failure;
+    private volatile boolean                 running;
+
+    /**
+     * Constructor for a channel pool. The workers are
+     * started right away and park until there's a block.
+     *
+     * @param channels
+     *  Number of channels in each block.
+     *
+     * @param t
+     *  The work to do for each channel.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if there are no channels.
+     */
+    public ChannelPool( final int channels, final ChannelTask t )
+    {
+        int i;
+
+        if( channels < 1 )
+        {
+            throw new IllegalArgumentException( "Channel count must be at least 1." );
+        }
+
+        task    = t;
+        workers = new Worker[ channels - 1 ];
+        pending = new AtomicInteger( 0 );
+        caller  = null;
+        failure = new AtomicReference<Throwable>();
+        running = true;
+
+        for( i = 0; i < workers.length; ++i )
+        {
+            workers[ i ] = new Worker( i + 1 );
+            workers[ i ].start();
+        }
+
+    }   /* ChannelPool() */
+
+    /**
+     * Processes every channel of one block and waits
+     * for them all to finish.
+     *
+     * @throws IllegalStateException
+     *  Throws an exception if the pool has been shut
+     *  down.
+     *
+     * @throws RuntimeException
+     *  Rethrows the first exception thrown while
+     *  processing a channel.
+     *
+     * @throws Error
+     *  Rethrows the first error thrown while processing
+     *  a channel on a worker.
+     */
+    public void runBlock()
+    {
+        int       i;
+        Throwable t = null;
+
+        if( !running )
+        {
+            throw new IllegalStateException( "Channel pool has been shut down." );
+        }
+
+        if( 0 == workers.length )
+        {
+            task.process( 0 );
+            return;
+        }
+
+        caller = Thread.currentThread();
+        pending.set( workers.length );
+        for( i = 0; i < workers.length; ++i )
+        {
+            workers[ i ].generation = workers[ i ].generation + 1;
+            LockSupport.unpark( workers[ i ] );
+        }
+
+        try
+        {
+            task.process( 0 );
+        }
+        finally
+        {
+            while( 0 != pending.get() )
+            {
+                LockSupport.park( this );
+            }
+            t = failure.getAndSet( null );
+        }
+
+        if( t instanceof RuntimeException )
+        {
+            throw (RuntimeException)t;
+        }
+        if( t instanceof Error )
+        {
+            throw (Error)t;
+        }
+
+    }   /* runBlock() */
+
+    /**
+     * Stops the workers and waits for them to exit.
+     */
+    public void shutdown()
+    {
+        int i;
+
+        running = false;
+        for( i = 0; i < workers.length; ++i )
+        {
+            LockSupport.unpark( workers[ i ] );
+        }
+
+        for( i = 0; i < workers.length; ++i )
+        {
+            try
+            {
+                workers[ i ].join();
+            }
+            catch( InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+    }   /* shutdown() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int getChannelCount() { return( workers.length + 1 ); }
+
+    /**
+     * A worker thread, which runs one channel of each
+     * block.
+     */
+    private final class Worker extends Thread
+    {
+        /*-------------------------------------
+         * Class Attributes
+         *      channel    - the channel it runs
+         *      generation - bumped by runBlock()
+         *                   for each new block
+         *-----------------------------------*/
+        private final int     channel;
+        private volatile long generation;
+
+        Worker( final int c )
+        {
+            super( "channel-" + c );
+            channel    = c;
+            generation = 0;
+            setDaemon( true );
+
+        }   /* Worker() */
+
+        public void run()
+        {
+            long seen = 0;
+
+            while( running )
+            {
+                if( seen == generation )
+                {
+                    LockSupport.park( this );
+                    continue;
+                }
+
+                /*-------------------------------
+                 * Whatever the task throws, the
+                 * block is counted as done, or
+                 * runBlock() would wait forever
+                 *-----------------------------*/
+                seen = generation;
+                try
+                {
+                    task.process( channel );
+                }
+                catch( Throwable th )
+                {
+                    failure.compareAndSet( null, th );
+                }
+                finally
+                {
+                    if( 0 == pending.decrementAndGet() )
+                    {
+                        LockSupport.unpark( caller );
+                    }
+                }
+            }
+
+        }   /* run() */
+
+    };  /* Worker */
+
+};  /* ChannelPool */
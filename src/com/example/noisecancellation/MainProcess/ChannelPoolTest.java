@@ -0,0 +1,131 @@
+package com.example.noisecancellation.MainProcess;
+
+import junit.framework.TestCase;
+
+public class ChannelPoolTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING ChannelPool::runBlock()
+     *
+     * TEST CASES:
+     *   1. Every channel of every block runs
+     *      before runBlock() returns
+     *   2. A channel that throws
+     *   3. A channel that throws an Error
+     *-----------------------------------------*/
+
+    /**
+     * Tests that each block runs every channel exactly
+     * once, and that runBlock() doesn't return before
+     * they have all finished.
+     * <br /><br />
+     * Expected return value: each channel's count equals
+     * the block number
+     */
+    public void testBlocks()
+    {
+        int          i;
+        int          c;
+        final int    channels = 4;
+        final int [] done     = new int[ channels ];
+        ChannelPool  pool     = new ChannelPool( channels, new ChannelPool.ChannelTask()
+        {
+            public void process( int channel )
+            {
+                done[ channel ] += 1;
+            }
+        } );
+
+        assertEquals( "Channel count", channels, pool.getChannelCount() );
+        for( i = 1; i <= 1000; ++i )
+        {
+            pool.runBlock();
+            for( c = 0; c < channels; ++c )
+            {
+                assertEquals( "Channel " + c + " of block " + i, i, done[ c ] );
+            }
+        }
+
+        pool.shutdown();
+
+    }   /* testBlocks() */
+
+    /**
+     * Tests that an exception thrown on a worker is
+     * rethrown by runBlock(), and that the pool keeps
+     * working afterwards.
+     * <br /><br />
+     * Expected return value: the worker's exception
+     */
+    public void testFailure()
+    {
+        final boolean [] fail = { true };
+        ChannelPool      pool = new ChannelPool( 2, new ChannelPool.ChannelTask()
+        {
+            public void process( int channel )
+            {
+                if( ( 1 == channel ) && fail[ 0 ] )
+                {
+                    throw new IllegalStateException( "channel 1" );
+                }
+            }
+        } );
+
+        try
+        {
+            pool.runBlock();
+            fail( "Worker exception not rethrown" );
+        }
+        catch( IllegalStateException ise )
+        {
+            assertEquals( "Worker's exception", "channel 1", ise.getMessage() );
+        }
+
+        fail[ 0 ] = false;
+        pool.runBlock();
+        pool.shutdown();
+
+    }   /* testFailure() */
+
+    /**
+     * Tests that an Error thrown on a worker doesn't
+     * leave runBlock() waiting for it, is rethrown, and
+     * that the worker keeps running blocks afterwards.
+     * <br /><br />
+     * Expected return value: the worker's error
+     */
+    public void testError()
+    {
+        final boolean [] fail = { true };
+        final int []     done = new int[ 3 ];
+        ChannelPool      pool = new ChannelPool( 3, new ChannelPool.ChannelTask()
+        {
+            public void process( int channel )
+            {
+                if( ( 2 == channel ) && fail[ 0 ] )
+                {
+                    throw new StackOverflowError( "channel 2" );
+                }
+                done[ channel ] += 1;
+            }
+        } );
+
+        try
+        {
+            pool.runBlock();
+            fail( "Worker error not rethrown" );
+        }
+        catch( StackOverflowError soe )
+        {
+            assertEquals( "Worker's error", "channel 2", soe.getMessage() );
+        }
+        assertEquals( "Other worker finished", 1, done[ 1 ] );
+
+        fail[ 0 ] = false;
+        pool.runBlock();
+        assertEquals( "Worker still running", 1, done[ 2 ] );
+        pool.shutdown();
+
+    }   /* testError() */
+
+};  /* ChannelPoolTest */
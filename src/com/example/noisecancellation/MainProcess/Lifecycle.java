@@ -0,0 +1,286 @@
+package com.example.noisecancellation.MainProcess;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lifecycle state machine for the audio processing threads.
+ *
+ * <pre>
+ *     IDLE  --resume()-->  RUNNING  --pause()-->  PAUSED
+ *                          RUNNING &lt;--resume()-- PAUSED
+ *     any   --stop()---->  STOPPING
+ * </pre>
+ *
+ * The audio threads call awaitRunning() once per block.
+ * While the state is RUNNING this is a single volatile
+ * read. Otherwise the calling thread is parked until
+ * resume() or stop() unparks it, so a paused pipeline
+ * doesn't burn a core. Every park is bounded, so even a
+ * missed unpark can't delay a wake-up by more than
+ * MAX_PARK_NS.
+ *
+ * The time from resume() to each parked thread getting
+ * back to work is recorded as the wake-up latency.
+ */
+public final class Lifecycle
+{
+    /*-----------------------------------------
+     * States
+     *---------------------------------------*/
+    public enum State { IDLE, RUNNING, PAUSED, STOPPING };
+
+    /*-----------------------------------------
+     * Literal Constants
+     *      MAX_WAITERS  - number of audio threads
+     *                     that can be registered
+     *      MAX_PARK_NS  - longest single park
+     *---------------------------------------*/
+    private static final int  MAX_WAITERS = 8;
+    static final long         MAX_PARK_NS = 50000000L;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final AtomicReference<State> state;
+    private final Thread []              waiters;
+    private volatile int                 waiter_count;
+    private volatile long                resume_ns;
+
+    private final AtomicLong wake_count;
+    private final AtomicLong wake_total_ns;
+    private final AtomicLong wake_max_ns;
+    private volatile long    wake_last_ns;
+
+    /**
+     * Default constructor for a lifecycle. The
+     * initial state is IDLE.
+     */
+    public Lifecycle()
+    {
+        state         = new AtomicReference<State>( State.IDLE );
+        waiters       = new Thread[ MAX_WAITERS ];
+        waiter_count  = 0;
+        resume_ns     = 0;
+        wake_count    = new AtomicLong();
+        wake_total_ns = new AtomicLong();
+        wake_max_ns   = new AtomicLong();
+        wake_last_ns  = 0;
+
+    }   /* Lifecycle() */
+
+    /**
+     * Registers an audio thread so that state changes
+     * can unpark it.
+     *
+     * @param t
+     *  The thread to register.
+     *
+     * @throws IllegalStateException
+     *  Throws an exception if too many threads are
+     *  registered.
+     */
+    public synchronized void register( final Thread t )
+    {
+        if( waiter_count == MAX_WAITERS )
+        {
+            throw new IllegalStateException( "Too many audio threads registered." );
+        }
+
+        waiters[ waiter_count ] = t;
+        waiter_count = waiter_count + 1;
+
+    }   /* register() */
+
+    /**
+     * Forgets every registered audio thread.
+     */
+    public synchronized void unregisterAll()
+    {
+        int i;
+
+        for( i = 0; i < waiter_count; ++i )
+        {
+            waiters[ i ] = null;
+        }
+        waiter_count = 0;
+
+    }   /* unregisterAll() */
+
+    /*-----------------------------------------
+     * Transitions
+     *---------------------------------------*/
+
+    /**
+     * Moves to RUNNING from IDLE or PAUSED.
+     *
+     * @return
+     *  Returns true if the state changed.
+     */
+    public boolean resume()
+    {
+        long now = System.nanoTime();
+
+        if( state.compareAndSet( State.PAUSED, State.RUNNING )
+         || state.compareAndSet( State.IDLE, State.RUNNING ) )
+        {
+            resume_ns = now;
+            wakeAll();
+            return( true );
+        }
+
+        return( false );
+
+    }   /* resume() */
+
+    /**
+     * Moves to PAUSED from IDLE or RUNNING.
+     *
+     * @return
+     *  Returns true if the state changed.
+     */
+    public boolean pause()
+    {
+        return( state.compareAndSet( State.RUNNING, State.PAUSED )
+             || state.compareAndSet( State.IDLE, State.PAUSED ) );
+
+    }   /* pause() */
+
+    /**
+     * Moves to STOPPING from any state, and wakes every
+     * registered thread so it can see the change.
+     */
+    public void stop()
+    {
+        state.set( State.STOPPING );
+        wakeAll();
+
+    }   /* stop() */
+
+    /**
+     * Moves from STOPPING back to IDLE once the audio
+     * threads have finished.
+     */
+    public void finish()
+    {
+        state.compareAndSet( State.STOPPING, State.IDLE );
+
+    }   /* finish() */
+
+    /*-----------------------------------------
+     * Audio thread side
+     *---------------------------------------*/
+
+    /**
+     * Blocks the calling audio thread until the state is
+     * RUNNING or STOPPING.
+     *
+     * @return
+     *  Returns true if the thread should process the next
+     *  block, and false if it should exit.
+     */
+    public boolean awaitRunning()
+    {
+        State   st;
+        long    since  = resume_ns;
+        long    r;
+        boolean parked = false;
+
+        while( State.RUNNING != ( st = state.get() ) )
+        {
+            if( State.STOPPING == st )
+            {
+                return( false );
+            }
+            LockSupport.parkNanos( this, MAX_PARK_NS );
+            parked = true;
+        }
+
+        /*---------------------------------------
+         * The resume() that let this thread go
+         * publishes its time just after the state
+         * changes, so wait for it rather than
+         * measuring from the one before
+         *-------------------------------------*/
+        if( parked )
+        {
+            while( since == ( r = resume_ns ) )
+            {
+                Thread.yield();
+            }
+            recordWake( System.nanoTime() - r );
+        }
+
+        return( true );
+
+    }   /* awaitRunning() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private void wakeAll()
+    {
+        int i;
+        int count = waiter_count;
+
+        for( i = 0; i < count; ++i )
+        {
+            LockSupport.unpark( waiters[ i ] );
+        }
+
+    }   /* wakeAll() */
+
+    private void recordWake( final long ns )
+    {
+        long max;
+
+        wake_last_ns = ns;
+        wake_count.incrementAndGet();
+        wake_total_ns.addAndGet( ns );
+        do
+        {
+            max = wake_max_ns.get();
+        } while( ( ns > max ) && !wake_max_ns.compareAndSet( max, ns ) );
+
+    }   /* recordWake() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public State   getState()           { return( state.get() );                  }
+    public boolean isRunning()          { return( State.RUNNING == state.get() ); }
+    public long    getWakeCount()       { return( wake_count.get() );             }
+    public long    getLastWakeLatency() { return( wake_last_ns );                 }
+    public long    getMaxWakeLatency()  { return( wake_max_ns.get() );            }
+
+    /**
+     * Returns when the last successful resume() was
+     * called, for the tests.
+     *
+     * @return
+     *  System.nanoTime() at that call, or 0 if there
+     *  hasn't been one.
+     */
+    long getResumeTime()
+    {
+        return( resume_ns );
+
+    }   /* getResumeTime() */
+
+    /**
+     * Returns the mean pause to resume wake-up latency.
+     *
+     * @return
+     *  The mean latency in nanoseconds, or 0 if no
+     *  thread has been woken yet.
+     */
+    public long getMeanWakeLatency()
+    {
+        long count = wake_count.get();
+
+        return( ( 0 == count ) ? 0 : wake_total_ns.get() / count );
+
+    }   /* getMeanWakeLatency() */
+
+};  /* Lifecycle */
@@ -0,0 +1,197 @@
+package com.example.noisecancellation.MainProcess;
+
+import junit.framework.TestCase;
+
+public class LifecycleTest extends TestCase {
+    /*-----------------------------------------
+     * Allowance for the scheduler on top of
+     * the documented wake-up bound
+     *---------------------------------------*/
+    private static final long SLACK_NS = 200000000L;
+
+    /*-------------------------------------------
+     * TESTING Lifecycle transitions and
+     * Lifecycle::awaitRunning()
+     *
+     * TEST CASES:
+     *   1. IDLE, RUNNING, PAUSED, RUNNING,
+     *      STOPPING and the transitions refused
+     *      along the way
+     *   2. A refused resume() leaving the resume
+     *      time alone
+     *   3. Parked threads waking after resume(),
+     *      registered or not, and the wake-up
+     *      latency they record
+     *   4. stop() releasing a paused thread
+     *-----------------------------------------*/
+
+    /**
+     * Tests the state machine through a full run, and
+     * that transitions it doesn't allow are refused
+     * without changing the state.
+     * <br /><br />
+     * Expected return value: the documented states
+     */
+    public void testTransitions()
+    {
+        Lifecycle l = new Lifecycle();
+
+        assertEquals( "Initial", Lifecycle.State.IDLE, l.getState() );
+        assertTrue( "Start", l.resume() );
+        assertTrue( "Running", l.isRunning() );
+        assertFalse( "Already running", l.resume() );
+
+        assertTrue( "Pause", l.pause() );
+        assertEquals( "Paused", Lifecycle.State.PAUSED, l.getState() );
+        assertFalse( "Already paused", l.pause() );
+
+        assertTrue( "Resume", l.resume() );
+        assertEquals( "Running again", Lifecycle.State.RUNNING, l.getState() );
+
+        l.stop();
+        assertEquals( "Stopping", Lifecycle.State.STOPPING, l.getState() );
+        assertFalse( "No resume while stopping", l.resume() );
+        assertFalse( "No pause while stopping", l.pause() );
+        assertEquals( "Still stopping", Lifecycle.State.STOPPING, l.getState() );
+
+        l.finish();
+        assertEquals( "Finished", Lifecycle.State.IDLE, l.getState() );
+
+    }   /* testTransitions() */
+
+    /**
+     * Tests that only a resume() that changes the state
+     * sets the time wake-up latency is measured from.
+     * <br /><br />
+     * Expected return value: the time of the last
+     * successful resume()
+     */
+    public void testResumeTime()
+    {
+        long      t;
+        Lifecycle l = new Lifecycle();
+
+        assertEquals( "None yet", 0, l.getResumeTime() );
+        assertTrue( "Start", l.resume() );
+        t = l.getResumeTime();
+        assertTrue( "Set", t > 0 );
+
+        assertFalse( "Already running", l.resume() );
+        assertEquals( "Refused while running", t, l.getResumeTime() );
+
+        l.stop();
+        assertFalse( "Stopping", l.resume() );
+        assertEquals( "Refused while stopping", t, l.getResumeTime() );
+
+    }   /* testResumeTime() */
+
+    /**
+     * Tests that paused threads get going again after
+     * resume(): a registered one as soon as it's
+     * unparked, and one that isn't registered within the
+     * park bound. Each records its wake-up latency, no
+     * longer than it actually took.
+     * <br /><br />
+     * Expected return value: both wake in time, two
+     * latencies recorded
+     */
+    public void testWake() throws Exception
+    {
+        long      start;
+        Lifecycle l = new Lifecycle();
+        Waiter    a = new Waiter( l );
+        Waiter    b = new Waiter( l );
+
+        l.pause();
+        l.register( a );
+        a.start();
+        b.start();
+        parked( a );
+        parked( b );
+
+        start = System.nanoTime();
+        assertTrue( "Resume", l.resume() );
+        a.join( ( Lifecycle.MAX_PARK_NS + SLACK_NS ) / 1000000L );
+        b.join( ( Lifecycle.MAX_PARK_NS + SLACK_NS ) / 1000000L );
+
+        assertTrue( "Registered thread carries on", a.result );
+        assertTrue( "Unregistered thread carries on", b.result );
+        assertTrue( "Registered thread woke promptly", a.done_ns - start < SLACK_NS );
+        assertTrue( "Unregistered thread woke within the bound",
+                    b.done_ns - start < Lifecycle.MAX_PARK_NS + SLACK_NS );
+
+        assertEquals( "Wake-ups counted", 2, l.getWakeCount() );
+        assertTrue( "Max is no more than the slowest took",
+                    l.getMaxWakeLatency() <= Math.max( a.done_ns, b.done_ns ) - start );
+        assertTrue( "Max covers the last", l.getMaxWakeLatency() >= l.getLastWakeLatency() );
+        assertTrue( "Mean within max", l.getMeanWakeLatency() <= l.getMaxWakeLatency() );
+
+    }   /* testWake() */
+
+    /**
+     * Tests that stop() lets a paused thread go, telling
+     * it to exit, without counting a wake-up.
+     * <br /><br />
+     * Expected return value: false from awaitRunning()
+     */
+    public void testStopReleasesPaused() throws Exception
+    {
+        Lifecycle l = new Lifecycle();
+        Waiter    w = new Waiter( l );
+
+        l.pause();
+        l.register( w );
+        w.start();
+        parked( w );
+
+        l.stop();
+        w.join( SLACK_NS / 1000000L );
+        assertFalse( "Released", w.isAlive() );
+        assertFalse( "Told to exit", w.result );
+        assertEquals( "Not a wake-up", 0, l.getWakeCount() );
+
+    }   /* testStopReleasesPaused() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+
+    /**
+     * Waits until t is parked.
+     */
+    private static void parked( final Thread t ) throws InterruptedException
+    {
+        while( ( Thread.State.TIMED_WAITING != t.getState() ) && t.isAlive() )
+        {
+            Thread.sleep( 1 );
+        }
+
+    }   /* parked() */
+
+    /**
+     * A thread that waits once for the lifecycle to run,
+     * and notes what it was told and when.
+     */
+    private static final class Waiter extends Thread
+    {
+        private final Lifecycle  lifecycle;
+        private volatile boolean result;
+        private volatile long    done_ns;
+
+        Waiter( final Lifecycle l )
+        {
+            lifecycle = l;
+            setDaemon( true );
+
+        }   /* Waiter() */
+
+        public void run()
+        {
+            result  = lifecycle.awaitRunning();
+            done_ns = System.nanoTime();
+
+        }   /* run() */
+
+    };  /* Waiter */
+
+};  /* LifecycleTest */
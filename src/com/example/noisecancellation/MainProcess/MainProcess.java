@@ -1,47 +1,227 @@
 package com.example.noisecancellation.MainProcess;
 
+import java.util.concurrent.locks.LockSupport;
+
 import android.util.Log;
+import com.example.noisecancellation.Device.AudioSink;
+import com.example.noisecancellation.Device.AudioSource;
+import com.example.noisecancellation.Device.Configuration;
 import com.example.noisecancellation.Device.Mic.Mic;
 import com.example.noisecancellation.Device.OutputDevice.OutputDevice;
+import com.example.noisecancellation.dsp.FxLmsFilter;
+import com.example.noisecancellation.dsp.RateBridge;
+import com.example.noisecancellation.dsp.SampleCodec;
+import com.example.noisecancellation.dsp.SpectralProcessor;
 import com.example.noisecancellation.fft.*;
+import com.example.noisecancellation.graph.GraphSpec;
+import com.example.noisecancellation.graph.ProcessingGraph;
+import com.example.noisecancellation.latency.PipelineLatency;
+import com.example.noisecancellation.metrics.MetricsRegistry;
+import com.example.noisecancellation.metrics.PipelineMetrics;
+import com.example.noisecancellation.trace.LogTraceOutput;
+import com.example.noisecancellation.trace.TraceDrainer;
+import com.example.noisecancellation.trace.TraceOutput;
 
 public class MainProcess implements Runnable
 {
+    /*-----------------------------------------
+     * Literal Constants
+     *      DEFAULT_JITTER_BLOCKS - number of blocks
+     *                              in the jitter buffer
+     *      DEFAULT_JITTER_TARGET - number of blocks queued
+     *                              before playback starts
+     *      RENDER_PARK_NS        - longest time the render
+     *                              thread waits for a block
+     *                              before polling again
+     *---------------------------------------*/
+    private static final int   DEFAULT_JITTER_BLOCKS = 4;
+    private static final int   DEFAULT_JITTER_TARGET = 2;
+    private static final long  RENDER_PARK_NS        = 2000000L;
+
+    /*-----------------------------------------
+     * Stands in for the spectral processors
+     * while configure() checks the graph, so
+     * that none is made before the thread runs
+     *---------------------------------------*/
+    private static final SpectralProcessor CHECK_ONLY = new SpectralProcessor()
+    {
+        public void processFrame( double [] spectrum, int bins )
+        {
+
+        }   /* processFrame() */
+
+    };
+
     /*-----------------------------------------
      * Class variables
      *---------------------------------------*/
-    private int          n;
-    private Mic          m;
-    private OutputDevice s;
-    private FFT_Wrapper  fft;
-    private boolean      paused;
-    boolean              should_run;
+    private int                   n;
+    private int                   sample_rate;
+    private int                   dsp_rate;
+    private final int             jitter_blocks;
+    private final int             jitter_target;
+    private AudioSource           m;
+    private AudioSink             s;
+    private FFT_Wrapper           fft;
+    private BlockRingBuffer       jitter_buffer;
+    private int                   channels;
+    private int                   block_frames;
+    private FxLmsFilter []        cancellers;
+    private ChannelPool           pool;
+    private RateBridge []         bridges;
+    private String                graph_spec;
+    private ProcessingGraph []    graphs;
+    private SpectralProcessor.Factory spectral;
+    private Thread                render_thread;
+    private BlockSizeTuner        tuner;
+    private FFT_Calibrator        calibrator;
+    private final Lifecycle       lifecycle;
+    private final PipelineLatency latency;
+    private final TraceDrainer    trace_drainer;
+    private final PipelineMetrics metrics;
 
     /*-----------------------------------------
      * Buffers used by this class.
-     *      recorded_data - buffer containing the data
-     *                      recorded during the last
-     *                      call to getRecordData()
-     *      cos_table     - a cosine lookup table
-     *      window_data   - data obtained from
-     *                      Hanning Window
+     *      recorded_data - scratch buffer the microphone
+     *                      is drained into when the
+     *                      jitter buffer is full
+     *      planar        - the current block as
+     *                      normalized samples, one
+     *                      array per channel
+     *      dsp_data      - the current block at the
+     *                      DSP rate, one array per
+     *                      channel
      *---------------------------------------*/
-    private byte   [] recorded_data;
-    private double [] cos_table;
-    private double [] window_data;
+    private byte   []   recorded_data;
+    private float  [][] planar;
+    private float  [][] dsp_data;
 
     /**
      * Default constructor for the audio processing thread
      */
     public MainProcess()
     {
-        m             = new Mic();
-        s             = new OutputDevice();
+        this( new Mic(), new OutputDevice(), DEFAULT_JITTER_BLOCKS, DEFAULT_JITTER_TARGET,
+              new LogTraceOutput( "trace" ) );
+
+    }   /* MainProcess() */
+
+    /**
+     * Non-default constructor for the audio processing thread
+     * that records from and plays to the supplied devices
+     * instead of the microphone and speaker. Trace events
+     * aren't written anywhere.
+     *
+     * @param source
+     *  Where audio data is recorded from.
+     *
+     * @param sink
+     *  Where the processed audio data is played to.
+     */
+    public MainProcess( final AudioSource source, final AudioSink sink )
+    {
+        this( source, sink, DEFAULT_JITTER_BLOCKS, DEFAULT_JITTER_TARGET );
+
+    }   /* MainProcess() */
+
+    /**
+     * Non-default constructor for the audio processing thread
+     *
+     * @param jitter_blocks
+     *  Number of audio blocks the jitter buffer between
+     *  the capture and render threads can hold.
+     *
+     * @param jitter_target
+     *  Number of blocks that have to be queued before the
+     *  render thread starts playing. Smaller values give
+     *  less latency, larger values ride out longer stalls.
+     */
+    public MainProcess( final int jitter_blocks, final int jitter_target )
+    {
+        this( new Mic(), new OutputDevice(), jitter_blocks, jitter_target,
+              new LogTraceOutput( "trace" ) );
+
+    }   /* MainProcess() */
+
+    /**
+     * Non-default constructor for the audio processing thread.
+     * Trace events aren't written anywhere.
+     *
+     * @param source
+     *  Where audio data is recorded from.
+     *
+     * @param sink
+     *  Where the processed audio data is played to.
+     *
+     * @param blocks
+     *  Number of audio blocks the jitter buffer between
+     *  the capture and render threads can hold.
+     *
+     * @param target
+     *  Number of blocks that have to be queued before the
+     *  render thread starts playing.
+     */
+    public MainProcess( final AudioSource source, final AudioSink sink,
+                        final int blocks, final int target )
+    {
+        this( source, sink, blocks, target, null );
+
+    }   /* MainProcess() */
+
+    /**
+     * Non-default constructor for the audio processing thread
+     *
+     * @param source
+     *  Where audio data is recorded from.
+     *
+     * @param sink
+     *  Where the processed audio data is played to.
+     *
+     * @param blocks
+     *  Number of audio blocks the jitter buffer between
+     *  the capture and render threads can hold.
+     *
+     * @param target
+     *  Number of blocks that have to be queued before the
+     *  render thread starts playing.
+     *
+     * @param trace_out
+     *  Where trace events are formatted to while the
+     *  thread runs, for example a LogTraceOutput on the
+     *  handset or a FileTraceOutput in a headless run,
+     *  or null to not write them anywhere.
+     */
+    public MainProcess( final AudioSource source, final AudioSink sink,
+                        final int blocks, final int target, final TraceOutput trace_out )
+    {
+        Configuration config = new Configuration( Configuration.INPUT_DEVICE_CONFIGURATION );
+
+        m             = source;
+        s             = sink;
         n             = m.getSuggestedBufferSize();
+        sample_rate   = config.getSamplingRate();
         fft           = new FFT_Wrapper();
-        paused        = true;
-        should_run    = false;
+        lifecycle     = new Lifecycle();
+        latency       = new PipelineLatency();
+        trace_drainer = ( null == trace_out ) ? null : new TraceDrainer( trace_out );
+        metrics       = new PipelineMetrics( new MetricsRegistry() );
+        jitter_blocks = blocks;
+        jitter_target = target;
+        tuner         = null;
+        calibrator    = null;
         recorded_data = new byte[ n ];
+        channels      = 1;
+        block_frames  = 0;
+        planar        = new float[ 1 ][ n >> 1 ];
+        cancellers    = new FxLmsFilter[ 1 ];
+        pool          = null;
+        dsp_rate      = 0;
+        bridges       = null;
+        dsp_data      = null;
+        graph_spec    = config.getProcessingGraph();
+        graphs        = null;
+        spectral      = null;
+        jitter_buffer = new BlockRingBuffer( jitter_blocks, n, jitter_target );
 
         resetBuffers( n );
         setUp();
@@ -49,27 +229,267 @@ public class MainProcess implements Runnable
     }   /* MainProcess() */
 
     /**
-     * Sets a flag telling the thread that
-     * the audio processing should be
-     * temporarily paused.
+     * Returns the jitter buffer between the capture
+     * and render threads, so that its underrun and
+     * overrun counters can be inspected.
+     *
+     * @return
+     *  The jitter buffer used by this process.
+     */
+    public BlockRingBuffer getJitterBuffer()
+    {
+        return( jitter_buffer );
+
+    }   /* getJitterBuffer() */
+
+    /**
+     * Returns the lifecycle of the audio threads, so
+     * that their state and the pause to resume wake-up
+     * latency can be inspected.
+     *
+     * @return
+     *  The lifecycle used by this process.
+     */
+    public Lifecycle getLifecycle()
+    {
+        return( lifecycle );
+
+    }   /* getLifecycle() */
+
+    /**
+     * Returns the per-stage latency histograms, so that
+     * they can be read while audio is running.
+     *
+     * @return
+     *  The latency histograms for this process.
+     */
+    public PipelineLatency getPipelineLatency()
+    {
+        return( latency );
+
+    }   /* getPipelineLatency() */
+
+    /**
+     * Returns the per-stage metrics. Take snapshots with
+     * getMetrics().getRegistry().snapshot(), from any
+     * thread but the audio ones.
+     *
+     * @return
+     *  The metrics for this process.
+     */
+    public PipelineMetrics getMetrics()
+    {
+        return( metrics );
+
+    }   /* getMetrics() */
+
+    /**
+     * Sets the sample rate the devices run at, which is
+     * used to work out each block's processing deadline.
+     * Defaults to the rate in the input Configuration.
+     * Must be called before the thread is started.
+     *
+     * @param rate
+     *  The sample rate in Hz.
+     */
+    public void setSampleRate( final int rate )
+    {
+        sample_rate = rate;
+
+    }   /* setSampleRate() */
+
+    /**
+     * Takes the sample rate, channel count and processing
+     * graph from a Configuration, which should match the
+     * one the devices were opened with. Must be called
+     * before the thread is started, and before any
+     * setCanceller(). If the graph has an "stft" stage,
+     * setSpectralProcessor() or setSpectralProcessors()
+     * must be called first.
+     *
+     * @param config
+     *  The configuration.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the processing graph
+     *  can't be parsed.
+     */
+    public void configure( final Configuration config )
+    {
+        GraphSpec.parse( config.getProcessingGraph(), config.getSamplingRate(), 1, null,
+                         ( null == spectral ) ? null : CHECK_ONLY );
+
+        sample_rate = config.getSamplingRate();
+        graph_spec  = config.getProcessingGraph();
+        setChannelCount( config.getChannelCount() );
+
+    }   /* configure() */
+
+    /**
+     * Sets the processor run on each frame by an "stft"
+     * stage in the processing graph. Every channel's
+     * graph runs the same processor, and the channels
+     * run at the same time on different threads, so it
+     * must be stateless and thread-safe; otherwise use
+     * setSpectralProcessors().
+     *
+     * @param p
+     *  The spectral processor.
+     */
+    public void setSpectralProcessor( final SpectralProcessor p )
+    {
+        spectral = ( null == p ) ? null : new SpectralProcessor.Factory()
+        {
+            public SpectralProcessor create( int channel )
+            {
+                return( p );
+
+            }   /* create() */
+
+        };
+
+    }   /* setSpectralProcessor() */
+
+    /**
+     * Sets where the processors run on each frame by an
+     * "stft" stage come from. Each channel's graph gets
+     * its own, made when the thread starts, so they may
+     * keep state.
+     *
+     * @param f
+     *  Makes the spectral processor for each channel.
+     */
+    public void setSpectralProcessors( final SpectralProcessor.Factory f )
+    {
+        spectral = f;
+
+    }   /* setSpectralProcessors() */
+
+    /**
+     * Runs the cancellers at a different rate from the
+     * devices. Each block is resampled to this rate
+     * before it is cancelled and back afterwards, so the
+     * devices can run at their native rate (44.1 or 48
+     * kHz, say) while the adaptive filters run at a rate
+     * that is cheaper to process. Must be called before
+     * the thread is started.
+     *
+     * @param rate
+     *  The rate to process at in Hz, or 0 to process at
+     *  the device rate.
+     */
+    public void setDspRate( final int rate )
+    {
+        dsp_rate = rate;
+
+    }   /* setDspRate() */
+
+    /**
+     * Returns the size of the next block read from the
+     * source. Until a tuner is set this is the size the
+     * source suggested.
+     *
+     * @return
+     *  The block size in bytes.
+     */
+    public int getBlockSize()
+    {
+        return( n );
+
+    }   /* getBlockSize() */
+
+    /**
+     * Lets a tuner pick the block size while audio is
+     * running. The buffers are allocated at the tuner's
+     * largest size up front, so the size can change
+     * between any two blocks without reallocating.
+     * Must be called before the thread is started.
+     *
+     * @param t
+     *  The tuner to use.
+     */
+    public void setTuner( final BlockSizeTuner t )
+    {
+        tuner         = t;
+        recorded_data = new byte[ t.getMaxSize() ];
+        planar        = new float[ channels ][ ( t.getMaxSize() >> 1 ) / channels ];
+        jitter_buffer = new BlockRingBuffer( jitter_blocks, t.getMaxSize(), jitter_target );
+
+        resetBuffers( t.getSize() );
+
+    }   /* setTuner() */
+
+    /**
+     * Sets where the FFT threading thresholds come from.
+     * run() applies the calibrator's stored profile, or
+     * calibrates and saves one on the first run, before
+     * any audio is processed. Must be called before the
+     * thread is started.
+     *
+     * @param c
+     *  The calibrator to use.
+     */
+    public void setCalibrator( final FFT_Calibrator c )
+    {
+        calibrator = c;
+
+    }   /* setCalibrator() */
+
+    /**
+     * Sets the number of interleaved channels the source
+     * records and the sink plays. Each channel can have
+     * its own canceller, and the channels of a block are
+     * processed in parallel, one thread per channel.
+     * Must be called before the thread is started, and
+     * before any setCanceller().
+     *
+     * @param count
+     *  The number of channels, which must match the
+     *  Configuration of both devices.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if count is less than 1.
+     */
+    public void setChannelCount( final int count )
+    {
+        if( count < 1 )
+        {
+            throw new IllegalArgumentException( "Channel count must be at least 1." );
+        }
+
+        channels   = count;
+        planar     = new float[ count ][ ( recorded_data.length >> 1 ) / count ];
+        cancellers = new FxLmsFilter[ count ];
+
+    }   /* setChannelCount() */
+
+    /**
+     * Tells the audio threads that processing
+     * should be temporarily paused. They park
+     * until resume() or stopProcessing() is called.
      */
     public void pause()
     {
-        paused = true;
+        lifecycle.pause();
         m.stop();
         s.stop();
 
+        if( null != tuner )
+        {
+            tuner.save();
+        }
+
     }   /* pause() */
 
     /**
-     * Sets a flag telling the thread that
-     * the audio processing should resume.
+     * Tells the audio threads that processing
+     * should resume, and wakes them up.
      */
     public void resume()
     {
         m.start();
         s.start();
-        paused = false;
+        lifecycle.resume();
 
     }   /* resume() */
 
@@ -77,130 +497,389 @@ public class MainProcess implements Runnable
     /**
      * The function that the thread will run.
      * Why else would we call it run?
+     *
+     * The calling thread becomes the capture thread.
+     * Playback happens on a separate render thread,
+     * and the two are joined by the jitter buffer, so
+     * a stall on either side doesn't hold up the other.
+     * Trace events from both are written to the trace
+     * output, if there is one, by a low priority drainer
+     * thread.
      */
     public void run()
     {
-        should_run = true;
-        while( should_run )
+        if( null != calibrator )
         {
-            if( !paused )
-            {
-                 m.getRecordData( recorded_data );
-                 invert( recorded_data );
-                 s.write( recorded_data );
-            }
+            calibrator.loadOrCalibrate();
+        }
+
+        if( channels > 1 )
+        {
+            pool = new ChannelPool( channels, new ChannelCanceller() );
+        }
+        setUpBridges();
+        setUpGraphs();
+
+        render_thread = new Thread( new RenderLoop(), "render" );
+        lifecycle.register( Thread.currentThread() );
+        lifecycle.register( render_thread );
+        render_thread.start();
+        if( null != trace_drainer )
+        {
+            trace_drainer.start();
+        }
+
+        while( lifecycle.awaitRunning() )
+        {
+            capture();
+        }
+
+        try
+        {
+            render_thread.join();
+        }
+        catch( InterruptedException ie )
+        {
+            Log.i( "MainProcess--run()", "Interrupted while waiting for the render thread" );
         }
 
+        lifecycle.unregisterAll();
+        if( null != trace_drainer )
+        {
+            trace_drainer.stop();
+        }
+        if( null != pool )
+        {
+            pool.shutdown();
+            pool = null;
+        }
+        if( null != tuner )
+        {
+            tuner.save();
+        }
         tearDown();
+        lifecycle.finish();
 
     }   /* run() */
 
     /**
-     * Sets a flag for the processing thread so that
-     * it sees that it needs to stop processing
-     * audio data.
+     * Reads one block from the microphone, processes
+     * it and publishes it to the render thread. If the
+     * jitter buffer is full the block is still read,
+     * so the microphone doesn't back up, but dropped.
+     * If there is a tuner, it picks the size of the
+     * next block once this one is queued.
+     */
+    private void capture()
+    {
+        int     bytes_read;
+        long    block_ns;
+        long    start_ns;
+        long    captured_ns;
+        long    processed_ns;
+        byte [] block = jitter_buffer.acquireWrite();
+
+        if( null == block )
+        {
+            block = recorded_data;
+        }
+
+        start_ns    = System.nanoTime();
+        bytes_read  = m.getRecordData( block, n );
+        captured_ns = System.nanoTime();
+        metrics.recordRead( n, bytes_read, captured_ns - start_ns );
+        block_ns    = (long)( ( n >> 1 ) / channels ) * 1000000000L / sample_rate;
+
+        if( ( bytes_read > 0 ) && ( block != recorded_data ) )
+        {
+            cancel( block, bytes_read );
+            processed_ns = System.nanoTime();
+            metrics.recordProcess( processed_ns - captured_ns,
+                                   (long)( ( bytes_read >> 1 ) / channels ) * 1000000000L / sample_rate );
+            latency.record( PipelineLatency.Stage.PROCESS, processed_ns - captured_ns );
+            jitter_buffer.commitWrite( bytes_read, captured_ns );
+            LockSupport.unpark( render_thread );
+        }
+
+        if( null != tuner )
+        {
+            n = tuner.onBlock( jitter_buffer.getUnderrunCount() + metrics.getDeadlineMisses().get(),
+                               metrics, block_ns );
+        }
+
+    }   /* capture() */
+
+    /**
+     * The render thread. Takes processed blocks out of
+     * the jitter buffer and writes them to the output
+     * device. When the jitter buffer underruns, because
+     * the capture thread ran late, up to jitter_target
+     * blocks are concealed by the sink while it refills,
+     * instead of the output stopping dead.
+     */
+    private final class RenderLoop implements Runnable
+    {
+        public void run()
+        {
+            byte [] block;
+            int     len;
+            int     last_len       = 0;
+            int     conceal_left   = 0;
+            long    seen_underruns = jitter_buffer.getUnderrunCount();
+            boolean ok;
+            long    captured_ns;
+            long    start_ns;
+            long    end_ns;
+
+            for( ;; )
+            {
+                if( !lifecycle.isRunning() )
+                {
+                    /*---------------------------
+                     * Don't play stale audio
+                     * once we're resumed
+                     *-------------------------*/
+                    jitter_buffer.drain();
+                    last_len     = 0;
+                    conceal_left = 0;
+                    if( !lifecycle.awaitRunning() )
+                    {
+                        break;
+                    }
+                    seen_underruns = jitter_buffer.getUnderrunCount();
+                    continue;
+                }
+
+                block = jitter_buffer.acquireRead();
+                if( null == block )
+                {
+                    if( seen_underruns != jitter_buffer.getUnderrunCount() )
+                    {
+                        seen_underruns = jitter_buffer.getUnderrunCount();
+                        conceal_left   = jitter_target;
+                    }
+                    if( ( conceal_left > 0 ) && ( last_len > 0 ) )
+                    {
+                        --conceal_left;
+                        metrics.recordConceal( s.conceal( last_len ) );
+                        continue;
+                    }
+                    LockSupport.parkNanos( RENDER_PARK_NS );
+                    continue;
+                }
+
+                conceal_left = 0;
+                len          = jitter_buffer.getReadLength();
+                last_len     = len;
+                captured_ns = jitter_buffer.getReadStamp();
+                start_ns    = System.nanoTime();
+                ok          = s.write( block, len );
+                end_ns      = System.nanoTime();
+                jitter_buffer.releaseRead();
+
+                metrics.recordWrite( len, s.getBytesLastWritten(), ok, end_ns - start_ns );
+                latency.record( PipelineLatency.Stage.QUEUE, start_ns - captured_ns );
+                latency.record( PipelineLatency.Stage.WRITE, end_ns - start_ns );
+                latency.record( PipelineLatency.Stage.TOTAL, end_ns - captured_ns );
+            }
+
+        }   /* run() */
+
+    };  /* RenderLoop */
+
+    /**
+     * Tells the processing threads that they need
+     * to stop processing audio data, and wakes them
+     * up if they are paused.
      */
     public void stopProcessing()
     {
-        should_run = false;
+        lifecycle.stop();
 
     }   /* stopProcessing() */
 
     /**
-     * This function attempts to apply a Hanning Window
-     * to the provided data.
+     * Sets the adaptive canceller. It has to be built on
+     * a secondary path model measured on the device: the
+     * anti-noise takes a block, the jitter buffer and the
+     * track's own buffer to reach the microphone, and a
+     * model much shorter than that makes the filter
+     * diverge. Until one is set, the "fxlms" stage just
+     * negates the block. Must be called before the thread
+     * is started. With more than one channel, this sets
+     * the first channel's.
      *
-     * @param buf
-     *  The data to which the Hanning Window will be
-     *  applied.
+     * @param f
+     *  The canceller to use.
      */
-    private void applyWindow( final byte [] buf, final int len )
+    public void setCanceller( final FxLmsFilter f )
     {
-        int i;
+        setCanceller( 0, f );
 
-        if( window_data.length != len )
-        {
-            throw new RuntimeException( "Window and buffer dimensions don't match." );
-        }
+    }   /* setCanceller() */
 
-        for( i = 0; i < len; ++i )
-        {
-            window_data[ i ] = buf[ i ] * 0.5 * ( 1.0 - cos_table[ i ] );
-        }
+    /**
+     * Sets the adaptive canceller for one channel.
+     * Must be called before the thread is started.
+     *
+     * @param channel
+     *  Index of the channel, from 0.
+     *
+     * @param f
+     *  The canceller to use.
+     */
+    public void setCanceller( final int channel, final FxLmsFilter f )
+    {
+        cancellers[ channel ] = f;
 
-    }   /* applyWindow() */
+    }   /* setCanceller() */
 
     /**
-     * Inverts the audio obtained from the microphone.
-     * 16 bit pcm is in little endian format
-     * We first convert a 16bit buffer into a short
-     * If the short is equal to -32768, which would be
-     * greater than max(short) when inverted, we add
-     * one to the short.
-     * After that, we convert the short back into
-     * a little endian 16bit.
+     * Replaces the audio obtained from the microphone
+     * with the anti-noise for it. 16 bit pcm is in
+     * little endian format, with the channels
+     * interleaved. Each channel is cancelled on its own,
+     * in parallel when there's more than one.
      * 
      * @param buf
      *  Buffer containing audio data
+     *
+     * @param len
+     *  Number of valid bytes in buf
      */
-    private void invert( byte [] buf )
+    private void cancel( byte [] buf, int len )
     {
-        int   i;
-        short invert;
-        for( i = 0; i < buf.length - 1; i += 2 ) 
+        int frames = ( len >> 1 ) / channels;
+
+        if( ( 1 == channels ) && ( null == bridges ) )
         {
-            invert = (short)( buf[ i ] | ( (short)buf[ i + 1 ] << 8 ) );
-            if( invert < -Short.MAX_VALUE ) 
-            {
-                invert = -Short.MAX_VALUE;
-            }
-            invert       = (short)(  -invert );
-            buf[ i ]     = (byte) (   invert & 0x00FF );
-            buf[ i + 1 ] = (byte) ( ( invert >>> 8  ) );
+            graphs[ 0 ].process( buf, 0, planar[ 0 ], frames );
+            return;
         }
 
-    }   /* invert() */
+        if( 1 == channels )
+        {
+            SampleCodec.decode( buf, 0, planar[ 0 ], 0, frames );
+            cancelChannel( 0, frames );
+            SampleCodec.encode( planar[ 0 ], 0, buf, 0, frames );
+            return;
+        }
+
+        SampleCodec.deinterleave( buf, 0, planar, 0, frames );
+        block_frames = frames;
+        pool.runBlock();
+        SampleCodec.interleave( planar, 0, buf, 0, frames );
+
+    }   /* cancel() */
 
     /**
-     * Resizes all of the buffers used by this class
-     * to the size passed to the procedure from the caller.
+     * Runs one channel of the current block through its
+     * processing graph in place, at the DSP rate if one
+     * was set.
      *
-     * @param new_size
-     *  The new size of the buffers.
+     * @param channel
+     *  Index of the channel.
+     *
+     * @param frames
+     *  Number of samples in the channel.
      */
-    private void resetBuffers( final int new_size )
+    private void cancelChannel( final int channel, final int frames )
     {
-        n             = new_size;
-        window_data   = new double[ new_size ];
+        int count;
 
-        resetCosTable( new_size );
+        if( null == bridges )
+        {
+            graphs[ channel ].process( planar[ channel ], 0, frames );
+            return;
+        }
 
-        System.gc();
+        count = bridges[ channel ].toDsp( planar[ channel ], 0, frames, dsp_data[ channel ] );
+        graphs[ channel ].process( dsp_data[ channel ], 0, count );
+        bridges[ channel ].fromDsp( dsp_data[ channel ], count, planar[ channel ], 0, frames );
 
-    }   /* resetBuffers() */
+    }   /* cancelChannel() */
 
     /**
-     * Resets the cosine lookup table used in the
-     * Hanning Window calculation. Supposedly, this
-     * saves computation time since this only has
-     * to be recalculated if the size of the
-     * buffers change.
-     *
-     * @param new_size
-     *  The new size of the cosine lookup table.
+     * Cancels one channel of the current block, on
+     * one of the channel pool's threads.
+     */
+    private final class ChannelCanceller implements ChannelPool.ChannelTask
+    {
+        public void process( final int channel )
+        {
+            cancelChannel( channel, block_frames );
+
+        }   /* process() */
+
+    };  /* ChannelCanceller */
+
+    /**
+     * Creates a rate bridge per channel if the DSP rate
+     * differs from the device rate. Done when the thread
+     * starts, once the channel count and largest block
+     * size are known.
      */
-    private void resetCosTable( final int new_size )
+    private void setUpBridges()
     {
         int i;
 
-        cos_table = new double[ new_size ];
+        if( ( 0 == dsp_rate ) || ( dsp_rate == sample_rate ) )
+        {
+            bridges  = null;
+            dsp_data = null;
+            return;
+        }
 
-        for( i = 0; i < new_size; ++i )
+        bridges  = new RateBridge[ channels ];
+        dsp_data = new float[ channels ][];
+        for( i = 0; i < channels; ++i )
         {
-            cos_table[ i ] = Math.cos( 2.0 * Math.PI * (double)i / (double)new_size );
+            bridges[ i ]  = new RateBridge( sample_rate, dsp_rate, planar[ i ].length );
+            dsp_data[ i ] = new float[ bridges[ i ].getMaxDspFrames() ];
         }
 
-    }   /* resetCosTable() */
+    }   /* setUpBridges() */
+
+    /**
+     * Builds each channel's processing graph from the
+     * configured description. An "fxlms" stage without
+     * arguments runs the channel's canceller, so
+     * setCanceller() still applies, and an "stft" stage
+     * runs the channel's own spectral processor. Done
+     * when the thread starts, after the bridges, once the
+     * rate the graph runs at and the largest block are
+     * known.
+     */
+    private void setUpGraphs()
+    {
+        int i;
+        int rate = ( null == bridges ) ? sample_rate : dsp_rate;
+
+        graphs = new ProcessingGraph[ channels ];
+        for( i = 0; i < channels; ++i )
+        {
+            graphs[ i ] = GraphSpec.parse( graph_spec, rate,
+                                           ( null == bridges ) ? planar[ i ].length : dsp_data[ i ].length,
+                                           cancellers[ i ],
+                                           ( null == spectral ) ? null : spectral.create( i ) );
+        }
+
+    }   /* setUpGraphs() */
+
+    /**
+     * Resizes all of the buffers used by this class
+     * to the size passed to the procedure from the caller.
+     *
+     * @param new_size
+     *  The new size of the buffers.
+     */
+    private void resetBuffers( final int new_size )
+    {
+        n = new_size;
+
+        System.gc();
+
+    }   /* resetBuffers() */
 
     /**
      * Sets up the microphone and
@@ -0,0 +1,188 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Arrays;
+
+import com.example.noisecancellation.fft.FFT_Wrapper;
+
+/**
+ * Streaming FIR filter for short to medium kernels, using
+ * overlap-save convolution with a cached kernel spectrum.
+ *
+ * FFT_Wrapper.cconvolve() transforms both of its inputs on
+ * every call. Here the kernel is transformed once, and
+ * each block only costs one forward and one inverse
+ * transform. The last kernel length - 1 input samples are
+ * carried over between blocks and put in front of the
+ * next one, so the output is the exact linear convolution
+ * of the whole stream, with no added latency.
+ *
+ * The transform size is the smallest power of two that
+ * holds the largest block plus the carried over samples.
+ * For kernels much longer than a block, PartitionedConvolver
+ * does less work per block.
+ *
+ * Spectra are kept in the packed real form from
+ * FFT_Wrapper.rfftInto(), and nothing is allocated after
+ * construction. An instance must only be used by one
+ * thread at a time.
+ */
+public final class BlockConvolver
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *      kernel_len  - length of the kernel
+     *      max_block   - largest block process() takes
+     *      fft_size    - transform size
+     *      h_spectrum  - packed spectrum of the kernel
+     *      history     - the last kernel_len - 1 input
+     *                    samples
+     *      work        - carried over samples and the
+     *                    block, then their spectrum,
+     *                    then the output
+     *---------------------------------------*/
+    private final int         kernel_len;
+    private final int         max_block;
+    private final int         fft_size;
+    private final float []    h_spectrum;
+    private final float []    history;
+    private final float []    work;
+    private final FFT_Wrapper fft;
+
+    /**
+     * Constructor for a block convolver.
+     *
+     * @param kernel
+     *  The filter's impulse response.
+     * @param max_block_size
+     *  The largest number of samples that will be passed
+     *  to a single process() call.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the kernel is empty or the
+     *  block size isn't positive.
+     */
+    public BlockConvolver( final float [] kernel, final int max_block_size )
+    {
+        int size;
+
+        if( ( null == kernel ) || ( 0 == kernel.length ) )
+        {
+            throw new IllegalArgumentException( "Kernel is empty." );
+        }
+        if( max_block_size < 1 )
+        {
+            throw new IllegalArgumentException( "Block size must be positive." );
+        }
+
+        kernel_len = kernel.length;
+        max_block  = max_block_size;
+
+        size = 2;
+        while( size < max_block + kernel_len - 1 )
+        {
+            size <<= 1;
+        }
+
+        fft_size   = size;
+        h_spectrum = new float[ fft_size ];
+        history    = new float[ kernel_len - 1 ];
+        work       = new float[ fft_size ];
+        fft        = new FFT_Wrapper( fft_size );
+
+        setKernel( kernel );
+        reset();
+
+    }   /* BlockConvolver() */
+
+    /**
+     * Replaces the kernel, keeping the input history.
+     * Must be called from the thread that calls process().
+     *
+     * @param kernel
+     *  The new impulse response, which must be the same
+     *  length as the original one.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the length is different.
+     */
+    public void setKernel( final float [] kernel )
+    {
+        if( kernel.length != kernel_len )
+        {
+            throw new IllegalArgumentException( "Kernel length can't change." );
+        }
+
+        Arrays.fill( h_spectrum, 0.0f );
+        System.arraycopy( kernel, 0, h_spectrum, 0, kernel_len );
+        fft.rfftInto( h_spectrum, 0, fft_size, h_spectrum, 0 );
+
+    }   /* setKernel() */
+
+    /**
+     * Clears the input history.
+     */
+    public void reset()
+    {
+        Arrays.fill( history, 0.0f );
+
+    }   /* reset() */
+
+    /**
+     * Filters a block of samples.
+     *
+     * @param in
+     *  Input samples.
+     * @param out
+     *  Receives the filtered samples. May be the same
+     *  array as in.
+     * @param off
+     *  Index of the first sample in both arrays.
+     * @param count
+     *  Number of samples, at most getMaxBlockSize().
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the block is too large.
+     */
+    public void process( final float [] in, final float [] out, final int off, final int count )
+    {
+        final int carry = kernel_len - 1;
+
+        if( count > max_block )
+        {
+            throw new IllegalArgumentException( "Block is larger than the convolver was built for." );
+        }
+
+        /*-------------------------------------
+         * [ carried over | block | zeros ]
+         *-----------------------------------*/
+        System.arraycopy( history, 0, work, 0, carry );
+        System.arraycopy( in, off, work, carry, count );
+        Arrays.fill( work, carry + count, fft_size, 0.0f );
+
+        /*-------------------------------------
+         * Keep the newest kernel_len - 1 input
+         * samples for the next block, before
+         * out overwrites them.
+         *-----------------------------------*/
+        System.arraycopy( work, count, history, 0, carry );
+
+        fft.rfftInto( work, 0, fft_size, work, 0 );
+        FFT_Wrapper.multiplyPacked( work, 0, h_spectrum, 0, fft_size );
+        fft.irfftInto( work, 0, fft_size, work, 0 );
+
+        /*-------------------------------------
+         * Everything before index carry has
+         * wrapped around; the rest is exact.
+         *-----------------------------------*/
+        System.arraycopy( work, carry, out, off, count );
+
+    }   /* process() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int getKernelLength()  { return( kernel_len ); }
+    public int getMaxBlockSize()  { return( max_block );  }
+    public int getFftSize()       { return( fft_size );   }
+
+};  /* BlockConvolver */
@@ -0,0 +1,123 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class BlockConvolverTest extends TestCase {
+    private static final float EPSILON = 1.0E-3f;
+
+    /*-------------------------------------------
+     * TESTING BlockConvolver::process()
+     *
+     * TEST CASES:
+     *   1. Kernels of several lengths, in blocks
+     *      of varying size, in place
+     *   2. Blocks larger than the convolver was
+     *      built for
+     *-----------------------------------------*/
+
+    /**
+     * Tests that kernels from a single tap to longer
+     * than the largest block match direct convolution,
+     * with every block a different size up to
+     * getMaxBlockSize(), filtered in place.
+     * <br /><br />
+     * Expected return value: the direct convolution
+     */
+    public void testDirect()
+    {
+        int            i;
+        int            k;
+        int            n;
+        int []         lengths = { 1, 7, 100, 513 };
+        float []       x       = noise( 5000, 1 );
+        float []       h;
+        float []       buf;
+        float []       ref;
+        Random         rnd     = new Random( 2 );
+        BlockConvolver c;
+
+        for( k = 0; k < lengths.length; ++k )
+        {
+            h   = noise( lengths[ k ], 10 + k );
+            ref = direct( h, x );
+            buf = x.clone();
+            c   = new BlockConvolver( h, 256 );
+
+            for( i = 0; i < buf.length; i += n )
+            {
+                n = Math.min( 1 + rnd.nextInt( c.getMaxBlockSize() ), buf.length - i );
+                c.process( buf, buf, i, n );
+            }
+            for( i = 0; i < buf.length; ++i )
+            {
+                assertEquals( "Kernel " + lengths[ k ] + " sample " + i, ref[ i ], buf[ i ], EPSILON );
+            }
+        }
+
+    }   /* testDirect() */
+
+    /**
+     * Tests that a block larger than the convolver was
+     * built for is rejected.
+     * <br /><br />
+     * Expected return value: IllegalArgumentException
+     */
+    public void testBlockTooLarge()
+    {
+        float []       buf = new float[ 65 ];
+        BlockConvolver c   = new BlockConvolver( noise( 7, 3 ), 64 );
+
+        try
+        {
+            c.process( buf, buf, 0, buf.length );
+            fail( "Block of " + buf.length + " accepted" );
+        }
+        catch( IllegalArgumentException iae )
+        {
+            /* Expected */
+        }
+
+    }   /* testBlockTooLarge() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private static float [] noise( final int len, final long seed )
+    {
+        int      i;
+        float [] out = new float[ len ];
+        Random   r   = new Random( seed );
+
+        for( i = 0; i < len; ++i )
+        {
+            out[ i ] = (float)( r.nextGaussian() * 0.1 );
+        }
+
+        return( out );
+
+    }   /* noise() */
+
+    private static float [] direct( final float [] h, final float [] x )
+    {
+        int      i;
+        int      k;
+        double   sum;
+        float [] out = new float[ x.length ];
+
+        for( i = 0; i < x.length; ++i )
+        {
+            sum = 0.0;
+            for( k = 0; ( k < h.length ) && ( k <= i ); ++k )
+            {
+                sum += h[ k ] * x[ i - k ];
+            }
+            out[ i ] = (float)sum;
+        }
+
+        return( out );
+
+    }   /* direct() */
+
+};  /* BlockConvolverTest */
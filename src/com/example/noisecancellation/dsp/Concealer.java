@@ -0,0 +1,436 @@
+package com.example.noisecancellation.dsp;
+
+/**
+ * Fills in for blocks that didn't arrive in time, so
+ * that a late block plays as a smooth fade instead of a
+ * click.
+ *
+ * Every block that is played goes through onBlock(),
+ * which keeps a copy of it. When a block is missing,
+ * conceal() makes one up from that copy:
+ *
+ * <ul>
+ *   <li>REPEAT_DECAY repeats the last block, each
+ *       repetition quieter than the one before by the
+ *       decay factor.</li>
+ *   <li>FADE_OUT plays the last block once more, fading
+ *       it to silence, and plays silence after that.</li>
+ * </ul>
+ *
+ * Repetitions don't start at the beginning of the last
+ * block, which rarely lines up with where it ended.
+ * Instead the block is looped from the frame whose
+ * preceding frames best match the end of the block,
+ * found once per gap, so a periodic sound carries on in
+ * phase. Whatever difference in level is left at the
+ * splice is faded out over the CROSSFADE frames after
+ * it, for each channel separately, so other sounds join
+ * up too. Gain changes are ramped across each block,
+ * and the first real block after a gap is crossfaded
+ * with the concealment, so there are no steps in the
+ * output.
+ *
+ * Blocks are 16 bit little endian PCM, one channel or
+ * interleaved; the concealer is told the number of
+ * channels, and splices and loops only on whole frames.
+ * Nothing allocates once the buffers have grown to the
+ * largest block seen.
+ */
+public final class Concealer
+{
+    /*-----------------------------------------
+     * Concealment strategies
+     *---------------------------------------*/
+    public enum Strategy { REPEAT_DECAY, FADE_OUT }
+
+    /*-----------------------------------------
+     * Literal Constants
+     *      DEFAULT_DECAY  - gain of each repetition
+     *                       relative to the last
+     *      CROSSFADE      - frames the first real
+     *                       block after a gap is
+     *                       crossfaded over, and the
+     *                       most frames a splice is
+     *                       matched and faded over
+     *      SILENT_GAIN    - gain treated as silence
+     *---------------------------------------*/
+    public static final float  DEFAULT_DECAY = 0.5f;
+    private static final int   CROSSFADE     = 64;
+    private static final float SILENT_GAIN   = 1.0e-3f;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      strategy  - how blocks are made up
+     *      decay     - gain per repetition
+     *      channels  - samples in one frame
+     *      last      - samples of the last real block
+     *      last_len  - number of samples in last, a
+     *                  whole number of frames
+     *      work      - samples of the block being built
+     *      out       - PCM handed back to the caller
+     *      position  - next sample of last to repeat
+     *      loop      - sample of last each repetition
+     *                  starts from, or -1 until the
+     *                  next gap looks for it
+     *      splice    - frames the level difference
+     *                  at a splice is faded out over
+     *      offset    - level difference at a splice,
+     *                  per channel
+     *      gain      - gain the next block starts at
+     *      concealed - blocks made up since the last
+     *                  real block
+     *      total     - blocks made up in all
+     *---------------------------------------*/
+    private Strategy  strategy;
+    private float     decay;
+    private int       channels;
+    private float []  last;
+    private int       last_len;
+    private float []  work;
+    private byte []   out;
+    private int       position;
+    private int       loop;
+    private int       splice;
+    private float []  offset;
+    private float     gain;
+    private int       concealed;
+    private long      total;
+
+    /**
+     * Default constructor for a concealer of one channel
+     * that repeats the last block with DEFAULT_DECAY.
+     */
+    public Concealer()
+    {
+        this( Strategy.REPEAT_DECAY, DEFAULT_DECAY, 1 );
+
+    }   /* Concealer() */
+
+    /**
+     * Constructor for a concealer that repeats the last
+     * block with DEFAULT_DECAY.
+     *
+     * @param c
+     *  Number of interleaved channels.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if there are no channels.
+     */
+    public Concealer( final int c )
+    {
+        this( Strategy.REPEAT_DECAY, DEFAULT_DECAY, c );
+
+    }   /* Concealer() */
+
+    /**
+     * Constructor for a concealer of one channel.
+     *
+     * @param s
+     *  The concealment strategy.
+     *
+     * @param d
+     *  Gain of each repetition relative to the one
+     *  before, for REPEAT_DECAY.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the decay is not in [0, 1).
+     */
+    public Concealer( final Strategy s, final float d )
+    {
+        this( s, d, 1 );
+
+    }   /* Concealer() */
+
+    /**
+     * Constructor for a concealer.
+     *
+     * @param s
+     *  The concealment strategy.
+     *
+     * @param d
+     *  Gain of each repetition relative to the one
+     *  before, for REPEAT_DECAY.
+     *
+     * @param c
+     *  Number of interleaved channels.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the decay is not in [0, 1)
+     *  or there are no channels.
+     */
+    public Concealer( final Strategy s, final float d, final int c )
+    {
+        if( c < 1 )
+        {
+            throw new IllegalArgumentException( "There must be at least one channel." );
+        }
+
+        channels = c;
+        offset   = new float[ c ];
+        last     = new float[ 0 ];
+        work  = new float[ 0 ];
+        out   = new byte[ 0 ];
+        total = 0;
+
+        setStrategy( s, d );
+        reset();
+
+    }   /* Concealer() */
+
+    /**
+     * Changes the concealment strategy.
+     *
+     * @param s
+     *  The concealment strategy.
+     *
+     * @param d
+     *  Gain of each repetition relative to the one
+     *  before, for REPEAT_DECAY.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the decay is not in [0, 1).
+     */
+    public void setStrategy( final Strategy s, final float d )
+    {
+        if( ( d < 0.0f ) || ( d >= 1.0f ) )
+        {
+            throw new IllegalArgumentException( "Decay must be in [0, 1)." );
+        }
+
+        strategy = s;
+        decay    = d;
+
+    }   /* setStrategy() */
+
+    /**
+     * Forgets the last block, so that the next gap is
+     * concealed with silence.
+     */
+    public void reset()
+    {
+        last_len  = 0;
+        position  = 0;
+        loop      = -1;
+        splice    = 0;
+        gain      = 1.0f;
+        concealed = 0;
+
+    }   /* reset() */
+
+    /**
+     * Passes a real block through the concealer. If it
+     * follows a gap it is crossfaded with the concealment
+     * into an internal buffer, which is returned in its
+     * place; otherwise the block itself is returned.
+     *
+     * @param buf
+     *  The block.
+     *
+     * @param len
+     *  Number of bytes in the block.
+     *
+     * @return
+     *  The bytes to play. Only valid until the next call.
+     */
+    public byte [] onBlock( final byte [] buf, final int len )
+    {
+        int     i;
+        int     count = len >> 1;
+        int     fade;
+        float   t;
+        byte [] result = buf;
+
+        grow( count );
+
+        if( ( concealed > 0 ) && ( last_len > 0 ) && ( gain > SILENT_GAIN ) )
+        {
+            SampleCodec.decode( buf, 0, work, 0, count );
+
+            fade = Math.min( CROSSFADE, count / channels );
+            for( i = 0; i < fade * channels; ++i )
+            {
+                t          = (float)( i / channels + 1 ) / ( fade + 1 );
+                work[ i ]  = work[ i ] * t + next() * gain * ( 1.0f - t );
+            }
+
+            SampleCodec.encode( work, 0, out, 0, count );
+            result = out;
+        }
+
+        SampleCodec.decode( buf, 0, last, 0, count );
+        last_len  = count - count % channels;
+        position  = 0;
+        loop      = -1;
+        gain      = 1.0f;
+        concealed = 0;
+        return( result );
+
+    }   /* onBlock() */
+
+    /**
+     * Makes up a block to play in place of one that
+     * didn't arrive.
+     *
+     * @param len
+     *  Number of bytes to make up.
+     *
+     * @return
+     *  A buffer holding len bytes of concealment. Only
+     *  valid until the next call.
+     */
+    public byte [] conceal( final int len )
+    {
+        int   i;
+        int   count = len >> 1;
+        float end;
+        float step;
+        float g;
+
+        grow( count );
+
+        if( ( 0 == last_len ) || ( gain <= SILENT_GAIN ) )
+        {
+            gain = 0.0f;
+            for( i = 0; i < count; ++i )
+            {
+                work[ i ] = 0.0f;
+            }
+        }
+        else
+        {
+            if( loop < 0 )
+            {
+                findSplice();
+            }
+
+            /*-----------------------------------
+             * The gain steps once per frame, so
+             * every channel of a frame gets the
+             * same one
+             *---------------------------------*/
+            end  = ( Strategy.FADE_OUT == strategy ) ? 0.0f : gain * decay;
+            step = ( end - gain ) / ( ( count + channels - 1 ) / channels );
+            g    = gain;
+            for( i = 0; i < count; ++i )
+            {
+                if( 0 == i % channels )
+                {
+                    g += step;
+                }
+                work[ i ] = next() * g;
+            }
+            gain = end;
+        }
+
+        SampleCodec.encode( work, 0, out, 0, count );
+        ++concealed;
+        ++total;
+        return( out );
+
+    }   /* conceal() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public Strategy getStrategy()       { return( strategy ); }
+    public float    getDecay()          { return( decay );    }
+    public int      getChannels()       { return( channels ); }
+    public long     getConcealedCount() { return( total );    }
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+
+    /**
+     * Picks where repetitions of the last block start:
+     * the frame, leaving at least half of the block to
+     * loop over, whose preceding frames differ least from
+     * the end of the block, over all channels. Ties go to
+     * the longest loop.
+     */
+    private void findSplice()
+    {
+        int   c;
+        int   i;
+        int   p;
+        int   frames = last_len / channels;
+        int   match  = Math.min( CROSSFADE, frames >> 2 );
+        int   tail   = ( frames - match ) * channels;
+        int   prev;
+        float d;
+        float err;
+        float best   = Float.MAX_VALUE;
+
+        p = 0;
+        for( i = match; ( match > 0 ) && ( i <= ( frames >> 1 ) ); ++i )
+        {
+            err = 0.0f;
+            for( c = 0; c < match * channels; ++c )
+            {
+                d    = last[ ( i - match ) * channels + c ] - last[ tail + c ];
+                err += d * d;
+            }
+            if( err < best )
+            {
+                best = err;
+                p    = i;
+            }
+        }
+
+        /*---------------------------------------
+         * The frame before the splice point
+         * stands in for the last one played
+         *-------------------------------------*/
+        loop     = p * channels;
+        position = loop;
+        splice   = Math.min( CROSSFADE, frames - p );
+        prev     = Math.max( p - 1, 0 ) * channels;
+        for( c = 0; c < channels; ++c )
+        {
+            offset[ c ] = last[ last_len - channels + c ] - last[ prev + c ];
+        }
+
+    }   /* findSplice() */
+
+    /**
+     * Returns the next sample of the repetition, before
+     * any gain, and moves on. Just after a splice the
+     * difference in level of its channel is faded out.
+     */
+    private float next()
+    {
+        int   k = ( position - loop ) / channels;
+        float x = last[ position ];
+
+        if( k < splice )
+        {
+            x += offset[ ( position - loop ) % channels ] * (float)( splice - k ) / ( splice + 1 );
+        }
+
+        if( ++position >= last_len )
+        {
+            position = loop;
+        }
+
+        return( x );
+
+    }   /* next() */
+
+    private void grow( final int count )
+    {
+        float [] f;
+
+        if( work.length >= count )
+        {
+            return;
+        }
+
+        f = new float[ count ];
+        System.arraycopy( last, 0, f, 0, last_len );
+        last = f;
+        work = new float[ count ];
+        out  = new byte[ count << 1 ];
+
+    }   /* grow() */
+
+};  /* Concealer */
@@ -0,0 +1,186 @@
+package com.example.noisecancellation.dsp;
+
+import junit.framework.TestCase;
+
+public class ConcealerTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING Concealer::conceal()
+     *
+     * TEST CASES:
+     *   1. Repeating with decay
+     *   2. Fading to silence, then resuming
+     *   3. Splicing a sound that doesn't repeat
+     *      every block, in mono and stereo
+     *-----------------------------------------*/
+
+    /**
+     * Tests that REPEAT_DECAY repeats the last block,
+     * ramping the gain down by the decay factor across
+     * each repetition.
+     * <br /><br />
+     * Expected return value: the block at 1 - 0.5, then
+     * 0.5 - 0.25
+     */
+    public void testRepeatDecay()
+    {
+        int       i;
+        int       count = 128;
+        byte []   pcm   = new byte[ count << 1 ];
+        float []  in    = new float[ count ];
+        float []  out   = new float[ count ];
+        Concealer c     = new Concealer( Concealer.Strategy.REPEAT_DECAY, 0.5f );
+
+        for( i = 0; i < count; ++i )
+        {
+            in[ i ] = 0.5f;
+        }
+        SampleCodec.encode( in, 0, pcm, 0, count );
+        assertSame( "Block passes through", pcm, c.onBlock( pcm, pcm.length ) );
+
+        SampleCodec.decode( c.conceal( pcm.length ), 0, out, 0, count );
+        assertEquals( "Starts near full gain", 0.5f, out[ 0 ], 0.01f );
+        assertEquals( "Ends at the decayed gain", 0.25f, out[ count - 1 ], 0.001f );
+        for( i = 1; i < count; ++i )
+        {
+            assertTrue( "Gain ramps down", out[ i ] <= out[ i - 1 ] );
+        }
+
+        SampleCodec.decode( c.conceal( pcm.length ), 0, out, 0, count );
+        assertEquals( "Second repetition carries on", 0.25f, out[ 0 ], 0.01f );
+        assertEquals( "and decays again", 0.125f, out[ count - 1 ], 0.001f );
+        assertEquals( "Blocks counted", 2, c.getConcealedCount() );
+
+    }   /* testRepeatDecay() */
+
+    /**
+     * Tests that FADE_OUT fades the last block to silence,
+     * plays silence after that, and that a block arriving
+     * after a gap is not altered once the output is
+     * silent.
+     * <br /><br />
+     * Expected return value: a fade, silence, then the
+     * new block unchanged
+     */
+    public void testFadeOut()
+    {
+        int       i;
+        int       count = 64;
+        byte []   pcm   = new byte[ count << 1 ];
+        byte []   made;
+        float []  in    = new float[ count ];
+        float []  out   = new float[ count ];
+        Concealer c     = new Concealer( Concealer.Strategy.FADE_OUT, 0.5f );
+
+        for( i = 0; i < count; ++i )
+        {
+            in[ i ] = ( 0 == ( i & 1 ) ) ? 0.5f : -0.5f;
+        }
+        SampleCodec.encode( in, 0, pcm, 0, count );
+        c.onBlock( pcm, pcm.length );
+
+        SampleCodec.decode( c.conceal( pcm.length ), 0, out, 0, count );
+        assertEquals( "Faded to silence", 0.0f, out[ count - 1 ], 1.0e-4f );
+        assertTrue( "Faded gradually", Math.abs( out[ count / 2 ] ) > 0.2f );
+
+        made = c.conceal( pcm.length );
+        for( i = 0; i < made.length; ++i )
+        {
+            assertEquals( "Silence after the fade", 0, made[ i ] );
+        }
+
+        assertSame( "Nothing to crossfade with", pcm, c.onBlock( pcm, pcm.length ) );
+
+    }   /* testFadeOut() */
+
+    /**
+     * Tests that repeating a block of a sine that isn't
+     * a whole number of cycles long, through several
+     * repetitions and back to real blocks, never steps
+     * further from one sample to the next than the sine
+     * itself does, in mono and in stereo with a
+     * different tone in each channel.
+     * <br /><br />
+     * Expected return value: no step larger than the
+     * tone's own, in any channel
+     */
+    public void testSplice()
+    {
+        splice( 1 );
+        splice( 2 );
+
+    }   /* testSplice() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+
+    /**
+     * Plays a block of tones on the given number of
+     * channels, conceals three blocks and plays the next
+     * real block, checking the step between frames in
+     * each channel.
+     */
+    private static void splice( final int channels )
+    {
+        int       b;
+        int       ch;
+        int       i;
+        int       frames = 256;
+        int       count  = frames * channels;
+        byte []   pcm    = new byte[ count << 1 ];
+        float []  in     = new float[ count ];
+        float []  played = new float[ 5 * count ];
+        float []  normal = new float[ channels ];
+        Concealer c      = new Concealer( channels );
+
+        tones( in, channels, 0, frames );
+        for( i = channels; i < count; ++i )
+        {
+            ch           = i % channels;
+            normal[ ch ] = Math.max( normal[ ch ], Math.abs( in[ i ] - in[ i - channels ] ) );
+        }
+
+        SampleCodec.encode( in, 0, pcm, 0, count );
+        SampleCodec.decode( c.onBlock( pcm, pcm.length ), 0, played, 0, count );
+        for( b = 1; b < 4; ++b )
+        {
+            SampleCodec.decode( c.conceal( pcm.length ), 0, played, b * count, count );
+        }
+        tones( in, channels, 4 * frames, frames );
+        SampleCodec.encode( in, 0, pcm, 0, count );
+        SampleCodec.decode( c.onBlock( pcm, pcm.length ), 0, played, 4 * count, count );
+
+        for( i = channels; i < played.length; ++i )
+        {
+            ch = i % channels;
+            assertTrue( channels + " channel(s), step at frame " + ( i / channels ) + " channel " + ch,
+                        Math.abs( played[ i ] - played[ i - channels ] ) <= 1.1f * normal[ ch ] );
+        }
+
+    }   /* splice() */
+
+    /**
+     * Fills buf with count interleaved frames from frame
+     * first on: a sine at 3.3 cycles per 256 frames in
+     * the first channel and a cosine at 2.7 cycles in
+     * the second.
+     */
+    private static void tones( final float [] buf, final int channels, final int first, final int count )
+    {
+        int    c;
+        int    i;
+        double t;
+
+        for( i = 0; i < count; ++i )
+        {
+            t = 2.0 * Math.PI * ( first + i ) / 256.0;
+            for( c = 0; c < channels; ++c )
+            {
+                buf[ i * channels + c ] = (float)( 0.5 * ( ( 0 == c ) ? Math.sin( 3.3 * t ) : Math.cos( 2.7 * t ) ) );
+            }
+        }
+
+    }   /* tones() */
+
+};  /* ConcealerTest */
@@ -0,0 +1,365 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Filtered-x LMS adaptive noise canceller.
+ *
+ * The pipeline only has one microphone, which hears the
+ * residual noise after the anti-noise has been played, so
+ * this is the feedback form of FxLMS: the reference signal
+ * is rebuilt from the residual by taking out the estimated
+ * contribution of our own anti-noise,
+ *
+ * <pre>
+ *     x(n)  = e(n) - ( s * y )(n)        reference estimate
+ *     y(n)  = -( w * x )(n)              anti-noise
+ *     x'(n) = ( s * x )(n)               filtered reference
+ *     w     = w + mu * e(n) * x'(n)      weight update
+ * </pre>
+ *
+ * where s is the secondary path model (speaker, air and
+ * microphone, plus any buffering between capture and
+ * playback). Since the anti-noise for a sample can't
+ * reach the microphone in time to affect that same
+ * sample, s[0] is the response one sample after
+ * playback. The step size is normalized by the power
+ * of the filtered reference, which keeps adaptation
+ * stable regardless of the input level.
+ *
+ * Adaptation is only stable while the model is close
+ * to the real path; with too short a delay in the model
+ * the weights run away. If the anti-noise ever leaves
+ * [-LIMIT, LIMIT], or stops being a number, the filter
+ * clears itself and starts adapting again from nothing,
+ * and getResetCount() counts how often that happened.
+ * delay() builds a pure delay model for when only the
+ * delay of the path is known.
+ *
+ * All of the histories are mirrored buffers: each sample
+ * is stored twice, at pos and pos + length, so every
+ * dot product is a single contiguous loop without any
+ * index wrapping, which the JIT can unroll and vectorize.
+ * Nothing is allocated after construction.
+ */
+public final class FxLmsFilter
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      POWER_FLOOR - keeps the normalized step
+     *                    finite during silence
+     *      LIMIT       - largest anti-noise sample
+     *                    before the filter is taken
+     *                    to have diverged
+     *---------------------------------------*/
+    private static final float POWER_FLOOR = 1.0E-6f;
+    private static final float LIMIT       = 2.0f;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      taps        - length of the adaptive filter
+     *      mu          - normalized step size
+     *      w           - adaptive filter weights
+     *      s           - secondary path model, stored
+     *                    reversed so it lines up with
+     *                    the histories
+     *      x_hist      - reference estimate history
+     *      xf_hist     - filtered reference history
+     *      y_hist      - anti-noise history
+     *      x_pos       - newest sample in x_hist
+     *      xf_pos      - newest sample in xf_hist
+     *      y_pos       - newest sample in y_hist
+     *      xf_power    - sum of squares of the filtered
+     *                    reference currently in the taps
+     *      resets      - times the filter has diverged
+     *                    and been cleared
+     *---------------------------------------*/
+    private final int     taps;
+    private final int     s_len;
+    private final float   mu;
+    private final float [] w;
+    private final float [] s;
+    private final float [] x_hist;
+    private final float [] xf_hist;
+    private final float [] y_hist;
+    private int           x_pos;
+    private int           xf_pos;
+    private int           y_pos;
+    private float         xf_power;
+    private long          resets;
+
+    /**
+     * Constructor for an FxLMS filter.
+     *
+     * @param tap_count
+     *  Number of taps in the adaptive filter.
+     *
+     * @param step
+     *  Normalized step size, typically between 0.001
+     *  and 0.1. Larger values adapt faster but are
+     *  less stable.
+     *
+     * @param secondary_path
+     *  Impulse response of the secondary path model,
+     *  starting one sample after playback.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the tap count or step size
+     *  aren't positive, or the secondary path is empty.
+     */
+    public FxLmsFilter( final int tap_count, final float step, final float [] secondary_path )
+    {
+        int i;
+
+        if( ( tap_count < 1 ) || ( step <= 0.0f ) )
+        {
+            throw new IllegalArgumentException( "Tap count and step size must be positive." );
+        }
+        if( ( null == secondary_path ) || ( 0 == secondary_path.length ) )
+        {
+            throw new IllegalArgumentException( "Secondary path model is empty." );
+        }
+
+        taps    = tap_count;
+        s_len   = secondary_path.length;
+        mu      = step;
+        w       = new float[ taps ];
+        s       = new float[ s_len ];
+        x_hist  = new float[ Math.max( taps, s_len ) << 1 ];
+        xf_hist = new float[ taps << 1 ];
+        y_hist  = new float[ s_len << 1 ];
+
+        /*-------------------------------------
+         * Histories are stored oldest first,
+         * so reverse the model to make the
+         * convolution a plain dot product.
+         *-----------------------------------*/
+        for( i = 0; i < s_len; ++i )
+        {
+            s[ i ] = secondary_path[ s_len - 1 - i ];
+        }
+
+        resets  = 0;
+        reset();
+
+    }   /* FxLmsFilter() */
+
+    /**
+     * Builds a secondary path model that is a pure delay.
+     *
+     * @param samples
+     *  Samples from playing a sample to hearing it, at
+     *  least 1.
+     *
+     * @return
+     *  The model, for the constructor.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if samples is less than 1.
+     */
+    public static float [] delay( final int samples )
+    {
+        float [] path;
+
+        if( samples < 1 )
+        {
+            throw new IllegalArgumentException( "Delay must be at least one sample." );
+        }
+
+        path                = new float[ samples ];
+        path[ samples - 1 ] = 1.0f;
+        return( path );
+
+    }   /* delay() */
+
+    /**
+     * Returns the secondary path model the filter was
+     * built with.
+     *
+     * @return
+     *  A copy of the model, starting one sample after
+     *  playback.
+     */
+    public float [] getSecondaryPath()
+    {
+        int      i;
+        float [] path = new float[ s_len ];
+
+        for( i = 0; i < s_len; ++i )
+        {
+            path[ i ] = s[ s_len - 1 - i ];
+        }
+
+        return( path );
+
+    }   /* getSecondaryPath() */
+
+    /**
+     * Clears the weights and all of the histories.
+     */
+    public void reset()
+    {
+        Arrays.fill( w, 0.0f );
+        Arrays.fill( x_hist, 0.0f );
+        Arrays.fill( xf_hist, 0.0f );
+        Arrays.fill( y_hist, 0.0f );
+        x_pos    = 0;
+        xf_pos   = 0;
+        y_pos    = 0;
+        xf_power = 0.0f;
+
+    }   /* reset() */
+
+    /**
+     * Runs a block of residual noise through the canceller
+     * and produces the matching block of anti-noise.
+     *
+     * @param in
+     *  Residual noise picked up by the microphone.
+     * @param out
+     *  Anti-noise to play. May be the same array as in.
+     * @param off
+     *  Index of the first sample in both arrays.
+     * @param count
+     *  Number of samples to process.
+     */
+    public void process( final float [] in, final float [] out, final int off, final int count )
+    {
+        /*-------------------------------------
+         * Copy everything the loop touches into
+         * locals, so the JIT keeps them in
+         * registers and can hoist the bounds
+         * checks out of the inner loops.
+         *-----------------------------------*/
+        final float [] w_    = w;
+        final float [] s_    = s;
+        final float [] x_    = x_hist;
+        final float [] xf_   = xf_hist;
+        final float [] y_    = y_hist;
+        final int     L     = taps;
+        final int     M     = s_len;
+        final int     X     = x_hist.length >> 1;
+        final float   step  = mu;
+        int           xp    = x_pos;
+        int           fp    = xf_pos;
+        int           yp    = y_pos;
+        float         power = xf_power;
+        int           i;
+        int           k;
+        int           b;
+        float         e;
+        float         x;
+        float         xf;
+        float         acc;
+        float         g;
+
+        for( i = off; i < off + count; ++i )
+        {
+            e = in[ i ];
+
+            /*---------------------------------
+             * x(n) = e(n) - (s * y)(n), using
+             * the anti-noise up to y(n-1)
+             *-------------------------------*/
+            b   = yp + 1;
+            acc = 0.0f;
+            for( k = 0; k < M; ++k )
+            {
+                acc += s_[ k ] * y_[ b + k ];
+            }
+            x = e - acc;
+
+            /*---------------------------------
+             * x'(n) = (s * x)(n), using the
+             * reference up to x(n-1)
+             *-------------------------------*/
+            b   = xp + X - M + 1;
+            acc = 0.0f;
+            for( k = 0; k < M; ++k )
+            {
+                acc += s_[ k ] * x_[ b + k ];
+            }
+            xf = acc;
+
+            xp = ( X - 1 == xp ) ? 0 : xp + 1;
+            x_[ xp ]     = x;
+            x_[ xp + X ] = x;
+
+            /*---------------------------------
+             * Slide the filtered reference
+             * window, keeping its power up to
+             * date as the oldest sample leaves.
+             *-------------------------------*/
+            fp     = ( L - 1 == fp ) ? 0 : fp + 1;
+            power += ( xf * xf ) - ( xf_[ fp ] * xf_[ fp ] );
+            if( power < 0.0f )
+            {
+                power = 0.0f;
+            }
+            xf_[ fp ]     = xf;
+            xf_[ fp + L ] = xf;
+
+            /*---------------------------------
+             * w = w + mu * e(n) * x'(n)
+             *-------------------------------*/
+            g = step * e / ( power + POWER_FLOOR );
+            b = fp + 1;
+            for( k = 0; k < L; ++k )
+            {
+                w_[ k ] += g * xf_[ b + k ];
+            }
+
+            /*---------------------------------
+             * y(n) = -(w * x)(n)
+             *-------------------------------*/
+            b   = xp + X - L + 1;
+            acc = 0.0f;
+            for( k = 0; k < L; ++k )
+            {
+                acc += w_[ k ] * x_[ b + k ];
+            }
+
+            /*---------------------------------
+             * Diverged, or not a number any
+             * more: start over instead of
+             * keeping it in the weights and
+             * histories for good.
+             *-------------------------------*/
+            if( !( ( acc <= LIMIT ) && ( acc >= -LIMIT ) ) )
+            {
+                Arrays.fill( w_, 0.0f );
+                Arrays.fill( x_, 0.0f );
+                Arrays.fill( xf_, 0.0f );
+                Arrays.fill( y_, 0.0f );
+                xp       = 0;
+                fp       = 0;
+                yp       = 0;
+                power    = 0.0f;
+                out[ i ] = 0.0f;
+                ++resets;
+                continue;
+            }
+
+            yp = ( M - 1 == yp ) ? 0 : yp + 1;
+            y_[ yp ]     = -acc;
+            y_[ yp + M ] = -acc;
+
+            out[ i ] = -acc;
+        }
+
+        x_pos    = xp;
+        xf_pos   = fp;
+        y_pos    = yp;
+        xf_power = power;
+
+    }   /* process() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int     getTapCount()   { return( taps );   }
+    public float   getStepSize()   { return( mu );     }
+    public float [] getWeights()    { return( w );      }
+    public long    getResetCount() { return( resets ); }
+
+};  /* FxLmsFilter */
@@ -0,0 +1,119 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class FxLmsFilterTest extends TestCase {
+    private static final int   SAMPLE_RATE = 8000;
+    private static final int   TAPS        = 256;
+    private static final float STEP        = 0.01f;
+
+    /*-------------------------------------------
+     * TESTING FxLmsFilter::process()
+     *
+     * TEST CASES:
+     *   1. Converging with a matched model
+     *   2. Staying finite with a model that is
+     *      too short
+     *-----------------------------------------*/
+
+    /**
+     * Tests that with the model matching the real path,
+     * whether the anti-noise arrives one sample or 64
+     * samples after it's played, the canceller takes
+     * tonal noise down without ever diverging.
+     * <br /><br />
+     * Expected return value: at least 15 dB quieter
+     */
+    public void testConvergence()
+    {
+        int         i;
+        int []      delays = { 1, 64 };
+        FxLmsFilter f;
+
+        for( i = 0; i < delays.length; ++i )
+        {
+            f = new FxLmsFilter( TAPS, STEP, FxLmsFilter.delay( delays[ i ] ) );
+            assertTrue( "Delay " + delays[ i ] + " attenuates",
+                        loop( f, delays[ i ], 8 * SAMPLE_RATE ) >= 15.0 );
+            assertEquals( "Delay " + delays[ i ] + " never reset", 0, f.getResetCount() );
+        }
+
+    }   /* testConvergence() */
+
+    /**
+     * Tests that when the anti-noise arrives much later
+     * than the model says, the weights running away
+     * clears the filter instead of leaving it stuck on
+     * infinities or NaNs.
+     * <br /><br />
+     * Expected return value: finite, bounded output, and
+     * resets counted
+     */
+    public void testDelayedPath()
+    {
+        int         i;
+        int []      delays = { 64, 1536 };
+        FxLmsFilter f;
+
+        for( i = 0; i < delays.length; ++i )
+        {
+            f = new FxLmsFilter( TAPS, STEP, new float[] { 1.0f } );
+            loop( f, delays[ i ], 8 * SAMPLE_RATE );
+            assertTrue( "Delay " + delays[ i ] + " reset", f.getResetCount() > 0 );
+        }
+
+    }   /* testDelayedPath() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+
+    /**
+     * Runs the filter in a closed loop whose secondary
+     * path is a pure delay, on two tones plus a little
+     * noise, checking every anti-noise sample is finite
+     * and bounded. Returns how much quieter the last
+     * eighth of the run is than the first eighth
+     * without any anti-noise, in dB.
+     */
+    private static double loop( final FxLmsFilter f, final int delay, final int count )
+    {
+        int       i;
+        double    d;
+        double    before = 0.0;
+        double    after  = 0.0;
+        float []  e      = new float[ 1 ];
+        float []  y      = new float[ 1 ];
+        float []  played = new float[ delay ];
+        Random    rnd    = new Random( 3 );
+
+        for( i = 0; i < count; ++i )
+        {
+            d = 0.4 * Math.sin( 2.0 * Math.PI * 150.0 * i / SAMPLE_RATE )
+              + 0.2 * Math.sin( 2.0 * Math.PI * 410.0 * i / SAMPLE_RATE )
+              + 0.01 * rnd.nextGaussian();
+
+            e[ 0 ] = (float)( d + played[ delay - 1 ] );
+            f.process( e, y, 0, 1 );
+            assertTrue( "Sample " + i + " bounded", Math.abs( y[ 0 ] ) <= 2.0f );
+
+            System.arraycopy( played, 0, played, 1, delay - 1 );
+            played[ 0 ] = y[ 0 ];
+
+            if( i < count / 8 )
+            {
+                before += d * d;
+            }
+            if( i >= count - count / 8 )
+            {
+                after += e[ 0 ] * e[ 0 ];
+            }
+        }
+
+        return( 10.0 * Math.log10( before / after ) );
+
+    }   /* loop() */
+
+};  /* FxLmsFilterTest */
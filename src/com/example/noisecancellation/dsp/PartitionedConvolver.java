@@ -0,0 +1,235 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Arrays;
+
+import com.example.noisecancellation.fft.FFT_Wrapper;
+
+/**
+ * Streaming FIR filter for long impulse responses, using
+ * uniformly partitioned overlap-save convolution (UPOLS).
+ *
+ * The filter is cut into partitions of one block each, and
+ * every partition is transformed once, up front. Each input
+ * block is transformed (together with the block before it)
+ * and pushed onto a frequency-domain delay line, so one
+ * block of output is
+ *
+ * <pre>
+ *     y = last half of IFFT( sum over p of X[n-p] * H[p] )
+ * </pre>
+ *
+ * which costs one forward and one inverse transform of
+ * twice the block size, plus one spectral multiply-add per
+ * partition. The latency is one block no matter how long
+ * the filter is, and the work per block is bounded.
+ *
+ * All of the spectra are kept in the packed real form from
+ * FFT_Wrapper.rfftInto(), and nothing is allocated after
+ * construction. An instance must only be used by one
+ * thread at a time.
+ */
+public final class PartitionedConvolver
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *      block       - samples per block, which is
+     *                    also the partition length
+     *      fft_size    - transform size (2 * block)
+     *      partitions  - number of filter partitions
+     *      tap_count   - length of the filter
+     *      h_spectra   - packed spectrum of each
+     *                    partition, one after another
+     *      fdl         - frequency-domain delay line of
+     *                    input spectra, one after another
+     *      fdl_pos     - slot in fdl holding the newest
+     *                    spectrum
+     *      in_buf      - the previous and current input
+     *                    blocks
+     *      acc         - accumulated output spectrum,
+     *                    then the output block
+     *      in_fifo     - input samples for process()
+     *      out_fifo    - output samples for process()
+     *      rover       - next slot in in_fifo/out_fifo
+     *---------------------------------------*/
+    private final int         block;
+    private final int         fft_size;
+    private final int         partitions;
+    private final int         tap_count;
+    private final float []    h_spectra;
+    private final float []    fdl;
+    private final float []    in_buf;
+    private final float []    acc;
+    private final float []    in_fifo;
+    private final float []    out_fifo;
+    private final FFT_Wrapper fft;
+    private int               fdl_pos;
+    private int               rover;
+
+    /**
+     * Constructor for a partitioned convolver.
+     *
+     * @param taps
+     *  The filter's impulse response. It can be any length;
+     *  the last partition is zero-padded.
+     * @param block_size
+     *  Samples per block. Powers of two give the fastest
+     *  transforms.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the filter is empty or the
+     *  block size isn't positive.
+     */
+    public PartitionedConvolver( final float [] taps, final int block_size )
+    {
+        int p;
+        int len;
+
+        if( ( null == taps ) || ( 0 == taps.length ) )
+        {
+            throw new IllegalArgumentException( "Filter is empty." );
+        }
+        if( block_size < 1 )
+        {
+            throw new IllegalArgumentException( "Block size must be positive." );
+        }
+
+        block      = block_size;
+        fft_size   = block_size << 1;
+        tap_count  = taps.length;
+        partitions = ( tap_count + block - 1 ) / block;
+        h_spectra  = new float[ partitions * fft_size ];
+        fdl        = new float[ partitions * fft_size ];
+        in_buf     = new float[ fft_size ];
+        acc        = new float[ fft_size ];
+        in_fifo    = new float[ block ];
+        out_fifo   = new float[ block ];
+        fft        = new FFT_Wrapper( fft_size );
+
+        /*-------------------------------------
+         * Transform each partition, zero-padded
+         * to the transform size.
+         *-----------------------------------*/
+        for( p = 0; p < partitions; ++p )
+        {
+            len = Math.min( block, tap_count - p * block );
+            System.arraycopy( taps, p * block, h_spectra, p * fft_size, len );
+            fft.rfftInto( h_spectra, p * fft_size, fft_size, h_spectra, p * fft_size );
+        }
+
+        reset();
+
+    }   /* PartitionedConvolver() */
+
+    /**
+     * Clears the delay line and all of the input history.
+     */
+    public void reset()
+    {
+        Arrays.fill( fdl, 0.0f );
+        Arrays.fill( in_buf, 0.0f );
+        Arrays.fill( in_fifo, 0.0f );
+        Arrays.fill( out_fifo, 0.0f );
+        fdl_pos = 0;
+        rover   = 0;
+
+    }   /* reset() */
+
+    /**
+     * Filters exactly one block. The output isn't delayed,
+     * so a caller that already works in blocks of the
+     * right size should use this rather than process().
+     *
+     * @param in
+     *  Input samples.
+     * @param in_off
+     *  Index of the first input sample.
+     * @param out
+     *  Receives the filtered samples. May be the same
+     *  array as in.
+     * @param out_off
+     *  Index of the first output sample.
+     */
+    public void processBlock( final float [] in, final int in_off,
+                              final float [] out, final int out_off )
+    {
+        int p;
+        int slot;
+
+        /*-------------------------------------
+         * Slide the input window along by a
+         * block, and push its spectrum onto
+         * the delay line.
+         *-----------------------------------*/
+        System.arraycopy( in_buf, block, in_buf, 0, block );
+        System.arraycopy( in, in_off, in_buf, block, block );
+
+        fdl_pos = ( 0 == fdl_pos ) ? partitions - 1 : fdl_pos - 1;
+        fft.rfftInto( in_buf, 0, fft_size, fdl, fdl_pos * fft_size );
+
+        /*-------------------------------------
+         * Partition p is paired with the input
+         * spectrum from p blocks ago.
+         *-----------------------------------*/
+        Arrays.fill( acc, 0.0f );
+        slot = fdl_pos;
+        for( p = 0; p < partitions; ++p )
+        {
+            FFT_Wrapper.multiplyAddPacked( acc, 0, fdl, slot * fft_size, h_spectra, p * fft_size, fft_size );
+            slot = ( partitions - 1 == slot ) ? 0 : slot + 1;
+        }
+
+        /*-------------------------------------
+         * The first half of the result is
+         * circular wrap-around; the second
+         * half is the output.
+         *-----------------------------------*/
+        fft.irfftInto( acc, 0, fft_size, acc, 0 );
+        System.arraycopy( acc, block, out, out_off, block );
+
+    }   /* processBlock() */
+
+    /**
+     * Filters any number of samples. Samples are
+     * collected into blocks internally, so the output
+     * lags the input by getLatency() samples.
+     *
+     * @param in
+     *  Input samples.
+     * @param out
+     *  Receives the filtered samples. May be the same
+     *  array as in.
+     * @param off
+     *  Index of the first sample in both arrays.
+     * @param count
+     *  Number of samples to process.
+     */
+    public void process( final float [] in, final float [] out, final int off, final int count )
+    {
+        int   i;
+        float x;
+
+        for( i = off; i < off + count; ++i )
+        {
+            x                = in[ i ];
+            out[ i ]         = out_fifo[ rover ];
+            in_fifo[ rover ] = x;
+            ++rover;
+
+            if( rover == block )
+            {
+                rover = 0;
+                processBlock( in_fifo, 0, out_fifo, 0 );
+            }
+        }
+
+    }   /* process() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int getBlockSize()      { return( block );      }
+    public int getPartitionCount() { return( partitions ); }
+    public int getTapCount()       { return( tap_count );  }
+    public int getLatency()        { return( block );      }
+
+};  /* PartitionedConvolver */
@@ -0,0 +1,120 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class PartitionedConvolverTest extends TestCase {
+    private static final float EPSILON = 1.0E-3f;
+
+    /*-------------------------------------------
+     * TESTING PartitionedConvolver::processBlock()/process()
+     *
+     * TEST CASES:
+     *   1. Long filter, one block at a time
+     *   2. Arbitrary chunk sizes, with latency
+     *-----------------------------------------*/
+
+    /**
+     * Tests that a filter much longer than the block,
+     * with a partial last partition, matches direct
+     * convolution block after block.
+     * <br /><br />
+     * Expected return value: the direct convolution
+     */
+    public void testLongFilter()
+    {
+        int                  i;
+        float []             h   = noise( 4100, 1 );
+        float []             x   = noise( 8192, 2 );
+        float []             y   = new float[ x.length ];
+        float []             ref = direct( h, x );
+        PartitionedConvolver c   = new PartitionedConvolver( h, 256 );
+
+        assertEquals( "Partition count", 17, c.getPartitionCount() );
+
+        for( i = 0; i < x.length; i += 256 )
+        {
+            c.processBlock( x, i, y, i );
+        }
+        for( i = 0; i < x.length; ++i )
+        {
+            assertEquals( "Sample " + i, ref[ i ], y[ i ], EPSILON );
+        }
+
+    }   /* testLongFilter() */
+
+    /**
+     * Tests that process() accepts chunks that don't
+     * line up with the block size, in place, and
+     * delays the output by exactly one block.
+     * <br /><br />
+     * Expected return value: the direct convolution,
+     * delayed by getLatency() samples
+     */
+    public void testStreaming()
+    {
+        int                  i;
+        int                  n;
+        float []             h   = noise( 300, 3 );
+        float []             x   = noise( 4000, 4 );
+        float []             buf = x.clone();
+        float []             ref = direct( h, x );
+        PartitionedConvolver c   = new PartitionedConvolver( h, 128 );
+
+        for( i = 0; i < buf.length; i += n )
+        {
+            n = Math.min( 77, buf.length - i );
+            c.process( buf, buf, i, n );
+        }
+        for( i = 0; i < c.getLatency(); ++i )
+        {
+            assertEquals( "Sample " + i + " is silent", 0.0f, buf[ i ], 0.0f );
+        }
+        for( i = c.getLatency(); i < buf.length; ++i )
+        {
+            assertEquals( "Sample " + i, ref[ i - c.getLatency() ], buf[ i ], EPSILON );
+        }
+
+    }   /* testStreaming() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private static float [] noise( final int len, final long seed )
+    {
+        int      i;
+        float [] out = new float[ len ];
+        Random   r   = new Random( seed );
+
+        for( i = 0; i < len; ++i )
+        {
+            out[ i ] = (float)( r.nextGaussian() * 0.1 );
+        }
+
+        return( out );
+
+    }   /* noise() */
+
+    private static float [] direct( final float [] h, final float [] x )
+    {
+        int      i;
+        int      k;
+        double   sum;
+        float [] out = new float[ x.length ];
+
+        for( i = 0; i < x.length; ++i )
+        {
+            sum = 0.0;
+            for( k = 0; ( k < h.length ) && ( k <= i ); ++k )
+            {
+                sum += h[ k ] * x[ i - k ];
+            }
+            out[ i ] = (float)sum;
+        }
+
+        return( out );
+
+    }   /* direct() */
+
+};  /* PartitionedConvolverTest */
@@ -0,0 +1,253 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Streaming rational sample rate converter, using a
+ * polyphase FIR filter.
+ *
+ * Converting from in_rate to out_rate is upsampling by
+ * L and downsampling by M, where L / M is out_rate /
+ * in_rate in lowest terms. The anti-aliasing lowpass is
+ * a Blackman windowed sinc at the lower of the two
+ * Nyquist rates, designed once at the upsampled rate and
+ * split into L phases of taps_per_phase taps each. Output
+ * sample n is then
+ *
+ * <pre>
+ *     y[n] = sum over k of phase[ n*M mod L ][k] * x[ n*M/L - k ]
+ * </pre>
+ *
+ * so only the outputs that are kept are ever computed,
+ * and each costs taps_per_phase multiply-adds.
+ *
+ * The input history is kept in a doubled ring, so every
+ * filter window is contiguous, and it carries over from
+ * one call to the next; blocks can be any length and the
+ * output is the same as converting the whole stream at
+ * once. Nothing is allocated after construction. An
+ * instance must only be used by one thread at a time.
+ */
+public final class PolyphaseResampler
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      DEFAULT_TAPS - prototype filter length per
+     *                     unit of max( L, M )
+     *      ROLLOFF      - cutoff as a fraction of the
+     *                     lower Nyquist rate
+     *---------------------------------------*/
+    public static final int     DEFAULT_TAPS = 16;
+    private static final double ROLLOFF      = 0.9;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      up       - upsampling factor L
+     *      down     - downsampling factor M
+     *      taps     - taps per phase
+     *      phases   - the L phase filters, one after
+     *                 another, each reversed so it
+     *                 lines up with the history ring
+     *      history  - the last taps inputs, stored
+     *                 twice
+     *      pos      - oldest input in history
+     *      phase    - phase of the next output, in
+     *                 [0, L) once an input is pushed
+     *---------------------------------------*/
+    private final int      up;
+    private final int      down;
+    private final int      taps;
+    private final float [] phases;
+    private final float [] history;
+    private int            pos;
+    private int            phase;
+
+    /**
+     * Constructor for a resampler with the default
+     * filter length.
+     *
+     * @param in_rate
+     *  Sample rate of the input, in Hz.
+     * @param out_rate
+     *  Sample rate of the output, in Hz.
+     */
+    public PolyphaseResampler( final int in_rate, final int out_rate )
+    {
+        this( in_rate, out_rate, DEFAULT_TAPS );
+
+    }   /* PolyphaseResampler() */
+
+    /**
+     * Constructor for a resampler.
+     *
+     * @param in_rate
+     *  Sample rate of the input, in Hz.
+     * @param out_rate
+     *  Sample rate of the output, in Hz.
+     * @param quality
+     *  Prototype filter taps per unit of max( L, M ).
+     *  Longer filters have a sharper cutoff and cost
+     *  proportionally more.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if either rate or the
+     *  quality isn't positive.
+     */
+    public PolyphaseResampler( final int in_rate, final int out_rate, final int quality )
+    {
+        int    g;
+        int    p;
+        int    j;
+        int    k;
+        int    length;
+        double fc;
+        double span;
+        double t;
+        double w;
+        double sinc;
+
+        if( ( in_rate <= 0 ) || ( out_rate <= 0 ) || ( quality <= 0 ) )
+        {
+            throw new IllegalArgumentException( "Rates and quality must be positive." );
+        }
+
+        g       = gcd( in_rate, out_rate );
+        up      = out_rate / g;
+        down    = in_rate / g;
+        length  = quality * Math.max( up, down );
+        taps    = ( length + up - 1 ) / up;
+        phases  = new float[ up * taps ];
+        history = new float[ taps << 1 ];
+
+        /*-------------------------------------
+         * Windowed sinc at the upsampled rate,
+         * with a gain of L to make up for the
+         * zeros upsampling stuffs in. Tap
+         * p + k*L goes to phase p, reversed.
+         *-----------------------------------*/
+        fc   = 0.5 * ROLLOFF / Math.max( up, down );
+        span = Math.max( 1, length - 1 );
+        for( j = 0; j < length; ++j )
+        {
+            t    = j - ( length - 1 ) * 0.5;
+            sinc = ( 0.0 == t ) ? 2.0 * fc : Math.sin( 2.0 * Math.PI * fc * t ) / ( Math.PI * t );
+            w    = 0.42 - 0.5 * Math.cos( 2.0 * Math.PI * j / span )
+                        + 0.08 * Math.cos( 4.0 * Math.PI * j / span );
+            p    = j % up;
+            k    = j / up;
+            phases[ p * taps + ( taps - 1 - k ) ] = (float)( sinc * w * up );
+        }
+
+        reset();
+
+    }   /* PolyphaseResampler() */
+
+    /**
+     * Clears the input history, as if the stream had
+     * been silent so far.
+     */
+    public void reset()
+    {
+        Arrays.fill( history, 0.0f );
+        pos   = 0;
+        phase = 0;
+
+    }   /* reset() */
+
+    /**
+     * Converts a block of input.
+     *
+     * @param in
+     *  Input samples.
+     * @param in_off
+     *  Index of the first input sample.
+     * @param count
+     *  Number of input samples.
+     * @param out
+     *  Destination for the output, which must have room
+     *  for getMaxOutput( count ) samples.
+     * @param out_off
+     *  Index of the first output sample.
+     *
+     * @return
+     *  The number of output samples written.
+     */
+    public int process( final float [] in, final int in_off, final int count,
+                        final float [] out, final int out_off )
+    {
+        int   i;
+        int   j;
+        int   c;
+        int   h;
+        int   o = out_off;
+        float x;
+        float acc;
+
+        for( i = 0; i < count; ++i )
+        {
+            x                      = in[ in_off + i ];
+            history[ pos ]         = x;
+            history[ pos + taps ]  = x;
+            pos                    = ( pos + 1 ) % taps;
+
+            while( phase < up )
+            {
+                acc = 0.0f;
+                c   = phase * taps;
+                h   = pos;
+                for( j = 0; j < taps; ++j )
+                {
+                    acc += phases[ c + j ] * history[ h + j ];
+                }
+                out[ o++ ]  = acc;
+                phase      += down;
+            }
+            phase -= up;
+        }
+
+        return( o - out_off );
+
+    }   /* process() */
+
+    /**
+     * Returns the most output samples process() can
+     * write for a block of input.
+     *
+     * @param count
+     *  Number of input samples.
+     *
+     * @return
+     *  The most output samples for count inputs.
+     */
+    public int getMaxOutput( final int count )
+    {
+        return( (int)( ( (long)count * up + down - 1 ) / down ) + 1 );
+
+    }   /* getMaxOutput() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int getUpFactor()     { return( up );   }
+    public int getDownFactor()   { return( down ); }
+    public int getTapsPerPhase() { return( taps ); }
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private static int gcd( int a, int b )
+    {
+        int t;
+
+        while( 0 != b )
+        {
+            t = a % b;
+            a = b;
+            b = t;
+        }
+
+        return( a );
+
+    }   /* gcd() */
+
+};  /* PolyphaseResampler */
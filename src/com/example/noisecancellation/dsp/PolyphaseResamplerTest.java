@@ -0,0 +1,101 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class PolyphaseResamplerTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING PolyphaseResampler::process()
+     *
+     * TEST CASES:
+     *   1. Converting in blocks of any size
+     *   2. Passband and stopband
+     *-----------------------------------------*/
+
+    /**
+     * Tests that converting a stream in blocks of
+     * varying sizes gives the same output as
+     * converting it in one go.
+     * <br /><br />
+     * Expected return value: identical samples
+     */
+    public void testBlocks()
+    {
+        int                i;
+        int                off;
+        int                len;
+        int                m     = 0;
+        float []           in    = new float[ 4410 ];
+        PolyphaseResampler whole = new PolyphaseResampler( 44100, 16000 );
+        PolyphaseResampler parts = new PolyphaseResampler( 44100, 16000 );
+        float []           a     = new float[ whole.getMaxOutput( in.length ) ];
+        float []           b     = new float[ a.length + 64 ];
+        Random             rnd   = new Random( 7 );
+
+        for( i = 0; i < in.length; ++i )
+        {
+            in[ i ] = rnd.nextFloat() - 0.5f;
+        }
+
+        len = whole.process( in, 0, in.length, a, 0 );
+        assertEquals( "Output length", 1600, len );
+
+        for( off = 0; off < in.length; off += i )
+        {
+            i  = Math.min( 1 + rnd.nextInt( 300 ), in.length - off );
+            m += parts.process( in, off, i, b, m );
+        }
+
+        assertEquals( "Same length", len, m );
+        for( i = 0; i < len; ++i )
+        {
+            assertEquals( "Sample " + i, a[ i ], b[ i ], 0.0f );
+        }
+
+    }   /* testBlocks() */
+
+    /**
+     * Tests that a tone below the output Nyquist rate
+     * passes at unity gain and one above it, which would
+     * alias, is removed.
+     * <br /><br />
+     * Expected return value: gain near 1, then near 0
+     */
+    public void testPassAndStop()
+    {
+        assertEquals( "1 kHz passes", 1.0, peak( 1000.0 ), 0.01 );
+        assertEquals( "7 kHz is filtered", 0.0, peak( 7000.0 ), 0.001 );
+
+    }   /* testPassAndStop() */
+
+    /**
+     * Converts one second of a tone from 48 kHz to 8 kHz
+     * and returns the peak of the second half.
+     */
+    private static double peak( final double hz )
+    {
+        int                i;
+        int                m;
+        double             max = 0.0;
+        float []           in  = new float[ 48000 ];
+        PolyphaseResampler r   = new PolyphaseResampler( 48000, 8000 );
+        float []           out = new float[ r.getMaxOutput( in.length ) ];
+
+        for( i = 0; i < in.length; ++i )
+        {
+            in[ i ] = (float)Math.sin( 2.0 * Math.PI * hz * i / 48000.0 );
+        }
+
+        m = r.process( in, 0, in.length, out, 0 );
+        for( i = m / 2; i < m; ++i )
+        {
+            max = Math.max( max, Math.abs( out[ i ] ) );
+        }
+
+        return( max );
+
+    }   /* peak() */
+
+};  /* PolyphaseResamplerTest */
@@ -0,0 +1,176 @@
+package com.example.noisecancellation.dsp;
+
+/**
+ * Lets a block-based stage run at a different sample
+ * rate from the devices around it.
+ *
+ * toDsp() converts a block from the device rate to the
+ * DSP rate, the stage processes it, and fromDsp()
+ * converts it back. The two PolyphaseResamplers produce a
+ * varying number of samples per block, so fromDsp() goes
+ * through a small FIFO, primed with a few samples of
+ * silence, and always hands back exactly as many samples
+ * as went into toDsp(). The round trip adds the two
+ * filters' delay plus that priming.
+ *
+ * Either half can also be used on its own, to put a rate
+ * change on just one side of a stage. Nothing is
+ * allocated after construction. An instance must only be
+ * used by one thread at a time.
+ */
+public final class RateBridge
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      PRIME - samples of silence the FIFO starts
+     *              with, which covers the jitter in
+     *              the resamplers' output counts
+     *---------------------------------------*/
+    private static final int PRIME = 4;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      to_dsp      - device rate to DSP rate
+     *      from_dsp    - DSP rate to device rate
+     *      max_frames  - largest block at the device
+     *                    rate
+     *      fifo        - device rate samples waiting
+     *                    to be handed back
+     *      fifo_len    - number of samples in fifo
+     *      short_count - blocks the FIFO couldn't fill
+     *---------------------------------------*/
+    private final PolyphaseResampler to_dsp;
+    private final PolyphaseResampler from_dsp;
+    private final int                max_frames;
+    private final float []           fifo;
+    private int                      fifo_len;
+    private long                     short_count;
+
+    /**
+     * Constructor for a rate bridge.
+     *
+     * @param device_rate
+     *  Sample rate of the blocks passed in, in Hz.
+     * @param dsp_rate
+     *  Sample rate the stage runs at, in Hz.
+     * @param max_block
+     *  Most samples in one block at the device rate.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if a rate or the block size
+     *  isn't positive.
+     */
+    public RateBridge( final int device_rate, final int dsp_rate, final int max_block )
+    {
+        if( max_block <= 0 )
+        {
+            throw new IllegalArgumentException( "Block size must be positive." );
+        }
+
+        to_dsp      = new PolyphaseResampler( device_rate, dsp_rate );
+        from_dsp    = new PolyphaseResampler( dsp_rate, device_rate );
+        max_frames  = max_block;
+        fifo        = new float[ PRIME + max_block
+                               + from_dsp.getMaxOutput( to_dsp.getMaxOutput( max_block ) ) ];
+        reset();
+
+    }   /* RateBridge() */
+
+    /**
+     * Clears both resamplers and the FIFO.
+     */
+    public void reset()
+    {
+        int i;
+
+        to_dsp.reset();
+        from_dsp.reset();
+        for( i = 0; i < PRIME; ++i )
+        {
+            fifo[ i ] = 0.0f;
+        }
+        fifo_len    = PRIME;
+        short_count = 0;
+
+    }   /* reset() */
+
+    /**
+     * Converts a block to the DSP rate.
+     *
+     * @param in
+     *  Samples at the device rate.
+     * @param in_off
+     *  Index of the first sample.
+     * @param frames
+     *  Number of samples, at most the block size given
+     *  to the constructor.
+     * @param dsp
+     *  Destination, with room for getMaxDspFrames().
+     *
+     * @return
+     *  Number of samples written to dsp.
+     */
+    public int toDsp( final float [] in, final int in_off, final int frames, final float [] dsp )
+    {
+        return( to_dsp.process( in, in_off, frames, dsp, 0 ) );
+
+    }   /* toDsp() */
+
+    /**
+     * Converts processed samples back to the device rate
+     * and hands back exactly one block.
+     *
+     * @param dsp
+     *  Samples at the DSP rate.
+     * @param count
+     *  Number of samples in dsp.
+     * @param out
+     *  Destination for the block at the device rate.
+     * @param out_off
+     *  Index of the first sample in out.
+     * @param frames
+     *  Number of samples to hand back, normally the
+     *  number passed to the matching toDsp().
+     */
+    public void fromDsp( final float [] dsp, final int count,
+                         final float [] out, final int out_off, final int frames )
+    {
+        int i;
+        int take;
+
+        fifo_len += from_dsp.process( dsp, 0, count, fifo, fifo_len );
+
+        take = Math.min( frames, fifo_len );
+        System.arraycopy( fifo, 0, out, out_off, take );
+        for( i = take; i < frames; ++i )
+        {
+            out[ out_off + i ] = 0.0f;
+        }
+        if( take < frames )
+        {
+            ++short_count;
+        }
+
+        fifo_len -= take;
+        System.arraycopy( fifo, take, fifo, 0, fifo_len );
+
+    }   /* fromDsp() */
+
+    /**
+     * Returns the most samples toDsp() can write.
+     *
+     * @return
+     *  The size the DSP rate buffer needs to be.
+     */
+    public int getMaxDspFrames()
+    {
+        return( to_dsp.getMaxOutput( max_frames ) );
+
+    }   /* getMaxDspFrames() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public long getShortCount() { return( short_count ); }
+
+};  /* RateBridge */
@@ -0,0 +1,665 @@
+package com.example.noisecancellation.dsp;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Bulk conversion between 16 bit little endian PCM and
+ * the floating-point domain used by the DSP stages.
+ *
+ * Floating-point samples are normalized so that full
+ * scale PCM maps onto [-1.0, 1.0). Every method works
+ * on caller-supplied arrays and never allocates, and
+ * every loop is a plain counted loop over primitive
+ * arrays without data-dependent branches, so the JIT
+ * is free to unroll and vectorize it.
+ *
+ * All counts are in samples, not bytes.
+ */
+public final class SampleCodec
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      PCM_MAX   - largest 16 bit sample
+     *      PCM_MIN   - smallest 16 bit sample
+     *      TO_FLOAT  - PCM to float scale
+     *      TO_PCM    - float to PCM scale
+     *---------------------------------------*/
+    private static final int    PCM_MAX  = Short.MAX_VALUE;
+    private static final int    PCM_MIN  = Short.MIN_VALUE;
+    private static final float  TO_FLOAT = 1.0f / 32768.0f;
+    private static final double TO_PCM   = 32768.0;
+
+    private SampleCodec()
+    {
+
+    }   /* SampleCodec() */
+
+    /*-----------------------------------------
+     * Decoding
+     *---------------------------------------*/
+
+    /**
+     * Decodes little endian PCM into floats.
+     *
+     * @param src
+     *  PCM data.
+     * @param src_off
+     *  Byte offset of the first sample in src.
+     * @param dst
+     *  Destination for the normalized samples.
+     * @param dst_off
+     *  Index of the first sample in dst.
+     * @param count
+     *  Number of samples to decode.
+     */
+    public static void decode( final byte [] src, final int src_off,
+                               final float [] dst, final int dst_off,
+                               final int count )
+    {
+        int i;
+        int b;
+
+        for( i = 0; i < count; ++i )
+        {
+            b = src_off + ( i << 1 );
+            dst[ dst_off + i ] = (short)( ( src[ b ] & 0xFF ) | ( src[ b + 1 ] << 8 ) ) * TO_FLOAT;
+        }
+
+    }   /* decode() */
+
+    /**
+     * Decodes little endian PCM into floats, applying a
+     * gain in the same pass.
+     *
+     * @param src
+     *  PCM data.
+     * @param src_off
+     *  Byte offset of the first sample in src.
+     * @param dst
+     *  Destination for the normalized samples.
+     * @param dst_off
+     *  Index of the first sample in dst.
+     * @param count
+     *  Number of samples to decode.
+     * @param gain
+     *  Linear gain applied to every sample.
+     */
+    public static void decode( final byte [] src, final int src_off,
+                               final float [] dst, final int dst_off,
+                               final int count, final float gain )
+    {
+        int         i;
+        int         b;
+        final float scale = gain * TO_FLOAT;
+
+        for( i = 0; i < count; ++i )
+        {
+            b = src_off + ( i << 1 );
+            dst[ dst_off + i ] = (short)( ( src[ b ] & 0xFF ) | ( src[ b + 1 ] << 8 ) ) * scale;
+        }
+
+    }   /* decode() */
+
+    /**
+     * Decodes little endian PCM into floats, multiplying
+     * each sample by its own gain (a window, say) in the
+     * same pass.
+     *
+     * @param src
+     *  PCM data.
+     * @param src_off
+     *  Byte offset of the first sample in src.
+     * @param dst
+     *  Destination for the normalized samples.
+     * @param dst_off
+     *  Index of the first sample in dst.
+     * @param count
+     *  Number of samples to decode.
+     * @param gains
+     *  Gain for each sample, starting at index 0.
+     */
+    public static void decode( final byte [] src, final int src_off,
+                               final float [] dst, final int dst_off,
+                               final int count, final float [] gains )
+    {
+        int i;
+        int b;
+
+        for( i = 0; i < count; ++i )
+        {
+            b = src_off + ( i << 1 );
+            dst[ dst_off + i ] = (short)( ( src[ b ] & 0xFF ) | ( src[ b + 1 ] << 8 ) ) * TO_FLOAT * gains[ i ];
+        }
+
+    }   /* decode() */
+
+    /**
+     * Decodes little endian PCM into doubles.
+     *
+     * @param src
+     *  PCM data.
+     * @param src_off
+     *  Byte offset of the first sample in src.
+     * @param dst
+     *  Destination for the normalized samples.
+     * @param dst_off
+     *  Index of the first sample in dst.
+     * @param count
+     *  Number of samples to decode.
+     */
+    public static void decode( final byte [] src, final int src_off,
+                               final double [] dst, final int dst_off,
+                               final int count )
+    {
+        int i;
+        int b;
+
+        for( i = 0; i < count; ++i )
+        {
+            b = src_off + ( i << 1 );
+            dst[ dst_off + i ] = (short)( ( src[ b ] & 0xFF ) | ( src[ b + 1 ] << 8 ) ) * ( 1.0 / TO_PCM );
+        }
+
+    }   /* decode() */
+
+    /**
+     * Decodes the remaining samples of a ShortBuffer into
+     * floats. The buffer's position is advanced past the
+     * decoded samples.
+     *
+     * @param src
+     *  PCM data.
+     * @param dst
+     *  Destination for the normalized samples.
+     * @param dst_off
+     *  Index of the first sample in dst.
+     * @param count
+     *  Number of samples to decode.
+     */
+    public static void decode( final ShortBuffer src,
+                               final float [] dst, final int dst_off,
+                               final int count )
+    {
+        int i;
+        int pos = src.position();
+
+        if( src.hasArray() )
+        {
+            final short [] a   = src.array();
+            final int      off = src.arrayOffset() + pos;
+
+            for( i = 0; i < count; ++i )
+            {
+                dst[ dst_off + i ] = a[ off + i ] * TO_FLOAT;
+            }
+        }
+        else
+        {
+            for( i = 0; i < count; ++i )
+            {
+                dst[ dst_off + i ] = src.get( pos + i ) * TO_FLOAT;
+            }
+        }
+
+        src.position( pos + count );
+
+    }   /* decode() */
+
+    /**
+     * Decodes the remaining samples of a ShortBuffer into
+     * doubles. The buffer's position is advanced past the
+     * decoded samples.
+     *
+     * @param src
+     *  PCM data.
+     * @param dst
+     *  Destination for the normalized samples.
+     * @param dst_off
+     *  Index of the first sample in dst.
+     * @param count
+     *  Number of samples to decode.
+     */
+    public static void decode( final ShortBuffer src,
+                               final double [] dst, final int dst_off,
+                               final int count )
+    {
+        int i;
+        int pos = src.position();
+
+        if( src.hasArray() )
+        {
+            final short [] a   = src.array();
+            final int      off = src.arrayOffset() + pos;
+
+            for( i = 0; i < count; ++i )
+            {
+                dst[ dst_off + i ] = a[ off + i ] * ( 1.0 / TO_PCM );
+            }
+        }
+        else
+        {
+            for( i = 0; i < count; ++i )
+            {
+                dst[ dst_off + i ] = src.get( pos + i ) * ( 1.0 / TO_PCM );
+            }
+        }
+
+        src.position( pos + count );
+
+    }   /* decode() */
+
+    /*-----------------------------------------
+     * Encoding
+     *---------------------------------------*/
+
+    /**
+     * Encodes floats into little endian PCM, clamping
+     * anything outside of full scale.
+     *
+     * @param src
+     *  Normalized samples.
+     * @param src_off
+     *  Index of the first sample in src.
+     * @param dst
+     *  Destination for the PCM data.
+     * @param dst_off
+     *  Byte offset of the first sample in dst.
+     * @param count
+     *  Number of samples to encode.
+     */
+    public static void encode( final float [] src, final int src_off,
+                               final byte [] dst, final int dst_off,
+                               final int count )
+    {
+        encode( src, src_off, dst, dst_off, count, 1.0f );
+
+    }   /* encode() */
+
+    /**
+     * Encodes floats into little endian PCM, applying a
+     * gain on the way and clamping anything outside of
+     * full scale. A gain of -1 produces the inverted
+     * (anti-noise) signal in the same pass.
+     *
+     * @param src
+     *  Normalized samples.
+     * @param src_off
+     *  Index of the first sample in src.
+     * @param dst
+     *  Destination for the PCM data.
+     * @param dst_off
+     *  Byte offset of the first sample in dst.
+     * @param count
+     *  Number of samples to encode.
+     * @param gain
+     *  Linear gain applied to every sample.
+     */
+    public static void encode( final float [] src, final int src_off,
+                               final byte [] dst, final int dst_off,
+                               final int count, final float gain )
+    {
+        int   i;
+        int   b;
+        int   v;
+        float scale = gain * (float)TO_PCM;
+
+        for( i = 0; i < count; ++i )
+        {
+            v = clamp( (int)( src[ src_off + i ] * scale ) );
+            b = dst_off + ( i << 1 );
+            dst[ b ]     = (byte)v;
+            dst[ b + 1 ] = (byte)( v >> 8 );
+        }
+
+    }   /* encode() */
+
+    /**
+     * Encodes floats into little endian PCM, multiplying
+     * each sample by its own gain on the way and clamping
+     * anything outside of full scale.
+     *
+     * @param src
+     *  Normalized samples.
+     * @param src_off
+     *  Index of the first sample in src.
+     * @param dst
+     *  Destination for the PCM data.
+     * @param dst_off
+     *  Byte offset of the first sample in dst.
+     * @param count
+     *  Number of samples to encode.
+     * @param gains
+     *  Gain for each sample, starting at index 0.
+     */
+    public static void encode( final float [] src, final int src_off,
+                               final byte [] dst, final int dst_off,
+                               final int count, final float [] gains )
+    {
+        int         i;
+        int         b;
+        int         v;
+        final float scale = (float)TO_PCM;
+
+        for( i = 0; i < count; ++i )
+        {
+            v = clamp( (int)( src[ src_off + i ] * gains[ i ] * scale ) );
+            b = dst_off + ( i << 1 );
+            dst[ b ]     = (byte)v;
+            dst[ b + 1 ] = (byte)( v >> 8 );
+        }
+
+    }   /* encode() */
+
+    /**
+     * Encodes doubles into little endian PCM, clamping
+     * anything outside of full scale.
+     *
+     * @param src
+     *  Normalized samples.
+     * @param src_off
+     *  Index of the first sample in src.
+     * @param dst
+     *  Destination for the PCM data.
+     * @param dst_off
+     *  Byte offset of the first sample in dst.
+     * @param count
+     *  Number of samples to encode.
+     */
+    public static void encode( final double [] src, final int src_off,
+                               final byte [] dst, final int dst_off,
+                               final int count )
+    {
+        encode( src, src_off, dst, dst_off, count, 1.0 );
+
+    }   /* encode() */
+
+    /**
+     * Encodes doubles into little endian PCM, applying a
+     * gain on the way and clamping anything outside of
+     * full scale.
+     *
+     * @param src
+     *  Normalized samples.
+     * @param src_off
+     *  Index of the first sample in src.
+     * @param dst
+     *  Destination for the PCM data.
+     * @param dst_off
+     *  Byte offset of the first sample in dst.
+     * @param count
+     *  Number of samples to encode.
+     * @param gain
+     *  Linear gain applied to every sample.
+     */
+    public static void encode( final double [] src, final int src_off,
+                               final byte [] dst, final int dst_off,
+                               final int count, final double gain )
+    {
+        int    i;
+        int    b;
+        int    v;
+        double scale = gain * TO_PCM;
+
+        for( i = 0; i < count; ++i )
+        {
+            v = clamp( (int)( src[ src_off + i ] * scale ) );
+            b = dst_off + ( i << 1 );
+            dst[ b ]     = (byte)v;
+            dst[ b + 1 ] = (byte)( v >> 8 );
+        }
+
+    }   /* encode() */
+
+    /**
+     * Encodes floats into a ShortBuffer, applying a gain
+     * and clamping anything outside of full scale. The
+     * buffer's position is advanced past the encoded
+     * samples.
+     *
+     * @param src
+     *  Normalized samples.
+     * @param src_off
+     *  Index of the first sample in src.
+     * @param dst
+     *  Destination for the PCM data.
+     * @param count
+     *  Number of samples to encode.
+     * @param gain
+     *  Linear gain applied to every sample.
+     */
+    public static void encode( final float [] src, final int src_off,
+                               final ShortBuffer dst,
+                               final int count, final float gain )
+    {
+        int   i;
+        int   pos   = dst.position();
+        float scale = gain * (float)TO_PCM;
+
+        if( dst.hasArray() )
+        {
+            final short [] a   = dst.array();
+            final int      off = dst.arrayOffset() + pos;
+
+            for( i = 0; i < count; ++i )
+            {
+                a[ off + i ] = (short)clamp( (int)( src[ src_off + i ] * scale ) );
+            }
+        }
+        else
+        {
+            for( i = 0; i < count; ++i )
+            {
+                dst.put( pos + i, (short)clamp( (int)( src[ src_off + i ] * scale ) ) );
+            }
+        }
+
+        dst.position( pos + count );
+
+    }   /* encode() */
+
+    /**
+     * Encodes doubles into a ShortBuffer, applying a gain
+     * and clamping anything outside of full scale. The
+     * buffer's position is advanced past the encoded
+     * samples.
+     *
+     * @param src
+     *  Normalized samples.
+     * @param src_off
+     *  Index of the first sample in src.
+     * @param dst
+     *  Destination for the PCM data.
+     * @param count
+     *  Number of samples to encode.
+     * @param gain
+     *  Linear gain applied to every sample.
+     */
+    public static void encode( final double [] src, final int src_off,
+                               final ShortBuffer dst,
+                               final int count, final double gain )
+    {
+        int    i;
+        int    pos   = dst.position();
+        double scale = gain * TO_PCM;
+
+        if( dst.hasArray() )
+        {
+            final short [] a   = dst.array();
+            final int      off = dst.arrayOffset() + pos;
+
+            for( i = 0; i < count; ++i )
+            {
+                a[ off + i ] = (short)clamp( (int)( src[ src_off + i ] * scale ) );
+            }
+        }
+        else
+        {
+            for( i = 0; i < count; ++i )
+            {
+                dst.put( pos + i, (short)clamp( (int)( src[ src_off + i ] * scale ) ) );
+            }
+        }
+
+        dst.position( pos + count );
+
+    }   /* encode() */
+
+    /*-----------------------------------------
+     * Interleaved PCM
+     *---------------------------------------*/
+
+    /**
+     * Decodes interleaved little endian PCM into one
+     * array of floats per channel.
+     *
+     * @param src
+     *  Interleaved PCM data.
+     * @param src_off
+     *  Byte offset of the first frame in src.
+     * @param dst
+     *  Destination for the normalized samples, one array
+     *  per channel. Its length is the channel count.
+     * @param dst_off
+     *  Index of the first sample in each channel.
+     * @param frames
+     *  Number of frames (samples per channel) to decode.
+     */
+    public static void deinterleave( final byte [] src, final int src_off,
+                                     final float [][] dst, final int dst_off,
+                                     final int frames )
+    {
+        int       i;
+        int       c;
+        int       b;
+        float []  d;
+        final int stride = dst.length << 1;
+
+        for( c = 0; c < dst.length; ++c )
+        {
+            d = dst[ c ];
+            b = src_off + ( c << 1 );
+            for( i = 0; i < frames; ++i, b += stride )
+            {
+                d[ dst_off + i ] = (short)( ( src[ b ] & 0xFF ) | ( src[ b + 1 ] << 8 ) ) * TO_FLOAT;
+            }
+        }
+
+    }   /* deinterleave() */
+
+    /**
+     * Encodes one array of floats per channel into
+     * interleaved little endian PCM, clamping anything
+     * outside of full scale.
+     *
+     * @param src
+     *  Normalized samples, one array per channel. Its
+     *  length is the channel count.
+     * @param src_off
+     *  Index of the first sample in each channel.
+     * @param dst
+     *  Destination for the interleaved PCM data.
+     * @param dst_off
+     *  Byte offset of the first frame in dst.
+     * @param frames
+     *  Number of frames (samples per channel) to encode.
+     */
+    public static void interleave( final float [][] src, final int src_off,
+                                   final byte [] dst, final int dst_off,
+                                   final int frames )
+    {
+        int         i;
+        int         c;
+        int         b;
+        int         v;
+        float []    s;
+        final int   stride = src.length << 1;
+        final float scale  = (float)TO_PCM;
+
+        for( c = 0; c < src.length; ++c )
+        {
+            s = src[ c ];
+            b = dst_off + ( c << 1 );
+            for( i = 0; i < frames; ++i, b += stride )
+            {
+                v = clamp( (int)( s[ src_off + i ] * scale ) );
+                dst[ b ]     = (byte)v;
+                dst[ b + 1 ] = (byte)( v >> 8 );
+            }
+        }
+
+    }   /* interleave() */
+
+    /*-----------------------------------------
+     * In-place PCM operations
+     *---------------------------------------*/
+
+    /**
+     * Negates little endian PCM in place. -32768 has no
+     * positive counterpart, so it becomes 32767.
+     *
+     * @param buf
+     *  PCM data.
+     * @param off
+     *  Byte offset of the first sample.
+     * @param count
+     *  Number of samples to negate.
+     */
+    public static void negate( final byte [] buf, final int off, final int count )
+    {
+        int i;
+        int b;
+        int v;
+
+        for( i = 0; i < count; ++i )
+        {
+            b = off + ( i << 1 );
+            v = clamp( -(short)( ( buf[ b ] & 0xFF ) | ( buf[ b + 1 ] << 8 ) ) );
+            buf[ b ]     = (byte)v;
+            buf[ b + 1 ] = (byte)( v >> 8 );
+        }
+
+    }   /* negate() */
+
+    /**
+     * Scales little endian PCM in place, clamping anything
+     * outside of full scale. A negative gain inverts the
+     * signal in the same pass.
+     *
+     * @param buf
+     *  PCM data.
+     * @param off
+     *  Byte offset of the first sample.
+     * @param count
+     *  Number of samples to scale.
+     * @param gain
+     *  Linear gain applied to every sample.
+     */
+    public static void applyGain( final byte [] buf, final int off,
+                                  final int count, final float gain )
+    {
+        int i;
+        int b;
+        int v;
+
+        for( i = 0; i < count; ++i )
+        {
+            b = off + ( i << 1 );
+            v = clamp( (int)( (short)( ( buf[ b ] & 0xFF ) | ( buf[ b + 1 ] << 8 ) ) * gain ) );
+            buf[ b ]     = (byte)v;
+            buf[ b + 1 ] = (byte)( v >> 8 );
+        }
+
+    }   /* applyGain() */
+
+    /**
+     * Clamps a sample to the 16 bit range. Written with
+     * min/max rather than branches so it compiles to
+     * conditional moves.
+     */
+    private static int clamp( final int v )
+    {
+        return( Math.max( PCM_MIN, Math.min( PCM_MAX, v ) ) );
+
+    }   /* clamp() */
+
+};  /* SampleCodec */
@@ -0,0 +1,149 @@
+package com.example.noisecancellation.dsp;
+
+import java.nio.ShortBuffer;
+
+import junit.framework.TestCase;
+
+public class SampleCodecTest extends TestCase {
+    private static final float EPSILON = 1.0E-6f;
+
+    /*-------------------------------------------
+     * TESTING SampleCodec::decode()/encode()
+     *
+     * TEST CASES:
+     *   1. Round trip through floats
+     *   2. Round trip through a ShortBuffer
+     *   3. Clamping out of range samples
+     *-----------------------------------------*/
+
+    /**
+     * Tests that PCM survives a round trip through
+     * the float domain, including negative samples
+     * whose low byte has the sign bit set.
+     * <br /><br />
+     * Expected return value: the original bytes
+     */
+    public void testRoundTrip()
+    {
+        int      i;
+        short [] pcm = { 0, 1, -1, 0x00FF, -0x0100, Short.MAX_VALUE, Short.MIN_VALUE };
+        byte  [] in  = new byte[ pcm.length << 1 ];
+        byte  [] out = new byte[ pcm.length << 1 ];
+        float [] f   = new float[ pcm.length ];
+
+        for( i = 0; i < pcm.length; ++i )
+        {
+            in[ 2 * i ]     = (byte)pcm[ i ];
+            in[ 2 * i + 1 ] = (byte)( pcm[ i ] >> 8 );
+        }
+
+        SampleCodec.decode( in, 0, f, 0, pcm.length );
+        assertEquals( "-1 decodes correctly", -1.0f / 32768.0f, f[ 2 ], EPSILON );
+        assertEquals( "Full scale decodes to -1", -1.0f, f[ 6 ], EPSILON );
+
+        SampleCodec.encode( f, 0, out, 0, pcm.length );
+        for( i = 0; i < in.length; ++i )
+        {
+            assertEquals( "Byte " + i + " survives", in[ i ], out[ i ] );
+        }
+
+    }   /* testRoundTrip() */
+
+    /**
+     * Tests that samples survive a round trip through
+     * a ShortBuffer, and that the position advances.
+     * <br /><br />
+     * Expected return value: the original samples
+     */
+    public void testShortBufferRoundTrip()
+    {
+        ShortBuffer sb = ShortBuffer.wrap( new short[] { 100, -200, 300 } );
+        double []   d  = new double[ 3 ];
+
+        SampleCodec.decode( sb, d, 0, 3 );
+        assertEquals( "Position advanced", 3, sb.position() );
+
+        sb.clear();
+        SampleCodec.encode( d, 0, sb, 3, -1.0 );
+        assertEquals( "Sample negated", -100, sb.get( 0 ) );
+        assertEquals( "Sample negated", 200, sb.get( 1 ) );
+
+    }   /* testShortBufferRoundTrip() */
+
+    /**
+     * Tests that out of range samples are clamped
+     * rather than wrapped.
+     * <br /><br />
+     * Expected return value: full scale samples
+     */
+    public void testClamp()
+    {
+        float [] f   = { 2.0f, -2.0f };
+        byte  [] out = new byte[ 4 ];
+
+        SampleCodec.encode( f, 0, out, 0, 2 );
+
+        assertEquals( "Clamped high", Short.MAX_VALUE, (short)( ( out[ 0 ] & 0xFF ) | ( out[ 1 ] << 8 ) ) );
+        assertEquals( "Clamped low", Short.MIN_VALUE, (short)( ( out[ 2 ] & 0xFF ) | ( out[ 3 ] << 8 ) ) );
+
+    }   /* testClamp() */
+
+    /*-------------------------------------------
+     * TESTING SampleCodec::negate()
+     *-----------------------------------------*/
+
+    /**
+     * Tests that negation handles the most negative
+     * sample without overflowing.
+     * <br /><br />
+     * Expected return value: 32767
+     */
+    public void testNegate()
+    {
+        byte [] buf = { (byte)0x00, (byte)0x80, (byte)0xFF, (byte)0xFF };
+
+        SampleCodec.negate( buf, 0, 2 );
+
+        assertEquals( "-32768 becomes 32767", Short.MAX_VALUE, (short)( ( buf[ 0 ] & 0xFF ) | ( buf[ 1 ] << 8 ) ) );
+        assertEquals( "-1 becomes 1", 1, (short)( ( buf[ 2 ] & 0xFF ) | ( buf[ 3 ] << 8 ) ) );
+
+    }   /* testNegate() */
+
+    /*-------------------------------------------
+     * TESTING SampleCodec::deinterleave()/interleave()
+     *-----------------------------------------*/
+
+    /**
+     * Tests that interleaved stereo PCM splits into one
+     * array per channel and interleaves back unchanged.
+     * <br /><br />
+     * Expected return value: the original bytes
+     */
+    public void testInterleaveRoundTrip()
+    {
+        int        i;
+        byte []    pcm    = new byte[ 3 * 2 * 2 ];
+        byte []    out    = new byte[ pcm.length ];
+        float [][] planar = new float[ 2 ][ 3 ];
+
+        for( i = 0; i < pcm.length; i += 2 )
+        {
+            pcm[ i ]     = (byte)( i * 37 );
+            pcm[ i + 1 ] = (byte)( ( i & 2 ) == 0 ? i : -i );
+        }
+
+        SampleCodec.deinterleave( pcm, 0, planar, 0, 3 );
+        assertEquals( "Left gets even samples",
+                      (short)( ( pcm[ 8 ] & 0xFF ) | ( pcm[ 9 ] << 8 ) ) / 32768.0f, planar[ 0 ][ 2 ], 0.0f );
+        assertEquals( "Right gets odd samples",
+                      (short)( ( pcm[ 6 ] & 0xFF ) | ( pcm[ 7 ] << 8 ) ) / 32768.0f, planar[ 1 ][ 1 ], 0.0f );
+
+        SampleCodec.interleave( planar, 0, out, 0, 3 );
+        for( i = 0; i < pcm.length; ++i )
+        {
+            assertEquals( "Byte " + i, pcm[ i ], out[ i ] );
+        }
+
+    }   /* testInterleaveRoundTrip() */
+
+};  /* SampleCodecTest */
@@ -0,0 +1,55 @@
+package com.example.noisecancellation.dsp;
+
+/**
+ * A per-frame spectral operation run by the STFT engine.
+ *
+ * A processor may keep state from frame to frame, such
+ * as a noise floor estimate or smoothing, as long as
+ * only one engine runs it. MainProcess runs every
+ * channel's graph at the same time on its own thread,
+ * so it gives each channel a processor of its own from
+ * a Factory; a single processor shared by all channels
+ * must be stateless and safe to call from several
+ * threads at once.
+ */
+public interface SpectralProcessor
+{
+    /**
+     * Makes the processor for each channel.
+     */
+    public interface Factory
+    {
+        /**
+         * Makes a new processor, used only by one
+         * channel's graph.
+         *
+         * @param channel
+         *  Index of the channel, from 0.
+         *
+         * @return
+         *  The processor.
+         */
+        public SpectralProcessor create( int channel );
+
+    };  /* Factory */
+
+    /**
+     * Processes one analysis frame in place.
+     *
+     * @param spectrum
+     *  The non-negative frequency half of the frame's
+     *  spectrum. The physical layout is as follows:<br />
+     *  <pre>
+     *      spectrum[2*k]   = Re[k],
+     *      spectrum[2*k+1] = Im[k], 0&lt;=k&lt;bins
+     *  </pre>
+     *  The negative frequencies are rebuilt from these
+     *  by conjugate symmetry, so the imaginary parts of
+     *  the DC and Nyquist bins are ignored.
+     *
+     * @param bins
+     *  The number of bins, which is frame_size / 2 + 1.
+     */
+    public void processFrame( double [] spectrum, int bins );
+
+};  /* SpectralProcessor */
@@ -0,0 +1,299 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Arrays;
+
+import com.example.noisecancellation.fft.FFT_Wrapper;
+
+/**
+ * Streaming short-time Fourier transform analysis and
+ * overlap-add resynthesis.
+ *
+ * Samples go in one block at a time and the same number
+ * of samples come out, delayed by frame_size samples.
+ * Every hop samples a frame is windowed, transformed, handed
+ * to the spectral processor, transformed back, windowed again
+ * and overlap-added into the output.
+ *
+ * The same window is used for analysis and synthesis, and
+ * the output is normalized by the overlapped sum of the
+ * squared window, so with a pass-through processor the
+ * output reproduces the input for any hop &lt;= frame_size
+ * (as long as that sum isn't zero anywhere).
+ *
+ * All of the frame buffers are allocated in the constructor,
+ * and the transforms run in place in them, so processing
+ * doesn't allocate anything. The transforms use the packed
+ * real form, so the redundant negative frequencies are
+ * never computed.
+ */
+public final class StftEngine
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *      frame_size  - samples per frame
+     *      hop         - samples between frames
+     *      overlap     - frame_size - hop
+     *      bins        - frame_size / 2 + 1
+     *      window      - analysis/synthesis window
+     *      ola_norm    - 1 / overlapped sum of the
+     *                    squared window, per hop slot
+     *      in_fifo     - the last frame_size input
+     *                    samples
+     *      out_fifo    - finished output samples
+     *      accum       - overlap-add accumulator
+     *      frame       - windowed time domain frame
+     *      spectrum    - half spectrum handed to the
+     *                    processor
+     *      rover       - next slot in in_fifo/out_fifo
+     *---------------------------------------*/
+    private final int         frame_size;
+    private final int         hop;
+    private final int         overlap;
+    private final int         bins;
+    private final double []   window;
+    private final double []   ola_norm;
+    private final double []   in_fifo;
+    private final double []   out_fifo;
+    private final double []   accum;
+    private final double []   frame;
+    private final double []   spectrum;
+    private final FFT_Wrapper fft;
+    private SpectralProcessor processor;
+    private int               rover;
+
+    /**
+     * Constructor for an STFT engine using a Hanning window.
+     *
+     * @param size
+     *  Frame size in samples. Must be even.
+     * @param hop_size
+     *  Samples between the starts of successive frames.
+     * @param p
+     *  The per-frame spectral processor, or null to
+     *  pass frames through untouched.
+     */
+    public StftEngine( final int size, final int hop_size, final SpectralProcessor p )
+    {
+        this( hann( size ), hop_size, p );
+
+    }   /* StftEngine() */
+
+    /**
+     * Constructor for an STFT engine.
+     *
+     * @param w
+     *  The analysis/synthesis window. Its length is the
+     *  frame size, which must be even.
+     * @param hop_size
+     *  Samples between the starts of successive frames.
+     * @param p
+     *  The per-frame spectral processor, or null to
+     *  pass frames through untouched.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the frame size is odd, the
+     *  hop isn't in [1, frame_size], or the window's
+     *  overlapped energy is zero somewhere.
+     */
+    public StftEngine( final double [] w, final int hop_size, final SpectralProcessor p )
+    {
+        int    i;
+        int    j;
+        double sum;
+
+        if( ( w.length < 2 ) || ( 0 != ( w.length & 1 ) ) )
+        {
+            throw new IllegalArgumentException( "Frame size must be even." );
+        }
+        if( ( hop_size < 1 ) || ( hop_size > w.length ) )
+        {
+            throw new IllegalArgumentException( "Hop must be between 1 and the frame size." );
+        }
+
+        frame_size    = w.length;
+        hop           = hop_size;
+        overlap       = frame_size - hop;
+        bins          = ( frame_size >> 1 ) + 1;
+        window        = w.clone();
+        ola_norm      = new double[ hop ];
+        in_fifo       = new double[ frame_size ];
+        out_fifo      = new double[ frame_size ];
+        accum         = new double[ frame_size ];
+        frame         = new double[ frame_size ];
+        spectrum      = new double[ bins << 1 ];
+        fft           = new FFT_Wrapper( frame_size );
+        processor     = p;
+
+        /*-------------------------------------
+         * Work out the overlapped energy of
+         * the window for each slot of a hop.
+         *-----------------------------------*/
+        for( i = 0; i < hop; ++i )
+        {
+            sum = 0.0;
+            for( j = i; j < frame_size; j += hop )
+            {
+                sum += window[ j ] * window[ j ];
+            }
+            if( sum < 1.0E-12 )
+            {
+                throw new IllegalArgumentException( "Window doesn't overlap-add at this hop." );
+            }
+            ola_norm[ i ] = 1.0 / sum;
+        }
+
+        reset();
+
+    }   /* StftEngine() */
+
+    /**
+     * Builds a periodic Hanning window.
+     *
+     * @param size
+     *  The length of the window.
+     *
+     * @return
+     *  The window, w[i] = 0.5 * ( 1 - cos( 2 pi i / size ) ).
+     */
+    public static double [] hann( final int size )
+    {
+        int       i;
+        double [] w = new double[ size ];
+
+        for( i = 0; i < size; ++i )
+        {
+            w[ i ] = 0.5 * ( 1.0 - Math.cos( 2.0 * Math.PI * (double)i / (double)size ) );
+        }
+
+        return( w );
+
+    }   /* hann() */
+
+    /**
+     * Clears all of the engine's history.
+     */
+    public void reset()
+    {
+        Arrays.fill( in_fifo, 0.0 );
+        Arrays.fill( out_fifo, 0.0 );
+        Arrays.fill( accum, 0.0 );
+        rover = overlap;
+
+    }   /* reset() */
+
+    /**
+     * Replaces the spectral processor. Must be called
+     * from the thread that calls process().
+     *
+     * @param p
+     *  The new processor, or null to pass frames through.
+     */
+    public void setProcessor( final SpectralProcessor p )
+    {
+        processor = p;
+
+    }   /* setProcessor() */
+
+    /**
+     * Runs a block of samples through the engine in place.
+     *
+     * @param buf
+     *  On entry, the input samples. On return, the output
+     *  samples, which lag the input by getLatency() samples.
+     * @param off
+     *  Index of the first sample.
+     * @param count
+     *  Number of samples to process.
+     */
+    public void process( final double [] buf, final int off, final int count )
+    {
+        int    i;
+        double x;
+
+        for( i = off; i < off + count; ++i )
+        {
+            x                = buf[ i ];
+            buf[ i ]         = out_fifo[ rover - overlap ];
+            in_fifo[ rover ] = x;
+            ++rover;
+
+            if( rover >= frame_size )
+            {
+                rover = overlap;
+                processFrame();
+            }
+        }
+
+    }   /* process() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+
+    /**
+     * Analyzes, processes and resynthesizes the frame
+     * currently held in in_fifo.
+     */
+    private void processFrame()
+    {
+        int i;
+
+        for( i = 0; i < frame_size; ++i )
+        {
+            frame[ i ] = in_fifo[ i ] * window[ i ];
+        }
+
+        /*-------------------------------------
+         * Analysis. The packed spectrum keeps
+         * the (real) Nyquist bin in frame[1],
+         * so move it to the end for the
+         * processor.
+         *-----------------------------------*/
+        fft.rfftInto( frame, 0, frame_size, frame, 0 );
+        spectrum[ 0 ]              = frame[ 0 ];
+        spectrum[ 1 ]              = 0.0;
+        spectrum[ frame_size ]     = frame[ 1 ];
+        spectrum[ frame_size + 1 ] = 0.0;
+        System.arraycopy( frame, 2, spectrum, 2, frame_size - 2 );
+
+        if( null != processor )
+        {
+            processor.processFrame( spectrum, bins );
+        }
+
+        /*-------------------------------------
+         * Pack it back up and synthesize.
+         *-----------------------------------*/
+        frame[ 0 ] = spectrum[ 0 ];
+        frame[ 1 ] = spectrum[ frame_size ];
+        System.arraycopy( spectrum, 2, frame, 2, frame_size - 2 );
+        fft.irfftInto( frame, 0, frame_size, frame, 0 );
+
+        /*-------------------------------------
+         * Overlap-add the windowed result, and
+         * hand out the samples that are done.
+         *-----------------------------------*/
+        for( i = 0; i < frame_size; ++i )
+        {
+            accum[ i ] += frame[ i ] * window[ i ];
+        }
+        for( i = 0; i < hop; ++i )
+        {
+            out_fifo[ i ] = accum[ i ] * ola_norm[ i ];
+        }
+
+        System.arraycopy( accum, hop, accum, 0, overlap );
+        Arrays.fill( accum, overlap, frame_size, 0.0 );
+        System.arraycopy( in_fifo, hop, in_fifo, 0, overlap );
+
+    }   /* processFrame() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int getFrameSize() { return( frame_size ); }
+    public int getHopSize()   { return( hop );        }
+    public int getLatency()   { return( frame_size ); }
+    public int getBinCount()  { return( bins );       }
+
+};  /* StftEngine */
@@ -0,0 +1,93 @@
+package com.example.noisecancellation.dsp;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class StftEngineTest extends TestCase {
+    private static final double EPSILON = 1.0E-9;
+
+    /*-------------------------------------------
+     * TESTING StftEngine::process()
+     *
+     * TEST CASES:
+     *   1. Pass-through reconstruction, with
+     *      latency, in arbitrary chunks
+     *   2. Bad frame and hop sizes
+     *-----------------------------------------*/
+
+    /**
+     * Tests that with no processor the engine gives back
+     * its input, delayed by exactly getLatency() samples,
+     * at more than one overlap, whatever the size of the
+     * chunks it's fed.
+     * <br /><br />
+     * Expected return value: getLatency() silent samples,
+     * then the input
+     */
+    public void testIdentity()
+    {
+        int        h;
+        int        i;
+        int        n;
+        int []     hops = { 64, 128 };
+        double []  x    = new double[ 5000 ];
+        double []  buf;
+        Random     rnd  = new Random( 5 );
+        StftEngine e;
+
+        for( i = 0; i < x.length; ++i )
+        {
+            x[ i ] = rnd.nextGaussian();
+        }
+
+        for( h = 0; h < hops.length; ++h )
+        {
+            e   = new StftEngine( 256, hops[ h ], null );
+            buf = x.clone();
+            assertEquals( "Latency", 256, e.getLatency() );
+
+            for( i = 0; i < buf.length; i += n )
+            {
+                n = Math.min( 1 + rnd.nextInt( 300 ), buf.length - i );
+                e.process( buf, i, n );
+            }
+            for( i = 0; i < e.getLatency(); ++i )
+            {
+                assertEquals( "Hop " + hops[ h ] + " sample " + i + " is silent", 0.0, buf[ i ], EPSILON );
+            }
+            for( i = e.getLatency(); i < buf.length; ++i )
+            {
+                assertEquals( "Hop " + hops[ h ] + " sample " + i, x[ i - e.getLatency() ], buf[ i ], EPSILON );
+            }
+        }
+
+    }   /* testIdentity() */
+
+    /**
+     * Tests that odd frames and hops outside of
+     * [1, frame_size] are rejected.
+     * <br /><br />
+     * Expected return value: IllegalArgumentException
+     */
+    public void testBadSizes()
+    {
+        int        i;
+        int [][]   bad = { { 255, 64 }, { 256, 0 }, { 256, 257 } };
+
+        for( i = 0; i < bad.length; ++i )
+        {
+            try
+            {
+                new StftEngine( bad[ i ][ 0 ], bad[ i ][ 1 ], null );
+                fail( "Frame " + bad[ i ][ 0 ] + " hop " + bad[ i ][ 1 ] + " accepted" );
+            }
+            catch( IllegalArgumentException iae )
+            {
+                /* Expected */
+            }
+        }
+
+    }   /* testBadSizes() */
+
+};  /* StftEngineTest */
@@ -0,0 +1,502 @@
+package com.example.noisecancellation.fft;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import android.util.Log;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Measures where splitting a transform across threads
+ * starts to pay on this handset, and sets the JTransforms
+ * thresholds to match.
+ *
+ * JTransforms ships with fixed guesses (two threads from
+ * 8192 points, four from 65536). The real crossover
+ * depends on the cores, their caches and how quickly the
+ * executor wakes its threads, and differs several times
+ * over between big and little cores. calibrate() times
+ * realForward() and complexForward() on one, two and (if
+ * there are the cores) four threads for every power of
+ * two size in [MIN_SIZE, MAX_SIZE], and takes as each
+ * threshold the smallest size from which more threads are
+ * faster at every size measured. If two threads never win
+ * in either precision, or there's only one core,
+ * transforms are kept on one thread.
+ *
+ * Single precision transforms do about the same work in
+ * half the memory, so they cross over at other sizes.
+ * Both DoubleFFT_1D and FloatFFT_1D are timed, and each
+ * gets its own pair of thresholds.
+ *
+ * Calibrating takes a couple of seconds, so the result is
+ * kept in a properties file, keyed by the number of cores,
+ * the architecture and the type of executor, and later
+ * runs just load() it. Transforms run on the executor of
+ * the shared FFT_PlanCache, the same one the pipeline's
+ * plans use, and a profile measured on one executor isn't
+ * applied on another.
+ */
+public final class FFT_Calibrator
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      MIN_SIZE - smallest size measured
+     *      MAX_SIZE - largest size measured
+     *      ROUNDS   - timed runs per measurement,
+     *                 of which the fastest counts
+     *      WARMUP   - untimed runs first
+     *      NEVER    - threshold that no size reaches
+     *---------------------------------------*/
+    public static final int  MIN_SIZE = 1 << 10;
+    public static final int  MAX_SIZE = 1 << 18;
+    private static final int ROUNDS   = 5;
+    private static final int WARMUP   = 2;
+    private static final int NEVER    = Integer.MAX_VALUE;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      file            - where profiles are kept
+     *      profiles        - every stored profile
+     *      threads         - threads transforms may
+     *                        use
+     *      two_from        - size above which double
+     *                        precision transforms use
+     *                        two threads
+     *      four_from       - size above which double
+     *                        precision transforms use
+     *                        four threads
+     *      float_two_from  - two_from for single
+     *                        precision transforms
+     *      float_four_from - four_from for single
+     *                        precision transforms
+     *---------------------------------------*/
+    private final File       file;
+    private final Properties profiles;
+    private int              threads;
+    private int              two_from;
+    private int              four_from;
+    private int              float_two_from;
+    private int              float_four_from;
+
+    /**
+     * Constructor for a calibrator. The profile file is
+     * read, but nothing is applied until load() or
+     * calibrate().
+     *
+     * @param f
+     *  The file profiles are read from and saved to.
+     */
+    public FFT_Calibrator( final File f )
+    {
+        FileInputStream in = null;
+
+        file            = f;
+        profiles        = new Properties();
+        threads         = ConcurrencyUtils.getNumberOfThreads();
+        two_from        = ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads();
+        four_from       = ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads();
+        float_two_from  = ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads();
+        float_four_from = ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads();
+
+        if( !file.exists() )
+        {
+            return;
+        }
+
+        try
+        {
+            in = new FileInputStream( file );
+            profiles.load( in );
+        }
+        catch( IOException ioe )
+        {
+            Log.i( "FFT_Calibrator--FFT_Calibrator()", "Unable to read " + file );
+            profiles.clear();
+        }
+        finally
+        {
+            close( in );
+        }
+
+    }   /* FFT_Calibrator() */
+
+    /**
+     * Applies the stored profile for this handset and the
+     * shared FFT_PlanCache's current executor, if there
+     * is one.
+     *
+     * @return
+     *  Returns true if a profile was applied, false if
+     *  none (or none valid) is stored.
+     */
+    public synchronized boolean load()
+    {
+        String key = key();
+        int    t;
+        int    d2;
+        int    d4;
+        int    f2;
+        int    f4;
+
+        try
+        {
+            t  = Integer.parseInt( profiles.getProperty( key + ".threads", "" ).trim() );
+            d2 = Integer.parseInt( profiles.getProperty( key + ".double.two_from", "" ).trim() );
+            d4 = Integer.parseInt( profiles.getProperty( key + ".double.four_from", "" ).trim() );
+            f2 = Integer.parseInt( profiles.getProperty( key + ".float.two_from", "" ).trim() );
+            f4 = Integer.parseInt( profiles.getProperty( key + ".float.four_from", "" ).trim() );
+        }
+        catch( NumberFormatException nfe )
+        {
+            return( false );
+        }
+
+        if( t < 1 )
+        {
+            return( false );
+        }
+
+        threads         = t;
+        two_from        = d2;
+        four_from       = d4;
+        float_two_from  = f2;
+        float_four_from = f4;
+        apply();
+        return( true );
+
+    }   /* load() */
+
+    /**
+     * Measures the thresholds, applies them and stores
+     * them as this handset's profile. Nothing is written
+     * to the file until save() is called. Transforms
+     * shouldn't be running on other threads meanwhile,
+     * both because they would skew the timings and
+     * because the thresholds change while it runs.
+     */
+    public synchronized void calibrate()
+    {
+        int        i;
+        int        count     = 0;
+        int        max       = ConcurrencyUtils.prevPow2( ConcurrencyUtils.getNumberOfProcessors() );
+        String     key       = key();
+        Executor   e         = FFT_PlanCache.getShared().getExecutor();
+        long [][]  one       = new long[ 2 ][];
+        long [][]  two       = new long[ 2 ][];
+        long [][]  four      = new long[ 2 ][];
+
+        for( i = MIN_SIZE; i <= MAX_SIZE; i <<= 1 )
+        {
+            ++count;
+        }
+        for( i = 0; i < 2; ++i )
+        {
+            one[ i ]  = new long[ count ];
+            two[ i ]  = new long[ count ];
+            four[ i ] = new long[ count ];
+        }
+
+        try
+        {
+            if( max >= 2 )
+            {
+                measure( e, 1, NEVER, NEVER, one );
+                measure( e, 2, MIN_SIZE / 2, NEVER, two );
+            }
+            if( max >= 4 )
+            {
+                measure( e, 4, MIN_SIZE / 2, MIN_SIZE / 2, four );
+            }
+        }
+        finally
+        {
+            /*---------------------------------------
+             * Work out the crossovers. Four threads
+             * are only worth it where two already
+             * are.
+             *-------------------------------------*/
+            two_from        = ( max >= 2 ) ? crossover( one[ 0 ], two[ 0 ], 0 ) : NEVER;
+            four_from       = ( ( max >= 4 ) && ( NEVER != two_from ) ) ? crossover( two[ 0 ], four[ 0 ], index( two_from ) ) : NEVER;
+            float_two_from  = ( max >= 2 ) ? crossover( one[ 1 ], two[ 1 ], 0 ) : NEVER;
+            float_four_from = ( ( max >= 4 ) && ( NEVER != float_two_from ) ) ? crossover( two[ 1 ], four[ 1 ], index( float_two_from ) ) : NEVER;
+            if( ( NEVER == two_from ) && ( NEVER == float_two_from ) )
+            {
+                threads = 1;
+            }
+            else
+            {
+                threads = ( ( NEVER == four_from ) && ( NEVER == float_four_from ) ) ? 2 : max;
+            }
+            apply();
+        }
+
+        profiles.setProperty( key + ".threads", Integer.toString( threads ) );
+        profiles.setProperty( key + ".double.two_from", Integer.toString( two_from ) );
+        profiles.setProperty( key + ".double.four_from", Integer.toString( four_from ) );
+        profiles.setProperty( key + ".float.two_from", Integer.toString( float_two_from ) );
+        profiles.setProperty( key + ".float.four_from", Integer.toString( float_four_from ) );
+        Log.i( "FFT_Calibrator--calibrate()", key + ": threads=" + threads
+               + " two_from=" + two_from + " four_from=" + four_from
+               + " float_two_from=" + float_two_from + " float_four_from=" + float_four_from );
+
+    }   /* calibrate() */
+
+    /**
+     * Applies the stored profile, or calibrates and saves
+     * one if there isn't one yet.
+     */
+    public synchronized void loadOrCalibrate()
+    {
+        if( !load() )
+        {
+            calibrate();
+            save();
+        }
+
+    }   /* loadOrCalibrate() */
+
+    /**
+     * Writes every stored profile to the file.
+     *
+     * @return
+     *  Returns true if the file was written, false
+     *  otherwise.
+     */
+    public synchronized boolean save()
+    {
+        FileOutputStream out = null;
+        boolean          ok  = false;
+
+        try
+        {
+            out = new FileOutputStream( file );
+            profiles.store( out, "FFT threading thresholds" );
+            ok = true;
+        }
+        catch( IOException ioe )
+        {
+            Log.i( "FFT_Calibrator--save()", "Unable to write " + file );
+        }
+        finally
+        {
+            close( out );
+        }
+
+        return( ok );
+
+    }   /* save() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public synchronized int getThreads()       { return( threads );         }
+    public synchronized int getTwoFrom()       { return( two_from );        }
+    public synchronized int getFourFrom()      { return( four_from );       }
+    public synchronized int getFloatTwoFrom()  { return( float_two_from );  }
+    public synchronized int getFloatFourFrom() { return( float_four_from ); }
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private void apply()
+    {
+        ConcurrencyUtils.setNumberOfThreads( threads );
+        ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads( two_from );
+        ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads( four_from );
+        ConcurrencyUtils.setThreadsBeginN_1D_FloatFFT_2Threads( float_two_from );
+        ConcurrencyUtils.setThreadsBeginN_1D_FloatFFT_4Threads( float_four_from );
+
+    }   /* apply() */
+
+    /**
+     * Returns the prefix of the profile for this handset
+     * and the shared cache's current executor.
+     */
+    static String key()
+    {
+        Executor e = FFT_PlanCache.getShared().getExecutor();
+        String   executor;
+
+        if( null == e )
+        {
+            executor = "default";
+        }
+        else if( ConcurrencyUtils.CALLER_RUNS == e )
+        {
+            executor = "caller";
+        }
+        else
+        {
+            executor = e.getClass().getName();
+        }
+
+        return( "fft." + ConcurrencyUtils.getNumberOfProcessors() + "." + System.getProperty( "os.arch", "unknown" ) + "." + executor );
+
+    }   /* key() */
+
+    /**
+     * Times every size with the given threading, storing
+     * the fastest real plus complex forward transform of
+     * each in ns[ 0 ][] for double precision and in
+     * ns[ 1 ][] for single precision.
+     */
+    private static void measure( final Executor e, final int nthreads, final int begin2, final int begin4, final long [][] ns )
+    {
+        int          i;
+        int          r;
+        int          size;
+        long         t;
+        long         real;
+        long         complex;
+        long         float_real;
+        long         float_complex;
+        double []    src;
+        double []    a;
+        float []     fsrc;
+        float []     b;
+        DoubleFFT_1D plan;
+        FloatFFT_1D  float_plan;
+
+        ConcurrencyUtils.setNumberOfThreads( nthreads );
+        ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads( begin2 );
+        ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads( begin4 );
+        ConcurrencyUtils.setThreadsBeginN_1D_FloatFFT_2Threads( begin2 );
+        ConcurrencyUtils.setThreadsBeginN_1D_FloatFFT_4Threads( begin4 );
+
+        for( i = 0, size = MIN_SIZE; i < ns[ 0 ].length; ++i, size <<= 1 )
+        {
+            plan       = new DoubleFFT_1D( size );
+            float_plan = new FloatFFT_1D( size );
+            plan.setExecutor( e );
+            float_plan.setExecutor( e );
+            src  = new double[ 2 * size ];
+            a    = new double[ 2 * size ];
+            fsrc = new float[ 2 * size ];
+            b    = new float[ 2 * size ];
+            for( r = 0; r < src.length; ++r )
+            {
+                src[ r ]  = ( ( r * 7919 ) % 1021 ) / 1021.0 - 0.5;
+                fsrc[ r ] = (float)src[ r ];
+            }
+
+            real          = Long.MAX_VALUE;
+            complex       = Long.MAX_VALUE;
+            float_real    = Long.MAX_VALUE;
+            float_complex = Long.MAX_VALUE;
+            for( r = 0; r < WARMUP + ROUNDS; ++r )
+            {
+                System.arraycopy( src, 0, a, 0, size );
+                t = System.nanoTime();
+                plan.realForward( a );
+                t = System.nanoTime() - t;
+                if( r >= WARMUP )
+                {
+                    real = Math.min( real, t );
+                }
+
+                System.arraycopy( src, 0, a, 0, src.length );
+                t = System.nanoTime();
+                plan.complexForward( a );
+                t = System.nanoTime() - t;
+                if( r >= WARMUP )
+                {
+                    complex = Math.min( complex, t );
+                }
+
+                System.arraycopy( fsrc, 0, b, 0, size );
+                t = System.nanoTime();
+                float_plan.realForward( b );
+                t = System.nanoTime() - t;
+                if( r >= WARMUP )
+                {
+                    float_real = Math.min( float_real, t );
+                }
+
+                System.arraycopy( fsrc, 0, b, 0, fsrc.length );
+                t = System.nanoTime();
+                float_plan.complexForward( b );
+                t = System.nanoTime() - t;
+                if( r >= WARMUP )
+                {
+                    float_complex = Math.min( float_complex, t );
+                }
+            }
+            ns[ 0 ][ i ] = real + complex;
+            ns[ 1 ][ i ] = float_real + float_complex;
+        }
+
+    }   /* measure() */
+
+    /**
+     * Returns the threshold for the smallest size, from
+     * index first on, at and above which faster[] beats
+     * slower[] at every size, or NEVER if it doesn't.
+     */
+    static int crossover( final long [] slower, final long [] faster, final int first )
+    {
+        int i;
+        int from = slower.length;
+
+        for( i = slower.length - 1; i >= first; --i )
+        {
+            if( faster[ i ] >= slower[ i ] )
+            {
+                break;
+            }
+            from = i;
+        }
+
+        if( from == slower.length )
+        {
+            return( NEVER );
+        }
+
+        /*---------------------------------------
+         * JTransforms threads sizes strictly
+         * above the threshold
+         *-------------------------------------*/
+        return( ( MIN_SIZE << from ) - 1 );
+
+    }   /* crossover() */
+
+    private static int index( final int threshold )
+    {
+        int i = 0;
+
+        while( ( MIN_SIZE << i ) <= threshold )
+        {
+            ++i;
+        }
+
+        return( i );
+
+    }   /* index() */
+
+    private static void close( final Closeable c )
+    {
+        if( null == c )
+        {
+            return;
+        }
+
+        try
+        {
+            c.close();
+        }
+        catch( IOException ioe )
+        {
+            /* Nothing more we can do */
+        }
+
+    }   /* close() */
+
+};  /* FFT_Calibrator */
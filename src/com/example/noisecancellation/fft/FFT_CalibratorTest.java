@@ -0,0 +1,168 @@
+package com.example.noisecancellation.fft;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class FFT_CalibratorTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING FFT_Calibrator::calibrate()/load()
+     *
+     * TEST CASES:
+     *   1. Finding the crossover in timings
+     *   2. Calibrating, saving and loading
+     *   3. Keeping profiles per executor
+     *-----------------------------------------*/
+
+    /**
+     * Tests that the threshold is the smallest size from
+     * which the faster timings win at every size, and
+     * that a size they lose at above a win isn't taken.
+     * <br /><br />
+     * Expected return value: one below that size, or
+     * Integer.MAX_VALUE
+     */
+    public void testCrossover()
+    {
+        long [] one = {  10,  20,  40,  80, 160 };
+        long [] two = {  30,  15,  45,  60, 100 };
+
+        assertEquals( "From the fourth size", ( FFT_Calibrator.MIN_SIZE << 3 ) - 1,
+                      FFT_Calibrator.crossover( one, two, 0 ) );
+        assertEquals( "Never", Integer.MAX_VALUE,
+                      FFT_Calibrator.crossover( two, one, 4 ) );
+        assertEquals( "From the first allowed size", ( FFT_Calibrator.MIN_SIZE << 4 ) - 1,
+                      FFT_Calibrator.crossover( one, two, 4 ) );
+
+    }   /* testCrossover() */
+
+    /**
+     * Tests that a calibrated profile is saved and then
+     * applied by another calibrator reading the file.
+     * <br /><br />
+     * Expected return value: the same thresholds, in
+     * both precisions
+     */
+    public void testRoundTrip() throws Exception
+    {
+        int            threads    = ConcurrencyUtils.getNumberOfThreads();
+        int            two        = ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads();
+        int            four       = ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads();
+        int            float_two  = ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads();
+        int            float_four = ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads();
+        File           f          = File.createTempFile( "fft_profile", ".properties" );
+        FFT_Calibrator a;
+        FFT_Calibrator b;
+
+        f.delete();
+        try
+        {
+            a = new FFT_Calibrator( f );
+            assertFalse( "Nothing stored", a.load() );
+            a.calibrate();
+            assertTrue( "Saved", a.save() );
+            assertTrue( "Threads", a.getThreads() >= 1 );
+            assertTrue( "Four from two", a.getFourFrom() >= a.getTwoFrom() );
+            assertTrue( "Float four from two", a.getFloatFourFrom() >= a.getFloatTwoFrom() );
+
+            ConcurrencyUtils.resetThreadsBeginN_FFT();
+            b = new FFT_Calibrator( f );
+            assertTrue( "Loaded", b.load() );
+            assertEquals( "Threads", a.getThreads(), ConcurrencyUtils.getNumberOfThreads() );
+            assertEquals( "Two", Math.max( 512, a.getTwoFrom() ), ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads() );
+            assertEquals( "Four", Math.max( 512, a.getFourFrom() ), ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads() );
+            assertEquals( "Float two", Math.max( 512, a.getFloatTwoFrom() ), ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads() );
+            assertEquals( "Float four", Math.max( 512, a.getFloatFourFrom() ), ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads() );
+        }
+        finally
+        {
+            f.delete();
+            ConcurrencyUtils.setNumberOfThreads( threads );
+            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads( two );
+            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads( four );
+            ConcurrencyUtils.setThreadsBeginN_1D_FloatFFT_2Threads( float_two );
+            ConcurrencyUtils.setThreadsBeginN_1D_FloatFFT_4Threads( float_four );
+        }
+
+    }   /* testRoundTrip() */
+
+    /**
+     * Tests that a profile stored for one executor isn't
+     * applied when the shared cache uses another, and is
+     * again once the first one is back.
+     * <br /><br />
+     * Expected return value: the profile only loads for
+     * the executor it was stored for
+     */
+    public void testExecutorKey()
+    {
+        int            threads = ConcurrencyUtils.getNumberOfThreads();
+        String         key     = FFT_Calibrator.key();
+        FFT_PlanCache  c       = FFT_PlanCache.getShared();
+        Executor       e       = c.getExecutor();
+        Executor       other;
+        FFT_Calibrator a;
+        File           f;
+
+        other = ( ConcurrencyUtils.CALLER_RUNS == e ) ? null : ConcurrencyUtils.CALLER_RUNS;
+        try
+        {
+            f = File.createTempFile( "fft_profile", ".properties" );
+            f.delete();
+            writeProfile( f, key );
+
+            a = new FFT_Calibrator( f );
+            c.setExecutor( other );
+            assertFalse( "Other executor", a.load() );
+            assertFalse( "Other key", key.equals( FFT_Calibrator.key() ) );
+
+            c.setExecutor( e );
+            assertTrue( "Same executor", a.load() );
+            assertEquals( "Float two", 16383, a.getFloatTwoFrom() );
+            f.delete();
+        }
+        catch( IOException ioe )
+        {
+            fail( "Unable to write the profile" );
+        }
+        finally
+        {
+            c.setExecutor( e );
+            ConcurrencyUtils.setNumberOfThreads( threads );
+            ConcurrencyUtils.resetThreadsBeginN_FFT();
+        }
+
+    }   /* testExecutorKey() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private static void writeProfile( final File f, final String key ) throws IOException
+    {
+        FileOutputStream out = new FileOutputStream( f );
+        Properties       p   = new Properties();
+
+        p.setProperty( key + ".threads", "1" );
+        p.setProperty( key + ".double.two_from", "8191" );
+        p.setProperty( key + ".double.four_from", "65535" );
+        p.setProperty( key + ".float.two_from", "16383" );
+        p.setProperty( key + ".float.four_from", "65535" );
+        try
+        {
+            p.store( out, null );
+        }
+        finally
+        {
+            out.close();
+        }
+
+    }   /* writeProfile() */
+
+};  /* FFT_CalibratorTest */
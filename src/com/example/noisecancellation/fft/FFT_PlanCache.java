@@ -0,0 +1,245 @@
+package com.example.noisecancellation.fft;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+
+/**
+ * A bounded, least-recently-used cache of JTransforms plans,
+ * keyed by transform size and precision.
+ *
+ * Planning a mixed-radix or Bluestein size costs far more
+ * than running the transform, so plans are built once and
+ * handed to every FFT_Wrapper that asks for the same size.
+ * Single and double precision plans are cached separately,
+ * and each is only built the first time it's asked for.
+ *
+ * The cache is safe to use from several threads. Plans are
+ * built outside of the lock, so a slow plan doesn't hold up
+ * lookups of other sizes; if two threads race to build the
+ * same plan, the first one to finish wins and the other is
+ * discarded. The JTransforms plans themselves only read their
+ * tables once built, and keep their work arrays per thread,
+ * so a cached plan can be used by several threads at the
+ * same time.
+ *
+ * Plans of the same size and precision share their twiddle
+ * and chirp tables, whether or not they came from this
+ * cache. Rebuilding an evicted plan while another plan of
+ * that size is still alive reuses the tables and doesn't
+ * recompute them.
+ *
+ * Transforms big enough to be split across threads run
+ * their parts on the executor given to setExecutor(), which
+ * applies to every plan the cache hands out.
+ */
+public final class FFT_PlanCache
+{
+    /*-----------------------------------------
+     * LITERAL CONSTANTS:
+     *      DEFAULT_CAPACITY - number of plans kept
+     *                         by the shared cache
+     *---------------------------------------*/
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private static final FFT_PlanCache SHARED = new FFT_PlanCache( DEFAULT_CAPACITY );
+
+    /*-----------------------------------------
+     * GLOBAL VARIABLES:
+     *      capacity - most plans kept at once
+     *      plans    - plans in access order
+     *      hits     - lookups that found a plan
+     *      misses   - lookups that built a plan
+     *      executor - executor given to plans, or
+     *                 null for the JTransforms default
+     *---------------------------------------*/
+    private final int                         capacity;
+    private final LinkedHashMap<Long, Object> plans;
+    private long                              hits;
+    private long                              misses;
+    private Executor                          executor;
+
+    /**
+     * Constructor for a plan cache.
+     *
+     * @param max_plans
+     *        The most plans (of either precision) the cache
+     *        keeps. The least recently used plan is evicted
+     *        to make room for a new one.
+     */
+    public FFT_PlanCache( final int max_plans )
+    {
+        if( max_plans < 1 )
+        {
+            throw new IllegalArgumentException( "Cache must hold at least one plan." );
+        }
+
+        capacity = max_plans;
+        plans    = new LinkedHashMap<Long, Object>( 2 * max_plans, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<Long, Object> eldest )
+            {
+                return( size() > capacity );
+            }
+        };
+        hits     = 0;
+        misses   = 0;
+        executor = null;
+
+    }   /* FFT_PlanCache() */
+
+    /**
+     * Returns the cache shared by every FFT_Wrapper that
+     * wasn't given a cache of its own.
+     *
+     * @return
+     *  The process-wide plan cache.
+     */
+    public static FFT_PlanCache getShared()
+    {
+        return( SHARED );
+
+    }   /* getShared() */
+
+    /**
+     * Returns a double precision plan for the given size,
+     * building it if it isn't cached.
+     *
+     * @param size
+     *        The transform size.
+     *
+     * @return
+     *  The plan.
+     */
+    public DoubleFFT_1D getDouble( final int size )
+    {
+        Long         key  = Long.valueOf( ( (long)size << 1 ) | 1L );
+        DoubleFFT_1D plan = (DoubleFFT_1D)lookup( key );
+
+        if( null == plan )
+        {
+            plan = (DoubleFFT_1D)publish( key, new DoubleFFT_1D( size ) );
+        }
+
+        return( plan );
+
+    }   /* getDouble() */
+
+    /**
+     * Returns a single precision plan for the given size,
+     * building it if it isn't cached.
+     *
+     * @param size
+     *        The transform size.
+     *
+     * @return
+     *  The plan.
+     */
+    public FloatFFT_1D getFloat( final int size )
+    {
+        Long        key  = Long.valueOf( (long)size << 1 );
+        FloatFFT_1D plan = (FloatFFT_1D)lookup( key );
+
+        if( null == plan )
+        {
+            plan = (FloatFFT_1D)publish( key, new FloatFFT_1D( size ) );
+        }
+
+        return( plan );
+
+    }   /* getFloat() */
+
+    /**
+     * Sets the executor that cached plans, and plans built
+     * from now on, run the parallel parts of their
+     * transforms on.
+     *
+     * @param e
+     *        The executor, for example
+     *        ConcurrencyUtils.CALLER_RUNS to keep every
+     *        transform on the thread that asks for it, or
+     *        null for the JTransforms default pool.
+     */
+    public synchronized void setExecutor( final Executor e )
+    {
+        executor = e;
+        for( Object plan : plans.values() )
+        {
+            apply( plan );
+        }
+
+    }   /* setExecutor() */
+
+    /**
+     * Drops every cached plan.
+     */
+    public synchronized void clear()
+    {
+        plans.clear();
+
+    }   /* clear() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int                   getCapacity() { return( capacity );     }
+    public synchronized int      size()        { return( plans.size() ); }
+    public synchronized long     getHits()     { return( hits );         }
+    public synchronized long     getMisses()   { return( misses );       }
+    public synchronized Executor getExecutor() { return( executor );     }
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private synchronized Object lookup( final Long key )
+    {
+        Object plan = plans.get( key );
+
+        if( null != plan )
+        {
+            ++hits;
+        }
+        else
+        {
+            ++misses;
+        }
+
+        return( plan );
+
+    }   /* lookup() */
+
+    private synchronized Object publish( final Long key, final Object plan )
+    {
+        Object existing = plans.get( key );
+
+        if( null != existing )
+        {
+            return( existing );
+        }
+
+        apply( plan );
+        plans.put( key, plan );
+        return( plan );
+
+    }   /* publish() */
+
+    private void apply( final Object plan )
+    {
+        if( plan instanceof DoubleFFT_1D )
+        {
+            ( (DoubleFFT_1D)plan ).setExecutor( executor );
+        }
+        else
+        {
+            ( (FloatFFT_1D)plan ).setExecutor( executor );
+        }
+
+    }   /* apply() */
+
+}   /* FFT_PlanCache */
@@ -0,0 +1,157 @@
+package com.example.noisecancellation.fft;
+
+import java.util.concurrent.CyclicBarrier;
+
+import junit.framework.TestCase;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class FFT_PlanCacheTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING FFT_PlanCache::getDouble()/getFloat()
+     *
+     * TEST CASES:
+     *   1. Evicting the least recently used plan
+     *      at capacity
+     *   2. Keeping double and single precision
+     *      plans of one size apart
+     *   3. Setting the executor of cached plans
+     *   4. Several threads asking for one size at
+     *      once
+     *-----------------------------------------*/
+
+    /**
+     * Tests that a full cache evicts the plan used least
+     * recently, not the one added first, and counts each
+     * lookup as a hit or a miss.
+     * <br /><br />
+     * Expected return value: the same plans for the sizes
+     * kept, a new one for the size evicted
+     */
+    public void testEviction()
+    {
+        FFT_PlanCache c = new FFT_PlanCache( 2 );
+        DoubleFFT_1D  a = c.getDouble( 64 );
+        DoubleFFT_1D  b = c.getDouble( 128 );
+
+        assertSame( "Cached", a, c.getDouble( 64 ) );
+        c.getDouble( 256 );
+        assertEquals( "At capacity", 2, c.size() );
+        assertEquals( "Hits", 1, c.getHits() );
+        assertEquals( "Misses", 3, c.getMisses() );
+
+        assertSame( "Recently used kept", a, c.getDouble( 64 ) );
+        assertTrue( "Least recently used evicted", b != c.getDouble( 128 ) );
+        assertEquals( "Hits after", 2, c.getHits() );
+        assertEquals( "Misses after", 4, c.getMisses() );
+
+        c.clear();
+        assertEquals( "Cleared", 0, c.size() );
+
+    }   /* testEviction() */
+
+    /**
+     * Tests that the double and single precision plans of
+     * one size are separate entries, each built the first
+     * time it's asked for.
+     * <br /><br />
+     * Expected return value: two entries, one miss each
+     */
+    public void testPrecisions()
+    {
+        FFT_PlanCache c = new FFT_PlanCache( 4 );
+        DoubleFFT_1D  d = c.getDouble( 100 );
+        FloatFFT_1D   f = c.getFloat( 100 );
+
+        assertEquals( "Both kept", 2, c.size() );
+        assertEquals( "Both built", 2, c.getMisses() );
+        assertSame( "Double cached", d, c.getDouble( 100 ) );
+        assertSame( "Float cached", f, c.getFloat( 100 ) );
+        assertEquals( "Both found", 2, c.getHits() );
+
+    }   /* testPrecisions() */
+
+    /**
+     * Tests that setExecutor() reaches plans already in
+     * the cache, of either precision, as well as plans
+     * built afterwards.
+     * <br /><br />
+     * Expected return value: every plan's executor is the
+     * cache's
+     */
+    public void testExecutor()
+    {
+        FFT_PlanCache c = new FFT_PlanCache( 4 );
+        DoubleFFT_1D  d = c.getDouble( 64 );
+        FloatFFT_1D   f = c.getFloat( 64 );
+
+        assertNull( "Default", d.getExecutor() );
+        c.setExecutor( ConcurrencyUtils.CALLER_RUNS );
+        assertSame( "Cached double", ConcurrencyUtils.CALLER_RUNS, d.getExecutor() );
+        assertSame( "Cached float", ConcurrencyUtils.CALLER_RUNS, f.getExecutor() );
+        assertSame( "Built afterwards", ConcurrencyUtils.CALLER_RUNS, c.getDouble( 128 ).getExecutor() );
+        assertSame( "Cache's executor", ConcurrencyUtils.CALLER_RUNS, c.getExecutor() );
+
+        c.setExecutor( null );
+        assertNull( "Back to the default", d.getExecutor() );
+
+    }   /* testExecutor() */
+
+    /**
+     * Tests that threads asking for a size at the same
+     * moment all get the one plan that was published,
+     * even if some of them built a plan of their own.
+     * <br /><br />
+     * Expected return value: one plan, one entry, a
+     * lookup counted per thread
+     */
+    public void testConcurrentGet() throws Exception
+    {
+        int                   i;
+        final int             threads = 8;
+        final FFT_PlanCache   c       = new FFT_PlanCache( 4 );
+        final DoubleFFT_1D [] got     = new DoubleFFT_1D[ threads ];
+        final CyclicBarrier   start   = new CyclicBarrier( threads );
+        Thread []             t       = new Thread[ threads ];
+
+        for( i = 0; i < threads; ++i )
+        {
+            final int k = i;
+
+            t[ i ] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch( Exception e )
+                    {
+                        return;
+                    }
+                    got[ k ] = c.getDouble( 1009 );
+                }
+            };
+            t[ i ].start();
+        }
+        for( i = 0; i < threads; ++i )
+        {
+            t[ i ].join();
+        }
+
+        for( i = 0; i < threads; ++i )
+        {
+            assertNotNull( "Thread " + i, got[ i ] );
+            assertSame( "Thread " + i + " got the published plan", got[ 0 ], got[ i ] );
+        }
+        assertEquals( "One entry", 1, c.size() );
+        assertEquals( "Lookups", threads, c.getHits() + c.getMisses() );
+        assertSame( "Published plan kept", got[ 0 ], c.getDouble( 1009 ) );
+
+    }   /* testConcurrentGet() */
+
+};  /* FFT_PlanCacheTest */
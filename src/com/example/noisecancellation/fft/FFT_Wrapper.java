@@ -1,5 +1,7 @@
 package com.example.noisecancellation.fft;
 
+import java.util.Arrays;
+
 import edu.emory.mathcs.jtransforms.fft.*;
 
 /**
@@ -15,25 +17,34 @@ import edu.emory.mathcs.jtransforms.fft.*;
  * essentially the same (with a small
  * exception). Results can be seen in the
  * main function.
+ *
+ * Plans come from an FFT_PlanCache, so
+ * alternating between sizes (convolve()
+ * doubles the length, for instance) doesn't
+ * rebuild them every time, and a plan is only
+ * built for the precision that's actually used.
  */
 public final class FFT_Wrapper
 {
-    /*-----------------------------------------
-     * LITERAL CONSTANTS:
-     * 	    INITIAL_SIZE - initial size of
-     * 	                   the FFT plans
-     *---------------------------------------*/
-    private final int INITIAL_SIZE = 1;
-
     /*-----------------------------------------
      * GLOBAL VARIABLES:
-     * 	    n           - size of FFT plans
+     *      cache       - where plans come from
+     * 	    d_n         - size of the double plan
+     * 	    f_n         - size of the float plan
      * 	    d_fft_1d    - double FFT class
      * 	    f_fft_1d    - float FFT class
+     *      d_scratch   - double work space for
+     *                    the *Into() methods
+     *      f_scratch   - float work space for
+     *                    the *Into() methods
      *---------------------------------------*/
-    private int             n;
-    private DoubleFFT_1D    d_fft_1d;
-    private FloatFFT_1D     f_fft_1d;
+    private final FFT_PlanCache cache;
+    private int                 d_n;
+    private int                 f_n;
+    private DoubleFFT_1D        d_fft_1d;
+    private FloatFFT_1D         f_fft_1d;
+    private double []           d_scratch;
+    private float  []           f_scratch;
 
 
     /**
@@ -41,7 +52,7 @@ public final class FFT_Wrapper
      */
     public FFT_Wrapper()
     {
-        reset_fft( INITIAL_SIZE );
+        this( FFT_PlanCache.getShared() );
 
     }   /* FFT_Wrapper() */
 
@@ -53,29 +64,76 @@ public final class FFT_Wrapper
      *        Estimated size of the input array. This can be anything
      *        at first, so long as it's greater than 0. If the size of
      *        the input arrays change, then the FFT functions will
-     *        automatically resize the FFT plans.
+     *        automatically switch to plans of the right size.
+     *        Plans are built lazily, so this is only a hint.
      */
     public FFT_Wrapper( final int size )
     {
-        reset_fft( size );
+        this( FFT_PlanCache.getShared() );
 
     }   /* FFT_Wrapper() */
 
 
     /**
-     * This method resets the FFT plans.
+     * Non-default constructor for an FFT_Wrapper object.
+     *
+     * @param plan_cache
+     *        The cache to get plans from, instead of the
+     *        shared one.
+     */
+    public FFT_Wrapper( final FFT_PlanCache plan_cache )
+    {
+        cache     = plan_cache;
+        d_n       = 0;
+        f_n       = 0;
+        d_fft_1d  = null;
+        f_fft_1d  = null;
+        d_scratch = new double[ 0 ];
+        f_scratch = new float[ 0 ];
+
+    }   /* FFT_Wrapper() */
+
+
+    /**
+     * Returns a double precision plan of the given size.
+     * The last plan used is kept, so the cache is only
+     * consulted when the size changes.
+     *
+     * @param size
+     *        The size of the FFT.
+     */
+    private DoubleFFT_1D doublePlan( final int size )
+    {
+        if( size != d_n )
+        {
+            d_fft_1d = cache.getDouble( size );
+            d_n      = size;
+        }
+
+        return( d_fft_1d );
+
+    }   /* doublePlan() */
+
+
+    /**
+     * Returns a single precision plan of the given size.
+     * The last plan used is kept, so the cache is only
+     * consulted when the size changes.
      *
      * @param size
-     *        The new size of the FFTs.
+     *        The size of the FFT.
      */
-    private void reset_fft( final int size )
+    private FloatFFT_1D floatPlan( final int size )
     {
-        n = size;
+        if( size != f_n )
+        {
+            f_fft_1d = cache.getFloat( size );
+            f_n      = size;
+        }
 
-        f_fft_1d = new FloatFFT_1D( size );
-        d_fft_1d = new DoubleFFT_1D( size );
+        return( f_fft_1d );
 
-    }   /* reset_fft() */
+    }   /* floatPlan() */
 
 
     /**
@@ -110,16 +168,6 @@ public final class FFT_Wrapper
          int        in_len = in.length;
          double []  out    = new double[ in.length << 1 ];
 
-        /*-------------------------------------
-         * Check whether the size of the
-         * input array matches the size of
-         * our FFT plans
-         *-----------------------------------*/
-        if( in_len != n )
-        {
-            reset_fft( in_len );
-        }
-
         /*-------------------------------------
          * Initialize the output array
          *-----------------------------------*/
@@ -132,7 +180,7 @@ public final class FFT_Wrapper
          * Perform transformation, and return
          * the result.
          *-----------------------------------*/
-        d_fft_1d.realForwardFull( out );
+        doublePlan( in_len ).realForwardFull( out );
         return( out );
 
     }   /* fft() */
@@ -170,16 +218,6 @@ public final class FFT_Wrapper
         int         in_len = in.length;
         float []    out    = new float[ in_len << 1 ];
 
-        /*-------------------------------------
-         * Check whether the size of the
-         * input array matches the size of
-         * our FFT plans
-         *-----------------------------------*/
-        if( in_len != n )
-        {
-            reset_fft( in_len );
-        }
-
         /*-------------------------------------
          * Initialize the output array
          *-----------------------------------*/
@@ -192,7 +230,7 @@ public final class FFT_Wrapper
          * Perform transformation, and return
          * the result.
          *-----------------------------------*/
-        f_fft_1d.realForwardFull( out );
+        floatPlan( in_len ).realForwardFull( out );
         return( out );
 
     }   /* fft() */
@@ -230,16 +268,6 @@ public final class FFT_Wrapper
         int         in_len = in.length;
         float []    out    = new float[ in_len ];
 
-        /*-------------------------------------
-         * Check whether the size of the
-         * input array matches the size of
-         * our FFT plans
-         *-----------------------------------*/
-        if( in_len != ( n << 1 ) )
-        {
-            reset_fft( in_len >> 1 );
-        }
-
         /*-------------------------------------
          * Initialize the output array
          *-----------------------------------*/
@@ -252,7 +280,7 @@ public final class FFT_Wrapper
          * Perform inverse transformation,
          * and return the result.
          *-----------------------------------*/
-        f_fft_1d.complexInverse( out, true );
+        floatPlan( in_len >> 1 ).complexInverse( out, true );
 
         return( out );
 
@@ -291,16 +319,6 @@ public final class FFT_Wrapper
         int         in_len = in.length;
         double []   out    = new double[ in_len ];
 
-        /*-------------------------------------
-         * Check whether the size of the
-         * input array matches the size of
-         * our FFT plans
-         *-----------------------------------*/
-        if( in_len != ( n << 1 ) )
-        {
-            reset_fft( in_len >> 1 );
-        }
-
         /*-------------------------------------
          * Initialize the output array
          *-----------------------------------*/
@@ -313,7 +331,7 @@ public final class FFT_Wrapper
          * Perform inverse transformation,
          * and return the result.
          *-----------------------------------*/
-        d_fft_1d.complexInverse( out, true );
+        doublePlan( in_len >> 1 ).complexInverse( out, true );
 
         return( out );
 
@@ -370,15 +388,6 @@ public final class FFT_Wrapper
             throw new RuntimeException( "Dimensions don't agree" );
         }
 
-        /*-------------------------------------
-         * Check whether the FFT plan size
-         * and the input buffer sizes match
-         *-----------------------------------*/
-        if( len != n )
-        {
-            reset_fft( len );
-        }
-
         /*-------------------------------------
          * Transform the input buffers
          *-----------------------------------*/
@@ -471,15 +480,6 @@ public final class FFT_Wrapper
             throw new RuntimeException( "Dimensions don't agree" );
         }
 
-        /*-------------------------------------
-         * Check whether the FFT plan size
-         * and the input buffer sizes match
-         *-----------------------------------*/
-        if( len != n )
-        {
-            reset_fft( len );
-        }
-
         /*-------------------------------------
          * Transform the input buffers
          *-----------------------------------*/
@@ -666,6 +666,957 @@ public final class FFT_Wrapper
     }   /* convolve() */
 
 
+    /*-----------------------------------------
+     * Caller-supplied output variants.
+     *
+     * These do the same work as the methods
+     * above, but write into arrays (at offsets)
+     * supplied by the caller instead of
+     * returning new ones. Any temporary space
+     * they need is kept by the wrapper and only
+     * grows, so once it's big enough nothing is
+     * allocated. As a result a wrapper must not
+     * be used by more than one thread at a time.
+     *---------------------------------------*/
+
+
+    /**
+     * Computes 1D forward DFT of real data into a caller-supplied array.
+     *
+     * @param in
+     *        Real input data.
+     * @param in_off
+     *        Index of the first input value.
+     * @param len
+     *        Number of input values (the transform size).
+     * @param out
+     *        Receives <code>2*len</code> values laid out as in
+     *        <code>fft()</code>, starting at <code>out_off</code>.
+     *        May be the same array as <code>in</code>.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void fftInto( final double [] in, final int in_off, final int len,
+                         final double [] out, final int out_off )
+    {
+        /*-------------------------------------
+         * realForwardFull() doesn't write every
+         * value of the upper half (for even
+         * sizes, the imaginary part of the
+         * Nyquist bin), so it must start zeroed
+         *-----------------------------------*/
+        System.arraycopy( in, in_off, out, out_off, len );
+        Arrays.fill( out, out_off + len, out_off + ( len << 1 ), 0.0 );
+        doublePlan( len ).realForwardFull( out, out_off );
+
+    }   /* fftInto() */
+
+
+    /**
+     * Computes 1D forward DFT of real data into a caller-supplied array.
+     *
+     * @param in
+     *        Real input data.
+     * @param in_off
+     *        Index of the first input value.
+     * @param len
+     *        Number of input values (the transform size).
+     * @param out
+     *        Receives <code>2*len</code> values laid out as in
+     *        <code>fft()</code>, starting at <code>out_off</code>.
+     *        May be the same array as <code>in</code>.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void fftInto( final float [] in, final int in_off, final int len,
+                         final float [] out, final int out_off )
+    {
+        /*-------------------------------------
+         * realForwardFull() doesn't write every
+         * value of the upper half (for even
+         * sizes, the imaginary part of the
+         * Nyquist bin), so it must start zeroed
+         *-----------------------------------*/
+        System.arraycopy( in, in_off, out, out_off, len );
+        Arrays.fill( out, out_off + len, out_off + ( len << 1 ), 0.0f );
+        floatPlan( len ).realForwardFull( out, out_off );
+
+    }   /* fftInto() */
+
+
+    /**
+     * Computes 1D inverse DFT into a caller-supplied array.
+     *
+     * @param in
+     *        Complex input data, laid out as in <code>ifft()</code>.
+     * @param in_off
+     *        Index of the first input value.
+     * @param len
+     *        Number of complex values (the transform size), so
+     *        <code>2*len</code> values are read.
+     * @param out
+     *        Receives <code>2*len</code> values laid out as in
+     *        <code>ifft()</code>, starting at <code>out_off</code>.
+     *        May be the same array as <code>in</code>.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void ifftInto( final double [] in, final int in_off, final int len,
+                          final double [] out, final int out_off )
+    {
+        System.arraycopy( in, in_off, out, out_off, len << 1 );
+        doublePlan( len ).complexInverse( out, out_off, true );
+
+    }   /* ifftInto() */
+
+
+    /**
+     * Computes 1D inverse DFT into a caller-supplied array.
+     *
+     * @param in
+     *        Complex input data, laid out as in <code>ifft()</code>.
+     * @param in_off
+     *        Index of the first input value.
+     * @param len
+     *        Number of complex values (the transform size), so
+     *        <code>2*len</code> values are read.
+     * @param out
+     *        Receives <code>2*len</code> values laid out as in
+     *        <code>ifft()</code>, starting at <code>out_off</code>.
+     *        May be the same array as <code>in</code>.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void ifftInto( final float [] in, final int in_off, final int len,
+                          final float [] out, final int out_off )
+    {
+        System.arraycopy( in, in_off, out, out_off, len << 1 );
+        floatPlan( len ).complexInverse( out, out_off, true );
+
+    }   /* ifftInto() */
+
+
+    /**
+     * Computes 1D circular convolution of real data into a
+     * caller-supplied array.
+     *
+     * @param x
+     *        A buffer of real values.
+     * @param x_off
+     *        Index of the first value of x.
+     * @param y
+     *        Another buffer of real values.
+     * @param y_off
+     *        Index of the first value of y.
+     * @param len
+     *        Number of values taken from each buffer.
+     * @param out
+     *        Receives <code>2*len</code> values laid out as in
+     *        <code>cconvolve()</code>, starting at <code>out_off</code>.
+     *        Must not overlap the inputs.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void cconvolveInto( final double [] x, final int x_off,
+                               final double [] y, final int y_off,
+                               final int len,
+                               final double [] out, final int out_off )
+    {
+        double [] t = doubleScratch( len << 1 );
+
+        fftInto( x, x_off, len, out, out_off );
+        fftInto( y, y_off, len, t, 0 );
+        multiply( out, out_off, t, len );
+        doublePlan( len ).complexInverse( out, out_off, true );
+
+    }   /* cconvolveInto() */
+
+
+    /**
+     * Computes 1D circular convolution of real data into a
+     * caller-supplied array.
+     *
+     * @param x
+     *        A buffer of real values.
+     * @param x_off
+     *        Index of the first value of x.
+     * @param y
+     *        Another buffer of real values.
+     * @param y_off
+     *        Index of the first value of y.
+     * @param len
+     *        Number of values taken from each buffer.
+     * @param out
+     *        Receives <code>2*len</code> values laid out as in
+     *        <code>cconvolve()</code>, starting at <code>out_off</code>.
+     *        Must not overlap the inputs.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void cconvolveInto( final float [] x, final int x_off,
+                               final float [] y, final int y_off,
+                               final int len,
+                               final float [] out, final int out_off )
+    {
+        float [] t = floatScratch( len << 1 );
+
+        fftInto( x, x_off, len, out, out_off );
+        fftInto( y, y_off, len, t, 0 );
+        multiply( out, out_off, t, len );
+        floatPlan( len ).complexInverse( out, out_off, true );
+
+    }   /* cconvolveInto() */
+
+
+    /**
+     * Computes 1D linear convolution of real data into a
+     * caller-supplied array. Both inputs are zero-padded to
+     * twice their length, as in <code>convolve()</code>.
+     *
+     * @param x
+     *        A buffer of real values.
+     * @param x_off
+     *        Index of the first value of x.
+     * @param y
+     *        Another buffer of real values.
+     * @param y_off
+     *        Index of the first value of y.
+     * @param len
+     *        Number of values taken from each buffer.
+     * @param out
+     *        Receives <code>4*len</code> values laid out as in
+     *        <code>convolve()</code>, starting at <code>out_off</code>.
+     *        Must not overlap the inputs.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void convolveInto( final double [] x, final int x_off,
+                              final double [] y, final int y_off,
+                              final int len,
+                              final double [] out, final int out_off )
+    {
+        int          n2   = len << 1;
+        double []    t    = doubleScratch( n2 << 1 );
+        DoubleFFT_1D plan = doublePlan( n2 );
+
+        System.arraycopy( x, x_off, out, out_off, len );
+        Arrays.fill( out, out_off + len, out_off + ( n2 << 1 ), 0.0 );
+        System.arraycopy( y, y_off, t, 0, len );
+        Arrays.fill( t, len, n2 << 1, 0.0 );
+
+        plan.realForwardFull( out, out_off );
+        plan.realForwardFull( t, 0 );
+        multiply( out, out_off, t, n2 );
+        plan.complexInverse( out, out_off, true );
+
+    }   /* convolveInto() */
+
+
+    /**
+     * Computes 1D linear convolution of real data into a
+     * caller-supplied array. Both inputs are zero-padded to
+     * twice their length, as in <code>convolve()</code>.
+     *
+     * @param x
+     *        A buffer of real values.
+     * @param x_off
+     *        Index of the first value of x.
+     * @param y
+     *        Another buffer of real values.
+     * @param y_off
+     *        Index of the first value of y.
+     * @param len
+     *        Number of values taken from each buffer.
+     * @param out
+     *        Receives <code>4*len</code> values laid out as in
+     *        <code>convolve()</code>, starting at <code>out_off</code>.
+     *        Must not overlap the inputs.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void convolveInto( final float [] x, final int x_off,
+                              final float [] y, final int y_off,
+                              final int len,
+                              final float [] out, final int out_off )
+    {
+        int         n2   = len << 1;
+        float []    t    = floatScratch( n2 << 1 );
+        FloatFFT_1D plan = floatPlan( n2 );
+
+        System.arraycopy( x, x_off, out, out_off, len );
+        Arrays.fill( out, out_off + len, out_off + ( n2 << 1 ), 0.0f );
+        System.arraycopy( y, y_off, t, 0, len );
+        Arrays.fill( t, len, n2 << 1, 0.0f );
+
+        plan.realForwardFull( out, out_off );
+        plan.realForwardFull( t, 0 );
+        multiply( out, out_off, t, n2 );
+        plan.complexInverse( out, out_off, true );
+
+    }   /* convolveInto() */
+
+
+    /*-----------------------------------------
+     * Packed real variants.
+     *
+     * The spectrum of a real signal is
+     * conjugate-symmetric, so only half of it
+     * needs to be computed or stored. These use
+     * JTransforms' packed layout (see rfftInto())
+     * and never build the redundant half.
+     *---------------------------------------*/
+
+
+    /**
+     * Computes 1D forward DFT of real data into a caller-supplied array,
+     * keeping only the non-redundant half of the spectrum. This is half
+     * the work and memory of <code>fftInto()</code>.
+     *
+     * @param in
+     *        Real input data.
+     * @param in_off
+     *        Index of the first input value.
+     * @param len
+     *        Number of input values (the transform size).
+     * @param out
+     *        Receives <code>len</code> values in packed form, starting
+     *        at <code>out_off</code>. If len is even: <br />
+     *        <pre>
+     *        a[2*k]   = Re[k], 0&lt;=k&lt;len/2
+     *        a[2*k+1] = Im[k], 0&lt;k&lt;len/2
+     *        a[1]     = Re[len/2]
+     *        </pre>
+     *        and if len is odd: <br />
+     *        <pre>
+     *        a[2*k]   = Re[k], 0&lt;=k&lt;(len+1)/2
+     *        a[2*k+1] = Im[k], 0&lt;k&lt;(len-1)/2
+     *        a[1]     = Im[(len-1)/2]
+     *        </pre>
+     *        May be the same array as <code>in</code>.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void rfftInto( final double [] in, final int in_off, final int len,
+                          final double [] out, final int out_off )
+    {
+        System.arraycopy( in, in_off, out, out_off, len );
+        doublePlan( len ).realForward( out, out_off );
+
+    }   /* rfftInto() */
+
+
+    /**
+     * Computes 1D inverse DFT of a packed spectrum from
+     * <code>rfftInto()</code> into a caller-supplied array.
+     *
+     * @param in
+     *        Packed spectrum.
+     * @param in_off
+     *        Index of the first spectrum value.
+     * @param len
+     *        The transform size.
+     * @param out
+     *        Receives the <code>len</code> real values, starting
+     *        at <code>out_off</code>. May be the same array as
+     *        <code>in</code>.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void irfftInto( final double [] in, final int in_off, final int len,
+                           final double [] out, final int out_off )
+    {
+        System.arraycopy( in, in_off, out, out_off, len );
+        doublePlan( len ).realInverse( out, out_off, true );
+
+    }   /* irfftInto() */
+
+
+    /**
+     * Multiplies one packed spectrum by another, in place.
+     *
+     * @param a
+     *        Packed spectrum, overwritten with the product.
+     * @param a_off
+     *        Index of the first value of a.
+     * @param b
+     *        Packed spectrum of the same size.
+     * @param b_off
+     *        Index of the first value of b.
+     * @param len
+     *        The transform size both spectra came from.
+     */
+    public static void multiplyPacked( final double [] a, final int a_off,
+                                       final double [] b, final int b_off,
+                                       final int len )
+    {
+        int    k;
+        int    i;
+        int    j;
+        int    half = len >> 1;
+        double ar;
+        double ai;
+
+        /*-------------------------------------
+         * DC is purely real.
+         *-----------------------------------*/
+        a[ a_off ] *= b[ b_off ];
+
+        for( k = 1; k < half; ++k )
+        {
+            i  = a_off + ( k << 1 );
+            j  = b_off + ( k << 1 );
+            ar = a[ i ];
+            ai = a[ i + 1 ];
+            a[ i ]     = ( ar * b[ j ] )     - ( ai * b[ j + 1 ] );
+            a[ i + 1 ] = ( ar * b[ j + 1 ] ) + ( ai * b[ j ] );
+        }
+
+        /*-------------------------------------
+         * For even sizes a[1] is the (real)
+         * Nyquist bin. For odd sizes the last
+         * bin is split between a[len-1] and
+         * a[1].
+         *-----------------------------------*/
+        if( 0 == ( len & 1 ) )
+        {
+            if( len > 1 )
+            {
+                a[ a_off + 1 ] *= b[ b_off + 1 ];
+            }
+        }
+        else if( half > 0 )
+        {
+            ar = a[ a_off + len - 1 ];
+            ai = a[ a_off + 1 ];
+            a[ a_off + len - 1 ] = ( ar * b[ b_off + len - 1 ] ) - ( ai * b[ b_off + 1 ] );
+            a[ a_off + 1 ]       = ( ar * b[ b_off + 1 ] )       + ( ai * b[ b_off + len - 1 ] );
+        }
+
+    }   /* multiplyPacked() */
+
+
+    /**
+     * Multiplies one packed spectrum by another and adds the product
+     * to a third. This is the inner step of partitioned convolution,
+     * where many products are summed before a single inverse transform.
+     *
+     * @param acc
+     *        Packed spectrum the product is added to.
+     * @param acc_off
+     *        Index of the first value of acc.
+     * @param a
+     *        Packed spectrum.
+     * @param a_off
+     *        Index of the first value of a.
+     * @param b
+     *        Packed spectrum of the same size.
+     * @param b_off
+     *        Index of the first value of b.
+     * @param len
+     *        The transform size all three spectra came from.
+     */
+    public static void multiplyAddPacked( final double [] acc, final int acc_off,
+                                          final double [] a,   final int a_off,
+                                          final double [] b,   final int b_off,
+                                          final int len )
+    {
+        int k;
+        int i;
+        int j;
+        int m;
+        int half = len >> 1;
+        double ar;
+        double ai;
+        double br;
+        double bi;
+
+        acc[ acc_off ] += a[ a_off ] * b[ b_off ];
+
+        for( k = 1; k < half; ++k )
+        {
+            m  = acc_off + ( k << 1 );
+            i  = a_off + ( k << 1 );
+            j  = b_off + ( k << 1 );
+            ar = a[ i ];
+            ai = a[ i + 1 ];
+            br = b[ j ];
+            bi = b[ j + 1 ];
+            acc[ m ]     += ( ar * br ) - ( ai * bi );
+            acc[ m + 1 ] += ( ar * bi ) + ( ai * br );
+        }
+
+        if( 0 == ( len & 1 ) )
+        {
+            if( len > 1 )
+            {
+                acc[ acc_off + 1 ] += a[ a_off + 1 ] * b[ b_off + 1 ];
+            }
+        }
+        else if( half > 0 )
+        {
+            ar = a[ a_off + len - 1 ];
+            ai = a[ a_off + 1 ];
+            br = b[ b_off + len - 1 ];
+            bi = b[ b_off + 1 ];
+            acc[ acc_off + len - 1 ] += ( ar * br ) - ( ai * bi );
+            acc[ acc_off + 1 ]       += ( ar * bi ) + ( ai * br );
+        }
+
+    }   /* multiplyAddPacked() */
+
+
+    /**
+     * Computes 1D circular convolution of real data into a
+     * caller-supplied array, using packed spectra throughout.
+     *
+     * @param x
+     *        A buffer of real values.
+     * @param x_off
+     *        Index of the first value of x.
+     * @param y
+     *        Another buffer of real values.
+     * @param y_off
+     *        Index of the first value of y.
+     * @param len
+     *        Number of values taken from each buffer.
+     * @param out
+     *        Receives the <code>len</code> real values of the
+     *        convolution, starting at <code>out_off</code>.
+     *        Must not overlap the inputs.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void rcconvolveInto( final double [] x, final int x_off,
+                                final double [] y, final int y_off,
+                                final int len,
+                                final double [] out, final int out_off )
+    {
+        double [] t = doubleScratch( len );
+
+        rfftInto( x, x_off, len, out, out_off );
+        rfftInto( y, y_off, len, t, 0 );
+        multiplyPacked( out, out_off, t, 0, len );
+        doublePlan( len ).realInverse( out, out_off, true );
+
+    }   /* rcconvolveInto() */
+
+
+    /**
+     * Computes 1D linear convolution of real data into a
+     * caller-supplied array, using packed spectra throughout.
+     * Both inputs are zero-padded to twice their length.
+     *
+     * @param x
+     *        A buffer of real values.
+     * @param x_off
+     *        Index of the first value of x.
+     * @param y
+     *        Another buffer of real values.
+     * @param y_off
+     *        Index of the first value of y.
+     * @param len
+     *        Number of values taken from each buffer.
+     * @param out
+     *        Receives the <code>2*len</code> real values of the
+     *        convolution (the last one is always zero), starting
+     *        at <code>out_off</code>. Must not overlap the inputs.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void rconvolveInto( final double [] x, final int x_off,
+                               final double [] y, final int y_off,
+                               final int len,
+                               final double [] out, final int out_off )
+    {
+        int       n2 = len << 1;
+        double [] t  = doubleScratch( n2 );
+
+        System.arraycopy( x, x_off, out, out_off, len );
+        Arrays.fill( out, out_off + len, out_off + n2, 0.0 );
+        System.arraycopy( y, y_off, t, 0, len );
+        Arrays.fill( t, len, n2, 0.0 );
+
+        rfftInto( out, out_off, n2, out, out_off );
+        rfftInto( t, 0, n2, t, 0 );
+        multiplyPacked( out, out_off, t, 0, n2 );
+        doublePlan( n2 ).realInverse( out, out_off, true );
+
+    }   /* rconvolveInto() */
+
+
+    /**
+     * Computes 1D forward DFT of real data into a caller-supplied array,
+     * keeping only the non-redundant half of the spectrum. This is half
+     * the work and memory of <code>fftInto()</code>.
+     *
+     * @param in
+     *        Real input data.
+     * @param in_off
+     *        Index of the first input value.
+     * @param len
+     *        Number of input values (the transform size).
+     * @param out
+     *        Receives <code>len</code> values in packed form, starting
+     *        at <code>out_off</code>. If len is even: <br />
+     *        <pre>
+     *        a[2*k]   = Re[k], 0&lt;=k&lt;len/2
+     *        a[2*k+1] = Im[k], 0&lt;k&lt;len/2
+     *        a[1]     = Re[len/2]
+     *        </pre>
+     *        and if len is odd: <br />
+     *        <pre>
+     *        a[2*k]   = Re[k], 0&lt;=k&lt;(len+1)/2
+     *        a[2*k+1] = Im[k], 0&lt;k&lt;(len-1)/2
+     *        a[1]     = Im[(len-1)/2]
+     *        </pre>
+     *        May be the same array as <code>in</code>.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void rfftInto( final float [] in, final int in_off, final int len,
+                          final float [] out, final int out_off )
+    {
+        System.arraycopy( in, in_off, out, out_off, len );
+        floatPlan( len ).realForward( out, out_off );
+
+    }   /* rfftInto() */
+
+
+    /**
+     * Computes 1D inverse DFT of a packed spectrum from
+     * <code>rfftInto()</code> into a caller-supplied array.
+     *
+     * @param in
+     *        Packed spectrum.
+     * @param in_off
+     *        Index of the first spectrum value.
+     * @param len
+     *        The transform size.
+     * @param out
+     *        Receives the <code>len</code> real values, starting
+     *        at <code>out_off</code>. May be the same array as
+     *        <code>in</code>.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void irfftInto( final float [] in, final int in_off, final int len,
+                           final float [] out, final int out_off )
+    {
+        System.arraycopy( in, in_off, out, out_off, len );
+        floatPlan( len ).realInverse( out, out_off, true );
+
+    }   /* irfftInto() */
+
+
+    /**
+     * Multiplies one packed spectrum by another, in place.
+     *
+     * @param a
+     *        Packed spectrum, overwritten with the product.
+     * @param a_off
+     *        Index of the first value of a.
+     * @param b
+     *        Packed spectrum of the same size.
+     * @param b_off
+     *        Index of the first value of b.
+     * @param len
+     *        The transform size both spectra came from.
+     */
+    public static void multiplyPacked( final float [] a, final int a_off,
+                                       final float [] b, final int b_off,
+                                       final int len )
+    {
+        int   k;
+        int   i;
+        int   j;
+        int   half = len >> 1;
+        float ar;
+        float ai;
+
+        /*-------------------------------------
+         * DC is purely real.
+         *-----------------------------------*/
+        a[ a_off ] *= b[ b_off ];
+
+        for( k = 1; k < half; ++k )
+        {
+            i  = a_off + ( k << 1 );
+            j  = b_off + ( k << 1 );
+            ar = a[ i ];
+            ai = a[ i + 1 ];
+            a[ i ]     = ( ar * b[ j ] )     - ( ai * b[ j + 1 ] );
+            a[ i + 1 ] = ( ar * b[ j + 1 ] ) + ( ai * b[ j ] );
+        }
+
+        /*-------------------------------------
+         * For even sizes a[1] is the (real)
+         * Nyquist bin. For odd sizes the last
+         * bin is split between a[len-1] and
+         * a[1].
+         *-----------------------------------*/
+        if( 0 == ( len & 1 ) )
+        {
+            if( len > 1 )
+            {
+                a[ a_off + 1 ] *= b[ b_off + 1 ];
+            }
+        }
+        else if( half > 0 )
+        {
+            ar = a[ a_off + len - 1 ];
+            ai = a[ a_off + 1 ];
+            a[ a_off + len - 1 ] = ( ar * b[ b_off + len - 1 ] ) - ( ai * b[ b_off + 1 ] );
+            a[ a_off + 1 ]       = ( ar * b[ b_off + 1 ] )       + ( ai * b[ b_off + len - 1 ] );
+        }
+
+    }   /* multiplyPacked() */
+
+
+    /**
+     * Multiplies one packed spectrum by another and adds the product
+     * to a third. This is the inner step of partitioned convolution,
+     * where many products are summed before a single inverse transform.
+     *
+     * @param acc
+     *        Packed spectrum the product is added to.
+     * @param acc_off
+     *        Index of the first value of acc.
+     * @param a
+     *        Packed spectrum.
+     * @param a_off
+     *        Index of the first value of a.
+     * @param b
+     *        Packed spectrum of the same size.
+     * @param b_off
+     *        Index of the first value of b.
+     * @param len
+     *        The transform size all three spectra came from.
+     */
+    public static void multiplyAddPacked( final float [] acc, final int acc_off,
+                                          final float [] a,   final int a_off,
+                                          final float [] b,   final int b_off,
+                                          final int len )
+    {
+        int  k;
+        int  i;
+        int  j;
+        int  m;
+        int  half = len >> 1;
+        float ar;
+        float ai;
+        float br;
+        float bi;
+
+        acc[ acc_off ] += a[ a_off ] * b[ b_off ];
+
+        for( k = 1; k < half; ++k )
+        {
+            m  = acc_off + ( k << 1 );
+            i  = a_off + ( k << 1 );
+            j  = b_off + ( k << 1 );
+            ar = a[ i ];
+            ai = a[ i + 1 ];
+            br = b[ j ];
+            bi = b[ j + 1 ];
+            acc[ m ]     += ( ar * br ) - ( ai * bi );
+            acc[ m + 1 ] += ( ar * bi ) + ( ai * br );
+        }
+
+        if( 0 == ( len & 1 ) )
+        {
+            if( len > 1 )
+            {
+                acc[ acc_off + 1 ] += a[ a_off + 1 ] * b[ b_off + 1 ];
+            }
+        }
+        else if( half > 0 )
+        {
+            ar = a[ a_off + len - 1 ];
+            ai = a[ a_off + 1 ];
+            br = b[ b_off + len - 1 ];
+            bi = b[ b_off + 1 ];
+            acc[ acc_off + len - 1 ] += ( ar * br ) - ( ai * bi );
+            acc[ acc_off + 1 ]       += ( ar * bi ) + ( ai * br );
+        }
+
+    }   /* multiplyAddPacked() */
+
+
+    /**
+     * Computes 1D circular convolution of real data into a
+     * caller-supplied array, using packed spectra throughout.
+     *
+     * @param x
+     *        A buffer of real values.
+     * @param x_off
+     *        Index of the first value of x.
+     * @param y
+     *        Another buffer of real values.
+     * @param y_off
+     *        Index of the first value of y.
+     * @param len
+     *        Number of values taken from each buffer.
+     * @param out
+     *        Receives the <code>len</code> real values of the
+     *        convolution, starting at <code>out_off</code>.
+     *        Must not overlap the inputs.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void rcconvolveInto( final float [] x, final int x_off,
+                                final float [] y, final int y_off,
+                                final int len,
+                                final float [] out, final int out_off )
+    {
+        float [] t = floatScratch( len );
+
+        rfftInto( x, x_off, len, out, out_off );
+        rfftInto( y, y_off, len, t, 0 );
+        multiplyPacked( out, out_off, t, 0, len );
+        floatPlan( len ).realInverse( out, out_off, true );
+
+    }   /* rcconvolveInto() */
+
+
+    /**
+     * Computes 1D linear convolution of real data into a
+     * caller-supplied array, using packed spectra throughout.
+     * Both inputs are zero-padded to twice their length.
+     *
+     * @param x
+     *        A buffer of real values.
+     * @param x_off
+     *        Index of the first value of x.
+     * @param y
+     *        Another buffer of real values.
+     * @param y_off
+     *        Index of the first value of y.
+     * @param len
+     *        Number of values taken from each buffer.
+     * @param out
+     *        Receives the <code>2*len</code> real values of the
+     *        convolution (the last one is always zero), starting
+     *        at <code>out_off</code>. Must not overlap the inputs.
+     * @param out_off
+     *        Index of the first output value.
+     */
+    public void rconvolveInto( final float [] x, final int x_off,
+                               final float [] y, final int y_off,
+                               final int len,
+                               final float [] out, final int out_off )
+    {
+        int      n2 = len << 1;
+        float [] t  = floatScratch( n2 );
+
+        System.arraycopy( x, x_off, out, out_off, len );
+        Arrays.fill( out, out_off + len, out_off + n2, 0.0f );
+        System.arraycopy( y, y_off, t, 0, len );
+        Arrays.fill( t, len, n2, 0.0f );
+
+        rfftInto( out, out_off, n2, out, out_off );
+        rfftInto( t, 0, n2, t, 0 );
+        multiplyPacked( out, out_off, t, 0, n2 );
+        floatPlan( n2 ).realInverse( out, out_off, true );
+
+    }   /* rconvolveInto() */
+
+
+    /**
+     * Multiplies the complex values of a by those of b, in place.
+     *
+     * @param a
+     *        Complex values, overwritten with the product.
+     * @param a_off
+     *        Index of the first value of a.
+     * @param b
+     *        Complex values, starting at index 0.
+     * @param count
+     *        Number of complex values.
+     */
+    private static void multiply( final double [] a, final int a_off,
+                                  final double [] b, final int count )
+    {
+        int    k;
+        int    re;
+        double ar;
+        double ai;
+
+        for( k = 0; k < count; ++k )
+        {
+            re = a_off + ( k << 1 );
+            ar = a[ re ];
+            ai = a[ re + 1 ];
+            a[ re ]     = ( ar * b[ 2 * k ] )     - ( ai * b[ 2 * k + 1 ] );
+            a[ re + 1 ] = ( ar * b[ 2 * k + 1 ] ) + ( ai * b[ 2 * k ] );
+        }
+
+    }   /* multiply() */
+
+
+    /**
+     * Multiplies the complex values of a by those of b, in place.
+     *
+     * @param a
+     *        Complex values, overwritten with the product.
+     * @param a_off
+     *        Index of the first value of a.
+     * @param b
+     *        Complex values, starting at index 0.
+     * @param count
+     *        Number of complex values.
+     */
+    private static void multiply( final float [] a, final int a_off,
+                                  final float [] b, final int count )
+    {
+        int   k;
+        int   re;
+        float ar;
+        float ai;
+
+        for( k = 0; k < count; ++k )
+        {
+            re = a_off + ( k << 1 );
+            ar = a[ re ];
+            ai = a[ re + 1 ];
+            a[ re ]     = ( ar * b[ 2 * k ] )     - ( ai * b[ 2 * k + 1 ] );
+            a[ re + 1 ] = ( ar * b[ 2 * k + 1 ] ) + ( ai * b[ 2 * k ] );
+        }
+
+    }   /* multiply() */
+
+
+    /**
+     * Returns the double work space, growing it if it's
+     * smaller than the requested size.
+     */
+    private double [] doubleScratch( final int size )
+    {
+        if( d_scratch.length < size )
+        {
+            d_scratch = new double[ size ];
+        }
+
+        return( d_scratch );
+
+    }   /* doubleScratch() */
+
+
+    /**
+     * Returns the float work space, growing it if it's
+     * smaller than the requested size.
+     */
+    private float [] floatScratch( final int size )
+    {
+        if( f_scratch.length < size )
+        {
+            f_scratch = new float[ size ];
+        }
+
+        return( f_scratch );
+
+    }   /* floatScratch() */
+
+
     /**
      * Prints the contents of a buffer to the screen. As of
      * right now, this function can only correctly print
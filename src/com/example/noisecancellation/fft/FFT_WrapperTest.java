@@ -0,0 +1,507 @@
+package com.example.noisecancellation.fft;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class FFT_WrapperTest extends TestCase {
+    /*-----------------------------------------
+     * Offsets the Into variants read from and
+     * write to, so that an offset that's
+     * ignored or misapplied shows up
+     *---------------------------------------*/
+    private static final int IN_OFF  = 3;
+    private static final int OUT_OFF = 5;
+
+    /*-----------------------------------------
+     * Sizes tested: one sample, odd, mixed
+     * radix, a power of two and Bluestein
+     * (prime) sizes
+     *---------------------------------------*/
+    private static final int [] SIZES = { 1, 7, 60, 211, 256, 1009 };
+
+    /*-----------------------------------------
+     * Tolerance of the packed variants, which
+     * take a different path through JTransforms
+     * than the full spectrum
+     *---------------------------------------*/
+    private static final double EPSILON   = 1.0e-9;
+    private static final float  F_EPSILON = 1.0e-3f;
+
+    /*-------------------------------------------
+     * TESTING FFT_Wrapper::*Into()
+     *
+     * TEST CASES:
+     *   1. Double precision Into variants match
+     *      the allocating ones
+     *   2. Single precision Into variants match
+     *      the allocating ones
+     *   3. One wrapper reused across sizes
+     *   4. Double precision packed variants
+     *      against the full spectrum
+     *   5. Single precision packed variants
+     *      against the full spectrum
+     *-----------------------------------------*/
+
+    /**
+     * Tests that fftInto(), ifftInto(), cconvolveInto()
+     * and convolveInto() give what fft(), ifft(),
+     * cconvolve() and convolve() give, reading and
+     * writing at non-zero offsets, without touching the
+     * output array outside of the result.
+     * <br /><br />
+     * Expected return value: identical values
+     */
+    public void testDoubleInto()
+    {
+        int         i;
+        int         n;
+        double []   x;
+        double []   y;
+        double []   c;
+        double []   out;
+        Random      rnd = new Random( 9 );
+        FFT_Wrapper w   = new FFT_Wrapper();
+
+        for( i = 0; i < SIZES.length; ++i )
+        {
+            n = SIZES[ i ];
+            x = random( rnd, n );
+            y = random( rnd, n );
+            c = random( rnd, 2 * n );
+
+            out = output( 2 * n );
+            w.fftInto( place( x ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "fftInto " + n, w.fft( x ), out );
+
+            out = output( 2 * n );
+            w.ifftInto( place( c ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "ifftInto " + n, w.ifft( c ), out );
+
+            out = output( 2 * n );
+            w.cconvolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "cconvolveInto " + n, w.cconvolve( x, y ), out );
+
+            out = output( 4 * n );
+            w.convolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "convolveInto " + n, w.convolve( x, y ), out );
+        }
+
+    }   /* testDoubleInto() */
+
+    /**
+     * Tests the same in single precision.
+     * <br /><br />
+     * Expected return value: identical values
+     */
+    public void testFloatInto()
+    {
+        int         i;
+        int         n;
+        float []    x;
+        float []    y;
+        float []    c;
+        float []    out;
+        Random      rnd = new Random( 10 );
+        FFT_Wrapper w   = new FFT_Wrapper();
+
+        for( i = 0; i < SIZES.length; ++i )
+        {
+            n = SIZES[ i ];
+            x = toFloat( random( rnd, n ) );
+            y = toFloat( random( rnd, n ) );
+            c = toFloat( random( rnd, 2 * n ) );
+
+            out = toFloat( output( 2 * n ) );
+            w.fftInto( place( x ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "fftInto " + n, w.fft( x ), out );
+
+            out = toFloat( output( 2 * n ) );
+            w.ifftInto( place( c ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "ifftInto " + n, w.ifft( c ), out );
+
+            out = toFloat( output( 2 * n ) );
+            w.cconvolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "cconvolveInto " + n, w.cconvolve( x, y ), out );
+
+            out = toFloat( output( 4 * n ) );
+            w.convolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "convolveInto " + n, w.convolve( x, y ), out );
+        }
+
+    }   /* testFloatInto() */
+
+    /**
+     * Tests that a wrapper whose plans and work space
+     * have been used for other sizes, larger and
+     * smaller, gives the same results as a new one.
+     * <br /><br />
+     * Expected return value: identical values
+     */
+    public void testReuse()
+    {
+        int         i;
+        int         n;
+        int []      sizes = { 211, 60, 1009, 7, 256, 211, 60 };
+        double []   x;
+        double []   y;
+        double []   a;
+        double []   b;
+        Random      rnd   = new Random( 11 );
+        FFT_Wrapper w     = new FFT_Wrapper();
+
+        for( i = 0; i < sizes.length; ++i )
+        {
+            n = sizes[ i ];
+            x = random( rnd, n );
+            y = random( rnd, n );
+
+            a = output( 4 * n );
+            b = output( 4 * n );
+            w.convolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, a, OUT_OFF );
+            new FFT_Wrapper().convolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, b, OUT_OFF );
+            assertEquals( "convolveInto " + n + " (call " + i + ")", b, a );
+
+            a = output( 2 * n );
+            b = output( 2 * n );
+            w.cconvolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, a, OUT_OFF );
+            new FFT_Wrapper().cconvolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, b, OUT_OFF );
+            assertEquals( "cconvolveInto " + n + " (call " + i + ")", b, a );
+        }
+
+    }   /* testReuse() */
+
+    /**
+     * Tests that rfftInto() gives the non-redundant half
+     * of fft() in the packed layout, DC and Nyquist (or
+     * the split last bin, for odd sizes) included, that
+     * irfftInto() inverts it, that multiplyPacked() and
+     * multiplyAddPacked() multiply the spectra they pack,
+     * and that rcconvolveInto() and rconvolveInto() give
+     * the real parts of cconvolve() and convolve(), at
+     * even and odd sizes and non-zero offsets.
+     * <br /><br />
+     * Expected return value: the same values, to double
+     * precision
+     */
+    public void testPacked()
+    {
+        int         i;
+        int         k;
+        int         n;
+        int []      sizes = { 2, 7, 8, 60, 211, 256, 1009 };
+        double []   x;
+        double []   y;
+        double []   fx;
+        double []   fy;
+        double []   prod;
+        double []   acc;
+        double []   out;
+        Random      rnd   = new Random( 12 );
+        FFT_Wrapper w     = new FFT_Wrapper();
+
+        for( i = 0; i < sizes.length; ++i )
+        {
+            n  = sizes[ i ];
+            x  = random( rnd, n );
+            y  = random( rnd, n );
+            fx = w.fft( x );
+            fy = w.fft( y );
+
+            out = output( n );
+            w.rfftInto( place( x ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "rfftInto " + n, pack( fx, n ), out, EPSILON );
+
+            out = output( n );
+            w.irfftInto( place( pack( fx, n ) ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "irfftInto " + n, x, out, EPSILON );
+
+            /*-----------------------------------
+             * The full product, packed, against
+             * the product of the packed spectra
+             *---------------------------------*/
+            prod = new double[ 2 * n ];
+            for( k = 0; k < 2 * n; k += 2 )
+            {
+                prod[ k ]     = fx[ k ] * fy[ k ] - fx[ k + 1 ] * fy[ k + 1 ];
+                prod[ k + 1 ] = fx[ k ] * fy[ k + 1 ] + fx[ k + 1 ] * fy[ k ];
+            }
+            out = place( pack( fx, n ) );
+            FFT_Wrapper.multiplyPacked( out, IN_OFF, pack( fy, n ), 0, n );
+            assertEquals( "multiplyPacked " + n, pack( prod, n ), Arrays.copyOfRange( out, IN_OFF, IN_OFF + n ), EPSILON );
+
+            acc = random( rnd, n );
+            out = place( acc );
+            FFT_Wrapper.multiplyAddPacked( out, IN_OFF, pack( fx, n ), 0, place( pack( fy, n ) ), IN_OFF, n );
+            for( k = 0; k < n; ++k )
+            {
+                acc[ k ] += pack( prod, n )[ k ];
+            }
+            assertEquals( "multiplyAddPacked " + n, acc, Arrays.copyOfRange( out, IN_OFF, IN_OFF + n ), EPSILON );
+
+            out = output( n );
+            w.rcconvolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "rcconvolveInto " + n, realParts( w.cconvolve( x, y ) ), out, EPSILON );
+
+            out = output( 2 * n );
+            w.rconvolveInto( place( x ), IN_OFF, place( y ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "rconvolveInto " + n, realParts( w.convolve( x, y ) ), out, EPSILON );
+        }
+
+    }   /* testPacked() */
+
+    /**
+     * Tests the packed transforms and convolutions in
+     * single precision.
+     * <br /><br />
+     * Expected return value: the same values, to single
+     * precision
+     */
+    public void testPackedFloat()
+    {
+        int         i;
+        int         n;
+        int []      sizes = { 2, 7, 8, 60, 211, 256, 1009 };
+        double []   x;
+        double []   y;
+        float []    out;
+        Random      rnd   = new Random( 13 );
+        FFT_Wrapper w     = new FFT_Wrapper();
+
+        for( i = 0; i < sizes.length; ++i )
+        {
+            n = sizes[ i ];
+            x = random( rnd, n );
+            y = random( rnd, n );
+
+            out = toFloat( output( n ) );
+            w.rfftInto( place( toFloat( x ) ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "rfftInto " + n, toFloat( pack( w.fft( x ), n ) ), out, F_EPSILON );
+
+            w.irfftInto( out, OUT_OFF, n, out, OUT_OFF );
+            assertInto( "irfftInto " + n, toFloat( x ), out, F_EPSILON );
+
+            out = toFloat( output( n ) );
+            w.rcconvolveInto( place( toFloat( x ) ), IN_OFF, place( toFloat( y ) ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "rcconvolveInto " + n, toFloat( realParts( w.cconvolve( x, y ) ) ), out, F_EPSILON );
+
+            out = toFloat( output( 2 * n ) );
+            w.rconvolveInto( place( toFloat( x ) ), IN_OFF, place( toFloat( y ) ), IN_OFF, n, out, OUT_OFF );
+            assertInto( "rconvolveInto " + n, toFloat( realParts( w.convolve( x, y ) ) ), out, F_EPSILON );
+        }
+
+    }   /* testPackedFloat() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+
+    /**
+     * Packs the first half of a full spectrum of size n
+     * the way rfftInto() documents.
+     */
+    private static double [] pack( final double [] full, final int n )
+    {
+        int       k;
+        double [] p = new double[ n ];
+
+        for( k = 0; 2 * k < n; ++k )
+        {
+            p[ 2 * k ] = full[ 2 * k ];
+            if( ( k > 0 ) && ( 2 * k + 1 < n ) )
+            {
+                p[ 2 * k + 1 ] = full[ 2 * k + 1 ];
+            }
+        }
+
+        /*-------------------------------------
+         * Re[n/2] for even sizes, Im[(n-1)/2]
+         * for odd ones, which land at the same
+         * index of the full spectrum
+         *-----------------------------------*/
+        if( n > 1 )
+        {
+            p[ 1 ] = full[ n ];
+        }
+
+        return( p );
+
+    }   /* pack() */
+
+    /**
+     * Returns the real parts of an interleaved complex
+     * array.
+     */
+    private static double [] realParts( final double [] c )
+    {
+        int       i;
+        double [] r = new double[ c.length >> 1 ];
+
+        for( i = 0; i < r.length; ++i )
+        {
+            r[ i ] = c[ 2 * i ];
+        }
+
+        return( r );
+
+    }   /* realParts() */
+    private static double [] random( final Random rnd, final int n )
+    {
+        int       i;
+        double [] v = new double[ n ];
+
+        for( i = 0; i < n; ++i )
+        {
+            v[ i ] = rnd.nextDouble() - 0.5;
+        }
+
+        return( v );
+
+    }   /* random() */
+
+    private static float [] toFloat( final double [] v )
+    {
+        int      i;
+        float [] f = new float[ v.length ];
+
+        for( i = 0; i < v.length; ++i )
+        {
+            f[ i ] = (float)v[ i ];
+        }
+
+        return( f );
+
+    }   /* toFloat() */
+
+    /**
+     * Returns a copy of v starting at IN_OFF, with
+     * garbage either side.
+     */
+    private static double [] place( final double [] v )
+    {
+        double [] p = new double[ IN_OFF + v.length + 2 ];
+
+        Arrays.fill( p, 1.0e6 );
+        System.arraycopy( v, 0, p, IN_OFF, v.length );
+        return( p );
+
+    }   /* place() */
+
+    private static float [] place( final float [] v )
+    {
+        float [] p = new float[ IN_OFF + v.length + 2 ];
+
+        Arrays.fill( p, 1.0e6f );
+        System.arraycopy( v, 0, p, IN_OFF, v.length );
+        return( p );
+
+    }   /* place() */
+
+    /**
+     * Returns an output array with room for count
+     * values at OUT_OFF, and a marker either side.
+     */
+    private static double [] output( final int count )
+    {
+        double [] o = new double[ OUT_OFF + count + 3 ];
+
+        Arrays.fill( o, -7.0 );
+        return( o );
+
+    }   /* output() */
+
+    /**
+     * Checks that out holds expected at OUT_OFF, and
+     * the marker everywhere else.
+     */
+    private static void assertInto( final String msg, final double [] expected, final double [] out )
+    {
+        int i;
+
+        for( i = 0; i < out.length; ++i )
+        {
+            if( ( i < OUT_OFF ) || ( i >= OUT_OFF + expected.length ) )
+            {
+                assertEquals( msg + " untouched [" + i + "]", -7.0, out[ i ], 0.0 );
+            }
+            else
+            {
+                assertEquals( msg + " [" + ( i - OUT_OFF ) + "]", expected[ i - OUT_OFF ], out[ i ], 0.0 );
+            }
+        }
+
+    }   /* assertInto() */
+
+    private static void assertInto( final String msg, final float [] expected, final float [] out )
+    {
+        int i;
+
+        for( i = 0; i < out.length; ++i )
+        {
+            if( ( i < OUT_OFF ) || ( i >= OUT_OFF + expected.length ) )
+            {
+                assertEquals( msg + " untouched [" + i + "]", -7.0f, out[ i ], 0.0f );
+            }
+            else
+            {
+                assertEquals( msg + " [" + ( i - OUT_OFF ) + "]", expected[ i - OUT_OFF ], out[ i ], 0.0f );
+            }
+        }
+
+    }   /* assertInto() */
+
+    private static void assertInto( final String msg, final double [] expected, final double [] out, final double tol )
+    {
+        int i;
+
+        for( i = 0; i < out.length; ++i )
+        {
+            if( ( i < OUT_OFF ) || ( i >= OUT_OFF + expected.length ) )
+            {
+                assertEquals( msg + " untouched [" + i + "]", -7.0, out[ i ], 0.0 );
+            }
+            else
+            {
+                assertEquals( msg + " [" + ( i - OUT_OFF ) + "]", expected[ i - OUT_OFF ], out[ i ], tol );
+            }
+        }
+
+    }   /* assertInto() */
+
+    private static void assertInto( final String msg, final float [] expected, final float [] out, final float tol )
+    {
+        int i;
+
+        for( i = 0; i < out.length; ++i )
+        {
+            if( ( i < OUT_OFF ) || ( i >= OUT_OFF + expected.length ) )
+            {
+                assertEquals( msg + " untouched [" + i + "]", -7.0f, out[ i ], 0.0f );
+            }
+            else
+            {
+                assertEquals( msg + " [" + ( i - OUT_OFF ) + "]", expected[ i - OUT_OFF ], out[ i ], tol );
+            }
+        }
+
+    }   /* assertInto() */
+
+    private static void assertEquals( final String msg, final double [] expected, final double [] actual )
+    {
+        assertEquals( msg, expected, actual, 0.0 );
+
+    }   /* assertEquals() */
+
+    private static void assertEquals( final String msg, final double [] expected, final double [] actual, final double tol )
+    {
+        int i;
+
+        for( i = 0; i < expected.length; ++i )
+        {
+            assertEquals( msg + " [" + i + "]", expected[ i ], actual[ i ], tol );
+        }
+
+    }   /* assertEquals() */
+
+};  /* FFT_WrapperTest */
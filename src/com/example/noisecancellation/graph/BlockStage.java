@@ -0,0 +1,30 @@
+package com.example.noisecancellation.graph;
+
+/**
+ * A stage of a ProcessingGraph that needs the whole
+ * block at once, or keeps state from one sample to the
+ * next: a filter, or an FFT based processor. Block
+ * stages always get a pass over the block of their own.
+ */
+public interface BlockStage
+{
+    /**
+     * Processes a block of samples in place.
+     *
+     * @param buf
+     *  The samples.
+     *
+     * @param off
+     *  Index of the first sample.
+     *
+     * @param count
+     *  Number of samples.
+     */
+    public void process( float [] buf, int off, int count );
+
+    /**
+     * Clears any history the stage keeps.
+     */
+    public void reset();
+
+};  /* BlockStage */
@@ -0,0 +1,80 @@
+package com.example.noisecancellation.graph;
+
+import com.example.noisecancellation.dsp.BlockConvolver;
+
+/**
+ * Runs a fixed FIR filter as a graph stage, using
+ * overlap-save convolution so the output isn't delayed.
+ */
+public final class FirStage implements BlockStage
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final BlockConvolver convolver;
+
+    /**
+     * Constructor for an FIR stage.
+     *
+     * @param taps
+     *  The filter's impulse response.
+     *
+     * @param max_block
+     *  Most samples in one block.
+     */
+    public FirStage( final float [] taps, final int max_block )
+    {
+        convolver = new BlockConvolver( taps, max_block );
+
+    }   /* FirStage() */
+
+    /**
+     * Builds a windowed sinc lowpass filter.
+     *
+     * @param cutoff
+     *  The cutoff as a fraction of the sample rate,
+     *  below 0.5.
+     *
+     * @param taps
+     *  Number of taps.
+     *
+     * @return
+     *  The impulse response, with unity gain at DC.
+     */
+    public static float [] lowpass( final double cutoff, final int taps )
+    {
+        int       i;
+        double    t;
+        double    sum = 0.0;
+        double [] w   = new double[ taps ];
+        float []  h   = new float[ taps ];
+
+        for( i = 0; i < taps; ++i )
+        {
+            t      = i - ( taps - 1 ) * 0.5;
+            w[ i ] = ( 0.0 == t ) ? 2.0 * cutoff : Math.sin( 2.0 * Math.PI * cutoff * t ) / ( Math.PI * t );
+            w[ i ] *= 0.54 - 0.46 * Math.cos( 2.0 * Math.PI * i / Math.max( 1, taps - 1 ) );
+            sum    += w[ i ];
+        }
+        for( i = 0; i < taps; ++i )
+        {
+            h[ i ] = (float)( w[ i ] / sum );
+        }
+
+        return( h );
+
+    }   /* lowpass() */
+
+    public void process( final float [] buf, final int off, final int count )
+    {
+        convolver.process( buf, buf, off, count );
+
+    }   /* process() */
+
+    public void reset()
+    {
+        convolver.reset();
+
+    }   /* reset() */
+
+};  /* FirStage */
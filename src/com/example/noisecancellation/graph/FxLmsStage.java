@@ -0,0 +1,41 @@
+package com.example.noisecancellation.graph;
+
+import com.example.noisecancellation.dsp.FxLmsFilter;
+
+/**
+ * Runs an adaptive FxLMS canceller as a graph stage.
+ */
+public final class FxLmsStage implements BlockStage
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final FxLmsFilter filter;
+
+    /**
+     * Constructor for an FxLMS stage.
+     *
+     * @param f
+     *  The canceller to run.
+     */
+    public FxLmsStage( final FxLmsFilter f )
+    {
+        filter = f;
+
+    }   /* FxLmsStage() */
+
+    public void process( final float [] buf, final int off, final int count )
+    {
+        filter.process( buf, buf, off, count );
+
+    }   /* process() */
+
+    public void reset()
+    {
+        filter.reset();
+
+    }   /* reset() */
+
+    public FxLmsFilter getFilter() { return( filter ); }
+
+};  /* FxLmsStage */
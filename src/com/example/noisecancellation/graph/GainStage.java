@@ -0,0 +1,29 @@
+package com.example.noisecancellation.graph;
+
+/**
+ * Multiplies every sample by a constant. A gain of -1
+ * inverts the signal.
+ */
+public final class GainStage extends ScaleStage
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final float gain;
+
+    /**
+     * Constructor for a gain stage.
+     *
+     * @param g
+     *  The linear gain.
+     */
+    public GainStage( final float g )
+    {
+        gain = g;
+
+    }   /* GainStage() */
+
+    public boolean isUniform() { return( true ); }
+    public float   getGain()   { return( gain ); }
+
+};  /* GainStage */
@@ -0,0 +1,193 @@
+package com.example.noisecancellation.graph;
+
+import com.example.noisecancellation.dsp.FxLmsFilter;
+import com.example.noisecancellation.dsp.SpectralProcessor;
+
+/**
+ * Builds a ProcessingGraph from a text description, as
+ * kept in a Configuration.
+ *
+ * A description is a comma separated list of stages, in
+ * processing order, each a name followed by optional
+ * colon separated arguments:
+ *
+ * <pre>
+ *     decode                 start of the graph (optional)
+ *     gain:G                 multiply by G
+ *     negate                 multiply by -1
+ *     hann                   Hanning window over the block
+ *     lowpass:HZ[:TAPS]      FIR lowpass at HZ
+ *     fxlms[:TAPS[:STEP]]    adaptive canceller, or -1
+ *     stft:SIZE[:HOP]        FFT processor
+ *     encode                 end of the graph (optional)
+ * </pre>
+ *
+ * for example "decode,gain:0.5,fxlms,encode".
+ *
+ * The adaptive canceller needs a model of the path from
+ * the speaker back to the microphone, which has to be
+ * measured on the device. Until a canceller built on one
+ * is supplied, "fxlms" only negates the block, as the
+ * pipeline did before there was a canceller; adapting
+ * against a model that is too short makes the noise
+ * louder, not quieter.
+ */
+public final class GraphSpec
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      DEFAULT_LOWPASS_TAPS - taps in a lowpass
+     *      DEFAULT_FXLMS_TAPS   - taps in a canceller
+     *      DEFAULT_FXLMS_STEP   - canceller step size
+     *---------------------------------------*/
+    private static final int   DEFAULT_LOWPASS_TAPS = 63;
+    private static final int   DEFAULT_FXLMS_TAPS   = 256;
+    private static final float DEFAULT_FXLMS_STEP   = 0.01f;
+
+    private GraphSpec()
+    {
+
+    }   /* GraphSpec() */
+
+    /**
+     * Builds a graph from a description.
+     *
+     * @param spec
+     *  The description.
+     *
+     * @param sample_rate
+     *  The rate the graph runs at, in Hz.
+     *
+     * @param max_block
+     *  Most samples in one block.
+     *
+     * @param canceller
+     *  The canceller used by an "fxlms" stage without
+     *  arguments. An "fxlms" stage with arguments gets a
+     *  new canceller with the same secondary path model.
+     *  If null, "fxlms" negates instead.
+     *
+     * @param spectral
+     *  The processor run by an "stft" stage, or null if
+     *  there isn't one.
+     *
+     * @return
+     *  The graph, compiled.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the description names an
+     *  unknown stage, has bad arguments, uses "decode" or
+     *  "encode" anywhere but the ends, or has an "stft"
+     *  stage and no processor was supplied.
+     */
+    public static ProcessingGraph parse( final String spec, final int sample_rate, final int max_block,
+                                         final FxLmsFilter canceller, final SpectralProcessor spectral )
+    {
+        int             i;
+        String []       tokens = spec.split( "," );
+        String []       args;
+        String          name;
+        ProcessingGraph g      = new ProcessingGraph();
+
+        for( i = 0; i < tokens.length; ++i )
+        {
+            args = tokens[ i ].trim().split( ":" );
+            name = args[ 0 ].trim();
+
+            if( ( 0 == name.length() ) && ( 1 == tokens.length ) )
+            {
+                break;
+            }
+            else if( "decode".equals( name ) || "encode".equals( name ) )
+            {
+                if( ( "decode".equals( name ) && ( 0 != i ) )
+                 || ( "encode".equals( name ) && ( tokens.length - 1 != i ) ) )
+                {
+                    throw new IllegalArgumentException( "'" + name + "' must be at the end of the graph." );
+                }
+            }
+            else if( "gain".equals( name ) )
+            {
+                g.add( new GainStage( (float)number( args, 1, Double.NaN ) ) );
+            }
+            else if( "negate".equals( name ) )
+            {
+                g.add( new GainStage( -1.0f ) );
+            }
+            else if( "hann".equals( name ) )
+            {
+                g.add( new WindowStage() );
+            }
+            else if( "lowpass".equals( name ) )
+            {
+                g.add( new FirStage( FirStage.lowpass( number( args, 1, Double.NaN ) / sample_rate,
+                                                       (int)number( args, 2, DEFAULT_LOWPASS_TAPS ) ),
+                                     max_block ) );
+            }
+            else if( "fxlms".equals( name ) )
+            {
+                if( null == canceller )
+                {
+                    /* Arguments are still checked */
+                    number( args, 1, DEFAULT_FXLMS_TAPS );
+                    number( args, 2, DEFAULT_FXLMS_STEP );
+                    g.add( new GainStage( -1.0f ) );
+                }
+                else if( args.length > 1 )
+                {
+                    g.add( new FxLmsStage( new FxLmsFilter( (int)number( args, 1, DEFAULT_FXLMS_TAPS ),
+                                                            (float)number( args, 2, DEFAULT_FXLMS_STEP ),
+                                                            canceller.getSecondaryPath() ) ) );
+                }
+                else
+                {
+                    g.add( new FxLmsStage( canceller ) );
+                }
+            }
+            else if( "stft".equals( name ) )
+            {
+                if( null == spectral )
+                {
+                    throw new IllegalArgumentException( "No spectral processor for 'stft'." );
+                }
+                g.add( new SpectralStage( (int)number( args, 1, Double.NaN ),
+                                          (int)number( args, 2, number( args, 1, Double.NaN ) / 2 ),
+                                          spectral, max_block ) );
+            }
+            else
+            {
+                throw new IllegalArgumentException( "Unknown stage '" + name + "'." );
+            }
+        }
+
+        g.compile();
+        return( g );
+
+    }   /* parse() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private static double number( final String [] args, final int i, final double default_value )
+    {
+        if( i >= args.length )
+        {
+            if( Double.isNaN( default_value ) )
+            {
+                throw new IllegalArgumentException( "'" + args[ 0 ].trim() + "' needs argument " + i + "." );
+            }
+            return( default_value );
+        }
+
+        try
+        {
+            return( Double.parseDouble( args[ i ].trim() ) );
+        }
+        catch( NumberFormatException nfe )
+        {
+            throw new IllegalArgumentException( "Bad argument '" + args[ i ] + "' for '" + args[ 0 ].trim() + "'." );
+        }
+
+    }   /* number() */
+
+};  /* GraphSpec */
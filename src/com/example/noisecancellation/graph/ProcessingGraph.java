@@ -0,0 +1,397 @@
+package com.example.noisecancellation.graph;
+
+import java.util.ArrayList;
+
+import com.example.noisecancellation.dsp.SampleCodec;
+
+/**
+ * A chain of processing stages that a block of samples
+ * runs through, in the order they were added.
+ *
+ * Stages come in two kinds. BlockStages (filters, FFT
+ * processors) each get a pass over the block. ScaleStages
+ * (gains, windows) only multiply samples by a gain, so
+ * compile() fuses every run of adjacent ones into one:
+ * uniform gains are multiplied into a single constant,
+ * and position dependent ones into a single table, and
+ * the whole run costs one pass however many stages it
+ * has. When the graph is run from PCM, a run at the
+ * start is folded into decoding and a run at the end
+ * into encoding, so it costs no pass at all. Decoding and
+ * encoding are the two ends of every graph, so
+ *
+ * <pre>
+ *     decode, gain, hann, fxlms, gain, encode
+ * </pre>
+ *
+ * takes three passes over the block: decode with the
+ * gain and window, the canceller, and encode with the
+ * second gain.
+ *
+ * The gain tables are built for the block size and only
+ * rebuilt when it changes, so steady-state processing
+ * doesn't allocate. A graph must only be used by one
+ * thread at a time.
+ */
+public final class ProcessingGraph
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *      stages - BlockStages and ScaleStages, in
+     *               the order they were added
+     *      runs   - the compiled graph, or null if it
+     *               needs compiling
+     *---------------------------------------*/
+    private final ArrayList<Object> stages;
+    private Run []                  runs;
+
+    /**
+     * Default constructor for an empty graph, which
+     * passes blocks through unchanged.
+     */
+    public ProcessingGraph()
+    {
+        stages = new ArrayList<Object>();
+        runs   = null;
+
+    }   /* ProcessingGraph() */
+
+    /**
+     * Appends a block stage to the graph.
+     *
+     * @param s
+     *  The stage.
+     */
+    public void add( final BlockStage s )
+    {
+        stages.add( s );
+        runs = null;
+
+    }   /* add() */
+
+    /**
+     * Appends an element-wise stage to the graph.
+     *
+     * @param s
+     *  The stage.
+     */
+    public void add( final ScaleStage s )
+    {
+        stages.add( s );
+        runs = null;
+
+    }   /* add() */
+
+    /**
+     * Fuses adjacent element-wise stages. Called by the
+     * first process() after stages are added, so it only
+     * needs calling directly to do the work up front.
+     */
+    public void compile()
+    {
+        int             i;
+        Object          s;
+        Run             run     = null;
+        ArrayList<Run>  out     = new ArrayList<Run>();
+
+        for( i = 0; i < stages.size(); ++i )
+        {
+            s = stages.get( i );
+            if( s instanceof BlockStage )
+            {
+                out.add( new Run( (BlockStage)s ) );
+                run = null;
+                continue;
+            }
+
+            if( null == run )
+            {
+                run = new Run( null );
+                out.add( run );
+            }
+            run.add( (ScaleStage)s );
+        }
+
+        runs = out.toArray( new Run[ out.size() ] );
+
+    }   /* compile() */
+
+    /**
+     * Runs a block of samples through the graph in place.
+     *
+     * @param buf
+     *  The samples.
+     *
+     * @param off
+     *  Index of the first sample.
+     *
+     * @param count
+     *  Number of samples.
+     */
+    public void process( final float [] buf, final int off, final int count )
+    {
+        int i;
+
+        if( null == runs )
+        {
+            compile();
+        }
+
+        for( i = 0; i < runs.length; ++i )
+        {
+            runs[ i ].process( buf, off, count );
+        }
+
+    }   /* process() */
+
+    /**
+     * Runs a block of 16 bit little endian PCM through
+     * the graph in place, fusing the element-wise stages
+     * at either end into the conversions.
+     *
+     * @param pcm
+     *  The PCM data.
+     *
+     * @param pcm_off
+     *  Byte offset of the first sample.
+     *
+     * @param work
+     *  Scratch space for count normalized samples.
+     *
+     * @param count
+     *  Number of samples.
+     */
+    public void process( final byte [] pcm, final int pcm_off, final float [] work, final int count )
+    {
+        int i;
+        int first = 0;
+        int last;
+
+        if( null == runs )
+        {
+            compile();
+        }
+        last = runs.length;
+
+        if( ( runs.length > 0 ) && runs[ 0 ].isScale() )
+        {
+            runs[ 0 ].decode( pcm, pcm_off, work, count );
+            first = 1;
+        }
+        else
+        {
+            SampleCodec.decode( pcm, pcm_off, work, 0, count );
+        }
+
+        if( ( last > first ) && runs[ last - 1 ].isScale() )
+        {
+            --last;
+        }
+
+        for( i = first; i < last; ++i )
+        {
+            runs[ i ].process( work, 0, count );
+        }
+
+        if( last < runs.length )
+        {
+            runs[ last ].encode( work, pcm, pcm_off, count );
+        }
+        else
+        {
+            SampleCodec.encode( work, 0, pcm, pcm_off, count );
+        }
+
+    }   /* process() */
+
+    /**
+     * Clears the history of every block stage.
+     */
+    public void reset()
+    {
+        int i;
+
+        for( i = 0; i < stages.size(); ++i )
+        {
+            if( stages.get( i ) instanceof BlockStage )
+            {
+                ( (BlockStage)stages.get( i ) ).reset();
+            }
+        }
+
+    }   /* reset() */
+
+    /**
+     * Returns the number of passes process() makes over a
+     * block of floats, once adjacent element-wise stages
+     * are fused.
+     *
+     * @return
+     *  The number of passes.
+     */
+    public int getPassCount()
+    {
+        if( null == runs )
+        {
+            compile();
+        }
+
+        return( runs.length );
+
+    }   /* getPassCount() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int getStageCount() { return( stages.size() ); }
+
+    /**
+     * One pass over the block: a single block stage, or
+     * a fused run of element-wise stages.
+     */
+    private static final class Run
+    {
+        /*-------------------------------------
+         * Class Attributes
+         *      block    - the block stage, or null
+         *                 for a fused run
+         *      scales   - the fused stages
+         *      uniform  - set if every stage in the
+         *                 run is uniform
+         *      gain     - product of the uniform gains
+         *      gains    - per sample gains, if the run
+         *                 isn't uniform
+         *      size     - block size gains was built
+         *                 for, or -1
+         *-----------------------------------*/
+        private final BlockStage            block;
+        private final ArrayList<ScaleStage> scales;
+        private boolean                     uniform;
+        private float                       gain;
+        private float []                    gains;
+        private int                         size;
+
+        Run( final BlockStage b )
+        {
+            block   = b;
+            scales  = new ArrayList<ScaleStage>();
+            uniform = true;
+            gain    = 1.0f;
+            gains   = new float[ 0 ];
+            size    = -1;
+
+        }   /* Run() */
+
+        boolean isScale()
+        {
+            return( null == block );
+
+        }   /* isScale() */
+
+        void add( final ScaleStage s )
+        {
+            scales.add( s );
+            if( s.isUniform() )
+            {
+                gain *= s.getGain();
+            }
+            else
+            {
+                uniform = false;
+            }
+
+        }   /* add() */
+
+        void process( final float [] buf, final int off, final int count )
+        {
+            int i;
+
+            if( null != block )
+            {
+                block.process( buf, off, count );
+            }
+            else if( uniform )
+            {
+                if( 1.0f != gain )
+                {
+                    for( i = 0; i < count; ++i )
+                    {
+                        buf[ off + i ] *= gain;
+                    }
+                }
+            }
+            else
+            {
+                build( count );
+                for( i = 0; i < count; ++i )
+                {
+                    buf[ off + i ] *= gains[ i ];
+                }
+            }
+
+        }   /* process() */
+
+        void decode( final byte [] pcm, final int pcm_off, final float [] work, final int count )
+        {
+            if( uniform )
+            {
+                SampleCodec.decode( pcm, pcm_off, work, 0, count, gain );
+            }
+            else
+            {
+                build( count );
+                SampleCodec.decode( pcm, pcm_off, work, 0, count, gains );
+            }
+
+        }   /* decode() */
+
+        void encode( final float [] work, final byte [] pcm, final int pcm_off, final int count )
+        {
+            if( uniform )
+            {
+                SampleCodec.encode( work, 0, pcm, pcm_off, count, gain );
+            }
+            else
+            {
+                build( count );
+                SampleCodec.encode( work, 0, pcm, pcm_off, count, gains );
+            }
+
+        }   /* encode() */
+
+        /**
+         * Multiplies every stage's gains into one table,
+         * if the block size has changed since the last
+         * time.
+         */
+        private void build( final int count )
+        {
+            int i;
+
+            if( count == size )
+            {
+                return;
+            }
+
+            if( gains.length < count )
+            {
+                gains = new float[ count ];
+            }
+            for( i = 0; i < count; ++i )
+            {
+                gains[ i ] = gain;
+            }
+            for( i = 0; i < scales.size(); ++i )
+            {
+                if( !scales.get( i ).isUniform() )
+                {
+                    scales.get( i ).scaleInto( gains, count );
+                }
+            }
+            size = count;
+
+        }   /* build() */
+
+    };  /* Run */
+
+};  /* ProcessingGraph */
@@ -0,0 +1,147 @@
+package com.example.noisecancellation.graph;
+
+import junit.framework.TestCase;
+
+import com.example.noisecancellation.dsp.SampleCodec;
+import com.example.noisecancellation.dsp.StftEngine;
+
+public class ProcessingGraphTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING ProcessingGraph::compile()/process()
+     *
+     * TEST CASES:
+     *   1. Adjacent element-wise stages fuse
+     *   2. Running from PCM matches running on
+     *      floats
+     *   3. Bad descriptions
+     *   4. Canceller without a path model
+     *-----------------------------------------*/
+
+    /**
+     * Tests that a run of gains and a window becomes a
+     * single pass that applies all of them.
+     * <br /><br />
+     * Expected return value: one pass, the product of
+     * the gains and the window
+     */
+    public void testFusion()
+    {
+        int             i;
+        int             count = 32;
+        float []        buf   = new float[ count ];
+        double []       w     = StftEngine.hann( count );
+        ProcessingGraph g     = GraphSpec.parse( "decode,gain:0.5,hann,gain:3,negate,encode",
+                                                 8000, count, null, null );
+
+        assertEquals( "Stages", 4, g.getStageCount() );
+        assertEquals( "Fused into one pass", 1, g.getPassCount() );
+
+        for( i = 0; i < count; ++i )
+        {
+            buf[ i ] = 0.25f;
+        }
+        g.process( buf, 0, count );
+        for( i = 0; i < count; ++i )
+        {
+            assertEquals( "Sample " + i, -0.375 * w[ i ], buf[ i ], 1.0e-6 );
+        }
+
+    }   /* testFusion() */
+
+    /**
+     * Tests that running PCM through a graph, with the
+     * gains at each end folded into the conversions,
+     * gives the same result as decoding, running the
+     * graph on floats, and encoding.
+     * <br /><br />
+     * Expected return value: identical PCM
+     */
+    public void testPcm()
+    {
+        int             i;
+        int             count = 64;
+        byte []         pcm   = new byte[ count << 1 ];
+        byte []         ref   = new byte[ count << 1 ];
+        float []        work  = new float[ count ];
+        String          spec  = "gain:0.8,hann,lowpass:1000,gain:-1.5";
+        ProcessingGraph a     = GraphSpec.parse( spec, 8000, count, null, null );
+        ProcessingGraph b     = GraphSpec.parse( spec, 8000, count, null, null );
+
+        assertEquals( "Scale, filter, scale", 3, a.getPassCount() );
+
+        for( i = 0; i < count; ++i )
+        {
+            work[ i ] = (float)Math.sin( i * 0.3 ) * 0.5f;
+        }
+        SampleCodec.encode( work, 0, pcm, 0, count );
+
+        SampleCodec.decode( pcm, 0, work, 0, count );
+        b.process( work, 0, count );
+        SampleCodec.encode( work, 0, ref, 0, count );
+
+        a.process( pcm, 0, work, count );
+        for( i = 0; i < pcm.length; i += 2 )
+        {
+            assertEquals( "Sample " + ( i >> 1 ),
+                          (short)( ( ref[ i ] & 0xFF ) | ( ref[ i + 1 ] << 8 ) ),
+                          (short)( ( pcm[ i ] & 0xFF ) | ( pcm[ i + 1 ] << 8 ) ), 1 );
+        }
+
+    }   /* testPcm() */
+
+    /**
+     * Tests that descriptions with unknown stages,
+     * missing arguments or misplaced ends are rejected.
+     * <br /><br />
+     * Expected return value: IllegalArgumentException
+     */
+    public void testBadSpec()
+    {
+        int        i;
+        String []  bad = { "gain", "echo", "gain:x", "fxlms,decode", "stft:256" };
+
+        for( i = 0; i < bad.length; ++i )
+        {
+            try
+            {
+                GraphSpec.parse( bad[ i ], 8000, 64, null, null );
+                fail( "'" + bad[ i ] + "' accepted" );
+            }
+            catch( IllegalArgumentException iae )
+            {
+                /* Expected */
+            }
+        }
+
+    }   /* testBadSpec() */
+
+    /**
+     * Tests that without a canceller built on a measured
+     * path model, "fxlms" negates the block, fused into
+     * one pass like any other gain.
+     * <br /><br />
+     * Expected return value: the negated block
+     */
+    public void testNoCanceller()
+    {
+        int             i;
+        int             count = 16;
+        float []        buf   = new float[ count ];
+        ProcessingGraph g     = GraphSpec.parse( "decode,fxlms:128:0.05,encode", 8000, count, null, null );
+
+        assertEquals( "One pass", 1, g.getPassCount() );
+
+        for( i = 0; i < count; ++i )
+        {
+            buf[ i ] = 0.01f * i;
+        }
+        g.process( buf, 0, count );
+        for( i = 0; i < count; ++i )
+        {
+            assertEquals( "Sample " + i, -0.01f * i, buf[ i ], 0.0f );
+        }
+
+    }   /* testNoCanceller() */
+
+};  /* ProcessingGraphTest */
@@ -0,0 +1,56 @@
+package com.example.noisecancellation.graph;
+
+/**
+ * A stage of a ProcessingGraph that multiplies each
+ * sample by a gain, which may depend on the sample's
+ * position in the block but not on its value or on
+ * earlier blocks.
+ *
+ * Runs of these stages are fused by the graph: their
+ * gains are multiplied together once, and applied in a
+ * single pass, or folded into the PCM conversion at
+ * either end of the graph.
+ */
+public abstract class ScaleStage
+{
+    /**
+     * Returns whether every sample gets the same gain.
+     *
+     * @return
+     *  Returns true if getGain() applies to the whole
+     *  block, false if scaleInto() must be used.
+     */
+    public abstract boolean isUniform();
+
+    /**
+     * Returns the gain of a uniform stage.
+     *
+     * @return
+     *  The gain applied to every sample.
+     */
+    public abstract float getGain();
+
+    /**
+     * Multiplies this stage's gains into a table, one
+     * per sample. The default multiplies every entry by
+     * getGain().
+     *
+     * @param gains
+     *  The table.
+     *
+     * @param count
+     *  Number of samples in the block.
+     */
+    public void scaleInto( final float [] gains, final int count )
+    {
+        int         i;
+        final float g = getGain();
+
+        for( i = 0; i < count; ++i )
+        {
+            gains[ i ] *= g;
+        }
+
+    }   /* scaleInto() */
+
+};  /* ScaleStage */
@@ -0,0 +1,70 @@
+package com.example.noisecancellation.graph;
+
+import com.example.noisecancellation.dsp.SpectralProcessor;
+import com.example.noisecancellation.dsp.StftEngine;
+
+/**
+ * Runs an FFT based processor as a graph stage. The
+ * block is handed to an StftEngine, so the output lags
+ * the input by one frame.
+ */
+public final class SpectralStage implements BlockStage
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *      engine  - the STFT the processor runs in
+     *      scratch - the block in double precision
+     *---------------------------------------*/
+    private final StftEngine engine;
+    private final double []  scratch;
+
+    /**
+     * Constructor for a spectral stage.
+     *
+     * @param frame_size
+     *  Samples per STFT frame.
+     *
+     * @param hop
+     *  Samples between frames.
+     *
+     * @param p
+     *  The processor run on each frame.
+     *
+     * @param max_block
+     *  Most samples in one block.
+     */
+    public SpectralStage( final int frame_size, final int hop,
+                          final SpectralProcessor p, final int max_block )
+    {
+        engine  = new StftEngine( frame_size, hop, p );
+        scratch = new double[ max_block ];
+
+    }   /* SpectralStage() */
+
+    public void process( final float [] buf, final int off, final int count )
+    {
+        int i;
+
+        for( i = 0; i < count; ++i )
+        {
+            scratch[ i ] = buf[ off + i ];
+        }
+
+        engine.process( scratch, 0, count );
+
+        for( i = 0; i < count; ++i )
+        {
+            buf[ off + i ] = (float)scratch[ i ];
+        }
+
+    }   /* process() */
+
+    public void reset()
+    {
+        engine.reset();
+
+    }   /* reset() */
+
+    public StftEngine getEngine() { return( engine ); }
+
+};  /* SpectralStage */
@@ -0,0 +1,26 @@
+package com.example.noisecancellation.graph;
+
+import com.example.noisecancellation.dsp.StftEngine;
+
+/**
+ * Multiplies each block by a periodic Hanning window the
+ * length of the block.
+ */
+public final class WindowStage extends ScaleStage
+{
+    public boolean isUniform() { return( false ); }
+    public float   getGain()   { return( 1.0f );  }
+
+    public void scaleInto( final float [] gains, final int count )
+    {
+        int       i;
+        double [] w = StftEngine.hann( count );
+
+        for( i = 0; i < count; ++i )
+        {
+            gains[ i ] *= (float)w[ i ];
+        }
+
+    }   /* scaleInto() */
+
+};  /* WindowStage */
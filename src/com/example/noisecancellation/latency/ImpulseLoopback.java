@@ -0,0 +1,267 @@
+package com.example.noisecancellation.latency;
+
+import java.util.Arrays;
+
+import com.example.noisecancellation.Device.AudioSink;
+import com.example.noisecancellation.Device.AudioSource;
+import com.example.noisecancellation.dsp.SampleCodec;
+
+/**
+ * Round-trip latency measurement by impulse injection.
+ *
+ * Silence is played to the sink with a single loud frame
+ * (the impulse in every channel) every so often, and the
+ * source is watched for that impulse coming back in any
+ * channel. Counting frames on both sides gives the
+ * latency from the frame being handed to the sink to the
+ * same frame coming out of the source, including every
+ * buffer inside the devices and the acoustic path
+ * between them. This is the part of the
+ * delay that PipelineLatency can't see.
+ *
+ * The sink and source are driven from the calling thread,
+ * one buffer each per step. With real devices the speaker
+ * needs to be audible to the microphone; off-device a
+ * Headless.LoopbackDevice can be used for both.
+ */
+public final class ImpulseLoopback
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      DEFAULT_PERIOD    - buffers between impulses
+     *      DEFAULT_LEVEL     - impulse amplitude
+     *      DEFAULT_THRESHOLD - smallest amplitude that
+     *                          counts as the impulse
+     *---------------------------------------*/
+    public static final int   DEFAULT_PERIOD    = 16;
+    public static final short DEFAULT_LEVEL     = 24576;
+    public static final short DEFAULT_THRESHOLD = 8192;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      source       - where the impulse comes back
+     *      sink         - where the impulse is played
+     *      sample_rate  - frames per second
+     *      channels     - interleaved channels on both
+     *                     devices
+     *      period       - buffers between impulses
+     *      level        - impulse amplitude
+     *      threshold    - detection amplitude
+     *      out_block    - buffer played to the sink
+     *      in_block     - buffer read from the source
+     *      in_samples   - in_block decoded
+     *      histogram    - round-trip latencies in ns
+     *      misses       - impulses that never came back
+     *      last_frames  - most recent latency in frames
+     *---------------------------------------*/
+    private final AudioSource      source;
+    private final AudioSink        sink;
+    private final int              sample_rate;
+    private final int              channels;
+    private final int              period;
+    private final short            level;
+    private final short            threshold;
+    private final byte []          out_block;
+    private final byte []          in_block;
+    private final float []         in_samples;
+    private final LatencyHistogram histogram;
+    private long                   misses;
+    private long                   last_frames;
+
+    /**
+     * Constructor for a mono loopback measurement using
+     * the default impulse period, level and threshold.
+     *
+     * @param src
+     *  The source the impulse is detected on.
+     * @param snk
+     *  The sink the impulse is played to.
+     * @param rate
+     *  The sample rate of both devices.
+     */
+    public ImpulseLoopback( final AudioSource src, final AudioSink snk, final int rate )
+    {
+        this( src, snk, rate, 1 );
+
+    }   /* ImpulseLoopback() */
+
+    /**
+     * Constructor for a loopback measurement using the
+     * default impulse period, level and threshold.
+     *
+     * @param src
+     *  The source the impulse is detected on.
+     * @param snk
+     *  The sink the impulse is played to.
+     * @param rate
+     *  The sample rate of both devices.
+     * @param chans
+     *  The number of interleaved channels on both
+     *  devices.
+     */
+    public ImpulseLoopback( final AudioSource src, final AudioSink snk, final int rate,
+                            final int chans )
+    {
+        this( src, snk, rate, chans, DEFAULT_PERIOD, DEFAULT_LEVEL, DEFAULT_THRESHOLD );
+
+    }   /* ImpulseLoopback() */
+
+    /**
+     * Constructor for a loopback measurement.
+     *
+     * @param src
+     *  The source the impulse is detected on.
+     * @param snk
+     *  The sink the impulse is played to.
+     * @param rate
+     *  The sample rate of both devices.
+     * @param chans
+     *  The number of interleaved channels on both
+     *  devices.
+     * @param period_buffers
+     *  Buffers played between impulses. This must be
+     *  longer than the round trip, or the impulse is
+     *  given up on before it comes back.
+     * @param impulse_level
+     *  Amplitude of the impulse.
+     * @param detect_level
+     *  Smallest amplitude on the source that counts as
+     *  the impulse coming back.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the rate, channel count or
+     *  period aren't positive.
+     */
+    public ImpulseLoopback( final AudioSource src, final AudioSink snk, final int rate,
+                            final int chans, final int period_buffers,
+                            final short impulse_level, final short detect_level )
+    {
+        final int frame_bytes = chans << 1;
+
+        if( ( rate < 1 ) || ( chans < 1 ) || ( period_buffers < 1 ) )
+        {
+            throw new IllegalArgumentException( "Rate, channels and period must be positive." );
+        }
+
+        source       = src;
+        sink         = snk;
+        sample_rate  = rate;
+        channels     = chans;
+        period       = period_buffers;
+        level        = impulse_level;
+        threshold    = detect_level;
+        out_block    = new byte[ snk.getSuggestedBufferSize() / frame_bytes * frame_bytes ];
+        in_block     = new byte[ src.getSuggestedBufferSize() / frame_bytes * frame_bytes ];
+        in_samples   = new float[ in_block.length >> 1 ];
+        histogram    = new LatencyHistogram( "loopback" );
+        misses       = 0;
+        last_frames  = -1;
+
+    }   /* ImpulseLoopback() */
+
+    /**
+     * Opens and starts both devices, plays the given
+     * number of buffers while measuring, then stops and
+     * closes them.
+     *
+     * @param buffers
+     *  Number of buffers to play.
+     *
+     * @return
+     *  The number of impulses that came back.
+     */
+    public long run( final int buffers )
+    {
+        int         b;
+        int         i;
+        int         bytes_read;
+        long        out_pos      = 0;
+        long        in_pos       = 0;
+        long        pending      = -1;
+        long        found        = 0;
+        long        lat;
+        final int   out_frames   = out_block.length / ( channels << 1 );
+        final float detect       = threshold * ( 1.0f / 32768.0f );
+
+        source.open();
+        sink.open();
+        source.start();
+        sink.start();
+
+        for( b = 0; b < buffers; ++b )
+        {
+            /*---------------------------------
+             * Play silence, or an impulse in
+             * the first frame of the buffer.
+             *-------------------------------*/
+            Arrays.fill( out_block, (byte)0 );
+            if( ( pending < 0 ) && ( 0 == ( b % period ) ) )
+            {
+                for( i = 0; i < channels; ++i )
+                {
+                    out_block[ 2 * i ]     = (byte)level;
+                    out_block[ 2 * i + 1 ] = (byte)( level >> 8 );
+                }
+                pending = out_pos;
+            }
+            sink.write( out_block, out_block.length );
+            out_pos += out_frames;
+
+            bytes_read = source.getRecordData( in_block );
+            if( bytes_read <= 0 )
+            {
+                continue;
+            }
+
+            /*---------------------------------
+             * Look for it coming back. in_pos
+             * counts samples rather than frames
+             * so that a read ending part way
+             * through a frame doesn't throw the
+             * count off.
+             *-------------------------------*/
+            if( pending >= 0 )
+            {
+                SampleCodec.decode( in_block, 0, in_samples, 0, bytes_read >> 1 );
+                for( i = 0; i < ( bytes_read >> 1 ); ++i )
+                {
+                    if( Math.abs( in_samples[ i ] ) >= detect )
+                    {
+                        lat = ( in_pos + i ) / channels - pending;
+                        if( lat >= 0 )
+                        {
+                            last_frames = lat;
+                            histogram.record( lat * 1000000000L / sample_rate );
+                            ++found;
+                            pending = -1;
+                        }
+                        break;
+                    }
+                }
+            }
+            in_pos += bytes_read >> 1;
+
+            if( ( pending >= 0 ) && ( out_pos - pending > (long)period * out_frames ) )
+            {
+                ++misses;
+                pending = -1;
+            }
+        }
+
+        source.stop();
+        sink.stop();
+        source.close();
+        sink.close();
+
+        return( found );
+
+    }   /* run() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public LatencyHistogram getHistogram()          { return( histogram );    }
+    public long             getMissCount()          { return( misses );       }
+    public long             getLastLatencyFrames()  { return( last_frames );  }
+
+};  /* ImpulseLoopback */
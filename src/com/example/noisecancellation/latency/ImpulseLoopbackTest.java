@@ -0,0 +1,106 @@
+package com.example.noisecancellation.latency;
+
+import com.example.noisecancellation.Device.Headless.ArraySink;
+import com.example.noisecancellation.Device.Headless.LoopbackDevice;
+
+import junit.framework.TestCase;
+
+public class ImpulseLoopbackTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING ImpulseLoopback::run()
+     *
+     * TEST CASES:
+     *   1. A stereo round trip measured in frames
+     *   2. A delay of whole buffers
+     *   3. The impulse going into every channel
+     *   4. Rejecting a bad channel count
+     *-----------------------------------------*/
+
+    /**
+     * Tests that the latency through a stereo loopback
+     * device is counted in frames, not interleaved
+     * samples.
+     * <br /><br />
+     * Expected return value: the delay in frames
+     */
+    public void testStereo()
+    {
+        LoopbackDevice  d = new LoopbackDevice( 2 * 777, 1024 );
+        ImpulseLoopback l = new ImpulseLoopback( d, d, 44100, 2 );
+
+        assertEquals( "Every impulse came back", 25, l.run( 400 ) );
+        assertEquals( "No misses", 0, l.getMissCount() );
+        assertEquals( "Delay in frames", 777, l.getLastLatencyFrames() );
+        assertEquals( "Delay in ns", 777L * 1000000000L / 44100L, l.getHistogram().getMax() );
+
+    }   /* testStereo() */
+
+    /**
+     * Tests a delay that ends exactly on a buffer
+     * boundary, so the impulse is the first frame read.
+     * <br /><br />
+     * Expected return value: the delay in frames
+     */
+    public void testWholeBuffers()
+    {
+        LoopbackDevice  d = new LoopbackDevice( 3 * 256, 512 );
+        ImpulseLoopback l = new ImpulseLoopback( d, d, 48000 );
+
+        assertEquals( "Every impulse came back", 10, l.run( 160 ) );
+        assertEquals( "Delay in frames", 768, l.getLastLatencyFrames() );
+
+    }   /* testWholeBuffers() */
+
+    /**
+     * Tests that the impulse is played in every channel
+     * of the first frame, and nowhere else.
+     * <br /><br />
+     * Expected return value: level in the first frame,
+     * silence after it
+     */
+    public void testImpulseFrame()
+    {
+        int             i;
+        byte []         b;
+        ArraySink       s = new ArraySink( 1 << 16 );
+        ImpulseLoopback l = new ImpulseLoopback( new LoopbackDevice( 0, 96 ), s, 48000, 3 );
+
+        l.run( 1 );
+        b = s.getData();
+        assertTrue( "Written", s.getLength() > 0 );
+        assertEquals( "Whole frames", 0, s.getLength() % 6 );
+        for( i = 0; i < 3; ++i )
+        {
+            assertEquals( "Channel " + i, ImpulseLoopback.DEFAULT_LEVEL,
+                          (short)( ( b[ 2 * i ] & 0xFF ) | ( b[ 2 * i + 1 ] << 8 ) ) );
+        }
+        for( i = 6; i < s.getLength(); ++i )
+        {
+            assertEquals( "Silence at " + i, 0, b[ i ] );
+        }
+
+    }   /* testImpulseFrame() */
+
+    /**
+     * Tests that a channel count below one is refused.
+     * <br /><br />
+     * Expected return value: IllegalArgumentException
+     */
+    public void testBadChannels()
+    {
+        LoopbackDevice d = new LoopbackDevice( 0, 512 );
+
+        try
+        {
+            new ImpulseLoopback( d, d, 48000, 0 );
+            fail( "No channels accepted" );
+        }
+        catch( IllegalArgumentException iae )
+        {
+            /* Expected */
+        }
+
+    }   /* testBadChannels() */
+
+};  /* ImpulseLoopbackTest */
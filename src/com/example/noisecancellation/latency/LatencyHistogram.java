@@ -0,0 +1,222 @@
+package com.example.noisecancellation.latency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A preallocated log-linear histogram of latencies.
+ *
+ * Values below SUB_COUNT get a bucket each. Above that,
+ * every power of two is split into SUB_COUNT equal
+ * buckets, so any value is off by at most 1 / SUB_COUNT
+ * (about 3%) while the whole range of a long fits in a
+ * couple of thousand buckets.
+ *
+ * record() doesn't allocate or lock, so it can be called
+ * from the audio threads, and the counts can be read from
+ * any other thread while recording goes on. A percentile
+ * read during recording may be off by the few values that
+ * were recorded while it was being worked out.
+ */
+public final class LatencyHistogram
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      SUB_BITS     - log2 of SUB_COUNT
+     *      SUB_COUNT    - buckets per power of two
+     *      BUCKET_COUNT - buckets needed for any
+     *                     non-negative long
+     *---------------------------------------*/
+    private static final int SUB_BITS     = 5;
+    private static final int SUB_COUNT    = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = ( 64 - SUB_BITS ) << SUB_BITS;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      name    - what is being measured
+     *      counts  - values recorded per bucket
+     *      count   - values recorded in total
+     *      total   - sum of the recorded values
+     *      max     - largest recorded value
+     *---------------------------------------*/
+    private final String          name;
+    private final AtomicLongArray counts;
+    private final AtomicLong      count;
+    private final AtomicLong      total;
+    private final AtomicLong      max;
+
+    /**
+     * Constructor for a latency histogram.
+     *
+     * @param hist_name
+     *  What the histogram measures, used by toString().
+     */
+    public LatencyHistogram( final String hist_name )
+    {
+        name   = hist_name;
+        counts = new AtomicLongArray( BUCKET_COUNT );
+        count  = new AtomicLong();
+        total  = new AtomicLong();
+        max    = new AtomicLong();
+
+    }   /* LatencyHistogram() */
+
+    /**
+     * Records one latency.
+     *
+     * @param value
+     *  The latency, normally in nanoseconds. Negative
+     *  values are recorded as 0.
+     */
+    public void record( final long value )
+    {
+        long v = ( value < 0 ) ? 0 : value;
+        long m;
+
+        counts.incrementAndGet( bucketOf( v ) );
+        count.incrementAndGet();
+        total.addAndGet( v );
+        do
+        {
+            m = max.get();
+        } while( ( v > m ) && !max.compareAndSet( m, v ) );
+
+    }   /* record() */
+
+    /**
+     * Forgets every recorded value. Values recorded while
+     * this runs may or may not be kept.
+     */
+    public void reset()
+    {
+        int i;
+
+        for( i = 0; i < BUCKET_COUNT; ++i )
+        {
+            counts.set( i, 0 );
+        }
+        count.set( 0 );
+        total.set( 0 );
+        max.set( 0 );
+
+    }   /* reset() */
+
+    /**
+     * Returns the value below which the given fraction
+     * of the recorded values fall.
+     *
+     * @param fraction
+     *  The fraction, between 0 and 1 (0.99 for p99).
+     *
+     * @return
+     *  The upper edge of the bucket holding that value
+     *  (never more than the largest recorded value), or
+     *  0 if nothing has been recorded.
+     */
+    public long getPercentile( final double fraction )
+    {
+        int  i;
+        long seen   = 0;
+        long n      = count.get();
+        long wanted = (long)Math.ceil( fraction * (double)n );
+
+        if( 0 == n )
+        {
+            return( 0 );
+        }
+        if( wanted < 1 )
+        {
+            wanted = 1;
+        }
+
+        for( i = 0; i < BUCKET_COUNT; ++i )
+        {
+            seen += counts.get( i );
+            if( seen >= wanted )
+            {
+                return( Math.min( lowerBound( i + 1 ) - 1, max.get() ) );
+            }
+        }
+
+        return( max.get() );
+
+    }   /* getPercentile() */
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return
+     *  The mean, or 0 if nothing has been recorded.
+     */
+    public long getMean()
+    {
+        long n = count.get();
+
+        return( ( 0 == n ) ? 0 : total.get() / n );
+
+    }   /* getMean() */
+
+    /**
+     * Summarizes the histogram, treating the values
+     * as nanoseconds. This allocates, so don't call it
+     * from the audio threads.
+     *
+     * @return
+     *  The count, p50, p99, p99.9 and max, in microseconds.
+     */
+    @Override
+    public String toString()
+    {
+        return( name
+              + ": n="       + count.get()
+              + " p50="      + ( getPercentile( 0.5 )   / 1000 )
+              + "us p99="    + ( getPercentile( 0.99 )  / 1000 )
+              + "us p99.9="  + ( getPercentile( 0.999 ) / 1000 )
+              + "us max="    + ( max.get() / 1000 ) + "us" );
+
+    }   /* toString() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public String getName()  { return( name );        }
+    public long   getCount() { return( count.get() ); }
+    public long   getMax()   { return( max.get() );   }
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private static int bucketOf( final long v )
+    {
+        int e;
+
+        if( v < SUB_COUNT )
+        {
+            return( (int)v );
+        }
+
+        e = 63 - Long.numberOfLeadingZeros( v );
+        return( ( ( e - SUB_BITS + 1 ) << SUB_BITS )
+              + (int)( ( v >>> ( e - SUB_BITS ) ) & ( SUB_COUNT - 1 ) ) );
+
+    }   /* bucketOf() */
+
+    private static long lowerBound( final int bucket )
+    {
+        int e;
+
+        if( bucket < SUB_COUNT )
+        {
+            return( bucket );
+        }
+        if( bucket >= BUCKET_COUNT )
+        {
+            return( Long.MAX_VALUE );
+        }
+
+        e = ( bucket >> SUB_BITS ) + SUB_BITS - 1;
+        return( (long)( SUB_COUNT + ( bucket & ( SUB_COUNT - 1 ) ) ) << ( e - SUB_BITS ) );
+
+    }   /* lowerBound() */
+
+};  /* LatencyHistogram */
@@ -0,0 +1,68 @@
+package com.example.noisecancellation.latency;
+
+import com.example.noisecancellation.Device.Headless.LoopbackDevice;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING LatencyHistogram::getPercentile()
+     *
+     * TEST CASES:
+     *   1. Percentiles of a uniform spread
+     *   2. Round trip through a loopback device
+     *-----------------------------------------*/
+
+    /**
+     * Tests that percentiles are within the bucket
+     * precision of the exact values, and that small
+     * values are exact.
+     * <br /><br />
+     * Expected return value: percentiles within 1/32
+     */
+    public void testPercentiles()
+    {
+        int              i;
+        LatencyHistogram h = new LatencyHistogram( "test" );
+
+        assertEquals( "Empty histogram", 0, h.getPercentile( 0.5 ) );
+
+        for( i = 1; i <= 100000; ++i )
+        {
+            h.record( i * 1000L );
+        }
+
+        assertEquals( "Count", 100000, h.getCount() );
+        assertEquals( "Max", 100000000L, h.getMax() );
+        assertEquals( "p50", 50000000.0, h.getPercentile( 0.5 ), 50000000.0 / 32.0 );
+        assertEquals( "p99", 99000000.0, h.getPercentile( 0.99 ), 99000000.0 / 32.0 );
+        assertEquals( "p100 is the max", 100000000L, h.getPercentile( 1.0 ) );
+
+        h.reset();
+        h.record( 7 );
+        h.record( -3 );
+        assertEquals( "Small values are exact", 7, h.getPercentile( 1.0 ) );
+        assertEquals( "Negative values count as 0", 0, h.getPercentile( 0.5 ) );
+
+    }   /* testPercentiles() */
+
+    /**
+     * Tests that an impulse played into a loopback
+     * device is found again after the device's delay.
+     * <br /><br />
+     * Expected return value: the loopback delay
+     */
+    public void testLoopback()
+    {
+        LoopbackDevice  d = new LoopbackDevice( 1234, 512 );
+        ImpulseLoopback l = new ImpulseLoopback( d, d, 48000 );
+
+        assertEquals( "Every impulse came back", 25, l.run( 400 ) );
+        assertEquals( "No misses", 0, l.getMissCount() );
+        assertEquals( "Delay in frames", 1234, l.getLastLatencyFrames() );
+        assertEquals( "Delay in ns", 1234L * 1000000000L / 48000L, l.getHistogram().getMax() );
+
+    }   /* testLoopback() */
+
+};  /* LatencyHistogramTest */
@@ -0,0 +1,117 @@
+package com.example.noisecancellation.latency;
+
+/**
+ * Per-stage latency histograms for the processing pipeline.
+ *
+ * Every block is stamped with System.nanoTime() when the
+ * capture read returns, and each stage records the time
+ * from that stamp (or from its own start) into its
+ * histogram:
+ *
+ * <pre>
+ *     PROCESS - capture read returned to processing done
+ *     QUEUE   - capture read returned to the render thread
+ *               taking the block (processing plus time
+ *               spent in the jitter buffer)
+ *     WRITE   - time spent in AudioSink.write()
+ *     TOTAL   - capture read returned to write returned
+ * </pre>
+ *
+ * None of these include the buffering inside the devices
+ * themselves; ImpulseLoopback measures that.
+ */
+public final class PipelineLatency
+{
+    /*-----------------------------------------
+     * Stages
+     *---------------------------------------*/
+    public enum Stage { PROCESS, QUEUE, WRITE, TOTAL };
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      histograms - one per stage, by ordinal
+     *---------------------------------------*/
+    private final LatencyHistogram [] histograms;
+
+    /**
+     * Default constructor for the pipeline histograms.
+     */
+    public PipelineLatency()
+    {
+        int      i;
+        Stage [] stages = Stage.values();
+
+        histograms = new LatencyHistogram[ stages.length ];
+        for( i = 0; i < stages.length; ++i )
+        {
+            histograms[ i ] = new LatencyHistogram( stages[ i ].name().toLowerCase() );
+        }
+
+    }   /* PipelineLatency() */
+
+    /**
+     * Records the latency of one block through a stage.
+     *
+     * @param stage
+     *  The stage.
+     * @param ns
+     *  The latency in nanoseconds.
+     */
+    public void record( final Stage stage, final long ns )
+    {
+        histograms[ stage.ordinal() ].record( ns );
+
+    }   /* record() */
+
+    /**
+     * Returns the histogram for a stage.
+     *
+     * @param stage
+     *  The stage.
+     *
+     * @return
+     *  The stage's histogram.
+     */
+    public LatencyHistogram get( final Stage stage )
+    {
+        return( histograms[ stage.ordinal() ] );
+
+    }   /* get() */
+
+    /**
+     * Forgets every recorded value.
+     */
+    public void reset()
+    {
+        int i;
+
+        for( i = 0; i < histograms.length; ++i )
+        {
+            histograms[ i ].reset();
+        }
+
+    }   /* reset() */
+
+    /**
+     * Summarizes every stage, one per line. This
+     * allocates, so don't call it from the audio threads.
+     *
+     * @return
+     *  The summary.
+     */
+    @Override
+    public String toString()
+    {
+        int           i;
+        StringBuilder sb = new StringBuilder();
+
+        for( i = 0; i < histograms.length; ++i )
+        {
+            sb.append( histograms[ i ] ).append( '\n' );
+        }
+
+        return( sb.toString() );
+
+    }   /* toString() */
+
+};  /* PipelineLatency */
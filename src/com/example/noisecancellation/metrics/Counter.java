@@ -0,0 +1,38 @@
+package com.example.noisecancellation.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A monotonically increasing count. Updating it is a
+ * single atomic add, so it can be done from the audio
+ * threads, and it can be read from any thread.
+ */
+public final class Counter
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final String     name;
+    private final AtomicLong value;
+
+    /**
+     * Constructor for a counter. Use
+     * MetricsRegistry.counter() instead, so that it
+     * shows up in snapshots.
+     *
+     * @param counter_name
+     *  The name the counter is reported under.
+     */
+    Counter( final String counter_name )
+    {
+        name  = counter_name;
+        value = new AtomicLong();
+
+    }   /* Counter() */
+
+    public void   increment()          { value.incrementAndGet(); }
+    public void   add( final long n )  { value.addAndGet( n );    }
+    public long   get()                { return( value.get() );   }
+    public String getName()            { return( name );          }
+
+};  /* Counter */
@@ -0,0 +1,70 @@
+package com.example.noisecancellation.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latest value of something, along with the largest
+ * value it has had since the peak was last reset.
+ * Setting it is allocation-free, so it can be done from
+ * the audio threads, and it can be read from any thread.
+ */
+public final class Gauge
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final String     name;
+    private final AtomicLong value;
+    private final AtomicLong peak;
+
+    /**
+     * Constructor for a gauge. Use MetricsRegistry.gauge()
+     * instead, so that it shows up in snapshots.
+     *
+     * @param gauge_name
+     *  The name the gauge is reported under.
+     */
+    Gauge( final String gauge_name )
+    {
+        name  = gauge_name;
+        value = new AtomicLong();
+        peak  = new AtomicLong();
+
+    }   /* Gauge() */
+
+    /**
+     * Sets the gauge, raising the peak if needed.
+     *
+     * @param v
+     *  The new value.
+     */
+    public void set( final long v )
+    {
+        long p;
+
+        value.set( v );
+        do
+        {
+            p = peak.get();
+        } while( ( v > p ) && !peak.compareAndSet( p, v ) );
+
+    }   /* set() */
+
+    /**
+     * Returns the peak and starts a new one at the
+     * current value.
+     *
+     * @return
+     *  The largest value since the last call.
+     */
+    public long resetPeak()
+    {
+        return( peak.getAndSet( value.get() ) );
+
+    }   /* resetPeak() */
+
+    public long   get()     { return( value.get() ); }
+    public long   getPeak() { return( peak.get() );  }
+    public String getName() { return( name );        }
+
+};  /* Gauge */
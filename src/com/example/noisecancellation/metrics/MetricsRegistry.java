@@ -0,0 +1,168 @@
+package com.example.noisecancellation.metrics;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.example.noisecancellation.latency.LatencyHistogram;
+
+/**
+ * A named set of counters, gauges and timers.
+ *
+ * Metrics are created up front, while the pipeline is
+ * being set up, and the audio threads then update them
+ * directly without going through the registry. Timers
+ * are LatencyHistograms, so they keep percentiles as well
+ * as a count and a maximum.
+ *
+ * snapshot() reads every metric into a fresh map. It
+ * allocates, so it's meant to be called off the audio
+ * threads (from the UI, or a periodic reporter), and it
+ * never blocks the threads updating the metrics.
+ */
+public final class MetricsRegistry
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final ArrayList<Counter>          counters;
+    private final ArrayList<Gauge>            gauges;
+    private final ArrayList<LatencyHistogram> timers;
+
+    /**
+     * Default constructor for an empty registry.
+     */
+    public MetricsRegistry()
+    {
+        counters = new ArrayList<Counter>();
+        gauges   = new ArrayList<Gauge>();
+        timers   = new ArrayList<LatencyHistogram>();
+
+    }   /* MetricsRegistry() */
+
+    /**
+     * Returns the counter with the given name, creating
+     * it if it doesn't exist.
+     *
+     * @param name
+     *  The counter's name.
+     *
+     * @return
+     *  The counter.
+     */
+    public synchronized Counter counter( final String name )
+    {
+        Counter c;
+        int     i;
+
+        for( i = 0; i < counters.size(); ++i )
+        {
+            if( counters.get( i ).getName().equals( name ) )
+            {
+                return( counters.get( i ) );
+            }
+        }
+
+        c = new Counter( name );
+        counters.add( c );
+        return( c );
+
+    }   /* counter() */
+
+    /**
+     * Returns the gauge with the given name, creating
+     * it if it doesn't exist.
+     *
+     * @param name
+     *  The gauge's name.
+     *
+     * @return
+     *  The gauge.
+     */
+    public synchronized Gauge gauge( final String name )
+    {
+        Gauge g;
+        int   i;
+
+        for( i = 0; i < gauges.size(); ++i )
+        {
+            if( gauges.get( i ).getName().equals( name ) )
+            {
+                return( gauges.get( i ) );
+            }
+        }
+
+        g = new Gauge( name );
+        gauges.add( g );
+        return( g );
+
+    }   /* gauge() */
+
+    /**
+     * Returns the timer with the given name, creating
+     * it if it doesn't exist.
+     *
+     * @param name
+     *  The timer's name.
+     *
+     * @return
+     *  The timer, which records nanoseconds.
+     */
+    public synchronized LatencyHistogram timer( final String name )
+    {
+        LatencyHistogram t;
+        int              i;
+
+        for( i = 0; i < timers.size(); ++i )
+        {
+            if( timers.get( i ).getName().equals( name ) )
+            {
+                return( timers.get( i ) );
+            }
+        }
+
+        t = new LatencyHistogram( name );
+        timers.add( t );
+        return( t );
+
+    }   /* timer() */
+
+    /**
+     * Reads every metric. Gauges are reported as their
+     * value and their peak (name.peak); timers as their
+     * count, p50, p99 and max in nanoseconds.
+     *
+     * @return
+     *  The metrics, sorted by name.
+     */
+    public synchronized Map<String, Long> snapshot()
+    {
+        int               i;
+        Gauge             g;
+        LatencyHistogram  t;
+        Map<String, Long> out = new TreeMap<String, Long>();
+
+        for( i = 0; i < counters.size(); ++i )
+        {
+            out.put( counters.get( i ).getName(), Long.valueOf( counters.get( i ).get() ) );
+        }
+        for( i = 0; i < gauges.size(); ++i )
+        {
+            g = gauges.get( i );
+            out.put( g.getName(), Long.valueOf( g.get() ) );
+            out.put( g.getName() + ".peak", Long.valueOf( g.getPeak() ) );
+        }
+        for( i = 0; i < timers.size(); ++i )
+        {
+            t = timers.get( i );
+            out.put( t.getName() + ".count", Long.valueOf( t.getCount() ) );
+            out.put( t.getName() + ".p50", Long.valueOf( t.getPercentile( 0.5 ) ) );
+            out.put( t.getName() + ".p99", Long.valueOf( t.getPercentile( 0.99 ) ) );
+            out.put( t.getName() + ".max", Long.valueOf( t.getMax() ) );
+        }
+
+        return( out );
+
+    }   /* snapshot() */
+
+};  /* MetricsRegistry */
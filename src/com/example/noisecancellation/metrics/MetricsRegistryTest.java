@@ -0,0 +1,184 @@
+package com.example.noisecancellation.metrics;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class MetricsRegistryTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING MetricsRegistry::snapshot(), Counter,
+     * Gauge and PipelineMetrics
+     *
+     * TEST CASES:
+     *   1. Counters, gauges and timers read into a
+     *      snapshot under their names
+     *   2. Asking for a name twice giving the same
+     *      metric
+     *   3. A gauge's peak, and resetting it
+     *   4. The load ratio and deadline misses of
+     *      processed blocks
+     *   5. Short, partial and failed reads and
+     *      writes, and concealed blocks
+     *-----------------------------------------*/
+
+    /**
+     * Tests that a snapshot holds every metric under its
+     * name: counters as their count, gauges as their value
+     * and peak, timers as their count, percentiles and
+     * max.
+     * <br /><br />
+     * Expected return value: the recorded values
+     */
+    public void testSnapshot()
+    {
+        MetricsRegistry   r = new MetricsRegistry();
+        Counter           c = r.counter( "c" );
+        Gauge             g = r.gauge( "g" );
+        Map<String, Long> s;
+
+        c.increment();
+        c.add( 4 );
+        g.set( 9 );
+        g.set( 3 );
+        r.timer( "t" ).record( 100 );
+        r.timer( "t" ).record( 300 );
+
+        s = r.snapshot();
+        assertEquals( "Entries", 7, s.size() );
+        assertEquals( "Counter", 5L, s.get( "c" ).longValue() );
+        assertEquals( "Gauge", 3L, s.get( "g" ).longValue() );
+        assertEquals( "Gauge peak", 9L, s.get( "g.peak" ).longValue() );
+        assertEquals( "Timer count", 2L, s.get( "t.count" ).longValue() );
+        assertEquals( "Timer max", 300L, s.get( "t.max" ).longValue() );
+        assertTrue( "Timer p50", s.get( "t.p50" ).longValue() >= 100 );
+        assertTrue( "Timer p99", s.get( "t.p99" ).longValue() >= 300 );
+
+        c.increment();
+        assertEquals( "Snapshot is a copy", 5L, s.get( "c" ).longValue() );
+        assertEquals( "Next snapshot", 6L, r.snapshot().get( "c" ).longValue() );
+
+    }   /* testSnapshot() */
+
+    /**
+     * Tests that asking for a name again gives back the
+     * metric already registered under it.
+     * <br /><br />
+     * Expected return value: the same instance
+     */
+    public void testSameName()
+    {
+        MetricsRegistry r = new MetricsRegistry();
+
+        assertSame( "Counter", r.counter( "a" ), r.counter( "a" ) );
+        assertSame( "Gauge", r.gauge( "a" ), r.gauge( "a" ) );
+        assertSame( "Timer", r.timer( "a" ), r.timer( "a" ) );
+        assertTrue( "Different names", r.counter( "a" ) != r.counter( "b" ) );
+
+    }   /* testSameName() */
+
+    /**
+     * Tests that a gauge's peak only goes up, and that
+     * resetting it returns the old peak and starts again
+     * from the current value.
+     * <br /><br />
+     * Expected return value: the largest value since the
+     * last reset
+     */
+    public void testPeak()
+    {
+        Gauge g = new MetricsRegistry().gauge( "g" );
+
+        g.set( 5 );
+        g.set( 12 );
+        g.set( 7 );
+        assertEquals( "Value", 7, g.get() );
+        assertEquals( "Peak", 12, g.getPeak() );
+
+        assertEquals( "Reset returns the peak", 12, g.resetPeak() );
+        assertEquals( "New peak is the value", 7, g.getPeak() );
+        g.set( 2 );
+        assertEquals( "Lower value", 7, g.getPeak() );
+        g.set( 8 );
+        assertEquals( "Higher value", 8, g.getPeak() );
+
+    }   /* testPeak() */
+
+    /**
+     * Tests the load ratio and deadline misses recorded
+     * for processed blocks.
+     * <br /><br />
+     * Expected return value: the load in 1/1000 of the
+     * block duration, a miss for each block over it
+     */
+    public void testProcess()
+    {
+        MetricsRegistry   r = new MetricsRegistry();
+        PipelineMetrics   m = new PipelineMetrics( r );
+        Map<String, Long> s;
+
+        m.recordProcess( 2500000L, 10000000L );
+        assertEquals( "Quarter load", 250, m.getLoad().get() );
+        m.recordProcess( 15000000L, 10000000L );
+        m.recordProcess( 10000000L, 10000000L );
+        m.recordProcess( 4000000L, 10000000L );
+
+        s = r.snapshot();
+        assertEquals( "Blocks", 4L, s.get( "process.blocks" ).longValue() );
+        assertEquals( "Load", 400L, s.get( "process.load_permille" ).longValue() );
+        assertEquals( "Peak load", 1500L, s.get( "process.load_permille.peak" ).longValue() );
+        assertEquals( "Only over the deadline misses", 1L, s.get( "process.deadline_misses" ).longValue() );
+        assertEquals( "Misses accessor", 1, m.getDeadlineMisses().get() );
+        assertEquals( "Timed", 4, m.getProcessTime().getCount() );
+        assertEquals( "Slowest", 15000000L, s.get( "process.time.max" ).longValue() );
+
+        m.recordProcess( 1000L, 0 );
+        assertEquals( "No duration leaves the load", 400, m.getLoad().get() );
+
+    }   /* testProcess() */
+
+    /**
+     * Tests the source and sink counts: bytes asked for
+     * and moved, short reads, partial writes, errors and
+     * concealed blocks.
+     * <br /><br />
+     * Expected return value: each outcome counted once,
+     * failed calls adding no bytes moved
+     */
+    public void testReadWrite()
+    {
+        MetricsRegistry   r = new MetricsRegistry();
+        PipelineMetrics   m = new PipelineMetrics( r );
+        Map<String, Long> s;
+
+        m.recordRead( 512, 512, 10 );
+        m.recordRead( 512, 200, 20 );
+        m.recordRead( 512, -3, 30 );
+
+        m.recordWrite( 512, 512, true, 40 );
+        m.recordWrite( 512, 100, true, 70 );
+        m.recordWrite( 512, 0, false, 50 );
+        m.recordConceal( true );
+        m.recordConceal( false );
+
+        s = r.snapshot();
+        assertEquals( "Reads", 3L, s.get( "source.reads" ).longValue() );
+        assertEquals( "Read requested", 1536L, s.get( "source.bytes_requested" ).longValue() );
+        assertEquals( "Read", 712L, s.get( "source.bytes_read" ).longValue() );
+        assertEquals( "Short reads", 1L, s.get( "source.short_reads" ).longValue() );
+        assertEquals( "Read errors", 1L, s.get( "source.errors" ).longValue() );
+        assertEquals( "Read time", 30L, s.get( "source.read_time.max" ).longValue() );
+
+        assertEquals( "Writes", 3L, s.get( "sink.writes" ).longValue() );
+        assertEquals( "Write requested", 1536L, s.get( "sink.bytes_requested" ).longValue() );
+        assertEquals( "Written", 612L, s.get( "sink.bytes_written" ).longValue() );
+        assertEquals( "Partial writes", 1L, s.get( "sink.partial_writes" ).longValue() );
+        assertEquals( "Write and conceal errors", 2L, s.get( "sink.errors" ).longValue() );
+        assertEquals( "Concealed", 2L, s.get( "sink.concealed_blocks" ).longValue() );
+        assertEquals( "Last write", 50L, s.get( "sink.write_ns" ).longValue() );
+        assertEquals( "Slowest write", 70L, s.get( "sink.write_ns.peak" ).longValue() );
+        assertEquals( "Writes timed", 3, m.getSinkWriteTime().getCount() );
+
+    }   /* testReadWrite() */
+
+};  /* MetricsRegistryTest */
@@ -0,0 +1,217 @@
+package com.example.noisecancellation.metrics;
+
+import com.example.noisecancellation.latency.LatencyHistogram;
+
+/**
+ * The metrics MainProcess keeps for each stage of the
+ * pipeline, registered in a MetricsRegistry under these
+ * names:
+ *
+ * <pre>
+ *     source.reads             reads from the AudioSource
+ *     source.bytes_requested   bytes asked for
+ *     source.bytes_read        bytes actually read
+ *     source.short_reads       reads that came back short
+ *     source.errors            reads that failed
+ *     source.read_time         time spent reading (timer)
+ *     process.blocks           blocks processed
+ *     process.time             time spent processing (timer)
+ *     process.load_permille    processing time / block
+ *                              duration, in 1/1000 (gauge)
+ *     process.deadline_misses  blocks that took longer to
+ *                              process than to play
+ *     sink.writes              writes to the AudioSink
+ *     sink.bytes_requested     bytes handed to the sink
+ *     sink.bytes_written       bytes the sink accepted
+ *     sink.partial_writes      writes the sink cut short
+ *     sink.errors              writes that failed
+ *     sink.write_time          time spent writing (timer)
+ *     sink.write_ns            time spent in the last
+ *                              write (gauge)
+ *     sink.concealed_blocks    blocks the sink made up
+ *                              for late ones
+ * </pre>
+ *
+ * Every record method is allocation-free and lock-free.
+ * The source and process methods are called from the
+ * capture thread and the sink method from the render
+ * thread; each metric only ever has one writer, so plain
+ * atomics are all the striping that's needed.
+ */
+public final class PipelineMetrics
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final MetricsRegistry  registry;
+
+    private final Counter          source_reads;
+    private final Counter          source_requested;
+    private final Counter          source_read;
+    private final Counter          source_short;
+    private final Counter          source_errors;
+    private final LatencyHistogram source_time;
+
+    private final Counter          process_blocks;
+    private final LatencyHistogram process_time;
+    private final Gauge            process_load;
+    private final Counter          process_misses;
+
+    private final Counter          sink_writes;
+    private final Counter          sink_requested;
+    private final Counter          sink_written;
+    private final Counter          sink_partial;
+    private final Counter          sink_errors;
+    private final LatencyHistogram sink_time;
+    private final Gauge            sink_last;
+    private final Counter          sink_concealed;
+
+    /**
+     * Constructor for the pipeline metrics.
+     *
+     * @param r
+     *  The registry the metrics are created in.
+     */
+    public PipelineMetrics( final MetricsRegistry r )
+    {
+        registry         = r;
+
+        source_reads     = r.counter( "source.reads" );
+        source_requested = r.counter( "source.bytes_requested" );
+        source_read      = r.counter( "source.bytes_read" );
+        source_short     = r.counter( "source.short_reads" );
+        source_errors    = r.counter( "source.errors" );
+        source_time      = r.timer( "source.read_time" );
+
+        process_blocks   = r.counter( "process.blocks" );
+        process_time     = r.timer( "process.time" );
+        process_load     = r.gauge( "process.load_permille" );
+        process_misses   = r.counter( "process.deadline_misses" );
+
+        sink_writes      = r.counter( "sink.writes" );
+        sink_requested   = r.counter( "sink.bytes_requested" );
+        sink_written     = r.counter( "sink.bytes_written" );
+        sink_partial     = r.counter( "sink.partial_writes" );
+        sink_errors      = r.counter( "sink.errors" );
+        sink_time        = r.timer( "sink.write_time" );
+        sink_last        = r.gauge( "sink.write_ns" );
+        sink_concealed   = r.counter( "sink.concealed_blocks" );
+
+    }   /* PipelineMetrics() */
+
+    /**
+     * Records one read from the audio source.
+     *
+     * @param requested
+     *  Bytes asked for.
+     * @param read
+     *  Bytes read, or a negative error code.
+     * @param ns
+     *  Time spent in the read.
+     */
+    public void recordRead( final int requested, final int read, final long ns )
+    {
+        source_reads.increment();
+        source_requested.add( requested );
+        source_time.record( ns );
+
+        if( read < 0 )
+        {
+            source_errors.increment();
+            return;
+        }
+
+        source_read.add( read );
+        if( read < requested )
+        {
+            source_short.increment();
+        }
+
+    }   /* recordRead() */
+
+    /**
+     * Records the processing of one block.
+     *
+     * @param ns
+     *  Time spent processing it.
+     * @param block_ns
+     *  How long the block takes to play, which is the
+     *  most processing can take without falling behind.
+     */
+    public void recordProcess( final long ns, final long block_ns )
+    {
+        process_blocks.increment();
+        process_time.record( ns );
+
+        if( block_ns > 0 )
+        {
+            process_load.set( ns * 1000L / block_ns );
+        }
+        if( ns > block_ns )
+        {
+            process_misses.increment();
+        }
+
+    }   /* recordProcess() */
+
+    /**
+     * Records one write to the audio sink.
+     *
+     * @param requested
+     *  Bytes handed to the sink.
+     * @param written
+     *  Bytes the sink accepted.
+     * @param ok
+     *  What write() returned.
+     * @param ns
+     *  Time spent in the write.
+     */
+    public void recordWrite( final int requested, final int written, final boolean ok, final long ns )
+    {
+        sink_writes.increment();
+        sink_requested.add( requested );
+        sink_time.record( ns );
+        sink_last.set( ns );
+
+        if( !ok )
+        {
+            sink_errors.increment();
+            return;
+        }
+
+        sink_written.add( written );
+        if( written < requested )
+        {
+            sink_partial.increment();
+        }
+
+    }   /* recordWrite() */
+
+    /**
+     * Records one block concealed by the audio sink.
+     *
+     * @param ok
+     *  What conceal() returned.
+     */
+    public void recordConceal( final boolean ok )
+    {
+        sink_concealed.increment();
+        if( !ok )
+        {
+            sink_errors.increment();
+        }
+
+    }   /* recordConceal() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public MetricsRegistry  getRegistry()        { return( registry );       }
+    public Counter          getDeadlineMisses()  { return( process_misses ); }
+    public Gauge            getLoad()            { return( process_load );   }
+    public Gauge            getLastWrite()       { return( sink_last );      }
+    public LatencyHistogram getProcessTime()     { return( process_time );   }
+    public LatencyHistogram getSinkWriteTime()   { return( sink_time );      }
+    public LatencyHistogram getSourceReadTime()  { return( source_time );    }
+
+};  /* PipelineMetrics */
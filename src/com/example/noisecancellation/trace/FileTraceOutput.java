@@ -0,0 +1,93 @@
+package com.example.noisecancellation.trace;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Appends trace events to a text file, one per line.
+ *
+ * A write error doesn't stop the drainer; the event is
+ * lost and hasFailed() starts returning true.
+ */
+public final class FileTraceOutput implements TraceOutput
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final BufferedWriter writer;
+    private boolean              failed;
+
+    /**
+     * Constructor for a file output.
+     *
+     * @param path
+     *  The file to append to. It's created if it
+     *  doesn't exist.
+     *
+     * @throws IOException
+     *  Throws an exception if the file can't be opened.
+     */
+    public FileTraceOutput( final String path ) throws IOException
+    {
+        writer = new BufferedWriter( new FileWriter( path, true ) );
+        failed = false;
+
+    }   /* FileTraceOutput() */
+
+    public void println( final String line )
+    {
+        try
+        {
+            writer.write( line );
+            writer.newLine();
+        }
+        catch( IOException ioe )
+        {
+            failed = true;
+        }
+
+    }   /* println() */
+
+    public void flush()
+    {
+        try
+        {
+            writer.flush();
+        }
+        catch( IOException ioe )
+        {
+            failed = true;
+        }
+
+    }   /* flush() */
+
+    /**
+     * Flushes and closes the file.
+     */
+    public void close()
+    {
+        try
+        {
+            writer.close();
+        }
+        catch( IOException ioe )
+        {
+            failed = true;
+        }
+
+    }   /* close() */
+
+    /**
+     * Returns whether any write to the file failed.
+     *
+     * @return
+     *  Returns true if an event was lost to an I/O error.
+     */
+    public boolean hasFailed()
+    {
+        return( failed );
+
+    }   /* hasFailed() */
+
+};  /* FileTraceOutput */
@@ -0,0 +1,37 @@
+package com.example.noisecancellation.trace;
+
+import android.util.Log;
+
+/**
+ * Sends trace events to the platform log.
+ */
+public final class LogTraceOutput implements TraceOutput
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *---------------------------------------*/
+    private final String tag;
+
+    /**
+     * Constructor for a log output.
+     *
+     * @param log_tag
+     *  The tag every event is logged under.
+     */
+    public LogTraceOutput( final String log_tag )
+    {
+        tag = log_tag;
+
+    }   /* LogTraceOutput() */
+
+    public void println( final String line )
+    {
+        Log.i( tag, line );
+
+    }   /* println() */
+
+    public void flush()
+    {
+    }   /* flush() */
+
+};  /* LogTraceOutput */
@@ -0,0 +1,199 @@
+package com.example.noisecancellation.trace;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Process-wide trace events for the audio path.
+ *
+ * The audio threads call emit() instead of the platform
+ * log. When the event's category is disabled that is a
+ * single volatile read; otherwise the event goes into the
+ * shared TraceRing without building any strings or taking
+ * any locks, and a TraceDrainer formats it later on its
+ * own thread.
+ *
+ * Event ids carry their category in the upper bits. Each
+ * category can be turned on and off at runtime, and can be
+ * sampled so that only every n-th event is kept. Only the
+ * ERROR category is on to begin with.
+ */
+public final class Trace
+{
+    /*-----------------------------------------
+     * Categories
+     *---------------------------------------*/
+    public static final int CAT_ERROR      = 0;
+    public static final int CAT_MIC        = 1;
+    public static final int CAT_OUTPUT     = 2;
+    public static final int CAT_PIPELINE   = 3;
+    public static final int CATEGORY_COUNT = 4;
+
+    /*-----------------------------------------
+     * Events. The payloads are listed after
+     * each one.
+     *---------------------------------------*/
+    /** bytes requested, bytes read, ns spent reading */
+    public static final int MIC_READ           = ( CAT_MIC << 8 ) | 0;
+    /** bytes requested, bytes written, ns spent writing */
+    public static final int OUTPUT_WRITE       = ( CAT_OUTPUT << 8 ) | 0;
+    /** bytes requested, bytes written, 0 */
+    public static final int OUTPUT_SHORT_WRITE = ( CAT_ERROR << 8 ) | 0;
+    /** bytes requested, error code, 0 */
+    public static final int OUTPUT_WRITE_ERROR = ( CAT_ERROR << 8 ) | 1;
+    /** bytes requested, error code, 0 */
+    public static final int MIC_READ_ERROR     = ( CAT_ERROR << 8 ) | 2;
+
+    /*-----------------------------------------
+     * Literal Constants
+     *      DEFAULT_CAPACITY - events held by the
+     *                         shared ring
+     *---------------------------------------*/
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final TraceRing          SHARED       = new TraceRing( DEFAULT_CAPACITY );
+    private static final int []             sample_every = new int[ CATEGORY_COUNT ];
+    private static final AtomicIntegerArray sample_count = new AtomicIntegerArray( CATEGORY_COUNT );
+    private static volatile int             enabled_mask = 1 << CAT_ERROR;
+
+    static
+    {
+        int i;
+
+        for( i = 0; i < CATEGORY_COUNT; ++i )
+        {
+            sample_every[ i ] = 1;
+        }
+
+    }
+
+    private Trace()
+    {
+    }   /* Trace() */
+
+    /**
+     * Records an event if its category is enabled and
+     * it isn't sampled out. Never blocks or allocates.
+     *
+     * @param event
+     *  The event id.
+     * @param a
+     *  First payload.
+     * @param b
+     *  Second payload.
+     * @param c
+     *  Third payload.
+     */
+    public static void emit( final int event, final long a, final long b, final long c )
+    {
+        int cat   = event >>> 8;
+        int every;
+
+        if( 0 == ( enabled_mask & ( 1 << cat ) ) )
+        {
+            return;
+        }
+
+        every = sample_every[ cat ];
+        if( ( every > 1 ) && ( 0 != ( sample_count.incrementAndGet( cat ) % every ) ) )
+        {
+            return;
+        }
+
+        SHARED.offer( event, System.nanoTime(), a, b, c );
+
+    }   /* emit() */
+
+    /**
+     * Turns a category on or off.
+     *
+     * @param category
+     *  One of the CAT_* constants.
+     * @param enabled
+     *  Whether its events should be recorded.
+     */
+    public static synchronized void setEnabled( final int category, final boolean enabled )
+    {
+        if( enabled )
+        {
+            enabled_mask = enabled_mask | ( 1 << category );
+        }
+        else
+        {
+            enabled_mask = enabled_mask & ~( 1 << category );
+        }
+
+    }   /* setEnabled() */
+
+    /**
+     * Keeps only every n-th event of a category.
+     *
+     * @param category
+     *  One of the CAT_* constants.
+     * @param every
+     *  1 keeps every event, 100 keeps one in a hundred.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if every isn't positive.
+     */
+    public static void setSampling( final int category, final int every )
+    {
+        if( every < 1 )
+        {
+            throw new IllegalArgumentException( "Sampling interval must be positive." );
+        }
+
+        sample_every[ category ] = every;
+
+    }   /* setSampling() */
+
+    /**
+     * Returns whether a category is turned on.
+     *
+     * @param category
+     *  One of the CAT_* constants.
+     *
+     * @return
+     *  Returns true if its events are recorded.
+     */
+    public static boolean isEnabled( final int category )
+    {
+        return( 0 != ( enabled_mask & ( 1 << category ) ) );
+
+    }   /* isEnabled() */
+
+    /**
+     * Returns the ring every event goes into.
+     *
+     * @return
+     *  The shared trace ring.
+     */
+    public static TraceRing getRing()
+    {
+        return( SHARED );
+
+    }   /* getRing() */
+
+    /**
+     * Returns a readable name for an event.
+     *
+     * @param event
+     *  The event id.
+     *
+     * @return
+     *  The name of the event.
+     */
+    public static String nameOf( final int event )
+    {
+        switch( event )
+        {
+            case MIC_READ:           return( "mic_read" );
+            case OUTPUT_WRITE:       return( "output_write" );
+            case OUTPUT_SHORT_WRITE: return( "output_short_write" );
+            case OUTPUT_WRITE_ERROR: return( "output_write_error" );
+            case MIC_READ_ERROR:     return( "mic_read_error" );
+            default:                 return( "event_" + Integer.toHexString( event ) );
+        }
+
+    }   /* nameOf() */
+
+};  /* Trace */
@@ -0,0 +1,191 @@
+package com.example.noisecancellation.trace;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread that empties a TraceRing and formats
+ * its events to a TraceOutput.
+ *
+ * All of the string building and I/O that used to happen
+ * on the audio threads happens here instead. The drainer
+ * wakes up every period, writes out everything queued
+ * since, and goes back to sleep. Each line reads
+ *
+ * <pre>
+ *     &lt;ns since start&gt; &lt;event name&gt; &lt;a&gt; &lt;b&gt; &lt;c&gt;
+ * </pre>
+ *
+ * and a line reporting the count is written whenever the
+ * ring had to drop events.
+ */
+public final class TraceDrainer implements Runnable
+{
+    /*-----------------------------------------
+     * Literal Constants
+     *      DEFAULT_PERIOD_NS - time between drains
+     *---------------------------------------*/
+    public static final long DEFAULT_PERIOD_NS = 100000000L;
+
+    /*-----------------------------------------
+     * Class Attributes
+     *      ring         - where events come from
+     *      output       - where they go
+     *      period_ns    - time between drains
+     *      start_ns     - stamp lines are relative to
+     *      thread       - the drainer thread, if running
+     *      running      - cleared by stop()
+     *      last_dropped - dropped count last reported
+     *---------------------------------------*/
+    private final TraceRing   ring;
+    private final TraceOutput output;
+    private final long        period_ns;
+    private final long        start_ns;
+    private Thread            thread;
+    private volatile boolean  running;
+    private long              last_dropped;
+
+    /**
+     * Constructor for a drainer of the shared trace ring.
+     *
+     * @param out
+     *  Where the formatted events are written.
+     */
+    public TraceDrainer( final TraceOutput out )
+    {
+        this( Trace.getRing(), out, DEFAULT_PERIOD_NS );
+
+    }   /* TraceDrainer() */
+
+    /**
+     * Constructor for a trace drainer.
+     *
+     * @param src
+     *  The ring to drain.
+     * @param out
+     *  Where the formatted events are written.
+     * @param period
+     *  Nanoseconds between drains.
+     */
+    public TraceDrainer( final TraceRing src, final TraceOutput out, final long period )
+    {
+        ring         = src;
+        output       = out;
+        period_ns    = period;
+        start_ns     = System.nanoTime();
+        thread       = null;
+        running      = false;
+        last_dropped = 0;
+
+    }   /* TraceDrainer() */
+
+    /**
+     * Starts the drainer thread, if it isn't running.
+     */
+    public synchronized void start()
+    {
+        if( null != thread )
+        {
+            return;
+        }
+
+        running = true;
+        thread  = new Thread( this, "trace-drainer" );
+        thread.setDaemon( true );
+        thread.setPriority( Thread.MIN_PRIORITY );
+        thread.start();
+
+    }   /* start() */
+
+    /**
+     * Stops the drainer thread once it has written out
+     * everything queued so far, and waits for it.
+     */
+    public synchronized void stop()
+    {
+        if( null == thread )
+        {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark( thread );
+        try
+        {
+            thread.join();
+        }
+        catch( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+
+    }   /* stop() */
+
+    public void run()
+    {
+        TraceRing.Event e = new TraceRing.Event();
+
+        while( running )
+        {
+            drain( e );
+            LockSupport.parkNanos( this, period_ns );
+        }
+
+        drain( e );
+
+    }   /* run() */
+
+    /**
+     * Writes out every queued event from the calling
+     * thread, for use when the drainer thread isn't
+     * running (at shutdown, or in tests).
+     *
+     * @throws IllegalStateException
+     *  Throws an exception if the drainer thread is
+     *  running, since only one thread may poll the ring.
+     */
+    public synchronized void drainNow()
+    {
+        if( null != thread )
+        {
+            throw new IllegalStateException( "Drainer thread is running." );
+        }
+
+        drain( new TraceRing.Event() );
+
+    }   /* drainNow() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private void drain( final TraceRing.Event e )
+    {
+        long dropped;
+        int  count = 0;
+
+        while( ring.poll( e ) )
+        {
+            output.println( ( e.getTime() - start_ns )
+                          + " " + Trace.nameOf( e.getId() )
+                          + " " + e.getA()
+                          + " " + e.getB()
+                          + " " + e.getC() );
+            ++count;
+        }
+
+        dropped = ring.getDroppedCount();
+        if( dropped != last_dropped )
+        {
+            output.println( "dropped " + ( dropped - last_dropped ) );
+            last_dropped = dropped;
+            ++count;
+        }
+
+        if( count > 0 )
+        {
+            output.flush();
+        }
+
+    }   /* drain() */
+
+};  /* TraceDrainer */
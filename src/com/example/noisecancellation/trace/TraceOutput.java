@@ -0,0 +1,24 @@
+package com.example.noisecancellation.trace;
+
+/**
+ * Where a TraceDrainer sends formatted events.
+ *
+ * Only the drainer thread calls these, so they may
+ * allocate, block and take locks.
+ */
+public interface TraceOutput
+{
+    /**
+     * Writes one formatted event.
+     *
+     * @param line
+     *  The event, without a line terminator.
+     */
+    public void println( String line );
+
+    /**
+     * Pushes out anything that has been buffered.
+     */
+    public void flush();
+
+};  /* TraceOutput */
@@ -0,0 +1,210 @@
+package com.example.noisecancellation.trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, preallocated ring of binary trace events.
+ *
+ * Each event is an id, a System.nanoTime() stamp and three
+ * long payloads, stored in parallel arrays so nothing is
+ * allocated after construction. Any number of threads may
+ * offer events; exactly one thread (the drainer) may poll
+ * them.
+ *
+ * Every slot carries a sequence number saying whether it
+ * is free for the producer claiming position p (sequence
+ * == p) or holds the event published at position p
+ * (sequence == p + 1). A producer claims a position with
+ * a single compare-and-set and publishes with an ordered
+ * store, so neither side ever blocks. When the ring is
+ * full the new event is dropped and counted, rather than
+ * making the audio thread wait for the drainer.
+ */
+public final class TraceRing
+{
+    /*-----------------------------------------
+     * Class Attributes
+     *      mask     - index mask (capacity is a
+     *                 power of two)
+     *      sequence - publication state of each slot
+     *      ids      - event id of each slot
+     *      times    - timestamp of each slot
+     *      arg0..2  - payloads of each slot
+     *      tail     - next position to claim
+     *      head     - next position to poll
+     *                 (drainer only)
+     *      dropped  - events lost to a full ring
+     *---------------------------------------*/
+    private final int             mask;
+    private final AtomicLongArray sequence;
+    private final int  []         ids;
+    private final long []         times;
+    private final long []         arg0;
+    private final long []         arg1;
+    private final long []         arg2;
+    private final AtomicLong      tail;
+    private final AtomicLong      dropped;
+    private long                  head;
+
+    /**
+     * A reusable holder the drainer polls events into.
+     */
+    public static final class Event
+    {
+        private int  id;
+        private long time;
+        private long a;
+        private long b;
+        private long c;
+
+        public int  getId()   { return( id );   }
+        public long getTime() { return( time ); }
+        public long getA()    { return( a );    }
+        public long getB()    { return( b );    }
+        public long getC()    { return( c );    }
+
+    };  /* Event */
+
+    /**
+     * Constructor for a trace ring.
+     *
+     * @param min_capacity
+     *  The number of events the ring can hold. This is
+     *  rounded up to the next power of two.
+     *
+     * @throws IllegalArgumentException
+     *  Throws an exception if the capacity isn't positive.
+     */
+    public TraceRing( final int min_capacity )
+    {
+        int i;
+        int capacity = 1;
+
+        if( min_capacity < 1 )
+        {
+            throw new IllegalArgumentException( "Ring capacity must be positive." );
+        }
+
+        while( capacity < min_capacity )
+        {
+            capacity <<= 1;
+        }
+
+        mask     = capacity - 1;
+        sequence = new AtomicLongArray( capacity );
+        ids      = new int[ capacity ];
+        times    = new long[ capacity ];
+        arg0     = new long[ capacity ];
+        arg1     = new long[ capacity ];
+        arg2     = new long[ capacity ];
+        tail     = new AtomicLong();
+        dropped  = new AtomicLong();
+        head     = 0;
+
+        for( i = 0; i < capacity; ++i )
+        {
+            sequence.set( i, i );
+        }
+
+    }   /* TraceRing() */
+
+    /**
+     * Appends an event. Safe to call from any thread,
+     * and never blocks or allocates.
+     *
+     * @param id
+     *  The event id.
+     * @param time
+     *  When the event happened, from System.nanoTime().
+     * @param a
+     *  First payload.
+     * @param b
+     *  Second payload.
+     * @param c
+     *  Third payload.
+     *
+     * @return
+     *  Returns true if the event was stored, and false if
+     *  the ring was full and it was dropped.
+     */
+    public boolean offer( final int id, final long time, final long a, final long b, final long c )
+    {
+        long pos;
+        long seq;
+        int  slot;
+
+        for( ;; )
+        {
+            pos  = tail.get();
+            slot = (int)pos & mask;
+            seq  = sequence.get( slot );
+
+            if( seq == pos )
+            {
+                if( tail.compareAndSet( pos, pos + 1 ) )
+                {
+                    break;
+                }
+            }
+            else if( seq < pos )
+            {
+                /*-----------------------------
+                 * The drainer hasn't freed this
+                 * slot yet, so we're full.
+                 *---------------------------*/
+                dropped.incrementAndGet();
+                return( false );
+            }
+        }
+
+        ids[ slot ]   = id;
+        times[ slot ] = time;
+        arg0[ slot ]  = a;
+        arg1[ slot ]  = b;
+        arg2[ slot ]  = c;
+        sequence.set( slot, pos + 1 );
+        return( true );
+
+    }   /* offer() */
+
+    /**
+     * Takes the oldest event out of the ring. Must only
+     * be called from the drainer thread.
+     *
+     * @param out
+     *  Receives the event.
+     *
+     * @return
+     *  Returns true if there was an event, and false if
+     *  the ring was empty (or the oldest event hasn't been
+     *  completely written yet).
+     */
+    public boolean poll( final Event out )
+    {
+        int slot = (int)head & mask;
+
+        if( sequence.get( slot ) != head + 1 )
+        {
+            return( false );
+        }
+
+        out.id   = ids[ slot ];
+        out.time = times[ slot ];
+        out.a    = arg0[ slot ];
+        out.b    = arg1[ slot ];
+        out.c    = arg2[ slot ];
+
+        sequence.set( slot, head + mask + 1 );
+        ++head;
+        return( true );
+
+    }   /* poll() */
+
+    /*-----------------------------------------
+     * Class accessors
+     *---------------------------------------*/
+    public int  getCapacity()     { return( mask + 1 );      }
+    public long getDroppedCount() { return( dropped.get() ); }
+
+};  /* TraceRing */
@@ -0,0 +1,119 @@
+package com.example.noisecancellation.trace;
+
+import junit.framework.TestCase;
+
+public class TraceRingTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING TraceRing::offer()/poll()
+     *
+     * TEST CASES:
+     *   1. Full ring drops and counts
+     *   2. Several producers, one consumer
+     *-----------------------------------------*/
+
+    /**
+     * Tests that a full ring drops new events instead
+     * of overwriting old ones, and accepts events again
+     * once it has been drained.
+     * <br /><br />
+     * Expected return value: the first events, in order
+     */
+    public void testFull()
+    {
+        int             i;
+        TraceRing       ring = new TraceRing( 4 );
+        TraceRing.Event e    = new TraceRing.Event();
+
+        for( i = 0; i < 4; ++i )
+        {
+            assertTrue( "Event " + i + " stored", ring.offer( i, 0, i, 0, 0 ) );
+        }
+        assertFalse( "Full ring drops", ring.offer( 99, 0, 0, 0, 0 ) );
+        assertEquals( "Drop counted", 1, ring.getDroppedCount() );
+
+        for( i = 0; i < 4; ++i )
+        {
+            assertTrue( "Event " + i + " polled", ring.poll( e ) );
+            assertEquals( "Events come out in order", i, e.getId() );
+        }
+        assertFalse( "Ring is empty", ring.poll( e ) );
+        assertTrue( "Room again", ring.offer( 5, 0, 0, 0, 0 ) );
+
+    }   /* testFull() */
+
+    /**
+     * Tests that events offered from several threads
+     * while the ring is being drained are each seen
+     * exactly once, or counted as dropped.
+     * <br /><br />
+     * Expected return value: every event accounted for
+     */
+    public void testConcurrent() throws InterruptedException
+    {
+        int             i;
+        int             k;
+        long            received   = 0;
+        final int       producers  = 4;
+        final int       per_thread = 20000;
+        final TraceRing ring       = new TraceRing( 256 );
+        TraceRing.Event e          = new TraceRing.Event();
+        boolean []      seen       = new boolean[ producers * per_thread ];
+        Thread []       t          = new Thread[ producers ];
+
+        for( i = 0; i < producers; ++i )
+        {
+            final int id = i;
+            t[ i ] = new Thread()
+            {
+                public void run()
+                {
+                    int j;
+
+                    for( j = 0; j < per_thread; ++j )
+                    {
+                        ring.offer( id, 0, id * per_thread + j, 0, 0 );
+                    }
+                }
+            };
+            t[ i ].start();
+        }
+
+        for( ;; )
+        {
+            if( ring.poll( e ) )
+            {
+                k = (int)e.getA();
+                assertFalse( "Event " + k + " seen once", seen[ k ] );
+                assertEquals( "Payload matches producer", k / per_thread, e.getId() );
+                seen[ k ] = true;
+                ++received;
+                continue;
+            }
+
+            for( i = 0; i < producers; ++i )
+            {
+                if( t[ i ].isAlive() )
+                {
+                    break;
+                }
+            }
+            if( producers == i )
+            {
+                while( ring.poll( e ) )
+                {
+                    k = (int)e.getA();
+                    assertFalse( "Event " + k + " seen once", seen[ k ] );
+                    seen[ k ] = true;
+                    ++received;
+                }
+                break;
+            }
+        }
+
+        assertEquals( "Every event received or dropped",
+                      producers * per_thread, received + ring.getDroppedCount() );
+
+    }   /* testConcurrent() */
+
+};  /* TraceRingTest */
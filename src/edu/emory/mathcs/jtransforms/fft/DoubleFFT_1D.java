@@ -34,9 +34,11 @@
 
 package edu.emory.mathcs.jtransforms.fft;
 
-import java.util.concurrent.Future;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.TaskGroup;
 
 /**
  * Computes 1D Discrete Fourier Transform (DFT) of complex and real, double
@@ -79,6 +81,23 @@ public class DoubleFFT_1D {
 
     private Plans plan;
 
+    private Tables tables;
+
+    /**
+     * Tables of every live instance, by size. An instance keeps its entry
+     * alive through <code>tables</code>.
+     */
+    private static final TableRegistry<Tables> TABLES = new TableRegistry<Tables>();
+
+    /**
+     * Work space of each thread using this instance. Keeping it per thread
+     * lets an instance be shared by several threads at once, as the plan
+     * cache does, without any transform allocating after a thread's first.
+     */
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>();
+
+    private volatile Executor executor;
+
     private static final int[] factors = { 4, 2, 3, 5 };
 
     private static final double PI = 3.14159265358979311599796346854418516;
@@ -101,6 +120,59 @@ public class DoubleFFT_1D {
             if (getReminder(n, factors) >= 211) {
                 plan = Plans.BLUESTEIN;
                 nBluestein = ConcurrencyUtils.nextPow2(n * 2 - 1);
+            } else {
+                plan = Plans.MIXED_RADIX;
+            }
+        } else {
+            plan = Plans.SPLIT_RADIX;
+        }
+
+        Tables t = TABLES.get(n);
+        if (t == null) {
+            maketables();
+            t = TABLES.publish(n, new Tables(ip, w, nw, nc, wtable, wtable_r, bk1, bk2));
+        }
+        tables = t;
+        ip = t.ip;
+        w = t.w;
+        nw = t.nw;
+        nc = t.nc;
+        wtable = t.wtable;
+        wtable_r = t.wtable_r;
+        bk1 = t.bk1;
+        bk2 = t.bk2;
+    }
+
+    /**
+     * Sets the executor the parallel parts of this instance's transforms run
+     * on, in place of <code>ConcurrencyUtils.getExecutor()</code>. Sizes
+     * below <code>ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads()</code>
+     * always run on the calling thread.
+     * 
+     * @param executor
+     *            the executor, or null for the default
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the executor set by <code>setExecutor()</code>.
+     * 
+     * @return the executor, or null if the default is used
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Builds the tables for this instance's size and plan into its fields.
+     * Only called when no other instance of the same size has published them.
+     */
+    private void maketables() {
+        switch (plan) {
+        case BLUESTEIN:
+            {
                 bk1 = new double[2 * nBluestein];
                 bk2 = new double[2 * nBluestein];
                 this.ip = new int[2 + (int) Math.ceil(2 + (1 << (int) (Math.log(nBluestein + 0.5) / Math.log(2)) / 2))];
@@ -117,28 +189,33 @@ public class DoubleFFT_1D {
                     makect(nc, w, nw);
                 }
                 bluesteini();
-            } else {
-                plan = Plans.MIXED_RADIX;
+            }
+            break;
+        case MIXED_RADIX:
+            {
                 wtable = new double[4 * n + 15];
                 wtable_r = new double[2 * n + 15];
                 cffti();
                 rffti();
             }
-        } else {
-            plan = Plans.SPLIT_RADIX;
-            this.ip = new int[2 + (int) Math.ceil(2 + (1 << (int) (Math.log(n + 0.5) / Math.log(2)) / 2))];
-            this.w = new double[n];
-            int twon = 2 * n;
-            nw = ip[0];
-            if (twon > (nw << 2)) {
-                nw = twon >> 2;
-                makewt(nw);
-            }
-            nc = ip[1];
-            if (n > (nc << 2)) {
-                nc = n >> 2;
-                makect(nc, w, nw);
+            break;
+        case SPLIT_RADIX:
+            {
+                this.ip = new int[2 + (int) Math.ceil(2 + (1 << (int) (Math.log(n + 0.5) / Math.log(2)) / 2))];
+                this.w = new double[n];
+                int twon = 2 * n;
+                nw = ip[0];
+                if (twon > (nw << 2)) {
+                    nw = twon >> 2;
+                    makewt(nw);
+                }
+                nc = ip[1];
+                if (n > (nc << 2)) {
+                    nc = n >> 2;
+                    makect(nc, w, nw);
+                }
             }
+            break;
         }
     }
 
@@ -386,12 +463,12 @@ public class DoubleFFT_1D {
             realForward(a, offa);
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
             if ((nthreads > 1) && (n / 2 > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
-                Future<?>[] futures = new Future[nthreads];
+                TaskGroup tasks = getTasks();
                 int k = n / 2 / nthreads;
                 for (int i = 0; i < nthreads; i++) {
                     final int firstIdx = i * k;
                     final int lastIdx = (i == (nthreads - 1)) ? n / 2 : firstIdx + k;
-                    futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                    tasks.submit(new Runnable() {
                         public void run() {
                             int idx1, idx2;
                             for (int k = firstIdx; k < lastIdx; k++) {
@@ -403,7 +480,7 @@ public class DoubleFFT_1D {
                         }
                     });
                 }
-                ConcurrencyUtils.waitForCompletion(futures);
+                tasks.join();
             } else {
                 int idx1, idx2;
                 for (int k = 0; k < n / 2; k++) {
@@ -589,12 +666,12 @@ public class DoubleFFT_1D {
             realInverse2(a, offa, scale);
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
             if ((nthreads > 1) && (n / 2 > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
-                Future<?>[] futures = new Future[nthreads];
+                TaskGroup tasks = getTasks();
                 int k = n / 2 / nthreads;
                 for (int i = 0; i < nthreads; i++) {
                     final int firstIdx = i * k;
                     final int lastIdx = (i == (nthreads - 1)) ? n / 2 : firstIdx + k;
-                    futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                    tasks.submit(new Runnable() {
                         public void run() {
                             int idx1, idx2;
                             for (int k = firstIdx; k < lastIdx; k++) {
@@ -606,7 +683,7 @@ public class DoubleFFT_1D {
                         }
                     });
                 }
-                ConcurrencyUtils.waitForCompletion(futures);
+                tasks.join();
             } else {
                 int idx1, idx2;
                 for (int k = 0; k < n / 2; k++) {
@@ -1102,20 +1179,53 @@ public class DoubleFFT_1D {
         }
     }
 
+    /**
+     * Returns the calling thread's work space, creating it on first use.
+     */
+    private Scratch getScratch() {
+        Scratch s = scratch.get();
+        if (s == null) {
+            s = new Scratch((plan == Plans.BLUESTEIN) ? 2 * nBluestein : 0, (plan == Plans.MIXED_RADIX) ? 2 * n : 0);
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    /**
+     * Returns the calling thread's task group, set to this instance's
+     * executor.
+     */
+    private TaskGroup getTasks() {
+        TaskGroup tasks = getScratch().tasks;
+        tasks.setExecutor(executor);
+        return tasks;
+    }
+
+    /**
+     * Returns the calling thread's Bluestein work array with its zero
+     * padding restored. The first 2*n elements are always overwritten before
+     * they are read.
+     */
+    private double[] bluesteinScratch() {
+        double[] ak = getScratch().ak;
+        Arrays.fill(ak, 2 * n, 2 * nBluestein, 0);
+        return ak;
+    }
+
     private void bluestein_complex(final double[] a, final int offa, final int isign) {
-        final double[] ak = new double[2 * nBluestein];
+        final double[] ak = bluesteinScratch();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
             if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = n / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         if (isign > 0) {
                             for (int i = firstIdx; i < lastIdx; i++) {
@@ -1139,7 +1249,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1147,7 +1257,7 @@ public class DoubleFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         if (isign > 0) {
                             for (int i = firstIdx; i < lastIdx; i++) {
@@ -1169,7 +1279,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1177,7 +1287,7 @@ public class DoubleFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         if (isign > 0) {
                             for (int i = firstIdx; i < lastIdx; i++) {
@@ -1201,7 +1311,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
         } else {
             if (isign > 0) {
                 for (int i = 0; i < n; i++) {
@@ -1267,19 +1377,19 @@ public class DoubleFFT_1D {
     }
 
     private void bluestein_real_full(final double[] a, final int offa, final int isign) {
-        final double[] ak = new double[2 * nBluestein];
+        final double[] ak = bluesteinScratch();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
             if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = n / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         if (isign > 0) {
                             for (int i = firstIdx; i < lastIdx; i++) {
@@ -1301,7 +1411,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1309,7 +1419,7 @@ public class DoubleFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         if (isign > 0) {
                             for (int i = firstIdx; i < lastIdx; i++) {
@@ -1331,7 +1441,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1339,7 +1449,7 @@ public class DoubleFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         if (isign > 0) {
                             for (int i = firstIdx; i < lastIdx; i++) {
@@ -1359,7 +1469,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
         } else {
             if (isign > 0) {
                 for (int i = 0; i < n; i++) {
@@ -1420,19 +1530,19 @@ public class DoubleFFT_1D {
     }
 
     private void bluestein_real_forward(final double[] a, final int offa) {
-        final double[] ak = new double[2 * nBluestein];
+        final double[] ak = bluesteinScratch();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
             if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = n / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1444,7 +1554,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1452,7 +1562,7 @@ public class DoubleFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1464,7 +1574,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
         } else {
 
@@ -1513,7 +1623,7 @@ public class DoubleFFT_1D {
     }
 
     private void bluestein_real_inverse(final double[] a, final int offa) {
-        final double[] ak = new double[2 * nBluestein];
+        final double[] ak = bluesteinScratch();
         if (n % 2 == 0) {
             ak[0] = a[offa] * bk1[0];
             ak[1] = a[offa] * bk1[1];
@@ -1576,12 +1686,12 @@ public class DoubleFFT_1D {
             if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = nBluestein / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1593,7 +1703,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1601,7 +1711,7 @@ public class DoubleFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1611,7 +1721,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
         } else {
 
@@ -1634,19 +1744,19 @@ public class DoubleFFT_1D {
     }
 
     private void bluestein_real_inverse2(final double[] a, final int offa) {
-        final double[] ak = new double[2 * nBluestein];
+        final double[] ak = bluesteinScratch();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
             if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = n / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1658,7 +1768,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1666,7 +1776,7 @@ public class DoubleFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1678,7 +1788,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
         } else {
 
@@ -1733,7 +1843,7 @@ public class DoubleFFT_1D {
             return;
         int l1, l2, na, kh, nf, ip, iw, ido, idl1;
 
-        final double[] ch = new double[n];
+        final double[] ch = getScratch().ch;
         final int twon = 2 * n;
         nf = (int) wtable_r[1 + twon];
         na = 1;
@@ -1803,7 +1913,7 @@ public class DoubleFFT_1D {
             return;
         int l1, l2, na, nf, ip, iw, ido, idl1;
 
-        double[] ch = new double[n];
+        double[] ch = getScratch().ch;
         final int twon = 2 * n;
         nf = (int) wtable_r[1 + twon];
         na = 0;
@@ -3328,11 +3438,12 @@ public class DoubleFFT_1D {
         int idot;
         int l1, l2;
         int na, nf, ip, iw, ido, idl1;
-        int[] nac = new int[1];
+        Scratch s = getScratch();
+        int[] nac = s.nac;
         final int twon = 2 * n;
 
         int iw1, iw2;
-        double[] ch = new double[twon];
+        double[] ch = s.ch;
 
         iw1 = twon;
         iw2 = 4 * n;
@@ -5506,7 +5617,6 @@ public class DoubleFFT_1D {
     private void cftrec4_th(final int n, final double[] a, final int offa, final int nw, final double[] w) {
         int i;
         int idiv4, m, nthreads;
-        int idx = 0;
         nthreads = 2;
         idiv4 = 0;
         m = n >> 1;
@@ -5515,12 +5625,12 @@ public class DoubleFFT_1D {
             idiv4 = 1;
             m >>= 1;
         }
-        Future<?>[] futures = new Future[nthreads];
+        TaskGroup tasks = getTasks();
         final int mf = m;
         for (i = 0; i < nthreads; i++) {
             final int firstIdx = offa + i * m;
             if (i != idiv4) {
-                futures[idx++] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         int isplt, j, k, m;
                         int idx1 = firstIdx + mf;
@@ -5540,7 +5650,7 @@ public class DoubleFFT_1D {
                     }
                 });
             } else {
-                futures[idx++] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         int isplt, j, k, m;
                         int idx1 = firstIdx + mf;
@@ -5563,7 +5673,7 @@ public class DoubleFFT_1D {
                 });
             }
         }
-        ConcurrencyUtils.waitForCompletion(futures);
+        tasks.join();
     }
 
     private void cftrec4(int n, double[] a, int offa, int nw, double[] w) {
@@ -6554,11 +6664,11 @@ public class DoubleFFT_1D {
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n2 >= ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             final int k = n2 / nthreads;
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = offa + i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? offa + n2 : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
 
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
@@ -6567,7 +6677,7 @@ public class DoubleFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
         } else {
             for (int i = offa; i < offa + n2; i++) {
                 a[i] *= norm;
@@ -6575,4 +6685,56 @@ public class DoubleFFT_1D {
 
         }
     }
+
+    /**
+     * Precomputed tables for one size, shared by every instance of that size.
+     * Never written after being published.
+     */
+    private static final class Tables {
+        final int[] ip;
+
+        final double[] w;
+
+        final int nw;
+
+        final int nc;
+
+        final double[] wtable;
+
+        final double[] wtable_r;
+
+        final double[] bk1;
+
+        final double[] bk2;
+
+        Tables(int[] ip, double[] w, int nw, int nc, double[] wtable, double[] wtable_r, double[] bk1, double[] bk2) {
+            this.ip = ip;
+            this.w = w;
+            this.nw = nw;
+            this.nc = nc;
+            this.wtable = wtable;
+            this.wtable_r = wtable_r;
+            this.bk1 = bk1;
+            this.bk2 = bk2;
+        }
+    }
+
+    /**
+     * Work arrays and task group for one thread, sized for the plan that
+     * created them.
+     */
+    private static final class Scratch {
+        final double[] ak;
+
+        final double[] ch;
+
+        final int[] nac = new int[1];
+
+        final TaskGroup tasks = new TaskGroup();
+
+        Scratch(int nak, int nch) {
+            ak = new double[nak];
+            ch = new double[nch];
+        }
+    }
 }
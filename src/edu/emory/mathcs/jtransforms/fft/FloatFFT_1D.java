@@ -34,9 +34,11 @@
 
 package edu.emory.mathcs.jtransforms.fft;
 
-import java.util.concurrent.Future;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.TaskGroup;
 
 /**
  * Computes 1D Discrete Fourier Transform (DFT) of complex and real, single
@@ -79,8 +81,31 @@ public strictfp class FloatFFT_1D {
 
     private Plans plan;
 
+    private Tables tables;
+
+    /**
+     * Tables of every live instance, by size. An instance keeps its entry
+     * alive through <code>tables</code>.
+     */
+    private static final TableRegistry<Tables> TABLES = new TableRegistry<Tables>();
+
+    /**
+     * Work space of each thread using this instance. Keeping it per thread
+     * lets an instance be shared by several threads at once, as the plan
+     * cache does, without any transform allocating after a thread's first.
+     */
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>();
+
+    private volatile Executor executor;
+
     private static final int[] factors = { 4, 2, 3, 5 };
 
+    /**
+     * Bluestein products and radix-4 butterflies, which use SIMD when the
+     * optional Vector API implementation is available.
+     */
+    private static final FloatKernels KERNELS = FloatKernels.get();
+
     private static final float PI = 3.14159265358979311599796346854418516f;
 
     private static final float TWO_PI = 6.28318530717958623199592693708837032f;
@@ -101,6 +126,59 @@ public strictfp class FloatFFT_1D {
             if (getReminder(n, factors) >= 211) {
                 plan = Plans.BLUESTEIN;
                 nBluestein = ConcurrencyUtils.nextPow2(n * 2 - 1);
+            } else {
+                plan = Plans.MIXED_RADIX;
+            }
+        } else {
+            plan = Plans.SPLIT_RADIX;
+        }
+
+        Tables t = TABLES.get(n);
+        if (t == null) {
+            maketables();
+            t = TABLES.publish(n, new Tables(ip, w, nw, nc, wtable, wtable_r, bk1, bk2));
+        }
+        tables = t;
+        ip = t.ip;
+        w = t.w;
+        nw = t.nw;
+        nc = t.nc;
+        wtable = t.wtable;
+        wtable_r = t.wtable_r;
+        bk1 = t.bk1;
+        bk2 = t.bk2;
+    }
+
+    /**
+     * Sets the executor the parallel parts of this instance's transforms run
+     * on, in place of <code>ConcurrencyUtils.getExecutor()</code>. Sizes
+     * below <code>ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads()</code>
+     * always run on the calling thread.
+     * 
+     * @param executor
+     *            the executor, or null for the default
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the executor set by <code>setExecutor()</code>.
+     * 
+     * @return the executor, or null if the default is used
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Builds the tables for this instance's size and plan into its fields.
+     * Only called when no other instance of the same size has published them.
+     */
+    private void maketables() {
+        switch (plan) {
+        case BLUESTEIN:
+            {
                 bk1 = new float[2 * nBluestein];
                 bk2 = new float[2 * nBluestein];
                 this.ip = new int[2 + (int) Math.ceil(2 + (1 << (int) (Math.log(nBluestein + 0.5) / Math.log(2)) / 2))];
@@ -117,28 +195,33 @@ public strictfp class FloatFFT_1D {
                     makect(nc, w, nw);
                 }
                 bluesteini();
-            } else {
-                plan = Plans.MIXED_RADIX;
+            }
+            break;
+        case MIXED_RADIX:
+            {
                 wtable = new float[4 * n + 15];
                 wtable_r = new float[2 * n + 15];
                 cffti();
                 rffti();
             }
-        } else {
-            plan = Plans.SPLIT_RADIX;
-            this.ip = new int[2 + (int) Math.ceil(2 + (1 << (int) (Math.log(n + 0.5) / Math.log(2)) / 2))];
-            this.w = new float[n];
-            int twon = 2 * n;
-            nw = ip[0];
-            if (twon > (nw << 2)) {
-                nw = twon >> 2;
-                makewt(nw);
-            }
-            nc = ip[1];
-            if (n > (nc << 2)) {
-                nc = n >> 2;
-                makect(nc, w, nw);
+            break;
+        case SPLIT_RADIX:
+            {
+                this.ip = new int[2 + (int) Math.ceil(2 + (1 << (int) (Math.log(n + 0.5) / Math.log(2)) / 2))];
+                this.w = new float[n];
+                int twon = 2 * n;
+                nw = ip[0];
+                if (twon > (nw << 2)) {
+                    nw = twon >> 2;
+                    makewt(nw);
+                }
+                nc = ip[1];
+                if (n > (nc << 2)) {
+                    nc = n >> 2;
+                    makect(nc, w, nw);
+                }
             }
+            break;
         }
     }
 
@@ -385,13 +468,13 @@ public strictfp class FloatFFT_1D {
         case SPLIT_RADIX:
             realForward(a, offa);
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (n / 2 > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
-                Future<?>[] futures = new Future[nthreads];
+            if ((nthreads > 1) && (n / 2 > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
+                TaskGroup tasks = getTasks();
                 int k = n / 2 / nthreads;
                 for (int i = 0; i < nthreads; i++) {
                     final int firstIdx = i * k;
                     final int lastIdx = (i == (nthreads - 1)) ? n / 2 : firstIdx + k;
-                    futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                    tasks.submit(new Runnable() {
                         public void run() {
                             int idx1, idx2;
                             for (int k = firstIdx; k < lastIdx; k++) {
@@ -403,7 +486,7 @@ public strictfp class FloatFFT_1D {
                         }
                     });
                 }
-                ConcurrencyUtils.waitForCompletion(futures);
+                tasks.join();
             } else {
                 int idx1, idx2;
                 for (int k = 0; k < n / 2; k++) {
@@ -588,13 +671,13 @@ public strictfp class FloatFFT_1D {
         case SPLIT_RADIX:
             realInverse2(a, offa, scale);
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (n / 2 > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
-                Future<?>[] futures = new Future[nthreads];
+            if ((nthreads > 1) && (n / 2 > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
+                TaskGroup tasks = getTasks();
                 int k = n / 2 / nthreads;
                 for (int i = 0; i < nthreads; i++) {
                     final int firstIdx = i * k;
                     final int lastIdx = (i == (nthreads - 1)) ? n / 2 : firstIdx + k;
-                    futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                    tasks.submit(new Runnable() {
                         public void run() {
                             int idx1, idx2;
                             for (int k = firstIdx; k < lastIdx; k++) {
@@ -606,7 +689,7 @@ public strictfp class FloatFFT_1D {
                         }
                     });
                 }
-                ConcurrencyUtils.waitForCompletion(futures);
+                tasks.join();
             } else {
                 int idx1, idx2;
                 for (int k = 0; k < n / 2; k++) {
@@ -1102,44 +1185,59 @@ public strictfp class FloatFFT_1D {
         }
     }
 
+    /**
+     * Returns the calling thread's work space, creating it on first use.
+     */
+    private Scratch getScratch() {
+        Scratch s = scratch.get();
+        if (s == null) {
+            s = new Scratch((plan == Plans.BLUESTEIN) ? 2 * nBluestein : 0, (plan == Plans.MIXED_RADIX) ? 2 * n : 0);
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    /**
+     * Returns the calling thread's task group, set to this instance's
+     * executor.
+     */
+    private TaskGroup getTasks() {
+        TaskGroup tasks = getScratch().tasks;
+        tasks.setExecutor(executor);
+        return tasks;
+    }
+
+    /**
+     * Returns the calling thread's Bluestein work array with its zero
+     * padding restored. The first 2*n elements are always overwritten before
+     * they are read.
+     */
+    private float[] bluesteinScratch() {
+        float[] ak = getScratch().ak;
+        Arrays.fill(ak, 2 * n, 2 * nBluestein, 0);
+        return ak;
+    }
+
     private void bluestein_complex(final float[] a, final int offa, final int isign) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = bluesteinScratch();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
             nthreads = 2;
-            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
+            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = n / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
-                        if (isign > 0) {
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                int idx1 = 2 * i;
-                                int idx2 = idx1 + 1;
-                                int idx3 = offa + idx1;
-                                int idx4 = offa + idx2;
-                                ak[idx1] = a[idx3] * bk1[idx1] - a[idx4] * bk1[idx2];
-                                ak[idx2] = a[idx3] * bk1[idx2] + a[idx4] * bk1[idx1];
-                            }
-                        } else {
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                int idx1 = 2 * i;
-                                int idx2 = idx1 + 1;
-                                int idx3 = offa + idx1;
-                                int idx4 = offa + idx2;
-                                ak[idx1] = a[idx3] * bk1[idx1] + a[idx4] * bk1[idx2];
-                                ak[idx2] = -a[idx3] * bk1[idx2] + a[idx4] * bk1[idx1];
-                            }
-                        }
+                        KERNELS.cmul(a, offa + 2 * firstIdx, bk1, 2 * firstIdx, ak, 2 * firstIdx, lastIdx - firstIdx, isign < 0);
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1147,29 +1245,13 @@ public strictfp class FloatFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
-                        if (isign > 0) {
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                int idx1 = 2 * i;
-                                int idx2 = idx1 + 1;
-                                float im = -ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                                ak[idx1] = ak[idx1] * bk2[idx1] + ak[idx2] * bk2[idx2];
-                                ak[idx2] = im;
-                            }
-                        } else {
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                int idx1 = 2 * i;
-                                int idx2 = idx1 + 1;
-                                float im = ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                                ak[idx1] = ak[idx1] * bk2[idx1] - ak[idx2] * bk2[idx2];
-                                ak[idx2] = im;
-                            }
-                        }
+                        KERNELS.cmul(ak, 2 * firstIdx, bk2, 2 * firstIdx, ak, 2 * firstIdx, lastIdx - firstIdx, isign > 0);
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1177,109 +1259,39 @@ public strictfp class FloatFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
-                        if (isign > 0) {
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                int idx1 = 2 * i;
-                                int idx2 = idx1 + 1;
-                                int idx3 = offa + idx1;
-                                int idx4 = offa + idx2;
-                                a[idx3] = bk1[idx1] * ak[idx1] - bk1[idx2] * ak[idx2];
-                                a[idx4] = bk1[idx2] * ak[idx1] + bk1[idx1] * ak[idx2];
-                            }
-                        } else {
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                int idx1 = 2 * i;
-                                int idx2 = idx1 + 1;
-                                int idx3 = offa + idx1;
-                                int idx4 = offa + idx2;
-                                a[idx3] = bk1[idx1] * ak[idx1] + bk1[idx2] * ak[idx2];
-                                a[idx4] = -bk1[idx2] * ak[idx1] + bk1[idx1] * ak[idx2];
-                            }
-                        }
+                        KERNELS.cmul(ak, 2 * firstIdx, bk1, 2 * firstIdx, a, offa + 2 * firstIdx, lastIdx - firstIdx, isign < 0);
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
         } else {
-            if (isign > 0) {
-                for (int i = 0; i < n; i++) {
-                    int idx1 = 2 * i;
-                    int idx2 = idx1 + 1;
-                    int idx3 = offa + idx1;
-                    int idx4 = offa + idx2;
-                    ak[idx1] = a[idx3] * bk1[idx1] - a[idx4] * bk1[idx2];
-                    ak[idx2] = a[idx3] * bk1[idx2] + a[idx4] * bk1[idx1];
-                }
-            } else {
-                for (int i = 0; i < n; i++) {
-                    int idx1 = 2 * i;
-                    int idx2 = idx1 + 1;
-                    int idx3 = offa + idx1;
-                    int idx4 = offa + idx2;
-                    ak[idx1] = a[idx3] * bk1[idx1] + a[idx4] * bk1[idx2];
-                    ak[idx2] = -a[idx3] * bk1[idx2] + a[idx4] * bk1[idx1];
-                }
-            }
+            KERNELS.cmul(a, offa, bk1, 0, ak, 0, n, isign < 0);
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
-            if (isign > 0) {
-                for (int i = 0; i < nBluestein; i++) {
-                    int idx1 = 2 * i;
-                    int idx2 = idx1 + 1;
-                    float im = -ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                    ak[idx1] = ak[idx1] * bk2[idx1] + ak[idx2] * bk2[idx2];
-                    ak[idx2] = im;
-                }
-            } else {
-                for (int i = 0; i < nBluestein; i++) {
-                    int idx1 = 2 * i;
-                    int idx2 = idx1 + 1;
-                    float im = ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                    ak[idx1] = ak[idx1] * bk2[idx1] - ak[idx2] * bk2[idx2];
-                    ak[idx2] = im;
-                }
-            }
+            KERNELS.cmul(ak, 0, bk2, 0, ak, 0, nBluestein, isign > 0);
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
-            if (isign > 0) {
-                for (int i = 0; i < n; i++) {
-                    int idx1 = 2 * i;
-                    int idx2 = idx1 + 1;
-                    int idx3 = offa + idx1;
-                    int idx4 = offa + idx2;
-                    a[idx3] = bk1[idx1] * ak[idx1] - bk1[idx2] * ak[idx2];
-                    a[idx4] = bk1[idx2] * ak[idx1] + bk1[idx1] * ak[idx2];
-                }
-            } else {
-                for (int i = 0; i < n; i++) {
-                    int idx1 = 2 * i;
-                    int idx2 = idx1 + 1;
-                    int idx3 = offa + idx1;
-                    int idx4 = offa + idx2;
-                    a[idx3] = bk1[idx1] * ak[idx1] + bk1[idx2] * ak[idx2];
-                    a[idx4] = -bk1[idx2] * ak[idx1] + bk1[idx1] * ak[idx2];
-                }
-            }
+            KERNELS.cmul(ak, 0, bk1, 0, a, offa, n, isign < 0);
         }
     }
 
     private void bluestein_real_full(final float[] a, final int offa, final int isign) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = bluesteinScratch();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
             nthreads = 2;
-            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
+            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = n / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         if (isign > 0) {
                             for (int i = firstIdx; i < lastIdx; i++) {
@@ -1301,7 +1313,7 @@ public strictfp class FloatFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1309,29 +1321,13 @@ public strictfp class FloatFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
-                        if (isign > 0) {
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                int idx1 = 2 * i;
-                                int idx2 = idx1 + 1;
-                                float im = -ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                                ak[idx1] = ak[idx1] * bk2[idx1] + ak[idx2] * bk2[idx2];
-                                ak[idx2] = im;
-                            }
-                        } else {
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                int idx1 = 2 * i;
-                                int idx2 = idx1 + 1;
-                                float im = ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                                ak[idx1] = ak[idx1] * bk2[idx1] - ak[idx2] * bk2[idx2];
-                                ak[idx2] = im;
-                            }
-                        }
+                        KERNELS.cmul(ak, 2 * firstIdx, bk2, 2 * firstIdx, ak, 2 * firstIdx, lastIdx - firstIdx, isign > 0);
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1339,7 +1335,7 @@ public strictfp class FloatFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         if (isign > 0) {
                             for (int i = firstIdx; i < lastIdx; i++) {
@@ -1359,7 +1355,7 @@ public strictfp class FloatFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
         } else {
             if (isign > 0) {
                 for (int i = 0; i < n; i++) {
@@ -1381,23 +1377,7 @@ public strictfp class FloatFFT_1D {
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
-            if (isign > 0) {
-                for (int i = 0; i < nBluestein; i++) {
-                    int idx1 = 2 * i;
-                    int idx2 = idx1 + 1;
-                    float im = -ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                    ak[idx1] = ak[idx1] * bk2[idx1] + ak[idx2] * bk2[idx2];
-                    ak[idx2] = im;
-                }
-            } else {
-                for (int i = 0; i < nBluestein; i++) {
-                    int idx1 = 2 * i;
-                    int idx2 = idx1 + 1;
-                    float im = ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                    ak[idx1] = ak[idx1] * bk2[idx1] - ak[idx2] * bk2[idx2];
-                    ak[idx2] = im;
-                }
-            }
+            KERNELS.cmul(ak, 0, bk2, 0, ak, 0, nBluestein, isign > 0);
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1420,19 +1400,19 @@ public strictfp class FloatFFT_1D {
     }
 
     private void bluestein_real_forward(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = bluesteinScratch();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
             nthreads = 2;
-            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
+            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = n / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1444,7 +1424,7 @@ public strictfp class FloatFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1452,19 +1432,13 @@ public strictfp class FloatFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            int idx1 = 2 * i;
-                            int idx2 = idx1 + 1;
-                            float im = ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                            ak[idx1] = ak[idx1] * bk2[idx1] - ak[idx2] * bk2[idx2];
-                            ak[idx2] = im;
-                        }
+                        KERNELS.cmul(ak, 2 * firstIdx, bk2, 2 * firstIdx, ak, 2 * firstIdx, lastIdx - firstIdx, false);
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
         } else {
 
@@ -1478,13 +1452,7 @@ public strictfp class FloatFFT_1D {
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
-            for (int i = 0; i < nBluestein; i++) {
-                int idx1 = 2 * i;
-                int idx2 = idx1 + 1;
-                float im = ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                ak[idx1] = ak[idx1] * bk2[idx1] - ak[idx2] * bk2[idx2];
-                ak[idx2] = im;
-            }
+            KERNELS.cmul(ak, 0, bk2, 0, ak, 0, nBluestein, false);
         }
 
         cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
@@ -1513,7 +1481,7 @@ public strictfp class FloatFFT_1D {
     }
 
     private void bluestein_real_inverse(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = bluesteinScratch();
         if (n % 2 == 0) {
             ak[0] = a[offa] * bk1[0];
             ak[1] = a[offa] * bk1[1];
@@ -1571,29 +1539,23 @@ public strictfp class FloatFFT_1D {
         cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
             nthreads = 2;
-            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
+            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = nBluestein / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            int idx1 = 2 * i;
-                            int idx2 = idx1 + 1;
-                            float im = -ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                            ak[idx1] = ak[idx1] * bk2[idx1] + ak[idx2] * bk2[idx2];
-                            ak[idx2] = im;
-                        }
+                        KERNELS.cmul(ak, 2 * firstIdx, bk2, 2 * firstIdx, ak, 2 * firstIdx, lastIdx - firstIdx, true);
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1601,7 +1563,7 @@ public strictfp class FloatFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1611,17 +1573,11 @@ public strictfp class FloatFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
         } else {
 
-            for (int i = 0; i < nBluestein; i++) {
-                int idx1 = 2 * i;
-                int idx2 = idx1 + 1;
-                float im = -ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                ak[idx1] = ak[idx1] * bk2[idx1] + ak[idx2] * bk2[idx2];
-                ak[idx2] = im;
-            }
+            KERNELS.cmul(ak, 0, bk2, 0, ak, 0, nBluestein, true);
 
             cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1634,19 +1590,19 @@ public strictfp class FloatFFT_1D {
     }
 
     private void bluestein_real_inverse2(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = bluesteinScratch();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+        if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
             nthreads = 2;
-            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
+            if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads())) {
                 nthreads = 4;
             }
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             int k = n / nthreads;
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? n : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
                             int idx1 = 2 * i;
@@ -1658,7 +1614,7 @@ public strictfp class FloatFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
@@ -1666,19 +1622,13 @@ public strictfp class FloatFFT_1D {
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? nBluestein : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            int idx1 = 2 * i;
-                            int idx2 = idx1 + 1;
-                            float im = -ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                            ak[idx1] = ak[idx1] * bk2[idx1] + ak[idx2] * bk2[idx2];
-                            ak[idx2] = im;
-                        }
+                        KERNELS.cmul(ak, 2 * firstIdx, bk2, 2 * firstIdx, ak, 2 * firstIdx, lastIdx - firstIdx, true);
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
 
         } else {
 
@@ -1692,13 +1642,7 @@ public strictfp class FloatFFT_1D {
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
-            for (int i = 0; i < nBluestein; i++) {
-                int idx1 = 2 * i;
-                int idx2 = idx1 + 1;
-                float im = -ak[idx1] * bk2[idx2] + ak[idx2] * bk2[idx1];
-                ak[idx1] = ak[idx1] * bk2[idx1] + ak[idx2] * bk2[idx2];
-                ak[idx2] = im;
-            }
+            KERNELS.cmul(ak, 0, bk2, 0, ak, 0, nBluestein, true);
         }
 
         cftfsub(2 * nBluestein, ak, 0, ip, nw, w);
@@ -1733,7 +1677,7 @@ public strictfp class FloatFFT_1D {
             return;
         int l1, l2, na, kh, nf, ip, iw, ido, idl1;
 
-        final float[] ch = new float[n];
+        final float[] ch = getScratch().ch;
         final int twon = 2 * n;
         nf = (int) wtable_r[1 + twon];
         na = 1;
@@ -1803,7 +1747,7 @@ public strictfp class FloatFFT_1D {
             return;
         int l1, l2, na, nf, ip, iw, ido, idl1;
 
-        float[] ch = new float[n];
+        float[] ch = getScratch().ch;
         final int twon = 2 * n;
         nf = (int) wtable_r[1 + twon];
         na = 0;
@@ -3328,11 +3272,12 @@ public strictfp class FloatFFT_1D {
         int idot;
         int l1, l2;
         int na, nf, ip, iw, ido, idl1;
-        int[] nac = new int[1];
+        Scratch s = getScratch();
+        int[] nac = s.nac;
         final int twon = 2 * n;
 
         int iw1, iw2;
-        float[] ch = new float[twon];
+        float[] ch = s.ch;
 
         iw1 = twon;
         iw2 = 4 * n;
@@ -4010,7 +3955,7 @@ public strictfp class FloatFFT_1D {
         if (n > 8) {
             if (n > 32) {
                 cftf1st(n, a, offa, w, nw - (n >> 2));
-                if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+                if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
                     cftrec4_th(n, a, offa, nw, w);
                 } else if (n > 512) {
                     cftrec4(n, a, offa, nw, w);
@@ -4038,7 +3983,7 @@ public strictfp class FloatFFT_1D {
         if (n > 8) {
             if (n > 32) {
                 cftb1st(n, a, offa, w, nw - (n >> 2));
-                if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+                if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
                     cftrec4_th(n, a, offa, nw, w);
                 } else if (n > 512) {
                     cftrec4(n, a, offa, nw, w);
@@ -5067,10 +5012,10 @@ public strictfp class FloatFFT_1D {
     }
 
     private void cftf1st(int n, float[] a, int offa, float[] w, int startw) {
-        int j0, j1, j2, j3, k, m, mh;
+        int j0, j1, j2, j3, m, mh;
         float wn4r, csc1, csc3, wk1r, wk1i, wk3r, wk3i, wd1r, wd1i, wd3r, wd3i;
-        float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i, y0r, y0i, y1r, y1i, y2r, y2i, y3r, y3i;
-        int idx0, idx1, idx2, idx3, idx4, idx5;
+        float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i;
+        int idx0, idx1, idx2, idx3;
         mh = n >> 3;
         m = 2 * mh;
         j1 = m;
@@ -5098,117 +5043,17 @@ public strictfp class FloatFFT_1D {
         wn4r = w[startw + 1];
         csc1 = w[startw + 2];
         csc3 = w[startw + 3];
-        wd1r = 1;
-        wd1i = 0;
-        wd3r = 1;
-        wd3i = 0;
-        k = 0;
-        for (int j = 2; j < mh - 2; j += 4) {
-            k += 4;
-            idx4 = startw + k;
-            wk1r = csc1 * (wd1r + w[idx4]);
-            wk1i = csc1 * (wd1i + w[idx4 + 1]);
-            wk3r = csc3 * (wd3r + w[idx4 + 2]);
-            wk3i = csc3 * (wd3i + w[idx4 + 3]);
-            wd1r = w[idx4];
-            wd1i = w[idx4 + 1];
-            wd3r = w[idx4 + 2];
-            wd3i = w[idx4 + 3];
-            j1 = j + m;
-            j2 = j1 + m;
-            j3 = j2 + m;
-            idx1 = offa + j1;
-            idx2 = offa + j2;
-            idx3 = offa + j3;
-            idx5 = offa + j;
-            x0r = a[idx5] + a[idx2];
-            x0i = a[idx5 + 1] + a[idx2 + 1];
-            x1r = a[idx5] - a[idx2];
-            x1i = a[idx5 + 1] - a[idx2 + 1];
-            y0r = a[idx5 + 2] + a[idx2 + 2];
-            y0i = a[idx5 + 3] + a[idx2 + 3];
-            y1r = a[idx5 + 2] - a[idx2 + 2];
-            y1i = a[idx5 + 3] - a[idx2 + 3];
-            x2r = a[idx1] + a[idx3];
-            x2i = a[idx1 + 1] + a[idx3 + 1];
-            x3r = a[idx1] - a[idx3];
-            x3i = a[idx1 + 1] - a[idx3 + 1];
-            y2r = a[idx1 + 2] + a[idx3 + 2];
-            y2i = a[idx1 + 3] + a[idx3 + 3];
-            y3r = a[idx1 + 2] - a[idx3 + 2];
-            y3i = a[idx1 + 3] - a[idx3 + 3];
-            a[idx5] = x0r + x2r;
-            a[idx5 + 1] = x0i + x2i;
-            a[idx5 + 2] = y0r + y2r;
-            a[idx5 + 3] = y0i + y2i;
-            a[idx1] = x0r - x2r;
-            a[idx1 + 1] = x0i - x2i;
-            a[idx1 + 2] = y0r - y2r;
-            a[idx1 + 3] = y0i - y2i;
-            x0r = x1r - x3i;
-            x0i = x1i + x3r;
-            a[idx2] = wk1r * x0r - wk1i * x0i;
-            a[idx2 + 1] = wk1r * x0i + wk1i * x0r;
-            x0r = y1r - y3i;
-            x0i = y1i + y3r;
-            a[idx2 + 2] = wd1r * x0r - wd1i * x0i;
-            a[idx2 + 3] = wd1r * x0i + wd1i * x0r;
-            x0r = x1r + x3i;
-            x0i = x1i - x3r;
-            a[idx3] = wk3r * x0r + wk3i * x0i;
-            a[idx3 + 1] = wk3r * x0i - wk3i * x0r;
-            x0r = y1r + y3i;
-            x0i = y1i - y3r;
-            a[idx3 + 2] = wd3r * x0r + wd3i * x0i;
-            a[idx3 + 3] = wd3r * x0i - wd3i * x0r;
-            j0 = m - j;
-            j1 = j0 + m;
-            j2 = j1 + m;
-            j3 = j2 + m;
-            idx0 = offa + j0;
-            idx1 = offa + j1;
-            idx2 = offa + j2;
-            idx3 = offa + j3;
-            x0r = a[idx0] + a[idx2];
-            x0i = a[idx0 + 1] + a[idx2 + 1];
-            x1r = a[idx0] - a[idx2];
-            x1i = a[idx0 + 1] - a[idx2 + 1];
-            y0r = a[idx0 - 2] + a[idx2 - 2];
-            y0i = a[idx0 - 1] + a[idx2 - 1];
-            y1r = a[idx0 - 2] - a[idx2 - 2];
-            y1i = a[idx0 - 1] - a[idx2 - 1];
-            x2r = a[idx1] + a[idx3];
-            x2i = a[idx1 + 1] + a[idx3 + 1];
-            x3r = a[idx1] - a[idx3];
-            x3i = a[idx1 + 1] - a[idx3 + 1];
-            y2r = a[idx1 - 2] + a[idx3 - 2];
-            y2i = a[idx1 - 1] + a[idx3 - 1];
-            y3r = a[idx1 - 2] - a[idx3 - 2];
-            y3i = a[idx1 - 1] - a[idx3 - 1];
-            a[idx0] = x0r + x2r;
-            a[idx0 + 1] = x0i + x2i;
-            a[idx0 - 2] = y0r + y2r;
-            a[idx0 - 1] = y0i + y2i;
-            a[idx1] = x0r - x2r;
-            a[idx1 + 1] = x0i - x2i;
-            a[idx1 - 2] = y0r - y2r;
-            a[idx1 - 1] = y0i - y2i;
-            x0r = x1r - x3i;
-            x0i = x1i + x3r;
-            a[idx2] = wk1i * x0r - wk1r * x0i;
-            a[idx2 + 1] = wk1i * x0i + wk1r * x0r;
-            x0r = y1r - y3i;
-            x0i = y1i + y3r;
-            a[idx2 - 2] = wd1i * x0r - wd1r * x0i;
-            a[idx2 - 1] = wd1i * x0i + wd1r * x0r;
-            x0r = x1r + x3i;
-            x0i = x1i - x3r;
-            a[idx3] = wk3i * x0r + wk3r * x0i;
-            a[idx3 + 1] = wk3i * x0i - wk3r * x0r;
-            x0r = y1r + y3i;
-            x0i = y1i - y3r;
-            a[offa + j3 - 2] = wd3i * x0r + wd3r * x0i;
-            a[offa + j3 - 1] = wd3i * x0i - wd3r * x0r;
+        KERNELS.cftf1stLoop(a, offa, m, w, startw, 2, mh - 2);
+        if (mh > 4) {
+            wd1r = w[startw + mh - 4];
+            wd1i = w[startw + mh - 3];
+            wd3r = w[startw + mh - 2];
+            wd3i = w[startw + mh - 1];
+        } else {
+            wd1r = 1;
+            wd1i = 0;
+            wd3r = 1;
+            wd3i = 0;
         }
         wk1r = csc1 * (wd1r + wn4r);
         wk1i = csc1 * (wd1i + wn4r);
@@ -5285,10 +5130,10 @@ public strictfp class FloatFFT_1D {
     }
 
     private void cftb1st(int n, float[] a, int offa, float[] w, int startw) {
-        int j0, j1, j2, j3, k, m, mh;
+        int j0, j1, j2, j3, m, mh;
         float wn4r, csc1, csc3, wk1r, wk1i, wk3r, wk3i, wd1r, wd1i, wd3r, wd3i;
-        float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i, y0r, y0i, y1r, y1i, y2r, y2i, y3r, y3i;
-        int idx0, idx1, idx2, idx3, idx4, idx5;
+        float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i;
+        int idx0, idx1, idx2, idx3;
         mh = n >> 3;
         m = 2 * mh;
         j1 = m;
@@ -5317,117 +5162,17 @@ public strictfp class FloatFFT_1D {
         wn4r = w[startw + 1];
         csc1 = w[startw + 2];
         csc3 = w[startw + 3];
-        wd1r = 1;
-        wd1i = 0;
-        wd3r = 1;
-        wd3i = 0;
-        k = 0;
-        for (int j = 2; j < mh - 2; j += 4) {
-            k += 4;
-            idx4 = startw + k;
-            wk1r = csc1 * (wd1r + w[idx4]);
-            wk1i = csc1 * (wd1i + w[idx4 + 1]);
-            wk3r = csc3 * (wd3r + w[idx4 + 2]);
-            wk3i = csc3 * (wd3i + w[idx4 + 3]);
-            wd1r = w[idx4];
-            wd1i = w[idx4 + 1];
-            wd3r = w[idx4 + 2];
-            wd3i = w[idx4 + 3];
-            j1 = j + m;
-            j2 = j1 + m;
-            j3 = j2 + m;
-            idx1 = offa + j1;
-            idx2 = offa + j2;
-            idx3 = offa + j3;
-            idx5 = offa + j;
-            x0r = a[idx5] + a[idx2];
-            x0i = -a[idx5 + 1] - a[idx2 + 1];
-            x1r = a[idx5] - a[offa + j2];
-            x1i = -a[idx5 + 1] + a[idx2 + 1];
-            y0r = a[idx5 + 2] + a[idx2 + 2];
-            y0i = -a[idx5 + 3] - a[idx2 + 3];
-            y1r = a[idx5 + 2] - a[idx2 + 2];
-            y1i = -a[idx5 + 3] + a[idx2 + 3];
-            x2r = a[idx1] + a[idx3];
-            x2i = a[idx1 + 1] + a[idx3 + 1];
-            x3r = a[idx1] - a[idx3];
-            x3i = a[idx1 + 1] - a[idx3 + 1];
-            y2r = a[idx1 + 2] + a[idx3 + 2];
-            y2i = a[idx1 + 3] + a[idx3 + 3];
-            y3r = a[idx1 + 2] - a[idx3 + 2];
-            y3i = a[idx1 + 3] - a[idx3 + 3];
-            a[idx5] = x0r + x2r;
-            a[idx5 + 1] = x0i - x2i;
-            a[idx5 + 2] = y0r + y2r;
-            a[idx5 + 3] = y0i - y2i;
-            a[idx1] = x0r - x2r;
-            a[idx1 + 1] = x0i + x2i;
-            a[idx1 + 2] = y0r - y2r;
-            a[idx1 + 3] = y0i + y2i;
-            x0r = x1r + x3i;
-            x0i = x1i + x3r;
-            a[idx2] = wk1r * x0r - wk1i * x0i;
-            a[idx2 + 1] = wk1r * x0i + wk1i * x0r;
-            x0r = y1r + y3i;
-            x0i = y1i + y3r;
-            a[idx2 + 2] = wd1r * x0r - wd1i * x0i;
-            a[idx2 + 3] = wd1r * x0i + wd1i * x0r;
-            x0r = x1r - x3i;
-            x0i = x1i - x3r;
-            a[idx3] = wk3r * x0r + wk3i * x0i;
-            a[idx3 + 1] = wk3r * x0i - wk3i * x0r;
-            x0r = y1r - y3i;
-            x0i = y1i - y3r;
-            a[idx3 + 2] = wd3r * x0r + wd3i * x0i;
-            a[idx3 + 3] = wd3r * x0i - wd3i * x0r;
-            j0 = m - j;
-            j1 = j0 + m;
-            j2 = j1 + m;
-            j3 = j2 + m;
-            idx0 = offa + j0;
-            idx1 = offa + j1;
-            idx2 = offa + j2;
-            idx3 = offa + j3;
-            x0r = a[idx0] + a[idx2];
-            x0i = -a[idx0 + 1] - a[idx2 + 1];
-            x1r = a[idx0] - a[idx2];
-            x1i = -a[idx0 + 1] + a[idx2 + 1];
-            y0r = a[idx0 - 2] + a[idx2 - 2];
-            y0i = -a[idx0 - 1] - a[idx2 - 1];
-            y1r = a[idx0 - 2] - a[idx2 - 2];
-            y1i = -a[idx0 - 1] + a[idx2 - 1];
-            x2r = a[idx1] + a[idx3];
-            x2i = a[idx1 + 1] + a[idx3 + 1];
-            x3r = a[idx1] - a[idx3];
-            x3i = a[idx1 + 1] - a[idx3 + 1];
-            y2r = a[idx1 - 2] + a[idx3 - 2];
-            y2i = a[idx1 - 1] + a[idx3 - 1];
-            y3r = a[idx1 - 2] - a[idx3 - 2];
-            y3i = a[idx1 - 1] - a[idx3 - 1];
-            a[idx0] = x0r + x2r;
-            a[idx0 + 1] = x0i - x2i;
-            a[idx0 - 2] = y0r + y2r;
-            a[idx0 - 1] = y0i - y2i;
-            a[idx1] = x0r - x2r;
-            a[idx1 + 1] = x0i + x2i;
-            a[idx1 - 2] = y0r - y2r;
-            a[idx1 - 1] = y0i + y2i;
-            x0r = x1r + x3i;
-            x0i = x1i + x3r;
-            a[idx2] = wk1i * x0r - wk1r * x0i;
-            a[idx2 + 1] = wk1i * x0i + wk1r * x0r;
-            x0r = y1r + y3i;
-            x0i = y1i + y3r;
-            a[idx2 - 2] = wd1i * x0r - wd1r * x0i;
-            a[idx2 - 1] = wd1i * x0i + wd1r * x0r;
-            x0r = x1r - x3i;
-            x0i = x1i - x3r;
-            a[idx3] = wk3i * x0r + wk3r * x0i;
-            a[idx3 + 1] = wk3i * x0i - wk3r * x0r;
-            x0r = y1r - y3i;
-            x0i = y1i - y3r;
-            a[idx3 - 2] = wd3i * x0r + wd3r * x0i;
-            a[idx3 - 1] = wd3i * x0i - wd3r * x0r;
+        KERNELS.cftb1stLoop(a, offa, m, w, startw, 2, mh - 2);
+        if (mh > 4) {
+            wd1r = w[startw + mh - 4];
+            wd1i = w[startw + mh - 3];
+            wd3r = w[startw + mh - 2];
+            wd3i = w[startw + mh - 1];
+        } else {
+            wd1r = 1;
+            wd1i = 0;
+            wd3r = 1;
+            wd3i = 0;
         }
         wk1r = csc1 * (wd1r + wn4r);
         wk1i = csc1 * (wd1i + wn4r);
@@ -5506,21 +5251,20 @@ public strictfp class FloatFFT_1D {
     private void cftrec4_th(final int n, final float[] a, final int offa, final int nw, final float[] w) {
         int i;
         int idiv4, m, nthreads;
-        int idx = 0;
         nthreads = 2;
         idiv4 = 0;
         m = n >> 1;
-        if (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads()) {
+        if (n > ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_4Threads()) {
             nthreads = 4;
             idiv4 = 1;
             m >>= 1;
         }
-        Future<?>[] futures = new Future[nthreads];
+        TaskGroup tasks = getTasks();
         final int mf = m;
         for (i = 0; i < nthreads; i++) {
             final int firstIdx = offa + i * m;
             if (i != idiv4) {
-                futures[idx++] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         int isplt, j, k, m;
                         int idx1 = firstIdx + mf;
@@ -5540,7 +5284,7 @@ public strictfp class FloatFFT_1D {
                     }
                 });
             } else {
-                futures[idx++] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
                     public void run() {
                         int isplt, j, k, m;
                         int idx1 = firstIdx + mf;
@@ -5563,7 +5307,7 @@ public strictfp class FloatFFT_1D {
                 });
             }
         }
-        ConcurrencyUtils.waitForCompletion(futures);
+        tasks.join();
     }
 
     private void cftrec4(int n, float[] a, int offa, int nw, float[] w) {
@@ -5674,10 +5418,10 @@ public strictfp class FloatFFT_1D {
     }
 
     private void cftmdl1(int n, float[] a, int offa, float[] w, int startw) {
-        int j0, j1, j2, j3, k, m, mh;
-        float wn4r, wk1r, wk1i, wk3r, wk3i;
+        int j0, j1, j2, j3, m, mh;
+        float wn4r;
         float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i;
-        int idx0, idx1, idx2, idx3, idx4, idx5;
+        int idx0, idx1, idx2, idx3;
 
         mh = n >> 3;
         m = 2 * mh;
@@ -5704,70 +5448,7 @@ public strictfp class FloatFFT_1D {
         a[idx3] = x1r + x3i;
         a[idx3 + 1] = x1i - x3r;
         wn4r = w[startw + 1];
-        k = 0;
-        for (int j = 2; j < mh; j += 2) {
-            k += 4;
-            idx4 = startw + k;
-            wk1r = w[idx4];
-            wk1i = w[idx4 + 1];
-            wk3r = w[idx4 + 2];
-            wk3i = w[idx4 + 3];
-            j1 = j + m;
-            j2 = j1 + m;
-            j3 = j2 + m;
-            idx1 = offa + j1;
-            idx2 = offa + j2;
-            idx3 = offa + j3;
-            idx5 = offa + j;
-            x0r = a[idx5] + a[idx2];
-            x0i = a[idx5 + 1] + a[idx2 + 1];
-            x1r = a[idx5] - a[idx2];
-            x1i = a[idx5 + 1] - a[idx2 + 1];
-            x2r = a[idx1] + a[idx3];
-            x2i = a[idx1 + 1] + a[idx3 + 1];
-            x3r = a[idx1] - a[idx3];
-            x3i = a[idx1 + 1] - a[idx3 + 1];
-            a[idx5] = x0r + x2r;
-            a[idx5 + 1] = x0i + x2i;
-            a[idx1] = x0r - x2r;
-            a[idx1 + 1] = x0i - x2i;
-            x0r = x1r - x3i;
-            x0i = x1i + x3r;
-            a[idx2] = wk1r * x0r - wk1i * x0i;
-            a[idx2 + 1] = wk1r * x0i + wk1i * x0r;
-            x0r = x1r + x3i;
-            x0i = x1i - x3r;
-            a[idx3] = wk3r * x0r + wk3i * x0i;
-            a[idx3 + 1] = wk3r * x0i - wk3i * x0r;
-            j0 = m - j;
-            j1 = j0 + m;
-            j2 = j1 + m;
-            j3 = j2 + m;
-            idx0 = offa + j0;
-            idx1 = offa + j1;
-            idx2 = offa + j2;
-            idx3 = offa + j3;
-            x0r = a[idx0] + a[idx2];
-            x0i = a[idx0 + 1] + a[idx2 + 1];
-            x1r = a[idx0] - a[idx2];
-            x1i = a[idx0 + 1] - a[idx2 + 1];
-            x2r = a[idx1] + a[idx3];
-            x2i = a[idx1 + 1] + a[idx3 + 1];
-            x3r = a[idx1] - a[idx3];
-            x3i = a[idx1 + 1] - a[idx3 + 1];
-            a[idx0] = x0r + x2r;
-            a[idx0 + 1] = x0i + x2i;
-            a[idx1] = x0r - x2r;
-            a[idx1 + 1] = x0i - x2i;
-            x0r = x1r - x3i;
-            x0i = x1i + x3r;
-            a[idx2] = wk1i * x0r - wk1r * x0i;
-            a[idx2 + 1] = wk1i * x0i + wk1r * x0r;
-            x0r = x1r + x3i;
-            x0i = x1i - x3r;
-            a[idx3] = wk3i * x0r + wk3r * x0i;
-            a[idx3 + 1] = wk3i * x0i - wk3r * x0r;
-        }
+        KERNELS.cftmdl1Loop(a, offa, m, w, startw, 2, mh);
         j0 = mh;
         j1 = j0 + m;
         j2 = j1 + m;
@@ -5799,10 +5480,10 @@ public strictfp class FloatFFT_1D {
     }
 
     private void cftmdl2(int n, float[] a, int offa, float[] w, int startw) {
-        int j0, j1, j2, j3, k, kr, m, mh;
-        float wn4r, wk1r, wk1i, wk3r, wk3i, wd1r, wd1i, wd3r, wd3i;
+        int j0, j1, j2, j3, m, mh;
+        float wn4r, wk1r, wk1i;
         float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i, y0r, y0i, y2r, y2i;
-        int idx0, idx1, idx2, idx3, idx4, idx5, idx6;
+        int idx0, idx1, idx2, idx3;
 
         mh = n >> 3;
         m = 2 * mh;
@@ -5833,85 +5514,7 @@ public strictfp class FloatFFT_1D {
         a[idx2 + 1] = x1i + y0r;
         a[idx3] = x1r + y0i;
         a[idx3 + 1] = x1i - y0r;
-        k = 0;
-        kr = 2 * m;
-        for (int j = 2; j < mh; j += 2) {
-            k += 4;
-            idx4 = startw + k;
-            wk1r = w[idx4];
-            wk1i = w[idx4 + 1];
-            wk3r = w[idx4 + 2];
-            wk3i = w[idx4 + 3];
-            kr -= 4;
-            idx5 = startw + kr;
-            wd1i = w[idx5];
-            wd1r = w[idx5 + 1];
-            wd3i = w[idx5 + 2];
-            wd3r = w[idx5 + 3];
-            j1 = j + m;
-            j2 = j1 + m;
-            j3 = j2 + m;
-            idx1 = offa + j1;
-            idx2 = offa + j2;
-            idx3 = offa + j3;
-            idx6 = offa + j;
-            x0r = a[idx6] - a[idx2 + 1];
-            x0i = a[idx6 + 1] + a[idx2];
-            x1r = a[idx6] + a[idx2 + 1];
-            x1i = a[idx6 + 1] - a[idx2];
-            x2r = a[idx1] - a[idx3 + 1];
-            x2i = a[idx1 + 1] + a[idx3];
-            x3r = a[idx1] + a[idx3 + 1];
-            x3i = a[idx1 + 1] - a[idx3];
-            y0r = wk1r * x0r - wk1i * x0i;
-            y0i = wk1r * x0i + wk1i * x0r;
-            y2r = wd1r * x2r - wd1i * x2i;
-            y2i = wd1r * x2i + wd1i * x2r;
-            a[idx6] = y0r + y2r;
-            a[idx6 + 1] = y0i + y2i;
-            a[idx1] = y0r - y2r;
-            a[idx1 + 1] = y0i - y2i;
-            y0r = wk3r * x1r + wk3i * x1i;
-            y0i = wk3r * x1i - wk3i * x1r;
-            y2r = wd3r * x3r + wd3i * x3i;
-            y2i = wd3r * x3i - wd3i * x3r;
-            a[idx2] = y0r + y2r;
-            a[idx2 + 1] = y0i + y2i;
-            a[idx3] = y0r - y2r;
-            a[idx3 + 1] = y0i - y2i;
-            j0 = m - j;
-            j1 = j0 + m;
-            j2 = j1 + m;
-            j3 = j2 + m;
-            idx0 = offa + j0;
-            idx1 = offa + j1;
-            idx2 = offa + j2;
-            idx3 = offa + j3;
-            x0r = a[idx0] - a[idx2 + 1];
-            x0i = a[idx0 + 1] + a[idx2];
-            x1r = a[idx0] + a[idx2 + 1];
-            x1i = a[idx0 + 1] - a[idx2];
-            x2r = a[idx1] - a[idx3 + 1];
-            x2i = a[idx1 + 1] + a[idx3];
-            x3r = a[idx1] + a[idx3 + 1];
-            x3i = a[idx1 + 1] - a[idx3];
-            y0r = wd1i * x0r - wd1r * x0i;
-            y0i = wd1i * x0i + wd1r * x0r;
-            y2r = wk1i * x2r - wk1r * x2i;
-            y2i = wk1i * x2i + wk1r * x2r;
-            a[idx0] = y0r + y2r;
-            a[idx0 + 1] = y0i + y2i;
-            a[idx1] = y0r - y2r;
-            a[idx1 + 1] = y0i - y2i;
-            y0r = wd3i * x1r + wd3r * x1i;
-            y0i = wd3i * x1i - wd3r * x1r;
-            y2r = wk3i * x3r + wk3r * x3i;
-            y2i = wk3i * x3i - wk3r * x3r;
-            a[idx2] = y0r + y2r;
-            a[idx2 + 1] = y0i + y2i;
-            a[idx3] = y0r - y2r;
-            a[idx3 + 1] = y0i - y2i;
-        }
+        KERNELS.cftmdl2Loop(a, offa, m, w, startw, 2, mh);
         wk1r = w[startw + m];
         wk1i = w[startw + m + 1];
         j0 = mh;
@@ -6552,13 +6155,13 @@ public strictfp class FloatFFT_1D {
             n2 = n;
         }
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (n2 >= ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+        if ((nthreads > 1) && (n2 >= ConcurrencyUtils.getThreadsBeginN_1D_FloatFFT_2Threads())) {
             final int k = n2 / nthreads;
-            Future<?>[] futures = new Future[nthreads];
+            TaskGroup tasks = getTasks();
             for (int i = 0; i < nthreads; i++) {
                 final int firstIdx = offa + i * k;
                 final int lastIdx = (i == (nthreads - 1)) ? offa + n2 : firstIdx + k;
-                futures[i] = ConcurrencyUtils.submit(new Runnable() {
+                tasks.submit(new Runnable() {
 
                     public void run() {
                         for (int i = firstIdx; i < lastIdx; i++) {
@@ -6567,7 +6170,7 @@ public strictfp class FloatFFT_1D {
                     }
                 });
             }
-            ConcurrencyUtils.waitForCompletion(futures);
+            tasks.join();
         } else {
             for (int i = offa; i < offa + n2; i++) {
                 a[i] *= norm;
@@ -6575,4 +6178,56 @@ public strictfp class FloatFFT_1D {
 
         }
     }
+
+    /**
+     * Precomputed tables for one size, shared by every instance of that size.
+     * Never written after being published.
+     */
+    private static final class Tables {
+        final int[] ip;
+
+        final float[] w;
+
+        final int nw;
+
+        final int nc;
+
+        final float[] wtable;
+
+        final float[] wtable_r;
+
+        final float[] bk1;
+
+        final float[] bk2;
+
+        Tables(int[] ip, float[] w, int nw, int nc, float[] wtable, float[] wtable_r, float[] bk1, float[] bk2) {
+            this.ip = ip;
+            this.w = w;
+            this.nw = nw;
+            this.nc = nc;
+            this.wtable = wtable;
+            this.wtable_r = wtable_r;
+            this.bk1 = bk1;
+            this.bk2 = bk2;
+        }
+    }
+
+    /**
+     * Work arrays and task group for one thread, sized for the plan that
+     * created them.
+     */
+    private static final class Scratch {
+        final float[] ak;
+
+        final float[] ch;
+
+        final int[] nac = new int[1];
+
+        final TaskGroup tasks = new TaskGroup();
+
+        Scratch(int nak, int nch) {
+            ak = new float[nak];
+            ch = new float[nch];
+        }
+    }
 }
@@ -0,0 +1,586 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is JTransforms.
+ *
+ * The Initial Developer of the Original Code is
+ * Piotr Wendykier, Emory University.
+ * Portions created by the Initial Developer are Copyright (C) 2007-2009
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package edu.emory.mathcs.jtransforms.fft;
+
+/**
+ * Inner loops of FloatFFT_1D, in plain Java: the element-wise products of
+ * the Bluestein transforms and the twiddled radix-4 butterflies of cftf1st,
+ * cftb1st, cftmdl1 and cftmdl2. A subclass can replace them with faster
+ * versions: if
+ * <code>edu.emory.mathcs.jtransforms.fft.VectorFloatKernels</code> is on the
+ * class path and can be created, <code>get()</code> returns it instead, so
+ * on a JVM with the Vector API the kernels use the platform's SIMD width.
+ * Setting the system property <code>jtransforms.simd</code> to
+ * <code>false</code> forces the plain versions.<br>
+ * <br>
+ * Overriding kernels must give the same results as these, to within
+ * rounding.
+ */
+strictfp class FloatKernels {
+
+    /**
+     * Name of the optional SIMD implementation.
+     */
+    static final String VECTOR_KERNELS = "edu.emory.mathcs.jtransforms.fft.VectorFloatKernels";
+
+    private static final FloatKernels INSTANCE = load();
+
+    /**
+     * Returns the kernels FloatFFT_1D uses.
+     * 
+     * @return the SIMD kernels if available, otherwise these
+     */
+    static FloatKernels get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Multiplies <code>n</code> interleaved complex numbers element by
+     * element, <code>out[k] = x[k] * y[k]</code>, or
+     * <code>x[k] * conj(y[k])</code>. <code>out</code> may be
+     * <code>x</code> at the same offset.
+     * 
+     * @param x
+     *            first factors
+     * @param offx
+     *            index of the first element in <code>x</code>
+     * @param y
+     *            second factors
+     * @param offy
+     *            index of the first element in <code>y</code>
+     * @param out
+     *            products
+     * @param offo
+     *            index of the first element in <code>out</code>
+     * @param n
+     *            number of complex numbers
+     * @param conj
+     *            if true then <code>y</code> is conjugated
+     */
+    void cmul(float[] x, int offx, float[] y, int offy, float[] out, int offo, int n, boolean conj) {
+        if (conj) {
+            for (int i = 0; i < n; i++) {
+                int ix = offx + 2 * i;
+                int iy = offy + 2 * i;
+                int io = offo + 2 * i;
+                float xr = x[ix];
+                float xi = x[ix + 1];
+                float yr = y[iy];
+                float yi = y[iy + 1];
+                out[io] = xr * yr + xi * yi;
+                out[io + 1] = xi * yr - xr * yi;
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                int ix = offx + 2 * i;
+                int iy = offy + 2 * i;
+                int io = offo + 2 * i;
+                float xr = x[ix];
+                float xi = x[ix + 1];
+                float yr = y[iy];
+                float yi = y[iy + 1];
+                out[io] = xr * yr - xi * yi;
+                out[io + 1] = xi * yr + xr * yi;
+            }
+        }
+    }
+
+    /**
+     * Runs the twiddled radix-4 butterflies in the middle of
+     * <code>FloatFFT_1D.cftmdl1()</code>, for every <code>j</code> from
+     * <code>from</code> up to <code>to</code> in steps of 2 and for its mirror
+     * image <code>m - j</code>. Each <code>j</code> touches its own elements,
+     * so they may be done in any order.
+     * 
+     * @param a
+     *            data to transform
+     * @param offa
+     *            index of the first element of the transform in
+     *            <code>a</code>
+     * @param m
+     *            distance between the four legs of each butterfly
+     * @param w
+     *            twiddle table
+     * @param startw
+     *            index of the first twiddle in <code>w</code>
+     * @param from
+     *            first <code>j</code>, even and at least 2
+     * @param to
+     *            end of the <code>j</code> range, at most <code>m / 2</code>
+     */
+    void cftmdl1Loop(float[] a, int offa, int m, float[] w, int startw, int from, int to) {
+        int j0, j1, j2, j3, idx0, idx1, idx2, idx3, idx4, idx5;
+        float wk1r, wk1i, wk3r, wk3i;
+        float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i;
+        for (int j = from; j < to; j += 2) {
+            idx4 = startw + 2 * j;
+            wk1r = w[idx4];
+            wk1i = w[idx4 + 1];
+            wk3r = w[idx4 + 2];
+            wk3i = w[idx4 + 3];
+            j1 = j + m;
+            j2 = j1 + m;
+            j3 = j2 + m;
+            idx1 = offa + j1;
+            idx2 = offa + j2;
+            idx3 = offa + j3;
+            idx5 = offa + j;
+            x0r = a[idx5] + a[idx2];
+            x0i = a[idx5 + 1] + a[idx2 + 1];
+            x1r = a[idx5] - a[idx2];
+            x1i = a[idx5 + 1] - a[idx2 + 1];
+            x2r = a[idx1] + a[idx3];
+            x2i = a[idx1 + 1] + a[idx3 + 1];
+            x3r = a[idx1] - a[idx3];
+            x3i = a[idx1 + 1] - a[idx3 + 1];
+            a[idx5] = x0r + x2r;
+            a[idx5 + 1] = x0i + x2i;
+            a[idx1] = x0r - x2r;
+            a[idx1 + 1] = x0i - x2i;
+            x0r = x1r - x3i;
+            x0i = x1i + x3r;
+            a[idx2] = wk1r * x0r - wk1i * x0i;
+            a[idx2 + 1] = wk1r * x0i + wk1i * x0r;
+            x0r = x1r + x3i;
+            x0i = x1i - x3r;
+            a[idx3] = wk3r * x0r + wk3i * x0i;
+            a[idx3 + 1] = wk3r * x0i - wk3i * x0r;
+            j0 = m - j;
+            j1 = j0 + m;
+            j2 = j1 + m;
+            j3 = j2 + m;
+            idx0 = offa + j0;
+            idx1 = offa + j1;
+            idx2 = offa + j2;
+            idx3 = offa + j3;
+            x0r = a[idx0] + a[idx2];
+            x0i = a[idx0 + 1] + a[idx2 + 1];
+            x1r = a[idx0] - a[idx2];
+            x1i = a[idx0 + 1] - a[idx2 + 1];
+            x2r = a[idx1] + a[idx3];
+            x2i = a[idx1 + 1] + a[idx3 + 1];
+            x3r = a[idx1] - a[idx3];
+            x3i = a[idx1 + 1] - a[idx3 + 1];
+            a[idx0] = x0r + x2r;
+            a[idx0 + 1] = x0i + x2i;
+            a[idx1] = x0r - x2r;
+            a[idx1 + 1] = x0i - x2i;
+            x0r = x1r - x3i;
+            x0i = x1i + x3r;
+            a[idx2] = wk1i * x0r - wk1r * x0i;
+            a[idx2 + 1] = wk1i * x0i + wk1r * x0r;
+            x0r = x1r + x3i;
+            x0i = x1i - x3r;
+            a[idx3] = wk3i * x0r + wk3r * x0i;
+            a[idx3 + 1] = wk3i * x0i - wk3r * x0r;
+        }
+    }
+
+    /**
+     * Runs the middle butterflies of <code>FloatFFT_1D.cftmdl2()</code>, as
+     * <code>cftmdl1Loop()</code> does for <code>cftmdl1()</code>.
+     */
+    void cftmdl2Loop(float[] a, int offa, int m, float[] w, int startw, int from, int to) {
+        int j0, j1, j2, j3, idx0, idx1, idx2, idx3, idx4, idx5, idx6;
+        float wk1r, wk1i, wk3r, wk3i, wd1r, wd1i, wd3r, wd3i;
+        float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i, y0r, y0i, y2r, y2i;
+        for (int j = from; j < to; j += 2) {
+            idx4 = startw + 2 * j;
+            wk1r = w[idx4];
+            wk1i = w[idx4 + 1];
+            wk3r = w[idx4 + 2];
+            wk3i = w[idx4 + 3];
+            idx5 = startw + 2 * m - 2 * j;
+            wd1i = w[idx5];
+            wd1r = w[idx5 + 1];
+            wd3i = w[idx5 + 2];
+            wd3r = w[idx5 + 3];
+            j1 = j + m;
+            j2 = j1 + m;
+            j3 = j2 + m;
+            idx1 = offa + j1;
+            idx2 = offa + j2;
+            idx3 = offa + j3;
+            idx6 = offa + j;
+            x0r = a[idx6] - a[idx2 + 1];
+            x0i = a[idx6 + 1] + a[idx2];
+            x1r = a[idx6] + a[idx2 + 1];
+            x1i = a[idx6 + 1] - a[idx2];
+            x2r = a[idx1] - a[idx3 + 1];
+            x2i = a[idx1 + 1] + a[idx3];
+            x3r = a[idx1] + a[idx3 + 1];
+            x3i = a[idx1 + 1] - a[idx3];
+            y0r = wk1r * x0r - wk1i * x0i;
+            y0i = wk1r * x0i + wk1i * x0r;
+            y2r = wd1r * x2r - wd1i * x2i;
+            y2i = wd1r * x2i + wd1i * x2r;
+            a[idx6] = y0r + y2r;
+            a[idx6 + 1] = y0i + y2i;
+            a[idx1] = y0r - y2r;
+            a[idx1 + 1] = y0i - y2i;
+            y0r = wk3r * x1r + wk3i * x1i;
+            y0i = wk3r * x1i - wk3i * x1r;
+            y2r = wd3r * x3r + wd3i * x3i;
+            y2i = wd3r * x3i - wd3i * x3r;
+            a[idx2] = y0r + y2r;
+            a[idx2 + 1] = y0i + y2i;
+            a[idx3] = y0r - y2r;
+            a[idx3 + 1] = y0i - y2i;
+            j0 = m - j;
+            j1 = j0 + m;
+            j2 = j1 + m;
+            j3 = j2 + m;
+            idx0 = offa + j0;
+            idx1 = offa + j1;
+            idx2 = offa + j2;
+            idx3 = offa + j3;
+            x0r = a[idx0] - a[idx2 + 1];
+            x0i = a[idx0 + 1] + a[idx2];
+            x1r = a[idx0] + a[idx2 + 1];
+            x1i = a[idx0 + 1] - a[idx2];
+            x2r = a[idx1] - a[idx3 + 1];
+            x2i = a[idx1 + 1] + a[idx3];
+            x3r = a[idx1] + a[idx3 + 1];
+            x3i = a[idx1 + 1] - a[idx3];
+            y0r = wd1i * x0r - wd1r * x0i;
+            y0i = wd1i * x0i + wd1r * x0r;
+            y2r = wk1i * x2r - wk1r * x2i;
+            y2i = wk1i * x2i + wk1r * x2r;
+            a[idx0] = y0r + y2r;
+            a[idx0 + 1] = y0i + y2i;
+            a[idx1] = y0r - y2r;
+            a[idx1 + 1] = y0i - y2i;
+            y0r = wd3i * x1r + wd3r * x1i;
+            y0i = wd3i * x1i - wd3r * x1r;
+            y2r = wk3i * x3r + wk3r * x3i;
+            y2i = wk3i * x3i - wk3r * x3r;
+            a[idx2] = y0r + y2r;
+            a[idx2 + 1] = y0i + y2i;
+            a[idx3] = y0r - y2r;
+            a[idx3 + 1] = y0i - y2i;
+        }
+    }
+
+    /**
+     * Runs the middle butterflies of <code>FloatFFT_1D.cftf1st()</code>, for
+     * every <code>j</code> from <code>from</code> up to <code>to</code> in
+     * steps of 4, each covering the positions <code>j</code> and
+     * <code>j + 2</code> and their mirror images. Every other twiddle is
+     * interpolated from the two table entries either side of it, the first
+     * one from 1.
+     * 
+     * @param from
+     *            first <code>j</code>, 2 more than a multiple of 4
+     * @param to
+     *            end of the <code>j</code> range, at most
+     *            <code>m / 2 - 2</code>
+     */
+    void cftf1stLoop(float[] a, int offa, int m, float[] w, int startw, int from, int to) {
+        int j0, j1, j2, j3, idx0, idx1, idx2, idx3, idx4, idx5;
+        float csc1, csc3, wk1r, wk1i, wk3r, wk3i, wd1r, wd1i, wd3r, wd3i;
+        float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i, y0r, y0i, y1r, y1i, y2r, y2i, y3r, y3i;
+        csc1 = w[startw + 2];
+        csc3 = w[startw + 3];
+        if (from == 2) {
+            wd1r = 1;
+            wd1i = 0;
+            wd3r = 1;
+            wd3i = 0;
+        } else {
+            wd1r = w[startw + from - 2];
+            wd1i = w[startw + from - 1];
+            wd3r = w[startw + from];
+            wd3i = w[startw + from + 1];
+        }
+        for (int j = from; j < to; j += 4) {
+            idx4 = startw + j + 2;
+            wk1r = csc1 * (wd1r + w[idx4]);
+            wk1i = csc1 * (wd1i + w[idx4 + 1]);
+            wk3r = csc3 * (wd3r + w[idx4 + 2]);
+            wk3i = csc3 * (wd3i + w[idx4 + 3]);
+            wd1r = w[idx4];
+            wd1i = w[idx4 + 1];
+            wd3r = w[idx4 + 2];
+            wd3i = w[idx4 + 3];
+            j1 = j + m;
+            j2 = j1 + m;
+            j3 = j2 + m;
+            idx1 = offa + j1;
+            idx2 = offa + j2;
+            idx3 = offa + j3;
+            idx5 = offa + j;
+            x0r = a[idx5] + a[idx2];
+            x0i = a[idx5 + 1] + a[idx2 + 1];
+            x1r = a[idx5] - a[idx2];
+            x1i = a[idx5 + 1] - a[idx2 + 1];
+            y0r = a[idx5 + 2] + a[idx2 + 2];
+            y0i = a[idx5 + 3] + a[idx2 + 3];
+            y1r = a[idx5 + 2] - a[idx2 + 2];
+            y1i = a[idx5 + 3] - a[idx2 + 3];
+            x2r = a[idx1] + a[idx3];
+            x2i = a[idx1 + 1] + a[idx3 + 1];
+            x3r = a[idx1] - a[idx3];
+            x3i = a[idx1 + 1] - a[idx3 + 1];
+            y2r = a[idx1 + 2] + a[idx3 + 2];
+            y2i = a[idx1 + 3] + a[idx3 + 3];
+            y3r = a[idx1 + 2] - a[idx3 + 2];
+            y3i = a[idx1 + 3] - a[idx3 + 3];
+            a[idx5] = x0r + x2r;
+            a[idx5 + 1] = x0i + x2i;
+            a[idx5 + 2] = y0r + y2r;
+            a[idx5 + 3] = y0i + y2i;
+            a[idx1] = x0r - x2r;
+            a[idx1 + 1] = x0i - x2i;
+            a[idx1 + 2] = y0r - y2r;
+            a[idx1 + 3] = y0i - y2i;
+            x0r = x1r - x3i;
+            x0i = x1i + x3r;
+            a[idx2] = wk1r * x0r - wk1i * x0i;
+            a[idx2 + 1] = wk1r * x0i + wk1i * x0r;
+            x0r = y1r - y3i;
+            x0i = y1i + y3r;
+            a[idx2 + 2] = wd1r * x0r - wd1i * x0i;
+            a[idx2 + 3] = wd1r * x0i + wd1i * x0r;
+            x0r = x1r + x3i;
+            x0i = x1i - x3r;
+            a[idx3] = wk3r * x0r + wk3i * x0i;
+            a[idx3 + 1] = wk3r * x0i - wk3i * x0r;
+            x0r = y1r + y3i;
+            x0i = y1i - y3r;
+            a[idx3 + 2] = wd3r * x0r + wd3i * x0i;
+            a[idx3 + 3] = wd3r * x0i - wd3i * x0r;
+            j0 = m - j;
+            j1 = j0 + m;
+            j2 = j1 + m;
+            j3 = j2 + m;
+            idx0 = offa + j0;
+            idx1 = offa + j1;
+            idx2 = offa + j2;
+            idx3 = offa + j3;
+            x0r = a[idx0] + a[idx2];
+            x0i = a[idx0 + 1] + a[idx2 + 1];
+            x1r = a[idx0] - a[idx2];
+            x1i = a[idx0 + 1] - a[idx2 + 1];
+            y0r = a[idx0 - 2] + a[idx2 - 2];
+            y0i = a[idx0 - 1] + a[idx2 - 1];
+            y1r = a[idx0 - 2] - a[idx2 - 2];
+            y1i = a[idx0 - 1] - a[idx2 - 1];
+            x2r = a[idx1] + a[idx3];
+            x2i = a[idx1 + 1] + a[idx3 + 1];
+            x3r = a[idx1] - a[idx3];
+            x3i = a[idx1 + 1] - a[idx3 + 1];
+            y2r = a[idx1 - 2] + a[idx3 - 2];
+            y2i = a[idx1 - 1] + a[idx3 - 1];
+            y3r = a[idx1 - 2] - a[idx3 - 2];
+            y3i = a[idx1 - 1] - a[idx3 - 1];
+            a[idx0] = x0r + x2r;
+            a[idx0 + 1] = x0i + x2i;
+            a[idx0 - 2] = y0r + y2r;
+            a[idx0 - 1] = y0i + y2i;
+            a[idx1] = x0r - x2r;
+            a[idx1 + 1] = x0i - x2i;
+            a[idx1 - 2] = y0r - y2r;
+            a[idx1 - 1] = y0i - y2i;
+            x0r = x1r - x3i;
+            x0i = x1i + x3r;
+            a[idx2] = wk1i * x0r - wk1r * x0i;
+            a[idx2 + 1] = wk1i * x0i + wk1r * x0r;
+            x0r = y1r - y3i;
+            x0i = y1i + y3r;
+            a[idx2 - 2] = wd1i * x0r - wd1r * x0i;
+            a[idx2 - 1] = wd1i * x0i + wd1r * x0r;
+            x0r = x1r + x3i;
+            x0i = x1i - x3r;
+            a[idx3] = wk3i * x0r + wk3r * x0i;
+            a[idx3 + 1] = wk3i * x0i - wk3r * x0r;
+            x0r = y1r + y3i;
+            x0i = y1i - y3r;
+            a[offa + j3 - 2] = wd3i * x0r + wd3r * x0i;
+            a[offa + j3 - 1] = wd3i * x0i - wd3r * x0r;
+        }
+    }
+
+    /**
+     * Runs the middle butterflies of <code>FloatFFT_1D.cftb1st()</code>, as
+     * <code>cftf1stLoop()</code> does for <code>cftf1st()</code>.
+     */
+    void cftb1stLoop(float[] a, int offa, int m, float[] w, int startw, int from, int to) {
+        int j0, j1, j2, j3, idx0, idx1, idx2, idx3, idx4, idx5;
+        float csc1, csc3, wk1r, wk1i, wk3r, wk3i, wd1r, wd1i, wd3r, wd3i;
+        float x0r, x0i, x1r, x1i, x2r, x2i, x3r, x3i, y0r, y0i, y1r, y1i, y2r, y2i, y3r, y3i;
+        csc1 = w[startw + 2];
+        csc3 = w[startw + 3];
+        if (from == 2) {
+            wd1r = 1;
+            wd1i = 0;
+            wd3r = 1;
+            wd3i = 0;
+        } else {
+            wd1r = w[startw + from - 2];
+            wd1i = w[startw + from - 1];
+            wd3r = w[startw + from];
+            wd3i = w[startw + from + 1];
+        }
+        for (int j = from; j < to; j += 4) {
+            idx4 = startw + j + 2;
+            wk1r = csc1 * (wd1r + w[idx4]);
+            wk1i = csc1 * (wd1i + w[idx4 + 1]);
+            wk3r = csc3 * (wd3r + w[idx4 + 2]);
+            wk3i = csc3 * (wd3i + w[idx4 + 3]);
+            wd1r = w[idx4];
+            wd1i = w[idx4 + 1];
+            wd3r = w[idx4 + 2];
+            wd3i = w[idx4 + 3];
+            j1 = j + m;
+            j2 = j1 + m;
+            j3 = j2 + m;
+            idx1 = offa + j1;
+            idx2 = offa + j2;
+            idx3 = offa + j3;
+            idx5 = offa + j;
+            x0r = a[idx5] + a[idx2];
+            x0i = -a[idx5 + 1] - a[idx2 + 1];
+            x1r = a[idx5] - a[offa + j2];
+            x1i = -a[idx5 + 1] + a[idx2 + 1];
+            y0r = a[idx5 + 2] + a[idx2 + 2];
+            y0i = -a[idx5 + 3] - a[idx2 + 3];
+            y1r = a[idx5 + 2] - a[idx2 + 2];
+            y1i = -a[idx5 + 3] + a[idx2 + 3];
+            x2r = a[idx1] + a[idx3];
+            x2i = a[idx1 + 1] + a[idx3 + 1];
+            x3r = a[idx1] - a[idx3];
+            x3i = a[idx1 + 1] - a[idx3 + 1];
+            y2r = a[idx1 + 2] + a[idx3 + 2];
+            y2i = a[idx1 + 3] + a[idx3 + 3];
+            y3r = a[idx1 + 2] - a[idx3 + 2];
+            y3i = a[idx1 + 3] - a[idx3 + 3];
+            a[idx5] = x0r + x2r;
+            a[idx5 + 1] = x0i - x2i;
+            a[idx5 + 2] = y0r + y2r;
+            a[idx5 + 3] = y0i - y2i;
+            a[idx1] = x0r - x2r;
+            a[idx1 + 1] = x0i + x2i;
+            a[idx1 + 2] = y0r - y2r;
+            a[idx1 + 3] = y0i + y2i;
+            x0r = x1r + x3i;
+            x0i = x1i + x3r;
+            a[idx2] = wk1r * x0r - wk1i * x0i;
+            a[idx2 + 1] = wk1r * x0i + wk1i * x0r;
+            x0r = y1r + y3i;
+            x0i = y1i + y3r;
+            a[idx2 + 2] = wd1r * x0r - wd1i * x0i;
+            a[idx2 + 3] = wd1r * x0i + wd1i * x0r;
+            x0r = x1r - x3i;
+            x0i = x1i - x3r;
+            a[idx3] = wk3r * x0r + wk3i * x0i;
+            a[idx3 + 1] = wk3r * x0i - wk3i * x0r;
+            x0r = y1r - y3i;
+            x0i = y1i - y3r;
+            a[idx3 + 2] = wd3r * x0r + wd3i * x0i;
+            a[idx3 + 3] = wd3r * x0i - wd3i * x0r;
+            j0 = m - j;
+            j1 = j0 + m;
+            j2 = j1 + m;
+            j3 = j2 + m;
+            idx0 = offa + j0;
+            idx1 = offa + j1;
+            idx2 = offa + j2;
+            idx3 = offa + j3;
+            x0r = a[idx0] + a[idx2];
+            x0i = -a[idx0 + 1] - a[idx2 + 1];
+            x1r = a[idx0] - a[idx2];
+            x1i = -a[idx0 + 1] + a[idx2 + 1];
+            y0r = a[idx0 - 2] + a[idx2 - 2];
+            y0i = -a[idx0 - 1] - a[idx2 - 1];
+            y1r = a[idx0 - 2] - a[idx2 - 2];
+            y1i = -a[idx0 - 1] + a[idx2 - 1];
+            x2r = a[idx1] + a[idx3];
+            x2i = a[idx1 + 1] + a[idx3 + 1];
+            x3r = a[idx1] - a[idx3];
+            x3i = a[idx1 + 1] - a[idx3 + 1];
+            y2r = a[idx1 - 2] + a[idx3 - 2];
+            y2i = a[idx1 - 1] + a[idx3 - 1];
+            y3r = a[idx1 - 2] - a[idx3 - 2];
+            y3i = a[idx1 - 1] - a[idx3 - 1];
+            a[idx0] = x0r + x2r;
+            a[idx0 + 1] = x0i - x2i;
+            a[idx0 - 2] = y0r + y2r;
+            a[idx0 - 1] = y0i - y2i;
+            a[idx1] = x0r - x2r;
+            a[idx1 + 1] = x0i + x2i;
+            a[idx1 - 2] = y0r - y2r;
+            a[idx1 - 1] = y0i + y2i;
+            x0r = x1r + x3i;
+            x0i = x1i + x3r;
+            a[idx2] = wk1i * x0r - wk1r * x0i;
+            a[idx2 + 1] = wk1i * x0i + wk1r * x0r;
+            x0r = y1r + y3i;
+            x0i = y1i + y3r;
+            a[idx2 - 2] = wd1i * x0r - wd1r * x0i;
+            a[idx2 - 1] = wd1i * x0i + wd1r * x0r;
+            x0r = x1r - x3i;
+            x0i = x1i - x3r;
+            a[idx3] = wk3i * x0r + wk3r * x0i;
+            a[idx3 + 1] = wk3i * x0i - wk3r * x0r;
+            x0r = y1r - y3i;
+            x0i = y1i - y3r;
+            a[idx3 - 2] = wd3i * x0r + wd3r * x0i;
+            a[idx3 - 1] = wd3i * x0i - wd3r * x0r;
+        }
+    }
+
+    /**
+     * Returns a short name for these kernels, for logging.
+     * 
+     * @return the name
+     */
+    String getName() {
+        return "scalar";
+    }
+
+    private static FloatKernels load() {
+        if ("false".equalsIgnoreCase(System.getProperty("jtransforms.simd"))) {
+            return new FloatKernels();
+        }
+        try {
+            return (FloatKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return new FloatKernels();
+        } catch (LinkageError e) {
+            return new FloatKernels();
+        }
+    }
+}
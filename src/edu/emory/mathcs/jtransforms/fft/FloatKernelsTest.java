@@ -0,0 +1,185 @@
+package edu.emory.mathcs.jtransforms.fft;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class FloatKernelsTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING FloatKernels::cmul()/cft*Loop()
+     *
+     * TEST CASES:
+     *   1. The kernels in use match the plain ones
+     *   2. The butterflies in use match the plain
+     *      ones
+     *   3. A Bluestein transform through them
+     *-----------------------------------------*/
+
+    /**
+     * Tests that the kernels FloatFFT_1D uses, SIMD or
+     * not, give exactly the plain products, conjugated
+     * or not, in place or not, for lengths that don't
+     * fill a whole vector and at odd offsets.
+     * <br /><br />
+     * Expected return value: identical floats
+     */
+    public void testMatchesPlain()
+    {
+        int          i;
+        int          n;
+        float []     x;
+        float []     y;
+        float []     a;
+        float []     b;
+        Random       rnd    = new Random( 3 );
+        FloatKernels plain  = new FloatKernels();
+        FloatKernels in_use = FloatKernels.get();
+
+        for( n = 1; n < 70; n += 3 )
+        {
+            x = new float[ 2 * n + 6 ];
+            y = new float[ 2 * n + 2 ];
+            for( i = 0; i < x.length; ++i )
+            {
+                x[ i ] = rnd.nextFloat() - 0.5f;
+            }
+            for( i = 0; i < y.length; ++i )
+            {
+                y[ i ] = rnd.nextFloat() - 0.5f;
+            }
+
+            a = new float[ 2 * n + 4 ];
+            b = new float[ 2 * n + 4 ];
+            plain.cmul( x, 6, y, 2, a, 4, n - 1, false );
+            in_use.cmul( x, 6, y, 2, b, 4, n - 1, false );
+            assertArrayEquals( in_use.getName() + " n=" + n, a, b );
+
+            a = x.clone();
+            b = x.clone();
+            plain.cmul( a, 2, y, 0, a, 2, n, true );
+            in_use.cmul( b, 2, y, 0, b, 2, n, true );
+            assertArrayEquals( in_use.getName() + " conj n=" + n, a, b );
+        }
+
+    }   /* testMatchesPlain() */
+
+    /**
+     * Tests that the butterfly loops FloatFFT_1D uses,
+     * SIMD or not, give exactly what the plain ones do,
+     * at every stage size from a single vector up, from
+     * the start of a stage and from part way into it,
+     * at odd offsets.
+     * <br /><br />
+     * Expected return value: identical floats
+     */
+    public void testButterflies()
+    {
+        int          i;
+        int          k;
+        int          m;
+        int          mh;
+        int          from;
+        int          offa   = 3;
+        int          startw = 5;
+        float []     a;
+        float []     b;
+        float []     w;
+        Random       rnd    = new Random( 7 );
+        FloatKernels plain  = new FloatKernels();
+        FloatKernels in_use = FloatKernels.get();
+
+        for( mh = 4; mh <= 256; mh *= 2 )
+        {
+            m = 2 * mh;
+            w = new float[ startw + 2 * m + 64 ];
+            for( i = 0; i < w.length; ++i )
+            {
+                w[ i ] = rnd.nextFloat() - 0.5f;
+            }
+
+            for( k = 0; k < 8; ++k )
+            {
+                from = ( k < 4 ) ? 2 : 6;
+                a    = new float[ offa + 4 * m + 8 ];
+                for( i = 0; i < a.length; ++i )
+                {
+                    a[ i ] = rnd.nextFloat() - 0.5f;
+                }
+                b = a.clone();
+
+                switch( k % 4 )
+                {
+                    case 0:
+                        plain.cftmdl1Loop( a, offa, m, w, startw, from, mh );
+                        in_use.cftmdl1Loop( b, offa, m, w, startw, from, mh );
+                        break;
+                    case 1:
+                        plain.cftmdl2Loop( a, offa, m, w, startw, from, mh );
+                        in_use.cftmdl2Loop( b, offa, m, w, startw, from, mh );
+                        break;
+                    case 2:
+                        plain.cftf1stLoop( a, offa, m, w, startw, from, mh - 2 );
+                        in_use.cftf1stLoop( b, offa, m, w, startw, from, mh - 2 );
+                        break;
+                    default:
+                        plain.cftb1stLoop( a, offa, m, w, startw, from, mh - 2 );
+                        in_use.cftb1stLoop( b, offa, m, w, startw, from, mh - 2 );
+                        break;
+                }
+                assertArrayEquals( in_use.getName() + " mh=" + mh + " loop " + k, a, b );
+            }
+        }
+
+    }   /* testButterflies() */
+
+    /**
+     * Tests a single precision Bluestein transform, which
+     * does its pointwise products through the kernels,
+     * against the double precision one.
+     * <br /><br />
+     * Expected return value: the same spectrum, to
+     * single precision
+     */
+    public void testBluestein()
+    {
+        int          i;
+        int          n = 211;
+        double []    d = new double[ 2 * n ];
+        float []     f = new float[ 2 * n ];
+        Random       rnd = new Random( 5 );
+
+        for( i = 0; i < d.length; ++i )
+        {
+            d[ i ] = rnd.nextFloat() - 0.5f;
+            f[ i ] = (float)d[ i ];
+        }
+
+        new DoubleFFT_1D( n ).complexForward( d );
+        new FloatFFT_1D( n ).complexForward( f );
+        for( i = 0; i < d.length; ++i )
+        {
+            assertEquals( "Element " + i, d[ i ], f[ i ], 1.0e-4 );
+        }
+
+        new FloatFFT_1D( n ).complexInverse( f, true );
+        new DoubleFFT_1D( n ).complexInverse( d, true );
+        for( i = 0; i < d.length; ++i )
+        {
+            assertEquals( "Inverse " + i, d[ i ], f[ i ], 1.0e-5 );
+        }
+
+    }   /* testBluestein() */
+
+    private static void assertArrayEquals( final String msg, final float [] a, final float [] b )
+    {
+        int i;
+
+        for( i = 0; i < a.length; ++i )
+        {
+            assertEquals( msg + " [" + i + "]", Float.floatToIntBits( a[ i ] ), Float.floatToIntBits( b[ i ] ) );
+        }
+
+    }   /* assertArrayEquals() */
+
+};  /* FloatKernelsTest */
@@ -0,0 +1,139 @@
+package edu.emory.mathcs.jtransforms.fft;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ScratchReuseTest extends TestCase {
+    private static final int CALLS = 60;
+
+    private static final int KINDS = 6;
+
+    /*-------------------------------------------
+     * TESTING DoubleFFT_1D/FloatFFT_1D work arrays
+     *
+     * TEST CASES:
+     *   1. Repeated, mixed transforms through one
+     *      double precision plan
+     *   2. Repeated, mixed transforms through one
+     *      single precision plan
+     *-----------------------------------------*/
+
+    /**
+     * Tests that a mixed-radix or Bluestein plan run
+     * over and over, on different inputs and with the
+     * transform kinds interleaved, gives exactly what a
+     * fresh plan gives, so nothing left in its reused
+     * work arrays leaks into a later transform.
+     * <br /><br />
+     * Expected return value: the fresh plan's output
+     */
+    public void testDouble()
+    {
+        int          c;
+        int          i;
+        int          j;
+        int          k;
+        int []       sizes = { 60, 100, 211, 1009 };
+        double []    a;
+        double []    b;
+        Random       rnd   = new Random( 22 );
+        DoubleFFT_1D plan;
+
+        for( i = 0; i < sizes.length; ++i )
+        {
+            plan = new DoubleFFT_1D( sizes[ i ] );
+            for( c = 0; c < CALLS; ++c )
+            {
+                k = rnd.nextInt( KINDS );
+                a = new double[ 2 * sizes[ i ] ];
+                for( j = 0; j < a.length; ++j )
+                {
+                    a[ j ] = 1000.0 * rnd.nextGaussian();
+                }
+                b = a.clone();
+
+                run( plan, k, a );
+                run( new DoubleFFT_1D( sizes[ i ] ), k, b );
+                for( j = 0; j < a.length; ++j )
+                {
+                    assertEquals( sizes[ i ] + " call " + c + " kind " + k + " element " + j, b[ j ], a[ j ], 0.0 );
+                }
+            }
+        }
+
+    }   /* testDouble() */
+
+    /**
+     * Tests the same for single precision plans.
+     * <br /><br />
+     * Expected return value: the fresh plan's output
+     */
+    public void testFloat()
+    {
+        int         c;
+        int         i;
+        int         j;
+        int         k;
+        int []      sizes = { 60, 100, 211, 1009 };
+        float []    a;
+        float []    b;
+        Random      rnd   = new Random( 23 );
+        FloatFFT_1D plan;
+
+        for( i = 0; i < sizes.length; ++i )
+        {
+            plan = new FloatFFT_1D( sizes[ i ] );
+            for( c = 0; c < CALLS; ++c )
+            {
+                k = rnd.nextInt( KINDS );
+                a = new float[ 2 * sizes[ i ] ];
+                for( j = 0; j < a.length; ++j )
+                {
+                    a[ j ] = (float)( 1000.0 * rnd.nextGaussian() );
+                }
+                b = a.clone();
+
+                run( plan, k, a );
+                run( new FloatFFT_1D( sizes[ i ] ), k, b );
+                for( j = 0; j < a.length; ++j )
+                {
+                    assertEquals( sizes[ i ] + " call " + c + " kind " + k + " element " + j, b[ j ], a[ j ], 0.0f );
+                }
+            }
+        }
+
+    }   /* testFloat() */
+
+    /*-----------------------------------------
+     * Helper functions
+     *---------------------------------------*/
+    private static void run( final DoubleFFT_1D plan, final int kind, final double [] a )
+    {
+        switch( kind )
+        {
+            case 0:  plan.complexForward( a );        break;
+            case 1:  plan.complexInverse( a, true );  break;
+            case 2:  plan.realForward( a );           break;
+            case 3:  plan.realInverse( a, true );     break;
+            case 4:  plan.realForwardFull( a );       break;
+            default: plan.realInverseFull( a, true ); break;
+        }
+
+    }   /* run() */
+
+    private static void run( final FloatFFT_1D plan, final int kind, final float [] a )
+    {
+        switch( kind )
+        {
+            case 0:  plan.complexForward( a );        break;
+            case 1:  plan.complexInverse( a, true );  break;
+            case 2:  plan.realForward( a );           break;
+            case 3:  plan.realInverse( a, true );     break;
+            case 4:  plan.realForwardFull( a );       break;
+            default: plan.realInverseFull( a, true ); break;
+        }
+
+    }   /* run() */
+
+};  /* ScratchReuseTest */
@@ -0,0 +1,129 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is JTransforms.
+ *
+ * The Initial Developer of the Original Code is
+ * Piotr Wendykier, Emory University.
+ * Portions created by the Initial Developer are Copyright (C) 2007-2009
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package edu.emory.mathcs.jtransforms.fft;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Size-keyed registry of precomputed FFT tables, shared by every transform of
+ * the same size and precision. Tables are immutable once published, so they
+ * can be read by any number of instances and threads at once. Entries are
+ * held weakly: a table stays in the registry for as long as some transform
+ * uses it, and is dropped once the last one is collected.<br>
+ * <br>
+ * If two threads build the same table at the same time, the first one to
+ * publish wins and the other adopts it.
+ * 
+ * @param <T>
+ *            type of the table
+ */
+final class TableRegistry<T> {
+
+    private final ConcurrentHashMap<Integer, Entry<T>> tables = new ConcurrentHashMap<Integer, Entry<T>>();
+
+    private final ReferenceQueue<T> cleared = new ReferenceQueue<T>();
+
+    /**
+     * Returns the table for the given size, or null if there isn't one.
+     * 
+     * @param n
+     *            size of data
+     * @return the shared table, or null
+     */
+    T get(int n) {
+        expunge();
+        Entry<T> e = tables.get(Integer.valueOf(n));
+        return (e == null) ? null : e.get();
+    }
+
+    /**
+     * Publishes a table for the given size, unless another one got there
+     * first.
+     * 
+     * @param n
+     *            size of data
+     * @param table
+     *            newly built table
+     * @return the table every instance of size <code>n</code> should use
+     */
+    T publish(int n, T table) {
+        Integer key = Integer.valueOf(n);
+        Entry<T> e = new Entry<T>(key, table, cleared);
+        expunge();
+        while (true) {
+            Entry<T> old = tables.putIfAbsent(key, e);
+            if (old == null) {
+                return table;
+            }
+            T existing = old.get();
+            if (existing != null) {
+                return existing;
+            }
+            if (tables.replace(key, old, e)) {
+                return table;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sizes with a live table.
+     * 
+     * @return number of entries
+     */
+    int size() {
+        expunge();
+        return tables.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expunge() {
+        Entry<T> e;
+        while ((e = (Entry<T>) cleared.poll()) != null) {
+            tables.remove(e.key, e);
+        }
+    }
+
+    private static final class Entry<T> extends WeakReference<T> {
+        final Integer key;
+
+        Entry(Integer key, T table, ReferenceQueue<T> queue) {
+            super(table, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.emory.mathcs.jtransforms.fft;
+
+import junit.framework.TestCase;
+
+public class TableRegistryTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING TableRegistry::get()/publish()
+     *
+     * TEST CASES:
+     *   1. The first table published wins
+     *   2. Plans built from shared tables
+     *-----------------------------------------*/
+
+    /**
+     * Tests that a second table published for the same
+     * size is discarded in favor of the first.
+     * <br /><br />
+     * Expected return value: the first table
+     */
+    public void testFirstWins()
+    {
+        TableRegistry<double []> r = new TableRegistry<double []>();
+        double []                a = new double[ 4 ];
+        double []                b = new double[ 4 ];
+
+        assertNull( "Empty", r.get( 4 ) );
+        assertSame( "Published", a, r.publish( 4, a ) );
+        assertSame( "Lost the race", a, r.publish( 4, b ) );
+        assertSame( "Looked up", a, r.get( 4 ) );
+        assertNull( "Other size", r.get( 8 ) );
+        assertEquals( "Entries", 1, r.size() );
+
+    }   /* testFirstWins() */
+
+    /**
+     * Tests that a plan built while another of the same
+     * size is alive, and so reusing its tables, computes
+     * the same transform, for a split-radix, a
+     * mixed-radix and a Bluestein size.
+     * <br /><br />
+     * Expected return value: the DFT of the input
+     */
+    public void testSharedPlans()
+    {
+        int             i;
+        int []          sizes = { 64, 60, 211 };
+        DoubleFFT_1D [] first = new DoubleFFT_1D[ sizes.length ];
+
+        for( i = 0; i < sizes.length; ++i )
+        {
+            first[ i ] = new DoubleFFT_1D( sizes[ i ] );
+            check( new DoubleFFT_1D( sizes[ i ] ), new FloatFFT_1D( sizes[ i ] ), sizes[ i ] );
+            check( first[ i ], new FloatFFT_1D( sizes[ i ] ), sizes[ i ] );
+        }
+
+    }   /* testSharedPlans() */
+
+    /**
+     * Compares both plans' forward complex transforms
+     * of a ramp against a direct DFT.
+     */
+    private static void check( final DoubleFFT_1D d, final FloatFFT_1D f, final int n )
+    {
+        int       j;
+        int       k;
+        double    re;
+        double    im;
+        double [] a = new double[ 2 * n ];
+        float []  b = new float[ 2 * n ];
+
+        for( j = 0; j < n; ++j )
+        {
+            a[ 2 * j ] = b[ 2 * j ] = ( j % 7 ) - 3;
+        }
+        d.complexForward( a );
+        f.complexForward( b );
+
+        for( k = 0; k < n; ++k )
+        {
+            re = 0.0;
+            im = 0.0;
+            for( j = 0; j < n; ++j )
+            {
+                re += ( ( j % 7 ) - 3 ) * Math.cos( 2.0 * Math.PI * j * k / n );
+                im -= ( ( j % 7 ) - 3 ) * Math.sin( 2.0 * Math.PI * j * k / n );
+            }
+            assertEquals( n + " re " + k, re, a[ 2 * k ], 1.0e-9 );
+            assertEquals( n + " im " + k, im, a[ 2 * k + 1 ], 1.0e-9 );
+            assertEquals( n + " float re " + k, re, b[ 2 * k ], 1.0e-2 );
+            assertEquals( n + " float im " + k, im, b[ 2 * k + 1 ], 1.0e-2 );
+        }
+
+    }   /* check() */
+
+};  /* TableRegistryTest */
@@ -34,9 +34,11 @@
 package edu.emory.mathcs.utils;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadFactory;
 
 /**
@@ -50,10 +52,29 @@ public class ConcurrencyUtils {
      */
     private static final ExecutorService THREAD_POOL = Executors.newCachedThreadPool(new CustomThreadFactory(new CustomExceptionHandler()));
 
+    /**
+     * Runs every task on the thread that hands it over, so a transform uses
+     * no other threads however large it is.
+     */
+    public static final Executor CALLER_RUNS = new Executor() {
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    /**
+     * Executor used by plans that weren't given one of their own.
+     */
+    private static volatile Executor EXECUTOR = THREAD_POOL;
+
     private static int THREADS_BEGIN_N_1D_FFT_2THREADS = 8192;
 
     private static int THREADS_BEGIN_N_1D_FFT_4THREADS = 65536;
 
+    private static int THREADS_BEGIN_N_1D_FLOAT_FFT_2THREADS = 8192;
+
+    private static int THREADS_BEGIN_N_1D_FLOAT_FFT_4THREADS = 65536;
+
     private static int THREADS_BEGIN_N_2D = 65536;
 
     private static int THREADS_BEGIN_N_3D = 65536;
@@ -116,7 +137,30 @@ public class ConcurrencyUtils {
     }
 
     /**
-     * Returns the minimal size of 1D data for which two threads are used.
+     * Returns the executor used by plans that weren't given one of their own.
+     * 
+     * @return the default executor
+     */
+    public static Executor getExecutor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Sets the executor used by plans that weren't given one of their own,
+     * for example a fixed pool of threads at a known priority, or
+     * <code>CALLER_RUNS</code>. The executor must run every task it accepts,
+     * or reject it so the caller runs it instead.
+     * 
+     * @param executor
+     *            the executor, or null for the built-in cached thread pool
+     */
+    public static void setExecutor(Executor executor) {
+        EXECUTOR = (executor != null) ? executor : THREAD_POOL;
+    }
+
+    /**
+     * Returns the minimal size of 1D data for which two threads are used by
+     * double precision transforms.
      * 
      * @return the minimal size of 1D data for which two threads are used
      */
@@ -125,7 +169,8 @@ public class ConcurrencyUtils {
     }
 
     /**
-     * Returns the minimal size of 1D data for which four threads are used.
+     * Returns the minimal size of 1D data for which four threads are used by
+     * double precision transforms.
      * 
      * @return the minimal size of 1D data for which four threads are used
      */
@@ -133,6 +178,26 @@ public class ConcurrencyUtils {
         return THREADS_BEGIN_N_1D_FFT_4THREADS;
     }
 
+    /**
+     * Returns the minimal size of 1D data for which two threads are used by
+     * single precision transforms.
+     * 
+     * @return the minimal size of 1D data for which two threads are used
+     */
+    public static int getThreadsBeginN_1D_FloatFFT_2Threads() {
+        return THREADS_BEGIN_N_1D_FLOAT_FFT_2THREADS;
+    }
+
+    /**
+     * Returns the minimal size of 1D data for which four threads are used by
+     * single precision transforms.
+     * 
+     * @return the minimal size of 1D data for which four threads are used
+     */
+    public static int getThreadsBeginN_1D_FloatFFT_4Threads() {
+        return THREADS_BEGIN_N_1D_FLOAT_FFT_4THREADS;
+    }
+
     /**
      * Returns the minimal size of 2D data for which threads are used.
      * 
@@ -152,7 +217,8 @@ public class ConcurrencyUtils {
     }
 
     /**
-     * Sets the minimal size of 1D data for which two threads are used.
+     * Sets the minimal size of 1D data for which two threads are used by
+     * double precision transforms.
      * 
      * @param n
      *            the minimal size of 1D data for which two threads are used
@@ -166,7 +232,8 @@ public class ConcurrencyUtils {
     }
 
     /**
-     * Sets the minimal size of 1D data for which four threads are used.
+     * Sets the minimal size of 1D data for which four threads are used by
+     * double precision transforms.
      * 
      * @param n
      *            the minimal size of 1D data for which four threads are used
@@ -179,6 +246,36 @@ public class ConcurrencyUtils {
         }
     }
 
+    /**
+     * Sets the minimal size of 1D data for which two threads are used by
+     * single precision transforms.
+     * 
+     * @param n
+     *            the minimal size of 1D data for which two threads are used
+     */
+    public static void setThreadsBeginN_1D_FloatFFT_2Threads(int n) {
+        if (n < 512) {
+            THREADS_BEGIN_N_1D_FLOAT_FFT_2THREADS = 512;
+        } else {
+            THREADS_BEGIN_N_1D_FLOAT_FFT_2THREADS = n;
+        }
+    }
+
+    /**
+     * Sets the minimal size of 1D data for which four threads are used by
+     * single precision transforms.
+     * 
+     * @param n
+     *            the minimal size of 1D data for which four threads are used
+     */
+    public static void setThreadsBeginN_1D_FloatFFT_4Threads(int n) {
+        if (n < 512) {
+            THREADS_BEGIN_N_1D_FLOAT_FFT_4THREADS = 512;
+        } else {
+            THREADS_BEGIN_N_1D_FLOAT_FFT_4THREADS = n;
+        }
+    }
+
     /**
      * Sets the minimal size of 2D data for which threads are used.
      * 
@@ -201,11 +298,13 @@ public class ConcurrencyUtils {
 
     /**
      * Resets the minimal size of 1D data for which two and four threads are
-     * used.
+     * used, in both precisions.
      */
     public static void resetThreadsBeginN_FFT() {
         THREADS_BEGIN_N_1D_FFT_2THREADS = 8192;
         THREADS_BEGIN_N_1D_FFT_4THREADS = 65536;
+        THREADS_BEGIN_N_1D_FLOAT_FFT_2THREADS = 8192;
+        THREADS_BEGIN_N_1D_FLOAT_FFT_4THREADS = 65536;
     }
 
     /**
@@ -277,14 +376,20 @@ public class ConcurrencyUtils {
     }
 
     /**
-     * Submits a Runnable task for execution and returns a Future representing
-     * that task.
+     * Submits a Runnable task to the default executor and returns a Future
+     * representing that task.
      * 
      * @param task a Runnable task for execution
      * @return a Future representing the task
      */
     public static Future<?> submit(Runnable task) {
-        return THREAD_POOL.submit(task);
+        Executor e = EXECUTOR;
+        if (e instanceof ExecutorService) {
+            return ((ExecutorService) e).submit(task);
+        }
+        FutureTask<Object> f = new FutureTask<Object>(task, null);
+        e.execute(f);
+        return f;
     }
 
     /**
@@ -0,0 +1,148 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Parallel Colt.
+ *
+ * The Initial Developer of the Original Code is
+ * Piotr Wendykier, Emory University.
+ * Portions created by the Initial Developer are Copyright (C) 2007-2009
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package edu.emory.mathcs.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A reusable fork/join barrier. Tasks handed to submit() run on an executor,
+ * and join() waits until every one of them has finished; the group can then
+ * be used again. Unlike submitting to an ExecutorService and waiting on the
+ * Futures, nothing is allocated per call once the group has seen its largest
+ * batch.<br>
+ * <br>
+ * submit() and join() must only be called by one thread, the one that owns
+ * the group. The tasks must not themselves use the same group. If the
+ * executor rejects a task, it is run on the calling thread instead. If a task
+ * throws, the rest of the batch still runs and join() rethrows the first
+ * exception.
+ */
+public final class TaskGroup {
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+    private Slot[] slots = new Slot[0];
+
+    private int used;
+
+    private Executor executor;
+
+    private volatile Thread waiter;
+
+    /**
+     * Sets the executor tasks run on.
+     * 
+     * @param executor
+     *            the executor, or null for
+     *            <code>ConcurrencyUtils.getExecutor()</code>
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a task.
+     * 
+     * @param task
+     *            the task
+     */
+    public void submit(Runnable task) {
+        if (used == slots.length) {
+            Slot[] grown = new Slot[used + 4];
+            System.arraycopy(slots, 0, grown, 0, used);
+            for (int i = used; i < grown.length; i++) {
+                grown[i] = new Slot();
+            }
+            slots = grown;
+        }
+        Slot s = slots[used++];
+        s.task = task;
+        pending.incrementAndGet();
+        try {
+            ((executor != null) ? executor : ConcurrencyUtils.getExecutor()).execute(s);
+        } catch (RejectedExecutionException e) {
+            s.run();
+        }
+    }
+
+    /**
+     * Waits for every task submitted since the last join() to finish.
+     * 
+     * @throws RuntimeException
+     *             the first exception thrown by one of those tasks
+     */
+    public void join() {
+        boolean interrupted = false;
+        waiter = Thread.currentThread();
+        while (pending.get() != 0) {
+            LockSupport.park(this);
+            interrupted |= Thread.interrupted();
+        }
+        waiter = null;
+        used = 0;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        RuntimeException e = failure.getAndSet(null);
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    private final class Slot implements Runnable {
+        Runnable task;
+
+        public void run() {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                task = null;
+                if (pending.decrementAndGet() == 0) {
+                    Thread w = waiter;
+                    if (w != null) {
+                        LockSupport.unpark(w);
+                    }
+                }
+            }
+        }
+    }
+}
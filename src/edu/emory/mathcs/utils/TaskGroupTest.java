@@ -0,0 +1,181 @@
+package edu.emory.mathcs.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+
+public class TaskGroupTest extends TestCase {
+
+    /*-------------------------------------------
+     * TESTING TaskGroup::submit()/join()
+     *
+     * TEST CASES:
+     *   1. Reusing a group for many batches
+     *   2. A plan using an injected executor
+     *   3. A task that throws
+     *-----------------------------------------*/
+
+    /**
+     * Tests that join() waits for every task in a batch,
+     * over many batches on the same group.
+     * <br /><br />
+     * Expected return value: every task ran once
+     */
+    public void testReuse()
+    {
+        int                 i;
+        int                 j;
+        final AtomicInteger ran   = new AtomicInteger();
+        final int []        done  = new int[ 4 ];
+        ExecutorService     pool  = Executors.newFixedThreadPool( 3 );
+        TaskGroup           tasks = new TaskGroup();
+
+        tasks.setExecutor( pool );
+        try
+        {
+            for( i = 0; i < 500; ++i )
+            {
+                for( j = 0; j < done.length; ++j )
+                {
+                    final int k = j;
+                    tasks.submit( new Runnable()
+                    {
+                        public void run()
+                        {
+                            ++done[ k ];
+                            ran.incrementAndGet();
+                        }
+                    } );
+                }
+                tasks.join();
+                assertEquals( "Batch " + i, 4 * ( i + 1 ), ran.get() );
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        for( j = 0; j < done.length; ++j )
+        {
+            assertEquals( "Task " + j, 500, done[ j ] );
+        }
+
+    }   /* testReuse() */
+
+    /**
+     * Tests that a transform large enough to be split
+     * runs its parts on the plan's executor, and gets
+     * the same result as running them on the caller.
+     * <br /><br />
+     * Expected return value: identical output, and the
+     * executor was used
+     */
+    public void testPlanExecutor()
+    {
+        int                 i;
+        int                 n       = 16384;
+        int                 threads = ConcurrencyUtils.getNumberOfThreads();
+        double []           a       = new double[ 2 * n ];
+        double []           b       = new double[ 2 * n ];
+        DoubleFFT_1D        fft     = new DoubleFFT_1D( n );
+        final AtomicInteger used    = new AtomicInteger();
+
+        for( i = 0; i < a.length; ++i )
+        {
+            a[ i ] = b[ i ] = Math.sin( i * 0.01 ) + ( i % 5 );
+        }
+
+        ConcurrencyUtils.setNumberOfThreads( 4 );
+        try
+        {
+            fft.setExecutor( ConcurrencyUtils.CALLER_RUNS );
+            fft.realForwardFull( a );
+
+            fft.setExecutor( new Executor()
+            {
+                public void execute( final Runnable task )
+                {
+                    used.incrementAndGet();
+                    new Thread( task ).start();
+                }
+            } );
+            fft.realForwardFull( b );
+        }
+        finally
+        {
+            ConcurrencyUtils.setNumberOfThreads( threads );
+        }
+
+        assertTrue( "Executor used", used.get() > 0 );
+        for( i = 0; i < a.length; ++i )
+        {
+            assertEquals( "Element " + i, a[ i ], b[ i ], 0.0 );
+        }
+
+    }   /* testPlanExecutor() */
+
+    /**
+     * Tests that when tasks throw, the rest of the batch
+     * still runs, join() rethrows the first exception
+     * once, and the group can be used again.
+     * <br /><br />
+     * Expected return value: the first exception, then a
+     * clean batch
+     */
+    public void testFailure()
+    {
+        int                    i;
+        final AtomicInteger    ran   = new AtomicInteger();
+        final RuntimeException first = new IllegalStateException( "first" );
+        TaskGroup              tasks = new TaskGroup();
+
+        tasks.setExecutor( ConcurrencyUtils.CALLER_RUNS );
+        tasks.submit( new Runnable()
+        {
+            public void run()
+            {
+                throw first;
+            }
+        } );
+        for( i = 0; i < 3; ++i )
+        {
+            tasks.submit( new Runnable()
+            {
+                public void run()
+                {
+                    ran.incrementAndGet();
+                    throw new IllegalArgumentException( "later" );
+                }
+            } );
+        }
+
+        try
+        {
+            tasks.join();
+            fail( "Exception swallowed" );
+        }
+        catch( RuntimeException re )
+        {
+            assertSame( "First exception", first, re );
+        }
+        assertEquals( "Rest of the batch", 3, ran.get() );
+
+        tasks.submit( new Runnable()
+        {
+            public void run()
+            {
+                ran.incrementAndGet();
+            }
+        } );
+        tasks.join();
+        assertEquals( "Clean batch", 4, ran.get() );
+
+    }   /* testFailure() */
+
+};  /* TaskGroupTest */